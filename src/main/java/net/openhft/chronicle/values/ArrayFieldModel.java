@@ -18,12 +18,22 @@
 
 package net.openhft.chronicle.values;
 
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import net.openhft.chronicle.core.Maths;
+import net.openhft.chronicle.core.UnsafeMemory;
 import org.jetbrains.annotations.NotNull;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import static java.util.Arrays.asList;
+import static net.openhft.chronicle.values.Generators.methodBuilder;
+import static net.openhft.chronicle.values.Primitives.widthInBits;
 import static net.openhft.chronicle.values.Utils.roundUp;
 
 public class ArrayFieldModel extends FieldModel {
@@ -73,10 +83,57 @@ public class ArrayFieldModel extends FieldModel {
         }
     }
 
+    @Override
+    int atomicWordEnd(int bitOffset) {
+        return elemModel.arrayElementsAtomicWordEnd(this, bitOffset);
+    }
+
     int elemBitExtent() {
         return roundUp(elemModel.sizeInBits(), elemModel.offsetAlignmentInBits());
     }
 
+    /**
+     * Returns the number of elements in one {@code elementDontCrossAlignment}, if elements are laid
+     * out in such groups (see {@link #sizeInBits()}), otherwise 0
+     */
+    private int elemsInOneDontCrossAlignment() {
+        int elemBitExtent = elemBitExtent();
+        int elemDontCrossBits = elemModel.dontCrossAlignmentInBits();
+        if (elemBitExtent > elemDontCrossBits)
+            return 0;
+        return 1 << Maths.intLog2(elemDontCrossBits / elemBitExtent);
+    }
+
+    /**
+     * Returns the offset in bits of the element at the given index, if the array is laid out at
+     * the given offset
+     */
+    int elemBitOffset(int arrayBitOffset, int index) {
+        int elemsInOneAlignment = elemsInOneDontCrossAlignment();
+        if (elemsInOneAlignment == 0)
+            return arrayBitOffset + index * elemBitExtent();
+        int groupBitOffset = (index / elemsInOneAlignment) * elemModel.dontCrossAlignmentInBits();
+        return arrayBitOffset + groupBitOffset + (index % elemsInOneAlignment) * elemBitExtent();
+    }
+
+    /**
+     * Generates {@code elementBitOffset} variable, the offset in bits of the element at {@code
+     * index} from the value start, see {@link #elemBitOffset}
+     */
+    void genElementBitOffset(int arrayBitOffset, MethodSpec.Builder methodBuilder) {
+        int elemsInOneAlignment = elemsInOneDontCrossAlignment();
+        if (elemsInOneAlignment == 0) {
+            methodBuilder.addStatement("long elementBitOffset = $L + index * $LL",
+                    arrayBitOffset, elemBitExtent());
+        } else {
+            methodBuilder.addStatement(
+                    "long elementBitOffset = $L + (index >>> $L) * $LL + (index & $L) * $LL",
+                    arrayBitOffset, Maths.intLog2(elemsInOneAlignment),
+                    elemModel.dontCrossAlignmentInBits(), elemsInOneAlignment - 1,
+                    elemBitExtent());
+        }
+    }
+
     @Override
     int offsetAlignmentInBytes() {
         int elementAlignment = elemModel.maxAlignmentInBytes();
@@ -102,6 +159,14 @@ public class ArrayFieldModel extends FieldModel {
     @Override
     void postProcess() {
         super.postProcess();
+        if (updatedAtomically() && array.elementOffsetAlignment() == Align.DEFAULT &&
+                !(elemModel instanceof ValueFieldModel) &&
+                !(elemModel instanceof BooleanFieldModel) && elemModel.sizeInBits() % 8 == 0) {
+            // atomically updated elements of whole bytes are naturally aligned, unless specified
+            // otherwise, not to cross the words, compared-and-swapped. Elements of fewer bits stay
+            // bit-packed, compared-and-swapped via the enclosing word
+            elemModel.offsetAlignment = Align.DEFAULT;
+        }
         elemModel.postProcess();
     }
 
@@ -109,6 +174,440 @@ public class ArrayFieldModel extends FieldModel {
     void checkState() {
         super.checkState();
         elemModel.checkState();
+        if (bulkGet != null || bulkSet != null || fill != null) {
+            if (!type.isPrimitive() || type == boolean.class) {
+                throw new IllegalStateException("Bulk methods are supported only for arrays of " +
+                        "numeric primitives, field " + name);
+            }
+            checkBulkMethod(bulkGet);
+            checkBulkMethod(bulkSet);
+            if (bulkGet != null)
+                getOrGetVolatile();
+            if (bulkSet != null || fill != null)
+                setOrSetOrderedOrSetVolatile();
+        }
+        if (hasReductions()) {
+            if (!type.isPrimitive() || type == boolean.class) {
+                throw new IllegalStateException("Reductions are supported only for arrays of " +
+                        "numeric primitives, field " + name);
+            }
+            if (indexOf != null && indexOf.getReturnType() != int.class) {
+                throw new IllegalStateException(indexOf.getName() + "() should return int, " +
+                        "field " + name);
+            }
+            if (dot != null && dot.getParameterTypes()[0] != dot.getDeclaringClass()) {
+                throw new IllegalStateException(dot.getName() + "() should take another " +
+                        dot.getDeclaringClass().getSimpleName() + " value, field " + name);
+            }
+            // the slow path of reductions reads elements via the getter
+            getOrGetVolatile();
+        }
+    }
+
+    private boolean hasReductions() {
+        return sum != null || min != null || max != null || indexOf != null || dot != null;
+    }
+
+    private void checkBulkMethod(Method m) {
+        if (m != null && (m.getReturnType() != void.class ||
+                m.getParameterTypes()[0] != int.class || m.getParameterTypes()[2] != int.class ||
+                m.getParameterTypes()[3] != int.class)) {
+            throw new IllegalStateException(m.getName() + "() should be void " + m.getName() +
+                    "(int from, " + type + "[] array, int arrayOffset, int length), field " +
+                    name);
+        }
+    }
+
+    /**
+     * Whether elements are laid out contiguously in their natural width and stored untranslated,
+     * so a range of elements could be copied to or from a Java array as a single block of memory
+     */
+    private boolean contiguous(ValueBuilder valueBuilder) {
+        if (elemModel instanceof IntegerFieldModel) {
+            if (!((IntegerFieldModel) elemModel).hasDefaultRange())
+                return false;
+        } else if (!(elemModel instanceof FloatingFieldModel)) {
+            return false;
+        }
+        return valueBuilder.model.fieldBitOffset(this) % 8 == 0 &&
+                sizeInBits() == array.length() * widthInBits(type);
+    }
+
+    @Override
+    void generateMembers(MemberGenerator generator, ValueBuilder valueBuilder) {
+        super.generateMembers(generator, valueBuilder);
+        MemberGenerator elemGenerator = ((ArrayMemberGenerator) generator).elemGenerator;
+        if (bulkGet != null || bulkSet != null || fill != null)
+            generateBulkMethods(elemGenerator, valueBuilder);
+        if (hasReductions())
+            generateReductions(elemGenerator, valueBuilder);
+    }
+
+    /**
+     * Returns the array field of the heap implementation, if elements are stored in it
+     * untranslated, or {@code null}
+     */
+    private FieldSpec heapArray(MemberGenerator elemGenerator) {
+        if (elemGenerator instanceof HeapMemberGenerator) {
+            HeapMemberGenerator heapGenerator = (HeapMemberGenerator) elemGenerator;
+            if (heapGenerator.fieldType() == type)
+                return heapGenerator.field;
+        }
+        return null;
+    }
+
+    private void generateBulkMethods(MemberGenerator elemGenerator, ValueBuilder valueBuilder) {
+        BulkGenerator bulkGenerator;
+        if (!contiguous(valueBuilder)) {
+            bulkGenerator = new BulkGenerator(valueBuilder);
+        } else if (elemGenerator instanceof HeapMemberGenerator) {
+            FieldSpec heapArray = heapArray(elemGenerator);
+            bulkGenerator = heapArray != null ?
+                    new HeapBulkGenerator(valueBuilder, heapArray) :
+                    new BulkGenerator(valueBuilder);
+        } else {
+            bulkGenerator = new NativeBulkGenerator(valueBuilder,
+                    verifiedByteOffset(valueBuilder));
+        }
+        generateBulkMethod(valueBuilder, bulkGet, bulkGenerator::generateBulkGet,
+                "from", "dst", "dstOff", "len");
+        generateBulkMethod(valueBuilder, bulkSet, bulkGenerator::generateBulkSet,
+                "from", "src", "srcOff", "len");
+        generateBulkMethod(valueBuilder, fill, bulkGenerator::generateFill, varName());
+    }
+
+    /**
+     * Unlike {@link #generateMethod}, doesn't add the index parameter
+     */
+    private static void generateBulkMethod(
+            ValueBuilder valueBuilder, Method m, Consumer<MethodSpec.Builder> generate,
+            String... parameterNames) {
+        if (m != null) {
+            MethodSpec.Builder methodBuilder = methodBuilder(m, asList(parameterNames));
+            generate.accept(methodBuilder);
+            valueBuilder.typeBuilder.addMethod(methodBuilder.build());
+        }
+    }
+
+    /**
+     * Checks of the Java array bounds are generated in unchecked implementations too, because
+     * memory copies out of them would corrupt the Java heap
+     */
+    private void checkBulkBounds(
+            ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, String array,
+            String arrayOffset) {
+        valueBuilder.check(methodBuilder,
+                CodeBlock.of("from < 0 || len < 0 || from > $L - len", array().length()),
+                ArrayIndexOutOfBoundsException.class,
+                CodeBlock.of("\"from \" + from + \", len \" + len + $S",
+                        ", array length " + array().length()));
+        methodBuilder.beginControlFlow("if ($N < 0 || $N > $N.length - len)",
+                arrayOffset, arrayOffset, array);
+        methodBuilder.addStatement("throw new $T($S + $N + \", len \" + len + \", length \" + " +
+                        "$N.length)", ArrayIndexOutOfBoundsException.class, arrayOffset + " ",
+                arrayOffset, array);
+        methodBuilder.endControlFlow();
+    }
+
+    /**
+     * Generates bulk methods via element accessors, if elements couldn't be copied as a block
+     */
+    private class BulkGenerator {
+        final ValueBuilder valueBuilder;
+
+        BulkGenerator(ValueBuilder valueBuilder) {
+            this.valueBuilder = valueBuilder;
+        }
+
+        void generateBulkGet(MethodSpec.Builder methodBuilder) {
+            checkBulkBounds(valueBuilder, methodBuilder, "dst", "dstOff");
+            methodBuilder.beginControlFlow("for (int i = 0; i < len; i++)");
+            methodBuilder.addStatement("dst[dstOff + i] = $N(from + i)",
+                    getOrGetVolatile().getName());
+            methodBuilder.endControlFlow();
+        }
+
+        void generateBulkSet(MethodSpec.Builder methodBuilder) {
+            checkBulkBounds(valueBuilder, methodBuilder, "src", "srcOff");
+            methodBuilder.beginControlFlow("for (int i = 0; i < len; i++)");
+            methodBuilder.addStatement("$N(from + i, src[srcOff + i])",
+                    setOrSetOrderedOrSetVolatile().getName());
+            methodBuilder.endControlFlow();
+        }
+
+        void generateFill(MethodSpec.Builder methodBuilder) {
+            methodBuilder.beginControlFlow("for (int i = 0; i < $L; i++)", array.length());
+            methodBuilder.addStatement("$N(i, $N)",
+                    setOrSetOrderedOrSetVolatile().getName(), varName());
+            methodBuilder.endControlFlow();
+        }
+    }
+
+    private class HeapBulkGenerator extends BulkGenerator {
+        private final FieldSpec field;
+
+        HeapBulkGenerator(ValueBuilder valueBuilder, FieldSpec field) {
+            super(valueBuilder);
+            this.field = field;
+        }
+
+        @Override
+        void generateBulkGet(MethodSpec.Builder methodBuilder) {
+            methodBuilder.addStatement("$T.arraycopy($N, from, dst, dstOff, len)",
+                    System.class, field);
+        }
+
+        @Override
+        void generateBulkSet(MethodSpec.Builder methodBuilder) {
+            methodBuilder.addStatement("$T.arraycopy(src, srcOff, $N, from, len)",
+                    System.class, field);
+        }
+
+        @Override
+        void generateFill(MethodSpec.Builder methodBuilder) {
+            methodBuilder.addStatement("$T.fill($N, $N)", Arrays.class, field, varName());
+        }
+    }
+
+    /**
+     * Copies elements between the bytes store and a Java array as a single block: byte arrays
+     * via {@link net.openhft.chronicle.bytes.BytesStore} methods, other primitive arrays via
+     * {@link UnsafeMemory}, if the bytes store is direct memory, or element by element otherwise
+     */
+    private class NativeBulkGenerator extends BulkGenerator {
+        private final int byteOffset;
+        private final int elemSize;
+        private final String arrayBase;
+
+        NativeBulkGenerator(ValueBuilder valueBuilder, int byteOffset) {
+            super(valueBuilder);
+            this.byteOffset = byteOffset;
+            elemSize = widthInBits(type) / 8;
+            arrayBase = "ARRAY_" + type.getName().toUpperCase() + "_BASE_OFFSET";
+        }
+
+        private void genStart(MethodSpec.Builder methodBuilder) {
+            methodBuilder.addStatement("long start = offset + $L + from * $LL",
+                    byteOffset, elemSize);
+        }
+
+        @Override
+        void generateBulkGet(MethodSpec.Builder methodBuilder) {
+            checkBulkBounds(valueBuilder, methodBuilder, "dst", "dstOff");
+            genStart(methodBuilder);
+            if (type == byte.class) {
+                methodBuilder.addStatement("bs.read(start, dst, dstOff, len)");
+                return;
+            }
+            methodBuilder.beginControlFlow("if (bs.isDirectMemory())");
+            methodBuilder.addStatement("$T.MEMORY.copyMemory(bs.addressForRead(start), dst, " +
+                            "$T.$N + dstOff * $LL, len * $L)",
+                    UnsafeMemory.class, Utils.UNSAFE_CLASS, arrayBase, elemSize, elemSize);
+            methodBuilder.nextControlFlow("else");
+            methodBuilder.beginControlFlow("for (int i = 0; i < len; i++)");
+            methodBuilder.addStatement("dst[dstOff + i] = $Lbs.$N(start + i * $LL)",
+                    type == char.class ? "(char) " : "", readMethod(), elemSize);
+            methodBuilder.endControlFlow();
+            methodBuilder.endControlFlow();
+        }
+
+        @Override
+        void generateBulkSet(MethodSpec.Builder methodBuilder) {
+            checkBulkBounds(valueBuilder, methodBuilder, "src", "srcOff");
+            genStart(methodBuilder);
+            if (type == byte.class) {
+                methodBuilder.addStatement("bs.write(start, src, srcOff, len)");
+                return;
+            }
+            methodBuilder.beginControlFlow("if (bs.isDirectMemory())");
+            methodBuilder.addStatement("$T.MEMORY.copyMemory(src, $T.$N + srcOff * $LL, " +
+                            "bs.addressForWrite(start), len * $L)",
+                    UnsafeMemory.class, Utils.UNSAFE_CLASS, arrayBase, elemSize, elemSize);
+            methodBuilder.nextControlFlow("else");
+            methodBuilder.beginControlFlow("for (int i = 0; i < len; i++)");
+            methodBuilder.addStatement("bs.$N(start + i * $LL, src[srcOff + i])",
+                    writeMethod(), elemSize);
+            methodBuilder.endControlFlow();
+            methodBuilder.endControlFlow();
+        }
+
+        @Override
+        void generateFill(MethodSpec.Builder methodBuilder) {
+            methodBuilder.beginControlFlow("for (int i = 0; i < $L; i++)", array.length());
+            methodBuilder.addStatement("bs.$N(offset + $L + i * $LL, $N)",
+                    writeMethod(), byteOffset, elemSize, varName());
+            methodBuilder.endControlFlow();
+        }
+    }
+
+    /**
+     * Reads an element of this value, or of the {@code other} value of the dot product, at the
+     * given index, in reduction loops
+     */
+    private interface ElementReader {
+        CodeBlock element(boolean other, String index);
+    }
+
+    /**
+     * The straight-line loop over elements, stored contiguously, without calls and bounds checks,
+     * which is taken if {@link #condition} is true, or {@code null} if the fast path is always
+     * taken
+     */
+    private static class FastPath {
+        final CodeBlock condition;
+        final CodeBlock.Builder prelude = CodeBlock.builder();
+        ElementReader reader;
+
+        FastPath(CodeBlock condition) {
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * Generates {@code sum}, {@code min}, {@code max}, {@code indexOf} and {@code dot} methods as
+     * loops over the address of direct memory (native) or the Java array (heap), if elements are
+     * stored contiguously, falling back to the loop over the element getter, e. g. if the bytes
+     * store is not direct memory, or elements are packed
+     */
+    private void generateReductions(MemberGenerator elemGenerator, ValueBuilder valueBuilder) {
+        String getter = getOrGetVolatile().getName();
+        ElementReader slowReader = (other, index) ->
+                CodeBlock.of(other ? "other.$N($L)" : "$N($L)", getter, index);
+        for (Method m : new Method[]{sum, min, max, indexOf, dot}) {
+            if (m == null)
+                continue;
+            boolean isDot = m == dot;
+            MethodSpec.Builder methodBuilder =
+                    methodBuilder(m, asList(isDot ? "other" : "value"));
+            FastPath fastPath = contiguous(valueBuilder) ?
+                    fastPath(elemGenerator, valueBuilder, isDot) : null;
+            if (fastPath != null) {
+                if (fastPath.condition != null)
+                    methodBuilder.beginControlFlow("if ($L)", fastPath.condition);
+                methodBuilder.addCode(fastPath.prelude.build());
+                generateReduction(methodBuilder, m, fastPath.reader);
+                if (fastPath.condition != null)
+                    methodBuilder.endControlFlow();
+            }
+            if (fastPath == null || fastPath.condition != null)
+                generateReduction(methodBuilder, m, slowReader);
+            valueBuilder.typeBuilder.addMethod(methodBuilder.build());
+        }
+    }
+
+    private FastPath fastPath(
+            MemberGenerator elemGenerator, ValueBuilder valueBuilder, boolean isDot) {
+        ClassName className = valueBuilder.className();
+        if (elemGenerator instanceof HeapMemberGenerator) {
+            FieldSpec heapArray = heapArray(elemGenerator);
+            if (heapArray == null)
+                return null;
+            FastPath fastPath = new FastPath(
+                    isDot ? CodeBlock.of("other instanceof $T", className) : null);
+            fastPath.prelude.addStatement("$T[] values = $N", type, heapArray);
+            if (isDot) {
+                fastPath.prelude.addStatement("$T[] otherValues = (($T) other).$N",
+                        type, className, heapArray);
+            }
+            fastPath.reader = (other, index) ->
+                    CodeBlock.of("$N[$L]", other ? "otherValues" : "values", index);
+            return fastPath;
+        }
+        int byteOffset = verifiedByteOffset(valueBuilder);
+        int elemSize = widthInBits(type) / 8;
+        String read = type == char.class ? "readShort" : "read" + capTypeName();
+        if (!valueBuilder.cachedAddress) {
+            // the address is taken once per call, rather than once per element
+            FastPath fastPath = new FastPath(isDot ?
+                    CodeBlock.of("bs.isDirectMemory() && other instanceof $T && " +
+                            "(($T) other).bs.isDirectMemory()", className, className) :
+                    CodeBlock.of("bs.isDirectMemory()"));
+            fastPath.prelude.addStatement("long elements = bs.addressForRead(offset + $L)",
+                    byteOffset);
+            if (isDot) {
+                fastPath.prelude.addStatement("$T o = ($T) other", className, className);
+                fastPath.prelude.addStatement(
+                        "long otherElements = o.bs.addressForRead(o.offset + $L)", byteOffset);
+            }
+            fastPath.reader = (other, index) -> CodeBlock.of("$L$T.MEMORY.$N($N + $L * $LL)",
+                    type == char.class ? "(char) " : "", UnsafeMemory.class, read,
+                    other ? "otherElements" : "elements", index, elemSize);
+            return fastPath;
+        }
+        // the raw address is cached in bytesStore(), if the store is writable direct memory
+        FastPath fastPath = new FastPath(isDot ?
+                CodeBlock.of("rawAddress() != 0 && other instanceof $T && " +
+                        "(($T) other).rawAddress() != 0", className, className) :
+                CodeBlock.of("rawAddress() != 0"));
+        fastPath.prelude.addStatement("long elements = address + $L", byteOffset);
+        if (isDot) {
+            fastPath.prelude.addStatement(
+                    "long otherElements = (($T) other).address + $L", className, byteOffset);
+        }
+        fastPath.reader = (other, index) -> CodeBlock.of("$LMEMORY.$N($N + $L * $LL)",
+                type == char.class ? "(char) " : "", read,
+                other ? "otherElements" : "elements", index, elemSize);
+        return fastPath;
+    }
+
+    private void generateReduction(
+            MethodSpec.Builder methodBuilder, Method m, ElementReader reader) {
+        int length = array.length();
+        if (m == sum || m == dot) {
+            methodBuilder.addStatement("$T r = 0", type);
+            methodBuilder.beginControlFlow("for (int i = 0; i < $L; i++)", length);
+            if (m == sum) {
+                methodBuilder.addStatement("r += $L", reader.element(false, "i"));
+            } else {
+                methodBuilder.addStatement("r += $L * $L",
+                        reader.element(false, "i"), reader.element(true, "i"));
+            }
+            methodBuilder.endControlFlow();
+            methodBuilder.addStatement("return r");
+        } else if (m == min || m == max) {
+            methodBuilder.addStatement("$T r = $L", type, reader.element(false, "0"));
+            methodBuilder.beginControlFlow("for (int i = 1; i < $L; i++)", length);
+            // Math.min() and max() of bytes, shorts and chars return int
+            methodBuilder.addStatement("r = $L$T.$N(r, $L)",
+                    widthInBits(type) < 32 ? "(" + type.getName() + ") " : "", Math.class,
+                    m == min ? "min" : "max", reader.element(false, "i"));
+            methodBuilder.endControlFlow();
+            methodBuilder.addStatement("return r");
+        } else {
+            methodBuilder.beginControlFlow("for (int i = 0; i < $L; i++)", length);
+            if (type == float.class || type == double.class) {
+                // like Double.equals(), finds NaN and distinguishes 0.0 and -0.0
+                methodBuilder.beginControlFlow("if ($T.compare($L, value) == 0)",
+                        type == float.class ? Float.class : Double.class,
+                        reader.element(false, "i"));
+            } else {
+                methodBuilder.beginControlFlow("if ($L == value)", reader.element(false, "i"));
+            }
+            methodBuilder.addStatement("return i");
+            methodBuilder.endControlFlow();
+            methodBuilder.endControlFlow();
+            methodBuilder.addStatement("return -1");
+        }
+    }
+
+    @Override
+    void collectDependencies(boolean heap, Set<ValueModel> nativeDeps, Set<ValueModel> heapDeps) {
+        elemModel.collectDependencies(heap, nativeDeps, heapDeps);
+    }
+
+    @Override
+    boolean bytesCopyable() {
+        return elemModel.bytesCopyable();
+    }
+
+    @Override
+    void generateAccessMembers(ValueBuilder valueBuilder) {
+        elemModel.generateArrayElementAccessMembers(this, valueBuilder);
+    }
+
+    @Override
+    void collectAccessDependencies(Set<ValueModel> deps) {
+        elemModel.collectAccessDependencies(deps);
     }
 
     @NotNull
@@ -128,12 +627,11 @@ public class ArrayFieldModel extends FieldModel {
         return new ArrayMemberGenerator(this, elemModel.heapGenerator());
     }
 
-    void checkBounds(MethodSpec.Builder methodBuilder) {
-        methodBuilder.beginControlFlow("if (index < 0 || index >= $L)", array.length());
-        methodBuilder.addStatement("throw new $T(index + $S)",
+    void checkBounds(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+        valueBuilder.check(methodBuilder,
+                CodeBlock.of("index < 0 || index >= $L", array.length()),
                 ArrayIndexOutOfBoundsException.class,
-                " is out of bounds, array length " + array.length());
-        methodBuilder.endControlFlow();
+                CodeBlock.of("index + $S", " is out of bounds, array length " + array.length()));
     }
 
     public Array array() {
@@ -186,6 +684,11 @@ public class ArrayFieldModel extends FieldModel {
             elemGenerator.generateArrayElementSetOrdered(self(), valueBuilder, methodBuilder);
         }
 
+        @Override
+        void generateSetAtomic(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            elemGenerator.generateArrayElementSetAtomic(self(), valueBuilder, methodBuilder);
+        }
+
         @Override
         public void generateAdd(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
             elemGenerator.generateArrayElementAdd(self(), valueBuilder, methodBuilder);
@@ -202,6 +705,13 @@ public class ArrayFieldModel extends FieldModel {
             elemGenerator.generateArrayElementCompareAndSwap(self(), valueBuilder, methodBuilder);
         }
 
+        @Override
+        void generateAtomicUpdate(
+                ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, AtomicUpdate update) {
+            elemGenerator.generateArrayElementAtomicUpdate(
+                    self(), valueBuilder, methodBuilder, update);
+        }
+
         @Override
         public void generateCopyFrom(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
             beginLoop(methodBuilder);
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import java.util.function.*;
+
+import static net.openhft.chronicle.values.Primitives.isPrimitiveFloatingType;
+import static net.openhft.chronicle.values.Primitives.isPrimitiveIntegerType;
+
+/**
+ * Atomic read-modify-write operations of numeric fields, the same as of {@link
+ * java.util.concurrent.atomic.AtomicLong}. Generated as a compare-and-swap loop, unless the
+ * storage offers the operation directly (e. g. {@code getAndAdd}).
+ */
+enum AtomicUpdate {
+    /**
+     * {@code addAtomicXxx(addition)}
+     */
+    ADD_AND_GET(false) {
+        @Override
+        String[] parameterNames(FieldModel fieldModel) {
+            return new String[]{"addition"};
+        }
+
+        @Override
+        String addend() {
+            return "addition";
+        }
+    },
+    /**
+     * {@code getAndAddXxx(addition)}
+     */
+    GET_AND_ADD(true) {
+        @Override
+        String[] parameterNames(FieldModel fieldModel) {
+            return new String[]{"addition"};
+        }
+
+        @Override
+        String addend() {
+            return "addition";
+        }
+    },
+    /**
+     * {@code getAndIncrementXxx()}
+     */
+    GET_AND_INCREMENT(true) {
+        @Override
+        String[] parameterNames(FieldModel fieldModel) {
+            return new String[0];
+        }
+
+        @Override
+        String addend() {
+            return "1";
+        }
+    },
+    /**
+     * {@code getAndSetXxx(newValue)}
+     */
+    GET_AND_SET(true) {
+        @Override
+        String[] parameterNames(FieldModel fieldModel) {
+            return new String[]{fieldModel.varName()};
+        }
+
+        @Override
+        String newValue(FieldModel fieldModel, String oldValue) {
+            return fieldModel.varName();
+        }
+    },
+    /**
+     * {@code getAndOrXxx(mask)}, only for integer fields
+     */
+    GET_AND_OR(true) {
+        @Override
+        String[] parameterNames(FieldModel fieldModel) {
+            return new String[]{"mask"};
+        }
+
+        @Override
+        String newValue(FieldModel fieldModel, String oldValue) {
+            return cast(fieldModel.type, oldValue + " | mask");
+        }
+    },
+    /**
+     * {@code getAndAndXxx(mask)}, only for integer fields
+     */
+    GET_AND_AND(true) {
+        @Override
+        String[] parameterNames(FieldModel fieldModel) {
+            return new String[]{"mask"};
+        }
+
+        @Override
+        String newValue(FieldModel fieldModel, String oldValue) {
+            return cast(fieldModel.type, oldValue + " & mask");
+        }
+    },
+    /**
+     * {@code getAndXorXxx(mask)}, only for integer fields
+     */
+    GET_AND_XOR(true) {
+        @Override
+        String[] parameterNames(FieldModel fieldModel) {
+            return new String[]{"mask"};
+        }
+
+        @Override
+        String newValue(FieldModel fieldModel, String oldValue) {
+            return cast(fieldModel.type, oldValue + " ^ mask");
+        }
+    },
+    /**
+     * {@code updateAndGetXxx(updateFunction)}, the function is {@code IntUnaryOperator}, {@code
+     * LongUnaryOperator} or {@code DoubleUnaryOperator}, depending on the field type
+     */
+    UPDATE_AND_GET(false) {
+        @Override
+        String[] parameterNames(FieldModel fieldModel) {
+            return new String[]{"updateFunction"};
+        }
+
+        @Override
+        String newValue(FieldModel fieldModel, String oldValue) {
+            return cast(fieldModel.type, "updateFunction.applyAs" + operandType(fieldModel.type) +
+                    "(" + oldValue + ")");
+        }
+    },
+    /**
+     * {@code accumulateAndGetXxx(x, accumulatorFunction)}, the function is {@code
+     * IntBinaryOperator}, {@code LongBinaryOperator} or {@code DoubleBinaryOperator}, depending on
+     * the field type
+     */
+    ACCUMULATE_AND_GET(false) {
+        @Override
+        String[] parameterNames(FieldModel fieldModel) {
+            return new String[]{"x", "accumulatorFunction"};
+        }
+
+        @Override
+        String newValue(FieldModel fieldModel, String oldValue) {
+            return cast(fieldModel.type, "accumulatorFunction.applyAs" +
+                    operandType(fieldModel.type) + "(" + oldValue + ", x)");
+        }
+    };
+
+    /**
+     * Whether the operation returns the previous value of the field, rather than the updated one
+     */
+    final boolean returnsOld;
+
+    AtomicUpdate(boolean returnsOld) {
+        this.returnsOld = returnsOld;
+    }
+
+    abstract String[] parameterNames(FieldModel fieldModel);
+
+    /**
+     * Returns the value added to the field, if the operation is an atomic addition, or {@code
+     * null}
+     */
+    String addend() {
+        return null;
+    }
+
+    /**
+     * Returns the expression of the updated value of the field, of the field type
+     */
+    String newValue(FieldModel fieldModel, String oldValue) {
+        return cast(fieldModel.type, oldValue + " + " + addend());
+    }
+
+    /**
+     * Returns the name of the value variable returned by the operation
+     */
+    String returned(FieldModel fieldModel) {
+        return returnsOld ? fieldModel.oldName() : fieldModel.newName();
+    }
+
+    private static String cast(Class type, String value) {
+        if (type == int.class || type == long.class || type == double.class)
+            return value;
+        return "(" + type.getSimpleName() + ") (" + value + ")";
+    }
+
+    private static String operandType(Class type) {
+        if (type == long.class)
+            return "Long";
+        if (isPrimitiveFloatingType(type))
+            return "Double";
+        return "Int";
+    }
+
+    /**
+     * Returns the type of the {@code updateAndGet} function for the given field type, or {@code
+     * null}, if the field type is not numeric
+     */
+    static Class unaryOperator(Class type) {
+        if (type == long.class)
+            return LongUnaryOperator.class;
+        if (isPrimitiveFloatingType(type))
+            return DoubleUnaryOperator.class;
+        return isPrimitiveIntegerType(type) ? IntUnaryOperator.class : null;
+    }
+
+    /**
+     * Returns the type of the {@code accumulateAndGet} function for the given field type, or
+     * {@code null}, if the field type is not numeric
+     */
+    static Class binaryOperator(Class type) {
+        if (type == long.class)
+            return LongBinaryOperator.class;
+        if (isPrimitiveFloatingType(type))
+            return DoubleBinaryOperator.class;
+        return isPrimitiveIntegerType(type) ? IntBinaryOperator.class : null;
+    }
+}
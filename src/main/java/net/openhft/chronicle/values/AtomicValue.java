@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+/**
+ * Atomic operations on the value as a whole, implemented by the generated implementations of
+ * value interfaces, which extend this interface.
+ * <p>
+ * <p>Native implementations of values up to 8 bytes compare-and-swap the 32-bit or 64-bit word of
+ * the value, the value size is rounded up to the word size. There is no 128-bit compare-and-swap
+ * in Java, bigger values should be {@link Versioned}, then these operations run under the seqlock
+ * of the value, i. e. they are atomic with respect to {@link VersionedValue} methods and each
+ * other, but not to field accessors. Heap implementations run these operations under the monitor
+ * of the value.
+ * <p>
+ * <p>Native implementations of values up to 8 bytes compare the bits of the fields, e. g. {@code
+ * -0.0} and {@code 0.0} differ. Other implementations compare the values via {@code equals()}.
+ *
+ * @param <T> the value interface
+ */
+public interface AtomicValue<T> {
+    /**
+     * Atomically replaces this value with the {@code newValue}, if this value is equal to the
+     * {@code expected} value.
+     *
+     * @param expected the expected value
+     * @param newValue the new value
+     * @return {@code true}, if the value was replaced
+     */
+    boolean compareAndSwapValue(T expected, T newValue);
+
+    /**
+     * Atomically replaces this value with the {@code newValue} and copies the previous value to
+     * the given {@code using} value, a heap or native implementation of the value interface.
+     *
+     * @param newValue the new value
+     * @param using    the value to copy the previous value to
+     * @return the given {@code using} value
+     */
+    T getAndSetValue(T newValue, T using);
+}
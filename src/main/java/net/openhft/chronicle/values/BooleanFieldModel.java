@@ -21,6 +21,7 @@ package net.openhft.chronicle.values;
 import com.squareup.javapoet.MethodSpec;
 
 import static java.lang.String.format;
+import static net.openhft.chronicle.values.Utils.roundUp;
 
 class BooleanFieldModel extends PrimitiveFieldModel {
 
@@ -37,13 +38,33 @@ class BooleanFieldModel extends PrimitiveFieldModel {
             get(valueBuilder, methodBuilder, "");
         }
 
+        /**
+         * Plain reads and writes go to the raw address, if it is cached, see {@link
+         * FieldModel#plainRead}
+         */
+        private String readByte(ValueBuilder valueBuilder, String readType, String ioOffset) {
+            if (readType.isEmpty())
+                return plainRead(valueBuilder, byte.class, ioOffset);
+            return format("bs.read%sByte(%s)", readType, ioOffset);
+        }
+
+        private void writeByte(
+                ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, String writeType,
+                String ioOffset) {
+            if (writeType.isEmpty()) {
+                genPlainWrite(valueBuilder, methodBuilder, byte.class, ioOffset, "(byte) b");
+            } else {
+                methodBuilder.addStatement("bs.write$NByte($L, (byte) b)", writeType, ioOffset);
+            }
+        }
+
         private void get(
                 ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, String readType) {
             int bitOffset = valueBuilder.model.fieldBitOffset(BooleanFieldModel.this);
             int byteOffset = bitOffset / 8;
             int bitShift = bitOffset & 7;
-            methodBuilder.addStatement("return (bs.read$NByte(offset + $L) & (1 << $L)) != 0",
-                    readType, byteOffset, bitShift);
+            methodBuilder.addStatement("return ($L & (1 << $L)) != 0",
+                    readByte(valueBuilder, readType, "offset + " + byteOffset), bitShift);
         }
 
         @Override
@@ -56,13 +77,13 @@ class BooleanFieldModel extends PrimitiveFieldModel {
         private void arrayElementGet(
                 ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                 MethodSpec.Builder methodBuilder, String readType) {
-            arrayFieldModel.checkBounds(methodBuilder);
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
             int arrayBitOffset = valueBuilder.model.fieldBitOffset(arrayFieldModel);
             methodBuilder.addStatement("int bitOffset = $L + index", arrayBitOffset);
             methodBuilder.addStatement("int byteOffset = bitOffset / 8");
             methodBuilder.addStatement("int bitShift = bitOffset & 7");
-            methodBuilder.addStatement(
-                    "return (bs.read$NByte(offset + byteOffset) & (1 << bitShift)) != 0", readType);
+            methodBuilder.addStatement("return ($L & (1 << bitShift)) != 0",
+                    readByte(valueBuilder, readType, "offset + byteOffset"));
         }
 
         @Override
@@ -88,21 +109,21 @@ class BooleanFieldModel extends PrimitiveFieldModel {
             int bitOffset = valueBuilder.model.fieldBitOffset(BooleanFieldModel.this);
             int byteOffset = bitOffset / 8;
             int bitShift = bitOffset & 7;
-            methodBuilder.addStatement("int b = bs.read$NByte(offset + $L)", readType, byteOffset);
+            methodBuilder.addStatement("int b = $L",
+                    readByte(valueBuilder, readType, "offset + " + byteOffset));
             methodBuilder.beginControlFlow("if ($N)", varName());
             methodBuilder.addStatement("b |= (1 << $L)", bitShift);
             methodBuilder.nextControlFlow("else");
             methodBuilder.addStatement("b &= ~(1 << $L)", bitShift);
             methodBuilder.endControlFlow();
-            methodBuilder.addStatement("bs.write$NByte(offset + $L, (byte) b)",
-                    writeType, byteOffset);
+            writeByte(valueBuilder, methodBuilder, writeType, "offset + " + byteOffset);
         }
 
         @Override
         void generateArrayElementSet(
                 ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                 MethodSpec.Builder methodBuilder) {
-            arrayFieldModel.checkBounds(methodBuilder);
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
             arrayElementSet(arrayFieldModel, valueBuilder, methodBuilder, "", "");
         }
 
@@ -113,13 +134,14 @@ class BooleanFieldModel extends PrimitiveFieldModel {
             methodBuilder.addStatement("int bitOffset = $L + index", arrayBitOffset);
             methodBuilder.addStatement("int byteOffset = bitOffset / 8");
             methodBuilder.addStatement("int bitShift = bitOffset & 7");
-            methodBuilder.addStatement("int b = bs.read$NByte(offset + byteOffset)", readType);
+            methodBuilder.addStatement("int b = $L",
+                    readByte(valueBuilder, readType, "offset + byteOffset"));
             methodBuilder.beginControlFlow("if ($N)", varName());
             methodBuilder.addStatement("b |= (1 << bitShift)");
             methodBuilder.nextControlFlow("else");
             methodBuilder.addStatement("b &= ~(1 << bitShift)");
             methodBuilder.endControlFlow();
-            methodBuilder.addStatement("bs.write$NByte(offset + byteOffset, (byte) b)", writeType);
+            writeByte(valueBuilder, methodBuilder, writeType, "offset + byteOffset");
         }
 
         @Override
@@ -131,78 +153,110 @@ class BooleanFieldModel extends PrimitiveFieldModel {
         void generateArrayElementSetVolatile(
                 ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                 MethodSpec.Builder methodBuilder) {
-            arrayFieldModel.checkBounds(methodBuilder);
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
             arrayElementSet(arrayFieldModel, valueBuilder, methodBuilder, "Volatile", "Volatile");
         }
 
+        /**
+         * Generates {@code wordOffset} and {@code bit} variables: the int word, enclosing the bit
+         * of the field, and the mask of the field bit in the word
+         */
+        private void word(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            int bitOffset = valueBuilder.model.fieldBitOffset(BooleanFieldModel.this);
+            methodBuilder.addStatement("long wordOffset = offset + $L", bitOffset / 32 * 4);
+            methodBuilder.addStatement("int bit = 1 << $L", bitOffset % 32);
+        }
+
+        private void arrayElementWord(
+                ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
+                MethodSpec.Builder methodBuilder) {
+            int arrayBitOffset = valueBuilder.model.fieldBitOffset(arrayFieldModel);
+            methodBuilder.addStatement("int bitOffset = $L + index", arrayBitOffset);
+            methodBuilder.addStatement("long wordOffset = offset + ((bitOffset >>> 5) << 2)");
+            methodBuilder.addStatement("int bit = 1 << (bitOffset & 31)");
+        }
+
+        private String newWord(String word, String value) {
+            return format("%s ? %s | bit : %s & ~bit", value, word, word);
+        }
+
         @Override
         void generateSetOrdered(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
-            int bitOffset = valueBuilder.model.fieldBitOffset(BooleanFieldModel.this);
-            int byteOffset = bitOffset / 8;
-            methodBuilder.addStatement("long byteOffset = (offset + $L) & ~3L", byteOffset);
-            methodBuilder.addStatement("int bitShift = (int) (((offset * 8) + $L) & 31)",
-                    bitOffset);
+            word(valueBuilder, methodBuilder);
             endSetOrdered(methodBuilder);
         }
 
         private void endSetOrdered(MethodSpec.Builder methodBuilder) {
-            methodBuilder.addStatement("int i = bs.readVolatileInt(byteOffset)");
-            methodBuilder.beginControlFlow("if ($N)", varName());
-            methodBuilder.addStatement("i |= (1 << bitShift)");
-            methodBuilder.nextControlFlow("else");
-            methodBuilder.addStatement("i &= ~(1 << bitShift)");
-            methodBuilder.endControlFlow();
-            methodBuilder.addStatement("bs.writeOrderedInt(byteOffset, i)");
+            methodBuilder.addStatement("int word = bs.readVolatileInt(wordOffset)");
+            methodBuilder.addStatement("bs.writeOrderedInt(wordOffset, $L)",
+                    newWord("word", varName()));
         }
 
         @Override
         void generateArrayElementSetOrdered(
                 ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                 MethodSpec.Builder methodBuilder) {
-            arrayFieldModel.checkBounds(methodBuilder);
-            int arrayBitOffset = valueBuilder.model.fieldBitOffset(arrayFieldModel);
-            methodBuilder.addStatement("long bitOffset = (offset * 8) + $L + index",
-                    arrayBitOffset);
-            methodBuilder.addStatement("long byteOffset = (bitOffset / 32) * 4");
-            methodBuilder.addStatement("int bitShift = (int) ((bitOffset + $L) & 31)");
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
+            arrayElementWord(arrayFieldModel, valueBuilder, methodBuilder);
             endSetOrdered(methodBuilder);
         }
 
+        @Override
+        void generateSetAtomic(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            word(valueBuilder, methodBuilder);
+            endSetAtomic(methodBuilder);
+        }
+
+        /**
+         * Unlike the ordered set, doesn't lose concurrent updates of other bits of the word
+         */
+        private void endSetAtomic(MethodSpec.Builder methodBuilder) {
+            methodBuilder.beginControlFlow("while (true)");
+            methodBuilder.addStatement("int word = bs.readVolatileInt(wordOffset)");
+            methodBuilder.beginControlFlow("if (bs.compareAndSwapInt(wordOffset, word, $L))",
+                    newWord("word", varName()));
+            methodBuilder.addStatement("return");
+            methodBuilder.endControlFlow();
+            methodBuilder.endControlFlow();
+        }
+
+        @Override
+        void generateArrayElementSetAtomic(
+                ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
+                MethodSpec.Builder methodBuilder) {
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
+            arrayElementWord(arrayFieldModel, valueBuilder, methodBuilder);
+            endSetAtomic(methodBuilder);
+        }
+
         @Override
         void generateCompareAndSwap(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
-            int bitOffset = valueBuilder.model.fieldBitOffset(BooleanFieldModel.this);
-            int byteOffset = bitOffset / 8;
-            methodBuilder.addStatement("long byteOffset = (offset + $L) & ~3L", byteOffset);
-            methodBuilder.addStatement("int bitShift = (int) (((offset * 8) + $L) & 31)",
-                    bitOffset);
+            word(valueBuilder, methodBuilder);
             endCompareAndSwap(methodBuilder);
         }
 
+        /**
+         * Retries, if other bits of the word are updated concurrently
+         */
         private void endCompareAndSwap(MethodSpec.Builder methodBuilder) {
-            methodBuilder.addStatement("int i = bs.readVolatileInt(byteOffset), x");
-            methodBuilder.beginControlFlow("if ($N)", newName());
-            methodBuilder.addStatement("x = i | (1 << bitShift)");
-            methodBuilder.nextControlFlow("else");
-            methodBuilder.addStatement("x = i & ~(1 << bitShift)");
+            methodBuilder.beginControlFlow("while (true)");
+            methodBuilder.addStatement("int word = bs.readVolatileInt(wordOffset)");
+            methodBuilder.beginControlFlow("if (((word & bit) != 0) != $N)", oldName());
+            methodBuilder.addStatement("return false");
+            methodBuilder.endControlFlow();
+            methodBuilder.beginControlFlow("if (bs.compareAndSwapInt(wordOffset, word, $L))",
+                    newWord("word", newName()));
+            methodBuilder.addStatement("return true");
             methodBuilder.endControlFlow();
-            methodBuilder.beginControlFlow("if ($N == $N)", oldName(), newName());
-            methodBuilder.addCode("if (i != x) return false;\n");
-            methodBuilder.nextControlFlow("else");
-            methodBuilder.addCode("if (i == x) return false;\n");
             methodBuilder.endControlFlow();
-            methodBuilder.addStatement("return bs.compareAndSwapInt(byteOffset, i, x)");
         }
 
         @Override
         void generateArrayElementCompareAndSwap(
                 ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                 MethodSpec.Builder methodBuilder) {
-            arrayFieldModel.checkBounds(methodBuilder);
-            int arrayBitOffset = valueBuilder.model.fieldBitOffset(arrayFieldModel);
-            methodBuilder.addStatement("long bitOffset = (offset * 8) + $L + index",
-                    arrayBitOffset);
-            methodBuilder.addStatement("long byteOffset = (bitOffset / 32) * 4");
-            methodBuilder.addStatement("int bitShift = (int) ((bitOffset + $L) & 31)");
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
+            arrayElementWord(arrayFieldModel, valueBuilder, methodBuilder);
             endCompareAndSwap(methodBuilder);
         }
 
@@ -282,6 +336,34 @@ class BooleanFieldModel extends PrimitiveFieldModel {
         }
     };
 
+    /**
+     * Booleans are packed, volatile and ordered writes write the whole byte or int, atomic
+     * operations access the enclosing int word
+     */
+    @Override
+    void addVolatileInfo(MethodTemplate template) {
+        String regex = template.regex;
+        if ((regex.contains("Volatile") || regex.contains("Ordered") ||
+                regex.contains("Acquire") || regex.contains("Release") ||
+                regex.contains("Opaque")) && !alignmentSpecifiedExplicitly) {
+            offsetAlignment = 1;
+        }
+    }
+
+    @Override
+    int atomicWordEnd(int bitOffset) {
+        if (!updatedAtomically() && !hasOrderedSet())
+            return 0;
+        return roundUp(bitOffset + 1, 32);
+    }
+
+    @Override
+    int arrayElementsAtomicWordEnd(ArrayFieldModel arrayFieldModel, int arrayBitOffset) {
+        if (!arrayFieldModel.updatedAtomically() && !arrayFieldModel.hasOrderedSet())
+            return 0;
+        return roundUp(arrayBitOffset + arrayFieldModel.array.length(), 32);
+    }
+
     @Override
     int offsetAlignmentInBytes() {
         if (offsetAlignment == Align.DEFAULT) {
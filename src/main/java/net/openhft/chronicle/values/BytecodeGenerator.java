@@ -0,0 +1,623 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.bytes.*;
+import net.openhft.chronicle.core.Jvm;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.toList;
+import static net.openhft.chronicle.values.Primitives.widthInBits;
+import static net.openhft.chronicle.values.Utils.capitalize;
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Emits bytecode of native implementations directly, bypassing Java source generation and
+ * compilation. Produces classes, equivalent to those generated by {@link
+ * Generators#generateNativeClass}. Enabled with {@code chronicle.values.bytecode} system property.
+ * <p>
+ * <p>Only value models, all fields of which are byte-aligned primitive fields without {@link
+ * Range} and {@code getUsing} methods are supported so far, see {@link #supportsNative}. Other
+ * models fall back to generation and compilation of Java source.
+ */
+final class BytecodeGenerator {
+
+    static final boolean ENABLED = Jvm.getBoolean("chronicle.values.bytecode");
+
+    private static final String BYTES_STORE_DESC = Type.getDescriptor(BytesStore.class);
+
+    private final ValueModel model;
+    private final String className;
+    private final String valueType;
+    private final List<FieldModel> fields;
+    private final ClassWriter cw;
+
+    private BytecodeGenerator(ValueModel model, String classNameWithPackage) {
+        this.model = model;
+        this.className = classNameWithPackage.replace('.', '/');
+        this.valueType = Type.getInternalName(model.valueType);
+        this.fields = model.fields().collect(toList());
+        cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                // only the same types meet at branch merges in the generated methods
+                return "java/lang/Object";
+            }
+        };
+    }
+
+    /**
+     * Returns the bytes of the native implementation class of the given model, or {@code null}
+     * if the model is not supported.
+     */
+    static byte[] generateNativeClass(ValueModel model, String classNameWithPackage) {
+        if (!supportsNative(model))
+            return null;
+        return new BytecodeGenerator(model, classNameWithPackage).generateNative();
+    }
+
+    /**
+     * Returns the bytes of a {@code Supplier} class, which {@code get()} method is {@code return
+     * new <implClassNameWithPackage>();}. Used by {@link ImplFactories} regardless of {@link
+     * #ENABLED}.
+     */
+    static byte[] generateFactory(String factoryClassNameWithPackage,
+                                  String implClassNameWithPackage) {
+        String factoryClass = factoryClassNameWithPackage.replace('.', '/');
+        String implClass = implClassNameWithPackage.replace('.', '/');
+        String supplier = Type.getInternalName(Supplier.class);
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, factoryClass,
+                "Ljava/lang/Object;L" + supplier + "<L" + implClass + ";>;",
+                "java/lang/Object", new String[]{supplier});
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        end(mv);
+        mv = cw.visitMethod(ACC_PUBLIC, "get", "()Ljava/lang/Object;", null, null);
+        mv.visitCode();
+        mv.visitTypeInsn(NEW, implClass);
+        mv.visitInsn(DUP);
+        mv.visitMethodInsn(INVOKESPECIAL, implClass, "<init>", "()V", false);
+        mv.visitInsn(ARETURN);
+        end(mv);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * Returns the bytes of a {@code Supplier} class to be defined as a hidden class with a
+     * constructor {@code MethodHandle} of type {@code ()Object} as the class data, see {@link
+     * HiddenClasses#newInstanceWithClassData}. The handle is stored in a static final field, so
+     * it is a constant for JIT, and {@code get()} is compiled as the constructor call. Used by
+     * {@link ImplFactories} for hidden implementation classes, which {@link #generateFactory
+     * factories} cannot refer to by name.
+     */
+    static byte[] generateClassDataFactory(String factoryClassNameWithPackage) {
+        String factoryClass = factoryClassNameWithPackage.replace('.', '/');
+        String supplier = Type.getInternalName(Supplier.class);
+        String methodHandles = Type.getInternalName(MethodHandles.class);
+        String methodHandle = Type.getInternalName(MethodHandle.class);
+        String methodHandleDesc = Type.getDescriptor(MethodHandle.class);
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, factoryClass, null,
+                "java/lang/Object", new String[]{supplier});
+        cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, "CONSTRUCTOR", methodHandleDesc,
+                null, null).visitEnd();
+        MethodVisitor mv = cw.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+        mv.visitCode();
+        mv.visitMethodInsn(INVOKESTATIC, methodHandles, "lookup",
+                "()" + Type.getDescriptor(MethodHandles.Lookup.class), false);
+        mv.visitLdcInsn("_");
+        mv.visitLdcInsn(Type.getType(MethodHandle.class));
+        mv.visitMethodInsn(INVOKESTATIC, methodHandles, "classData",
+                "(" + Type.getDescriptor(MethodHandles.Lookup.class) +
+                        "Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;", false);
+        mv.visitTypeInsn(CHECKCAST, methodHandle);
+        mv.visitFieldInsn(PUTSTATIC, factoryClass, "CONSTRUCTOR", methodHandleDesc);
+        mv.visitInsn(RETURN);
+        end(mv);
+        mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        end(mv);
+        mv = cw.visitMethod(ACC_PUBLIC, "get", "()Ljava/lang/Object;", null, null);
+        mv.visitCode();
+        mv.visitFieldInsn(GETSTATIC, factoryClass, "CONSTRUCTOR", methodHandleDesc);
+        mv.visitMethodInsn(INVOKEVIRTUAL, methodHandle, "invokeExact",
+                "()Ljava/lang/Object;", false);
+        mv.visitInsn(ARETURN);
+        end(mv);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    static boolean supportsNative(ValueModel model) {
+        // VersionedValue and AtomicValue methods, and asserts of unchecked implementations are
+        // generated only in the source
+        if (model.versioned || model.atomicValue || model.unchecked)
+            return false;
+        Set<Method> fieldMethods = new HashSet<>();
+        for (FieldModel field : model.fields().collect(toList())) {
+            if (!supportsNativeField(model, field))
+                return false;
+            addMethods(field, fieldMethods);
+        }
+        // abstract methods, not implemented by this generator, would fail with AbstractMethodError
+        // only when called, rather than fail the compilation
+        for (Method m : model.valueType.getMethods()) {
+            if (Modifier.isAbstract(m.getModifiers()) && !fieldMethods.contains(m) &&
+                    !isCommonMethod(m)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean supportsNativeField(ValueModel model, FieldModel field) {
+        Class type = field.type;
+        if (field.getClass() == IntegerFieldModel.class) {
+            if (!((IntegerFieldModel) field).hasDefaultRange())
+                return false;
+        } else if (field.getClass() != FloatingFieldModel.class) {
+            return false;
+        }
+        if (field.getUsing != null || field.sizeInBits() != widthInBits(type) ||
+                model.fieldBitOffset(field) % 8 != 0) {
+            return false;
+        }
+        if (field.get == null && field.getVolatile == null)
+            return false;
+        boolean wide = type == int.class || type == long.class ||
+                type == float.class || type == double.class;
+        if (!wide && (field.getVolatile != null || field.getAcquire != null ||
+                field.getOpaque != null || field.setVolatile != null || field.hasOrderedSet() ||
+                field.add != null || field.addAtomic != null || field.compareAndSwap != null)) {
+            return false;
+        }
+        return returns(field.get, type) && returns(field.getVolatile, type) &&
+                returns(field.getAcquire, type) && returns(field.getOpaque, type) &&
+                returns(field.set, void.class) && returns(field.setVolatile, void.class) &&
+                returns(field.setOrdered, void.class) && returns(field.setRelease, void.class) &&
+                returns(field.setOpaque, void.class) && returns(field.add, type) &&
+                returns(field.addAtomic, type) && returns(field.compareAndSwap, boolean.class);
+    }
+
+    private static boolean returns(Method m, Class type) {
+        return m == null || m.getReturnType() == type;
+    }
+
+    private static void addMethods(FieldModel field, Set<Method> methods) {
+        for (Method m : new Method[]{field.get, field.getVolatile, field.getAcquire,
+                field.getOpaque, field.set, field.setVolatile, field.setOrdered, field.setRelease,
+                field.setOpaque, field.add, field.addAtomic, field.compareAndSwap}) {
+            if (m != null)
+                methods.add(m);
+        }
+    }
+
+    private static boolean isCommonMethod(Method m) {
+        Class<?> declaringClass = m.getDeclaringClass();
+        return declaringClass.isAssignableFrom(Byteable.class) ||
+                declaringClass.isAssignableFrom(BytesMarshallable.class) ||
+                declaringClass.isAssignableFrom(Copyable.class);
+    }
+
+    private byte[] generateNative() {
+        String copyable = Type.getInternalName(Copyable.class);
+        String signature = "Ljava/lang/Object;L" + valueType + ";L" + copyable +
+                "<L" + valueType + ";>;" + Type.getDescriptor(BytesMarshallable.class) +
+                Type.getDescriptor(Byteable.class);
+        cw.visit(V1_8, ACC_PUBLIC | ACC_SUPER, className, signature, "java/lang/Object",
+                new String[]{valueType, copyable, Type.getInternalName(BytesMarshallable.class),
+                        Type.getInternalName(Byteable.class)});
+        cw.visitField(ACC_PRIVATE, "bs", BYTES_STORE_DESC, null, null).visitEnd();
+        cw.visitField(ACC_PRIVATE, "offset", "J", null, null).visitEnd();
+        generateConstructor();
+        for (FieldModel field : fields) {
+            generateFieldMethods(field);
+        }
+        generateCopyFrom();
+        generateWriteMarshallable();
+        generateReadMarshallable();
+        generateEquals();
+        generateHashCode();
+        generateByteableMethods();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private void generateConstructor() {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        end(mv);
+    }
+
+    private void generateFieldMethods(FieldModel field) {
+        Type type = Type.getType(field.type);
+        if (field.get != null) {
+            MethodVisitor mv = begin(field.get);
+            read(mv, field, "read");
+            mv.visitInsn(type.getOpcode(IRETURN));
+            end(mv);
+        }
+        // acquire and opaque reads are volatile, release and opaque writes are ordered, see
+        // FieldModel.generateMembers()
+        for (Method getVolatile :
+                new Method[]{field.getVolatile, field.getAcquire, field.getOpaque}) {
+            if (getVolatile != null) {
+                MethodVisitor mv = begin(getVolatile);
+                read(mv, field, "readVolatile");
+                mv.visitInsn(type.getOpcode(IRETURN));
+                end(mv);
+            }
+        }
+        generateWrite(field, field.set, "write");
+        generateWrite(field, field.setVolatile, "writeVolatile");
+        generateWrite(field, field.setOrdered, "writeOrdered");
+        generateWrite(field, field.setRelease, "writeOrdered");
+        generateWrite(field, field.setOpaque, "writeOrdered");
+        if (field.add != null) {
+            // non-atomic read, add, write, like addAndGetXxxNotAtomic()
+            MethodVisitor mv = begin(field.add);
+            int newValue = 1 + type.getSize();
+            read(mv, field, "read");
+            mv.visitVarInsn(type.getOpcode(ILOAD), 1);
+            mv.visitInsn(type.getOpcode(IADD));
+            mv.visitVarInsn(type.getOpcode(ISTORE), newValue);
+            loadAddress(mv, field);
+            mv.visitVarInsn(type.getOpcode(ILOAD), newValue);
+            invokeBytesStore(mv, "write" + capTypeName(field), long.class, field.type);
+            mv.visitVarInsn(type.getOpcode(ILOAD), newValue);
+            mv.visitInsn(type.getOpcode(IRETURN));
+            end(mv);
+        }
+        if (field.addAtomic != null) {
+            MethodVisitor mv = begin(field.addAtomic);
+            loadAddress(mv, field);
+            mv.visitVarInsn(type.getOpcode(ILOAD), 1);
+            invokeBytesStore(mv, "addAndGet" + capTypeName(field), long.class, field.type);
+            mv.visitInsn(type.getOpcode(IRETURN));
+            end(mv);
+        }
+        if (field.compareAndSwap != null) {
+            MethodVisitor mv = begin(field.compareAndSwap);
+            loadAddress(mv, field);
+            mv.visitVarInsn(type.getOpcode(ILOAD), 1);
+            mv.visitVarInsn(type.getOpcode(ILOAD), 1 + type.getSize());
+            invokeBytesStore(mv, "compareAndSwap" + capTypeName(field),
+                    long.class, field.type, field.type);
+            mv.visitInsn(IRETURN);
+            end(mv);
+        }
+    }
+
+    private void generateWrite(FieldModel field, Method m, String method) {
+        if (m == null)
+            return;
+        MethodVisitor mv = begin(m);
+        loadAddress(mv, field);
+        mv.visitVarInsn(Type.getType(field.type).getOpcode(ILOAD), 1);
+        write(mv, field, method);
+        mv.visitInsn(RETURN);
+        end(mv);
+    }
+
+    private void generateCopyFrom() {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "copyFrom",
+                "(L" + valueType + ";)V", null, null);
+        mv.visitCode();
+        Label notNative = new Label();
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(INSTANCEOF, className);
+        mv.visitJumpInsn(IFEQ, notNative);
+        loadThisField(mv, "bs", BYTES_STORE_DESC);
+        loadThisField(mv, "offset", "J");
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, className);
+        mv.visitFieldInsn(GETFIELD, className, "bs", BYTES_STORE_DESC);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, className);
+        mv.visitFieldInsn(GETFIELD, className, "offset", "J");
+        mv.visitLdcInsn((long) model.sizeInBytes());
+        invokeBytesStore(mv, "write", long.class, RandomDataInput.class, long.class, long.class);
+        mv.visitInsn(RETURN);
+        mv.visitLabel(notNative);
+        for (FieldModel field : fields) {
+            loadAddress(mv, field);
+            mv.visitVarInsn(ALOAD, 1);
+            invokeValueMethod(mv, field.getOrGetVolatile());
+            write(mv, field, "write");
+        }
+        mv.visitInsn(RETURN);
+        end(mv);
+
+        // Bridge for Copyable.copyFrom(Object)
+        mv = cw.visitMethod(ACC_PUBLIC | ACC_BRIDGE | ACC_SYNTHETIC, "copyFrom",
+                "(Ljava/lang/Object;)V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, valueType);
+        mv.visitMethodInsn(INVOKEVIRTUAL, className, "copyFrom", "(L" + valueType + ";)V", false);
+        mv.visitInsn(RETURN);
+        end(mv);
+    }
+
+    private void generateWriteMarshallable() {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "writeMarshallable",
+                "(" + Type.getDescriptor(BytesOut.class) + ")V", null, null);
+        mv.visitCode();
+        for (FieldModel field : fields) {
+            mv.visitVarInsn(ALOAD, 1);
+            read(mv, field, "read");
+            invoke(mv, BytesOut.class, field.writeMethod(),
+                    field.type == char.class ? int.class : field.type);
+        }
+        mv.visitInsn(RETURN);
+        end(mv);
+    }
+
+    private void generateReadMarshallable() {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "readMarshallable",
+                "(" + Type.getDescriptor(BytesIn.class) + ")V", null, null);
+        mv.visitCode();
+        for (FieldModel field : fields) {
+            loadAddress(mv, field);
+            mv.visitVarInsn(ALOAD, 1);
+            invoke(mv, BytesIn.class, field.readMethod());
+            write(mv, field, "write");
+        }
+        mv.visitInsn(RETURN);
+        end(mv);
+    }
+
+    private void generateEquals() {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "equals", "(Ljava/lang/Object;)Z",
+                null, null);
+        mv.visitCode();
+        Label notEqual = new Label();
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(INSTANCEOF, valueType);
+        mv.visitJumpInsn(IFEQ, notEqual);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, valueType);
+        mv.visitVarInsn(ASTORE, 2);
+        for (FieldModel field : fields) {
+            Class type = field.type;
+            read(mv, field, "read");
+            floatingToBits(mv, type);
+            mv.visitVarInsn(ALOAD, 2);
+            invokeValueMethod(mv, field.getOrGetVolatile());
+            floatingToBits(mv, type);
+            if (type == long.class || type == double.class) {
+                mv.visitInsn(LCMP);
+                mv.visitJumpInsn(IFNE, notEqual);
+            } else {
+                mv.visitJumpInsn(IF_ICMPNE, notEqual);
+            }
+        }
+        mv.visitInsn(ICONST_1);
+        mv.visitInsn(IRETURN);
+        mv.visitLabel(notEqual);
+        mv.visitInsn(ICONST_0);
+        mv.visitInsn(IRETURN);
+        end(mv);
+    }
+
+    private static void floatingToBits(MethodVisitor mv, Class type) {
+        if (type == float.class) {
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Float", "floatToIntBits", "(F)I", false);
+        } else if (type == double.class) {
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "doubleToLongBits", "(D)J",
+                    false);
+        }
+    }
+
+    /**
+     * Copies google/auto value's strategy of hash code generation, as {@link Generators} do
+     */
+    private void generateHashCode() {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "hashCode", "()I", null, null);
+        mv.visitCode();
+        mv.visitInsn(ICONST_1);
+        mv.visitVarInsn(ISTORE, 1);
+        for (FieldModel field : fields) {
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitLdcInsn(1000003);
+            mv.visitInsn(IMUL);
+            read(mv, field, "read");
+            Type type = Type.getType(field.type);
+            mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(Primitives.boxed(field.type)),
+                    "hashCode", "(" + type.getDescriptor() + ")I", false);
+            mv.visitInsn(IXOR);
+            mv.visitVarInsn(ISTORE, 1);
+        }
+        mv.visitVarInsn(ILOAD, 1);
+        mv.visitInsn(IRETURN);
+        end(mv);
+    }
+
+    private void generateByteableMethods() {
+        try {
+            long size = model.sizeInBytes();
+            MethodVisitor mv = begin(Byteable.class
+                    .getMethod("bytesStore", BytesStore.class, long.class, long.class));
+            Label sizeChecked = new Label();
+            mv.visitVarInsn(LLOAD, 4);
+            mv.visitLdcInsn(size);
+            mv.visitInsn(LCMP);
+            mv.visitJumpInsn(IFEQ, sizeChecked);
+            mv.visitTypeInsn(NEW, "java/lang/IllegalArgumentException");
+            mv.visitInsn(DUP);
+            mv.visitLdcInsn("Constant size is " + size + ", given length is ");
+            mv.visitVarInsn(LLOAD, 4);
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/String", "valueOf",
+                    "(J)Ljava/lang/String;", false);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "concat",
+                    "(Ljava/lang/String;)Ljava/lang/String;", false);
+            mv.visitMethodInsn(INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>",
+                    "(Ljava/lang/String;)V", false);
+            mv.visitInsn(ATHROW);
+            mv.visitLabel(sizeChecked);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitFieldInsn(PUTFIELD, className, "bs", BYTES_STORE_DESC);
+            Label capacityChecked = new Label();
+            mv.visitVarInsn(LLOAD, 2);
+            mv.visitVarInsn(LLOAD, 4);
+            mv.visitInsn(LADD);
+            mv.visitVarInsn(ALOAD, 1);
+            invokeBytesStore(mv, "capacity");
+            mv.visitInsn(LCMP);
+            mv.visitJumpInsn(IFLE, capacityChecked);
+            mv.visitTypeInsn(NEW, "java/lang/AssertionError");
+            mv.visitInsn(DUP);
+            mv.visitMethodInsn(INVOKESPECIAL, "java/lang/AssertionError", "<init>", "()V", false);
+            mv.visitInsn(ATHROW);
+            mv.visitLabel(capacityChecked);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(LLOAD, 2);
+            mv.visitFieldInsn(PUTFIELD, className, "offset", "J");
+            mv.visitInsn(RETURN);
+            end(mv);
+
+            mv = begin(Byteable.class.getMethod("bytesStore"));
+            loadThisField(mv, "bs", BYTES_STORE_DESC);
+            mv.visitInsn(ARETURN);
+            end(mv);
+
+            mv = begin(Byteable.class.getMethod("offset"));
+            loadThisField(mv, "offset", "J");
+            mv.visitInsn(LRETURN);
+            end(mv);
+
+            mv = begin(Byteable.class.getMethod("maxSize"));
+            mv.visitLdcInsn(size);
+            mv.visitInsn(LRETURN);
+            end(mv);
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private MethodVisitor begin(Method m) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, m.getName(),
+                Type.getMethodDescriptor(m), null, null);
+        mv.visitCode();
+        return mv;
+    }
+
+    private static void end(MethodVisitor mv) {
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private void loadThisField(MethodVisitor mv, String name, String desc) {
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, className, name, desc);
+    }
+
+    /**
+     * Pushes {@code bs} and {@code offset + fieldByteOffset} onto the stack
+     */
+    private void loadAddress(MethodVisitor mv, FieldModel field) {
+        loadThisField(mv, "bs", BYTES_STORE_DESC);
+        loadThisField(mv, "offset", "J");
+        int byteOffset = model.fieldBitOffset(field) / 8;
+        if (byteOffset != 0) {
+            mv.visitLdcInsn((long) byteOffset);
+            mv.visitInsn(LADD);
+        }
+    }
+
+    /**
+     * Pushes the field value, read with bs.{@code method}Xxx(), onto the stack
+     */
+    private void read(MethodVisitor mv, FieldModel field, String method) {
+        loadAddress(mv, field);
+        invokeBytesStore(mv, method + capTypeName(field), long.class);
+        if (field.type == char.class)
+            mv.visitInsn(I2C);
+    }
+
+    /**
+     * Consumes bs, address and the field value from the stack, writing the value with
+     * bs.{@code method}Xxx()
+     */
+    private static void write(MethodVisitor mv, FieldModel field, String method) {
+        Class type = field.type;
+        if (type == char.class)
+            mv.visitInsn(I2S);
+        invokeBytesStore(mv, method + capTypeName(field), long.class,
+                type == char.class ? short.class : type);
+    }
+
+    /**
+     * chars are stored as shorts
+     */
+    private static String capTypeName(FieldModel field) {
+        return field.type == char.class ? "Short" : capitalize(field.type.getName());
+    }
+
+    private void invokeValueMethod(MethodVisitor mv, Method m) {
+        mv.visitMethodInsn(INVOKEINTERFACE, valueType, m.getName(),
+                Type.getMethodDescriptor(m), true);
+    }
+
+    private static void invokeBytesStore(
+            MethodVisitor mv, String name, Class<?>... parameterTypes) {
+        invoke(mv, BytesStore.class, name, parameterTypes);
+    }
+
+    /**
+     * Invokes the interface method, dropping the result if the method returns the receiver
+     * (e. g. Bytes' write methods)
+     */
+    private static void invoke(
+            MethodVisitor mv, Class<?> owner, String name, Class<?>... parameterTypes) {
+        Method m;
+        try {
+            m = owner.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+        mv.visitMethodInsn(INVOKEINTERFACE, Type.getInternalName(owner), name,
+                Type.getMethodDescriptor(m), true);
+        if (!m.getReturnType().isPrimitive())
+            mv.visitInsn(POP);
+    }
+}
@@ -65,7 +65,7 @@ class CharSequenceFieldModel extends ScalarFieldModel {
         public void generateArrayElementGet(
                 ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                 MethodSpec.Builder methodBuilder) {
-            arrayFieldModel.checkBounds(methodBuilder);
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
             initArrayElementCachedStringBuilder(arrayFieldModel, valueBuilder, methodBuilder);
             finishGet(methodBuilder, arrayFieldModel.get);
         }
@@ -105,7 +105,7 @@ class CharSequenceFieldModel extends ScalarFieldModel {
         public void generateArrayElementGetUsing(
                 ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                 MethodSpec.Builder methodBuilder) {
-            arrayFieldModel.checkBounds(methodBuilder);
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
             int arrayByteOffset = arrayFieldModel.verifiedByteOffset(valueBuilder);
             genVerifiedElementOffset(arrayFieldModel, methodBuilder);
             methodBuilder.beginControlFlow(
@@ -142,7 +142,7 @@ class CharSequenceFieldModel extends ScalarFieldModel {
                 MethodSpec.Builder methodBuilder) {
             if (!nullable())
                 checkArgumentNotNull(methodBuilder);
-            arrayFieldModel.checkBounds(methodBuilder);
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
             genArrayElementSet(arrayFieldModel, valueBuilder, methodBuilder, varName());
         }
 
@@ -1006,6 +1006,10 @@ class CharSequenceFieldModel extends ScalarFieldModel {
         checkUnsupported(getVolatile);
         checkUnsupported(setVolatile);
         checkUnsupported(setOrdered);
+        checkUnsupported(getAcquire);
+        checkUnsupported(getOpaque);
+        checkUnsupported(setRelease);
+        checkUnsupported(setOpaque);
         checkUnsupported(add);
         checkUnsupported(addAtomic);
         checkUnsupported(compareAndSwap);
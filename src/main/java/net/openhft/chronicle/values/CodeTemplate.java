@@ -29,14 +29,14 @@ import java.lang.reflect.Parameter;
 import java.util.*;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Comparator.comparing;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static net.openhft.chronicle.values.MethodTemplate.Type.ARRAY;
 import static net.openhft.chronicle.values.MethodTemplate.Type.SCALAR;
 import static net.openhft.chronicle.values.Primitives.isPrimitiveIntegerType;
@@ -47,68 +47,194 @@ enum CodeTemplate {
     public static final Function<Method, Parameter> NO_ANNOTATED_PARAM = m -> null;
     static final List<Class<?>> NON_MODEL_TYPES = asList(
             Object.class, Serializable.class, Externalizable.class, BytesMarshallable.class,
-            Copyable.class, Byteable.class);
+            Copyable.class, Byteable.class, VersionedValue.class, AtomicValue.class);
+    /**
+     * Names and parameter types of methods of {@link #NON_MODEL_TYPES}, not to scan them for each
+     * method of a value interface
+     */
+    private static final Set<List<Object>> NON_MODEL_METHODS = nonModelMethods();
 
     private static final SortedSet<MethodTemplate> METHOD_TEMPLATES =
             new TreeSet<>(
                     comparing((MethodTemplate t) -> t.parameters)
                             .thenComparing(k -> -k.regex.length())
                             .thenComparing(k -> k.regex));
-    private static final String FIELD_NAME = "([a-zA-Z_$][a-zA-Z\\d_$]*)";
+    /**
+     * {@link #METHOD_TEMPLATES} by the number of parameters, in the same order
+     */
+    private static volatile Map<Integer, List<MethodTemplate>> templatesByParameters =
+            Collections.emptyMap();
+    static final String FIELD_NAME = "([a-zA-Z_$][a-zA-Z\\d_$]*)";
 
     static {
         addReadPatterns("get", 0, FieldModel::setGet);
         addReadPatterns("", 0, FieldModel::setGet);
         addReadPatterns("is", 0, FieldModel::setGet);
         addReadPatterns("getVolatile", 0, FieldModel::setGetVolatile);
+        addReadPatterns("getAcquire", 0, FieldModel::setGetAcquire);
+        addReadPatterns("getOpaque", 0, FieldModel::setGetOpaque);
         addReadPatterns("getUsing", 1, FieldModel::setGetUsing);
         addWritePattern("set", 1, FieldModel::setSet);
         addWritePattern("", 1, FieldModel::setSet);
         addWritePattern("setVolatile", 1, FieldModel::setSetVolatile);
         addWritePattern("setOrdered", 1, FieldModel::setSetOrdered);
+        addWritePattern("setRelease", 1, FieldModel::setSetRelease);
+        addWritePattern("setOpaque", 1, FieldModel::setSetOpaque);
+        addWritePattern("setAtomic", 1, FieldModel::setSetAtomic);
         addWritePattern("add", 1, FieldModel::setAdd);
         addWritePattern("addAtomic", 1, FieldModel::setAddAtomic);
         addWritePattern("compareAndSwap", 2, FieldModel::setCompareAndSwap);
+        addWritePattern("getAndSet", 1, FieldModel::setGetAndSet);
+        addWritePattern("getAndAdd", 1, FieldModel::setGetAndAdd);
+        addWritePattern("getAndOr", 1, FieldModel::setGetAndOr);
+        addWritePattern("getAndAnd", 1, FieldModel::setGetAndAnd);
+        addWritePattern("getAndXor", 1, FieldModel::setGetAndXor);
+        addReadPatterns("getAndIncrement", 0, FieldModel::setGetAndIncrement);
+        // the function parameter type is not the field type, the return type is
+        addReadPatterns("updateAndGet", 1, FieldModel::setUpdateAndGet);
+        addReadPatterns("accumulateAndGet", 2, FieldModel::setAccumulateAndGet);
+        addBulkPattern("get", FieldModel::setBulkGet);
+        addBulkPattern("set", FieldModel::setBulkSet);
+        add("fill", "", 1, ARRAY, m -> m.getParameterTypes()[0], NO_ANNOTATED_PARAM, false, true,
+                FieldModel::setFill);
+        addReductionPattern("sum", 0, Method::getReturnType, FieldModel::setSum);
+        addReductionPattern("min", 0, Method::getReturnType, FieldModel::setMin);
+        addReductionPattern("max", 0, Method::getReturnType, FieldModel::setMax);
+        addReductionPattern("indexOf", 1, m -> m.getParameterTypes()[0],
+                FieldModel::setIndexOf);
+        // the parameter is another value of the same interface
+        addReductionPattern("dot", 1, Method::getReturnType, FieldModel::setDot);
+        addAwaitPattern("", FieldModel::setAwait);
+        addAwaitPattern("Change", FieldModel::setAwaitChange);
+        addLockPattern("tryLock", 0, LockFieldModel::setTryLock);
+        addLockPattern("lock", 1, LockFieldModel::setLock);
+        addLockPattern("unlock", 0, LockFieldModel::setUnlock);
+        addLockPattern("tryReadLock", 0, LockFieldModel::setTryReadLock);
+        addLockPattern("readLock", 1, LockFieldModel::setReadLock);
+        addLockPattern("readUnlock", 0, LockFieldModel::setReadUnlock);
     }
 
     private static void addReadPatterns(
-            String regex, int arguments, BiConsumer<FieldModel, Method> addMethodToModel) {
-        regex += FIELD_NAME;
-        add(regex, arguments, SCALAR, Method::getReturnType, NO_ANNOTATED_PARAM, addMethodToModel);
-        add(regex + "At", arguments + 1, ARRAY, Method::getReturnType, NO_ANNOTATED_PARAM,
+            String prefix, int arguments, BiConsumer<FieldModel, Method> addMethodToModel) {
+        add(prefix, "", arguments, SCALAR, Method::getReturnType, NO_ANNOTATED_PARAM,
+                addMethodToModel);
+        add(prefix, "At", arguments + 1, ARRAY, Method::getReturnType, NO_ANNOTATED_PARAM,
                 addMethodToModel);
     }
 
     public static void addWritePattern(
-            String regex, int arguments, BiConsumer<FieldModel, Method> addMethodToModel) {
-        regex += FIELD_NAME;
-        add(regex, arguments, SCALAR,
+            String prefix, int arguments, BiConsumer<FieldModel, Method> addMethodToModel) {
+        add(prefix, "", arguments, SCALAR,
                 m -> m.getParameterTypes()[arguments - 1],
                 m -> m.getParameters()[arguments - 1],
                 addMethodToModel);
-        add(regex + "At", arguments + 1, ARRAY,
+        add(prefix, "At", arguments + 1, ARRAY,
                 m -> m.getParameterTypes()[arguments],
                 m -> m.getParameters()[arguments],
                 addMethodToModel);
     }
 
+    /**
+     * Bulk methods of array fields copy a range of elements from or to a Java array: {@code
+     * (int from, T[] array, int arrayOffset, int length)}
+     */
+    private static void addBulkPattern(
+            String prefix, BiConsumer<FieldModel, Method> addMethodToModel) {
+        add(prefix, "", 4, ARRAY, m -> m.getParameterTypes()[1].getComponentType(),
+                NO_ANNOTATED_PARAM, addMethodToModel);
+    }
+
+    /**
+     * Reductions over all elements of array fields, like {@code double sum<Field>()}
+     */
+    private static void addReductionPattern(
+            String prefix, int arguments, Function<Method, Class> fieldType,
+            BiConsumer<FieldModel, Method> addMethodToModel) {
+        add(prefix, "", arguments, ARRAY, fieldType, NO_ANNOTATED_PARAM, false, true,
+                addMethodToModel);
+    }
+
+    /**
+     * Await methods take the expected or the old value of the field, the timeout and the {@link
+     * WaitStrategy}
+     */
+    private static void addAwaitPattern(
+            String suffix, BiConsumer<FieldModel, Method> addMethodToModel) {
+        add("await", suffix, 3, SCALAR, m -> m.getParameterTypes()[0], NO_ANNOTATED_PARAM,
+                addMethodToModel);
+        add("await", suffix + "At", 4, ARRAY, m -> m.getParameterTypes()[1], NO_ANNOTATED_PARAM,
+                addMethodToModel);
+    }
+
+    /**
+     * Lock fields are scalar, the field type is the type of the lock word
+     */
+    private static void addLockPattern(
+            String prefix, int arguments, BiConsumer<LockFieldModel, Method> addMethodToModel) {
+        add(prefix, "", arguments, SCALAR, m -> long.class, NO_ANNOTATED_PARAM, true, false,
+                (model, m) -> addMethodToModel.accept((LockFieldModel) model, m));
+    }
+
     private static void add(
-            String regex, int parameters, MethodTemplate.Type type,
+            String prefix, String suffix, int parameters, MethodTemplate.Type type,
             Function<Method, Class> fieldType, Function<Method, Parameter> annotatedParameter,
             BiConsumer<FieldModel, Method> addMethodToModel) {
-        METHOD_TEMPLATES.add(new MethodTemplate(regex, parameters, type, fieldType,
-                annotatedParameter, addMethodToModel));
+        add(prefix, suffix, parameters, type, fieldType, annotatedParameter, false, false,
+                addMethodToModel);
+    }
+
+    private static void add(
+            String prefix, String suffix, int parameters, MethodTemplate.Type type,
+            Function<Method, Class> fieldType, Function<Method, Parameter> annotatedParameter,
+            boolean lock, boolean wholeArray, BiConsumer<FieldModel, Method> addMethodToModel) {
+        METHOD_TEMPLATES.add(new MethodTemplate(prefix, suffix, parameters, type, fieldType,
+                annotatedParameter, lock, wholeArray, addMethodToModel));
+        Map<Integer, List<MethodTemplate>> byParameters = new HashMap<>();
+        for (MethodTemplate t : METHOD_TEMPLATES) {
+            byParameters.computeIfAbsent(t.parameters, p -> new ArrayList<>()).add(t);
+        }
+        templatesByParameters = byParameters;
+    }
+
+    private static Set<List<Object>> nonModelMethods() {
+        Set<List<Object>> methods = new HashSet<>();
+        for (Class<?> type : NON_MODEL_TYPES) {
+            for (Method m : type.getMethods()) {
+                methods.add(signature(m));
+            }
+        }
+        return methods;
+    }
+
+    private static List<Object> signature(Method m) {
+        List<Object> signature = new ArrayList<>(m.getParameterCount() + 1);
+        signature.add(m.getName());
+        Collections.addAll(signature, m.getParameterTypes());
+        return signature;
     }
 
     static ValueModel createValueModel(Class<?> valueType) {
+        return createValueModel(valueType, null);
+    }
+
+    /**
+     * @param primary the model, acquired for the value interface, if the created model is its
+     *                other native flavour, see {@link ValueModel#nativeFlavour}, or {@code null}
+     */
+    static ValueModel createValueModel(Class<?> valueType, ValueModel primary) {
         List<FieldModel> fields = methodsAndTemplatesByField(valueType).entrySet().stream()
                 .map(e -> createAndConfigureModel(e.getKey(), e.getValue())).collect(toList());
         if (fields.isEmpty())
             throw new IllegalArgumentException(valueType + " is not a value interface");
+        if (VersionedValue.class.isAssignableFrom(valueType) &&
+                !valueType.isAnnotationPresent(Versioned.class)) {
+            throw new IllegalArgumentException(valueType + " extends VersionedValue, but is not " +
+                    "annotated @Versioned");
+        }
         fields.forEach(FieldModel::checkAnyWriteMethodPresent);
         fields.forEach(FieldModel::postProcess);
         fields.forEach(FieldModel::checkState);
-        return new ValueModel(valueType, fields.stream());
+        return new ValueModel(valueType, fields.stream(), primary);
     }
 
     private static FieldModel createAndConfigureModel(
@@ -125,6 +251,10 @@ enum CodeTemplate {
             // If the field turns out to be an array field, @Align applied to the element model belongs to the array
             // model, and the element model is configured with Array.elementOffsetAlignment() and
             // Array.elementDontCrossAlignment().
+            if (scalarModel instanceof StripedFieldModel) {
+                throw new IllegalStateException("@Striped array fields are not supported, field " +
+                        fieldName);
+            }
             scalarModel.resetAlignment();
             ArrayFieldModel arrayModel = new ArrayFieldModel(scalarModel);
             configureModel(arrayModel, methodsAndTemplates);
@@ -175,6 +305,17 @@ enum CodeTemplate {
                         methodsAndTemplates.get(0).method.getName()));
         MethodTemplate nonGetUsingMethodTemplate = nonGetUsingMethodAndTemplate.template;
         Method nonGetUsingMethod = nonGetUsingMethodAndTemplate.method;
+        if (nonGetUsingMethodTemplate.lock) {
+            if (!methodsAndTemplates.stream().allMatch(mt -> mt.template.lock)) {
+                throw new IllegalStateException(fieldName + " lock field should have only " +
+                        "lock methods");
+            }
+            return new LockFieldModel();
+        }
+        boolean striped = methodsAndTemplates.stream()
+                .anyMatch(mt -> mt.method.isAnnotationPresent(Striped.class));
+        if (striped)
+            return new StripedFieldModel();
         Class fieldType = nonGetUsingMethodTemplate.fieldType.apply(nonGetUsingMethod);
         if (isPrimitiveIntegerType(fieldType))
             return new IntegerFieldModel();
@@ -197,27 +338,128 @@ enum CodeTemplate {
 
     private static Map<String, List<MethodAndTemplate>> methodsAndTemplatesByField(
             Class<?> valueType) {
-        return Stream.of(valueType.getMethods())
+        List<Method> methods = Stream.of(valueType.getMethods())
                 .filter(m -> (m.getModifiers() & Modifier.ABSTRACT) != 0)
-                .filter(m -> NON_MODEL_TYPES.stream().noneMatch(t -> hasMethod(t, m)))
-                .map(m -> {
-                    MethodTemplate methodTemplate = METHOD_TEMPLATES.stream()
-                            .filter(t -> t.parameters == m.getParameterCount())
-                            .filter(t -> m.getName().matches(t.regex))
-                            .findFirst().orElseThrow(IllegalStateException::new);
-                    Matcher matcher = Pattern.compile(methodTemplate.regex)
-                            .matcher(m.getName());
-                    if (!matcher.find())
-                        throw new AssertionError();
-                    String fieldName = convertFieldName(matcher.group(1));
-                    return new MethodAndTemplate(m, methodTemplate, fieldName);
-                }).collect(groupingBy(mt -> mt.fieldName));
-    }
-
-    private static boolean hasMethod(Class<?> type, Method m) {
-        return Stream.of(type.getMethods())
-                .anyMatch(m2 -> m2.getName().equals(m.getName()) &&
-                        Arrays.equals(m2.getParameterTypes(), m.getParameterTypes()));
+                .filter(m -> !NON_MODEL_METHODS.contains(signature(m)))
+                .collect(toList());
+        Set<String> lockFields = new HashSet<>();
+        for (Method m : methods) {
+            if (m.isAnnotationPresent(Lock.class))
+                lockFields.add(lockFieldName(m));
+        }
+        List<List<MethodAndTemplate>> candidates = methods.stream()
+                .map(m -> candidateMethodsAndTemplates(m, lockFields))
+                .collect(toList());
+        Set<String> knownFields = knownFields(candidates);
+        List<MethodAndTemplate> methodsAndTemplates = candidates.stream()
+                .map(c -> resolve(c, knownFields))
+                .collect(toList());
+        Set<String> arrayFields = new HashSet<>();
+        for (MethodAndTemplate mt : methodsAndTemplates) {
+            if (mt.template.type == ARRAY)
+                arrayFields.add(mt.fieldName);
+        }
+        if (!arrayFields.isEmpty()) {
+            methodsAndTemplates.replaceAll(mt -> {
+                MethodAndTemplate wholeArray = wholeArrayMethodAndTemplate(mt.method, arrayFields);
+                return wholeArray != null ? wholeArray : mt;
+            });
+        }
+        return methodsAndTemplates.stream().collect(groupingBy(mt -> mt.fieldName));
+    }
+
+    private static String lockFieldName(Method m) {
+        for (MethodTemplate template :
+                templatesByParameters.getOrDefault(m.getParameterCount(), emptyList())) {
+            String fieldName;
+            if (template.lock && (fieldName = template.fieldName(m.getName())) != null)
+                return convertFieldName(fieldName);
+        }
+        throw new IllegalStateException("@Lock should be put on a method of a lock field: " +
+                "tryLock, lock, unlock, tryReadLock, readLock or readUnlock, " + m.getName() +
+                "() is not");
+    }
+
+    /**
+     * All templates the method matches, most specific (the longest prefix) first
+     */
+    private static List<MethodAndTemplate> candidateMethodsAndTemplates(
+            Method m, Set<String> lockFields) {
+        List<MethodAndTemplate> candidates = new ArrayList<>();
+        String methodName = m.getName();
+        for (MethodTemplate template :
+                templatesByParameters.getOrDefault(m.getParameterCount(), emptyList())) {
+            // whole-array methods are matched after all other methods,
+            // see wholeArrayMethodAndTemplate()
+            if (template.wholeArray)
+                continue;
+            String fieldName = template.fieldName(methodName);
+            if (fieldName != null) {
+                fieldName = convertFieldName(fieldName);
+                // e. g. lockTimeout(long) of a regular field is a setter
+                if (template.lock && !lockFields.contains(fieldName))
+                    continue;
+                candidates.add(new MethodAndTemplate(m, template, fieldName));
+            }
+        }
+        if (candidates.isEmpty())
+            throw new IllegalStateException();
+        return candidates;
+    }
+
+    /**
+     * Names of the fields, which some method refers to unambiguously: {@code getAtomicFlag()}
+     * could only be a getter of {@code atomicFlag}, while {@code setAtomicFlag()} could be
+     * either a setter of {@code atomicFlag} or an atomic setter of {@code flag}. Templates
+     * without prefix match any method, so they count only if no other template matches.
+     */
+    private static Set<String> knownFields(List<List<MethodAndTemplate>> candidates) {
+        Set<String> knownFields = new HashSet<>();
+        for (List<MethodAndTemplate> methodCandidates : candidates) {
+            Set<String> prefixedFields = methodCandidates.stream()
+                    .filter(mt -> !mt.template.prefix.isEmpty())
+                    .map(mt -> mt.fieldName)
+                    .collect(toSet());
+            if (prefixedFields.size() == 1) {
+                knownFields.addAll(prefixedFields);
+            } else if (prefixedFields.isEmpty() && methodCandidates.size() == 1) {
+                knownFields.add(methodCandidates.get(0).fieldName);
+            }
+        }
+        return knownFields;
+    }
+
+    /**
+     * If the method matches templates of several known fields, it is a plain accessor of the
+     * field with the longest name rather than a special accessor of the field with the shorter
+     * name, e. g. {@code setAtomicFlag()} is a setter of {@code atomicFlag}, if both {@code flag}
+     * and {@code atomicFlag} are known. If the method matches no known field, the most specific
+     * template wins.
+     */
+    private static MethodAndTemplate resolve(
+            List<MethodAndTemplate> candidates, Set<String> knownFields) {
+        MethodAndTemplate resolved = null;
+        for (MethodAndTemplate mt : candidates) {
+            if (knownFields.contains(mt.fieldName) &&
+                    (resolved == null || mt.fieldName.length() > resolved.fieldName.length())) {
+                resolved = mt;
+            }
+        }
+        return resolved != null ? resolved : candidates.get(0);
+    }
+
+    private static MethodAndTemplate wholeArrayMethodAndTemplate(
+            Method m, Set<String> arrayFields) {
+        for (MethodTemplate template :
+                templatesByParameters.getOrDefault(m.getParameterCount(), emptyList())) {
+            String fieldName;
+            if (template.wholeArray && (fieldName = template.fieldName(m.getName())) != null) {
+                fieldName = convertFieldName(fieldName);
+                if (arrayFields.contains(fieldName))
+                    return new MethodAndTemplate(m, template, fieldName);
+            }
+        }
+        return null;
     }
 
     static String convertFieldName(String name) {
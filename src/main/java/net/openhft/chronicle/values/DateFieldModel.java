@@ -21,6 +21,7 @@ package net.openhft.chronicle.values;
 import com.squareup.javapoet.MethodSpec;
 
 import java.util.Date;
+import java.util.Objects;
 
 import static java.lang.String.format;
 import static net.openhft.chronicle.values.IntegerFieldModel.NORMAL_ACCESS_TYPE;
@@ -41,10 +42,17 @@ class DateFieldModel extends IntegerBackedFieldModel {
         }
 
         @Override
-        String startSet(MethodSpec.Builder methodBuilder) {
+        String startSet(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
             return varName() + ".getTime()";
         }
 
+        @Override
+        String backingValueVariable(MethodSpec.Builder methodBuilder, String value) {
+            String time = value + "Time";
+            methodBuilder.addStatement("long $N = $N.getTime()", time, value);
+            return time;
+        }
+
         @Override
         void generateEquals(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
             String time = backingFieldModel.genGet(valueBuilder, NORMAL_ACCESS_TYPE);
@@ -94,6 +102,47 @@ class DateFieldModel extends IntegerBackedFieldModel {
     @Override
     MemberGenerator createHeapGenerator() {
         return new ObjectHeapMemberGenerator(this) {
+
+            /**
+             * Dates are compared by time, like in the native implementation, rather than by
+             * identity
+             */
+            @Override
+            public void generateCompareAndSwap(
+                    ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+                genCompareAndSwap(valueBuilder, methodBuilder, "this",
+                        fieldOffset(valueBuilder).name);
+            }
+
+            @Override
+            public void generateArrayElementCompareAndSwap(
+                    ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
+                    MethodSpec.Builder methodBuilder) {
+                arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
+                Class type = Utils.UNSAFE_CLASS;
+                methodBuilder.addStatement(
+                        "long address = (long) $T.$N + (index * (long) $T.$N)",
+                        type, arrayBase(), type, arrayScale());
+                genCompareAndSwap(valueBuilder, methodBuilder, field.name, "address");
+            }
+
+            private void genCompareAndSwap(
+                    ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder,
+                    String object, String address) {
+                methodBuilder.beginControlFlow("while (true)");
+                methodBuilder.addStatement("$T date = ($T) $N.getObjectVolatile($L, $L)",
+                        Date.class, Date.class, valueBuilder.unsafe(), object, address);
+                methodBuilder.beginControlFlow("if (!$T.equals(date, $N))",
+                        Objects.class, oldName());
+                methodBuilder.addStatement("return false");
+                methodBuilder.endControlFlow();
+                methodBuilder.beginControlFlow("if ($N.compareAndSwapObject($L, $L, date, $N))",
+                        valueBuilder.unsafe(), object, address, newName());
+                methodBuilder.addStatement("return true");
+                methodBuilder.endControlFlow();
+                methodBuilder.endControlFlow();
+            }
+
             @Override
             void generateWriteMarshallable(
                     ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
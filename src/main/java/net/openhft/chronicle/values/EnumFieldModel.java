@@ -51,10 +51,17 @@ class EnumFieldModel extends IntegerBackedFieldModel {
         }
 
         @Override
-        String startSet(MethodSpec.Builder methodBuilder) {
+        String startSet(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
             return toOrdinalOrMinusOne(varName());
         }
 
+        @Override
+        String backingValueVariable(MethodSpec.Builder methodBuilder, String value) {
+            String ordinal = value + "Ordinal";
+            methodBuilder.addStatement("int $N = $N", ordinal, toOrdinalOrMinusOne(value));
+            return ordinal;
+        }
+
         @Override
         void generateEquals(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
             String value = fromOrdinalOrMinusOne(methodBuilder,
@@ -180,7 +187,7 @@ class EnumFieldModel extends IntegerBackedFieldModel {
             void generateArrayElementWriteMarshallable(
                     ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                     MethodSpec.Builder methodBuilder) {
-                methodBuilder.addStatement("bytes.writeStopBit($N))",
+                methodBuilder.addStatement("bytes.writeStopBit($N)",
                         toOrdinalOrMinusOne(fieldName() + "[index]"));
             }
 
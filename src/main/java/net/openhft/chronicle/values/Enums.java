@@ -18,33 +18,26 @@
 
 package net.openhft.chronicle.values;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.EnumSet;
-
+/**
+ * Constants of enum types, used by the generated implementations. Unlike {@link
+ * Class#getEnumConstants()}, the constants array is not copied on each call, so the returned array
+ * must not be modified.
+ */
 public final class Enums {
 
-    private static final Method getUniverse;
-
-    static {
-        try {
-            getUniverse = EnumSet.class.getDeclaredMethod("getUniverse", Class.class);
-            getUniverse.setAccessible(true);
-        } catch (NoSuchMethodException e) {
-            throw new RuntimeException(e);
+    private static final ClassValue<Object[]> universes = new ClassValue<Object[]>() {
+        @Override
+        protected Object[] computeValue(Class<?> enumType) {
+            return enumType.getEnumConstants();
         }
-    }
+    };
 
     private Enums() {
     }
 
     public static <E extends Enum<E>> E[] getUniverse(Class<E> enumType) {
-        try {
-            //noinspection unchecked
-            return (E[]) getUniverse.invoke(null, enumType);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            throw new RuntimeException(e);
-        }
+        //noinspection unchecked
+        return (E[]) universes.get(enumType);
     }
 
     public static <E extends Enum<E>> int numberOfConstants(Class<E> enumType) {
@@ -19,14 +19,20 @@
 package net.openhft.chronicle.values;
 
 import com.squareup.javapoet.MethodSpec;
+import net.openhft.chronicle.bytes.BytesStore;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 import java.util.function.BiConsumer;
 
+import static java.lang.String.format;
+import static javax.lang.model.element.Modifier.*;
 import static net.openhft.chronicle.values.Generators.methodBuilder;
+import static net.openhft.chronicle.values.Primitives.boxed;
+import static net.openhft.chronicle.values.Primitives.isPrimitiveIntegerType;
 import static net.openhft.chronicle.values.Utils.capitalize;
 
 public abstract class FieldModel {
@@ -43,13 +49,36 @@ public abstract class FieldModel {
 
     Method get;
     Method getVolatile;
+    Method getAcquire;
+    Method getOpaque;
     Method getUsing;
     Method set;
     Method setVolatile;
     Method setOrdered;
+    Method setRelease;
+    Method setOpaque;
+    Method setAtomic;
     Method add;
     Method addAtomic;
     Method compareAndSwap;
+    Method getAndSet;
+    Method getAndAdd;
+    Method getAndIncrement;
+    Method updateAndGet;
+    Method accumulateAndGet;
+    Method getAndOr;
+    Method getAndAnd;
+    Method getAndXor;
+    Method await;
+    Method awaitChange;
+    Method bulkGet;
+    Method bulkSet;
+    Method fill;
+    Method sum;
+    Method min;
+    Method max;
+    Method indexOf;
+    Method dot;
     private MemberGenerator heapGenerator;
 
     static void genVerifiedElementOffset(
@@ -138,6 +167,23 @@ public abstract class FieldModel {
         return dontCrossAlignmentInBytes() * 8;
     }
 
+    /**
+     * Returns the end (in bits) of the word, which atomic operations of this field access beyond
+     * the field bits, if the field is laid out at the given offset, or 0. The value should cover
+     * the word.
+     */
+    int atomicWordEnd(int bitOffset) {
+        return 0;
+    }
+
+    /**
+     * Returns the end (in bits) of words, which atomic operations of elements of the given array
+     * field of this field type access, if the array is laid out at the given offset, or 0
+     */
+    int arrayElementsAtomicWordEnd(ArrayFieldModel arrayFieldModel, int arrayBitOffset) {
+        return 0;
+    }
+
     /**
      * Should be called after method processing, but before sizeInBytes/alignment queries and
      * members generation
@@ -151,13 +197,32 @@ public abstract class FieldModel {
     }
 
     void checkAnyWriteMethodPresent() {
-        if (set == null && setVolatile == null && setOrdered == null && add == null &&
-                addAtomic == null && compareAndSwap == null) {
+        if (set == null && setVolatile == null && !hasOrderedSet() && add == null &&
+                !updatedAtomically()) {
             throw new IllegalStateException("Some writing method should be present for field " +
                     name);
         }
     }
 
+    /**
+     * Whether {@code setOrdered}, {@code setRelease} or {@code setOpaque} is declared for the
+     * field, all of them are generated as an ordered (lazy) write
+     */
+    boolean hasOrderedSet() {
+        return setOrdered != null || setRelease != null || setOpaque != null;
+    }
+
+    /**
+     * Whether the field is updated via atomic read-modify-write methods: {@code addAtomic}, {@code
+     * compareAndSwap}, {@code setAtomic} or {@link AtomicUpdate} methods
+     */
+    boolean updatedAtomically() {
+        return addAtomic != null || compareAndSwap != null || setAtomic != null ||
+                getAndSet != null || getAndAdd != null || getAndIncrement != null ||
+                updateAndGet != null || accumulateAndGet != null || getAndOr != null ||
+                getAndAnd != null || getAndXor != null;
+    }
+
     void checkDontCrossMultipleOfOffsetAlignment() {
         int offset = offsetAlignmentInBytes();
         int dontCross = dontCrossAlignmentInBytes();
@@ -175,6 +240,21 @@ public abstract class FieldModel {
         }
     }
 
+    /**
+     * See {@link ValueModel#collectDependencies}
+     */
+    void collectDependencies(boolean heap, Set<ValueModel> nativeDeps, Set<ValueModel> heapDeps) {
+        // no nested values by default
+    }
+
+    /**
+     * If the native {@code copyFrom()} of the enclosing value could copy the bytes of this field as
+     * they are, see {@link ValueModel#bytesCopyable}
+     */
+    boolean bytesCopyable() {
+        return true;
+    }
+
     MemberGenerator nativeGenerator() {
         throw new UnsupportedOperationException(getClass() + "");
     }
@@ -197,6 +277,42 @@ public abstract class FieldModel {
         generateMembers(heapGenerator(), valueBuilder);
     }
 
+    /**
+     * Generates static get and set methods of this field in {@code Foo$$Access}, see {@link
+     * Generators#generateAccessClass}. Fields, accessors of which need the state of a flyweight
+     * (e. g. cached strings or pointed values), have no static accessors.
+     */
+    void generateAccessMembers(ValueBuilder valueBuilder) {
+        // no static accessors by default
+    }
+
+    void generateArrayElementAccessMembers(
+            ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder) {
+        // no static accessors by default
+    }
+
+    /**
+     * Collects value models, static accessors of this field delegate to {@code Foo$$Access}
+     * classes of
+     */
+    void collectAccessDependencies(Set<ValueModel> deps) {
+        // no dependencies by default
+    }
+
+    /**
+     * Returns a builder of a static accessor, taking the bytes store and the offset of the value
+     * (and the index of the element, if {@code indexed}) as the first parameters
+     */
+    static MethodSpec.Builder accessMethodBuilder(String name, boolean indexed) {
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(name)
+                .addModifiers(PUBLIC, STATIC)
+                .addParameter(BytesStore.class, "bs")
+                .addParameter(long.class, "offset");
+        if (indexed)
+            methodBuilder.addParameter(int.class, "index");
+        return methodBuilder;
+    }
+
     void generateMembers(MemberGenerator generator, ValueBuilder valueBuilder) {
         generator.generateFields(valueBuilder);
         generateMethod(valueBuilder, get, generator::generateGet);
@@ -205,10 +321,90 @@ public abstract class FieldModel {
         generateMethod(valueBuilder, set, generator::generateSet, varName());
         generateMethod(valueBuilder, setVolatile, generator::generateSetVolatile, varName());
         generateMethod(valueBuilder, setOrdered, generator::generateSetOrdered, varName());
+        generateMethod(valueBuilder, setAtomic, generator::generateSetAtomic, varName());
+        // Neither BytesStore nor Unsafe of Java 8 offer acquire or opaque loads, weaker than
+        // volatile, or opaque stores, weaker than ordered
+        generateMethod(valueBuilder, getAcquire, generator::generateGetVolatile);
+        generateMethod(valueBuilder, getOpaque, generator::generateGetVolatile);
+        generateMethod(valueBuilder, setRelease, generator::generateSetOrdered, varName());
+        generateMethod(valueBuilder, setOpaque, generator::generateSetOrdered, varName());
         generateMethod(valueBuilder, add, generator::generateAdd, "addition");
         generateMethod(valueBuilder, addAtomic, generator::generateAddAtomic, "addition");
         generateMethod(valueBuilder, compareAndSwap, generator::generateCompareAndSwap,
                 oldName(), newName());
+        generateAtomicUpdate(generator, valueBuilder, getAndSet, AtomicUpdate.GET_AND_SET);
+        generateAtomicUpdate(generator, valueBuilder, getAndAdd, AtomicUpdate.GET_AND_ADD);
+        generateAtomicUpdate(generator, valueBuilder, getAndIncrement,
+                AtomicUpdate.GET_AND_INCREMENT);
+        generateAtomicUpdate(generator, valueBuilder, updateAndGet, AtomicUpdate.UPDATE_AND_GET);
+        generateAtomicUpdate(generator, valueBuilder, accumulateAndGet,
+                AtomicUpdate.ACCUMULATE_AND_GET);
+        generateAtomicUpdate(generator, valueBuilder, getAndOr, AtomicUpdate.GET_AND_OR);
+        generateAtomicUpdate(generator, valueBuilder, getAndAnd, AtomicUpdate.GET_AND_AND);
+        generateAtomicUpdate(generator, valueBuilder, getAndXor, AtomicUpdate.GET_AND_XOR);
+        generateAwaits(generator, valueBuilder);
+    }
+
+    private void generateAwaits(MemberGenerator generator, ValueBuilder valueBuilder) {
+        if (await == null && awaitChange == null)
+            return;
+        String index = this instanceof ArrayFieldModel ? "index" : "";
+        String read;
+        if (getVolatile != null) {
+            read = getVolatile.getName() + "(" + index + ")";
+        } else {
+            String getVolatileName = "getVolatile" + capitalize(name);
+            MethodSpec.Builder getVolatileBuilder = MethodSpec.methodBuilder(getVolatileName)
+                    .addModifiers(PRIVATE)
+                    .returns(type);
+            if (!index.isEmpty())
+                getVolatileBuilder.addParameter(int.class, index);
+            generator.generateGetVolatile(valueBuilder, getVolatileBuilder);
+            valueBuilder.typeBuilder.addMethod(getVolatileBuilder.build());
+            read = getVolatileName + "(" + index + ")";
+        }
+        generateMethod(valueBuilder, await,
+                (vb, methodBuilder) -> genAwaitLoop(methodBuilder, read, "expected", true),
+                "expected", "timeoutNanos", "waitStrategy");
+        generateMethod(valueBuilder, awaitChange,
+                (vb, methodBuilder) -> genAwaitLoop(methodBuilder, read, oldName(), false),
+                oldName(), "timeoutNanos", "waitStrategy");
+    }
+
+    /**
+     * Generates the loop, which reads the field until it is equal to {@code expected}, if
+     * {@code untilEqual}, or not equal to it otherwise, or the timeout elapses
+     */
+    private void genAwaitLoop(
+            MethodSpec.Builder methodBuilder, String read, String expected, boolean untilEqual) {
+        String equal;
+        if (type == float.class || type == double.class) {
+            equal = format("%s.compare(value, %s) == 0", boxed(type).getName(), expected);
+        } else {
+            equal = "value == " + expected;
+        }
+        methodBuilder.addStatement("long start = 0L");
+        methodBuilder.beginControlFlow("for (int attempt = 0; ; attempt++)");
+        methodBuilder.addStatement("$T value = $L", type, read);
+        methodBuilder.beginControlFlow(untilEqual ? "if ($L)" : "if (!($L))", equal);
+        methodBuilder.addStatement(untilEqual ? "return true" : "return value");
+        methodBuilder.endControlFlow();
+        // don't read the clock, if the value is already there
+        methodBuilder.beginControlFlow("if (attempt == 0)");
+        methodBuilder.addStatement("start = $T.nanoTime()", System.class);
+        methodBuilder.nextControlFlow("else if ($T.nanoTime() - start >= timeoutNanos)",
+                System.class);
+        methodBuilder.addStatement(untilEqual ? "return false" : "return value");
+        methodBuilder.endControlFlow();
+        methodBuilder.addStatement("waitStrategy.idle(attempt)");
+        methodBuilder.endControlFlow();
+    }
+
+    private void generateAtomicUpdate(
+            MemberGenerator generator, ValueBuilder valueBuilder, Method m, AtomicUpdate update) {
+        generateMethod(valueBuilder, m,
+                (vb, methodBuilder) -> generator.generateAtomicUpdate(vb, methodBuilder, update),
+                update.parameterNames(this));
     }
 
     public String name() {
@@ -259,7 +455,48 @@ public abstract class FieldModel {
         }
     }
 
-    private void generateMethod(
+    /**
+     * Plain read of a primitive in a native value: from the raw address, if it is cached (see
+     * {@code chronicle.values.rawAddress} in {@link Generators#RAW_ADDRESS}) and the value is bound
+     * to writable direct memory, otherwise via the bytes store. Static accessors, which don't cache
+     * the address, always read via the bytes store.
+     *
+     * @param ioType   the primitive type to read
+     * @param ioOffset offset expression in the bytes store, starting with {@code "offset + "}
+     */
+    static String plainRead(ValueBuilder valueBuilder, Class ioType, String ioOffset) {
+        String suffix = capitalize(ioType.getName());
+        if (!valueBuilder.cachedAddress)
+            return format("bs.read%s(%s)", suffix, ioOffset);
+        return format("(rawAddress() != 0 ? MEMORY.read%s(%s) : bs.read%s(%s))",
+                suffix, rawAddress(ioOffset), suffix, ioOffset);
+    }
+
+    /**
+     * Plain write counterpart of {@link #plainRead}, {@code valueToWrite} must be of {@code ioType}
+     */
+    static void genPlainWrite(
+            ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, Class ioType,
+            String ioOffset, String valueToWrite) {
+        String suffix = capitalize(ioType.getName());
+        if (!valueBuilder.cachedAddress) {
+            methodBuilder.addStatement("bs.write$L($L, $L)", suffix, ioOffset, valueToWrite);
+            return;
+        }
+        methodBuilder.beginControlFlow("if (rawAddress() != 0)");
+        methodBuilder.addStatement("MEMORY.write$L($L, $L)",
+                suffix, rawAddress(ioOffset), valueToWrite);
+        methodBuilder.nextControlFlow("else");
+        methodBuilder.addStatement("bs.write$L($L, $L)", suffix, ioOffset, valueToWrite);
+        methodBuilder.endControlFlow();
+    }
+
+    private static String rawAddress(String ioOffset) {
+        assert ioOffset.startsWith("offset + ") : ioOffset;
+        return "address" + ioOffset.substring("offset".length());
+    }
+
+    void generateMethod(
             ValueBuilder valueBuilder, Method m,
             BiConsumer<ValueBuilder, MethodSpec.Builder> generate, String... parameterNames) {
         if (m != null) {
@@ -319,12 +556,48 @@ public abstract class FieldModel {
             return set;
         if (setOrdered != null)
             return setOrdered;
+        if (setRelease != null)
+            return setRelease;
+        if (setOpaque != null)
+            return setOpaque;
         if (setVolatile != null)
             return setVolatile;
         throw new IllegalStateException("set or setVolatile or setOrdered expected for field " +
                 name);
     }
 
+    void setGetAcquire(Method getAcquire) {
+        if (this.getAcquire != null) {
+            throw new IllegalStateException("GetAcquire is already declared for the field " +
+                    name + ": " + this.getAcquire.getName() + ", " + getAcquire.getName());
+        }
+        this.getAcquire = getAcquire;
+    }
+
+    void setGetOpaque(Method getOpaque) {
+        if (this.getOpaque != null) {
+            throw new IllegalStateException("GetOpaque is already declared for the field " +
+                    name + ": " + this.getOpaque.getName() + ", " + getOpaque.getName());
+        }
+        this.getOpaque = getOpaque;
+    }
+
+    void setSetRelease(Method setRelease) {
+        if (this.setRelease != null) {
+            throw new IllegalStateException("SetRelease is already declared for the field " +
+                    name + ": " + this.setRelease.getName() + ", " + setRelease.getName());
+        }
+        this.setRelease = setRelease;
+    }
+
+    void setSetOpaque(Method setOpaque) {
+        if (this.setOpaque != null) {
+            throw new IllegalStateException("SetOpaque is already declared for the field " +
+                    name + ": " + this.setOpaque.getName() + ", " + setOpaque.getName());
+        }
+        this.setOpaque = setOpaque;
+    }
+
     void setSetVolatile(Method setVolatile) {
         if (this.setVolatile != null) {
             throw new IllegalStateException("SetVolatile is already declared for the field " +
@@ -341,6 +614,19 @@ public abstract class FieldModel {
         this.setOrdered = setOrdered;
     }
 
+    void setSetAtomic(Method setAtomic) {
+        if (this.setAtomic != null) {
+            throw new IllegalStateException("SetAtomic is already declared for the field " +
+                    name + ": " + this.setAtomic.getName() + ", " + setAtomic.getName());
+        }
+        Class<?>[] parameterTypes = setAtomic.getParameterTypes();
+        if (parameterTypes[parameterTypes.length - 1] != boolean.class) {
+            throw new IllegalStateException(setAtomic.getName() + "() is supported only for " +
+                    "boolean fields, field " + name);
+        }
+        this.setAtomic = setAtomic;
+    }
+
     void setAdd(Method add) {
         if (this.add != null) {
             throw new IllegalStateException("Add method is already declared for the field " + name +
@@ -366,6 +652,202 @@ public abstract class FieldModel {
         this.compareAndSwap = compareAndSwap;
     }
 
+    void setGetAndSet(Method getAndSet) {
+        if (this.getAndSet != null) {
+            throw new IllegalStateException("GetAndSet is already declared for the field " +
+                    name + ": " + this.getAndSet.getName() + ", " + getAndSet.getName());
+        }
+        this.getAndSet = getAndSet;
+    }
+
+    void setGetAndAdd(Method getAndAdd) {
+        if (this.getAndAdd != null) {
+            throw new IllegalStateException("GetAndAdd is already declared for the field " +
+                    name + ": " + this.getAndAdd.getName() + ", " + getAndAdd.getName());
+        }
+        this.getAndAdd = getAndAdd;
+    }
+
+    void setGetAndIncrement(Method getAndIncrement) {
+        if (this.getAndIncrement != null) {
+            throw new IllegalStateException("GetAndIncrement is already declared for the field " +
+                    name + ": " + this.getAndIncrement.getName() + ", " +
+                    getAndIncrement.getName());
+        }
+        this.getAndIncrement = getAndIncrement;
+    }
+
+    void setUpdateAndGet(Method updateAndGet) {
+        if (this.updateAndGet != null) {
+            throw new IllegalStateException("UpdateAndGet is already declared for the field " +
+                    name + ": " + this.updateAndGet.getName() + ", " + updateAndGet.getName());
+        }
+        checkFunctionParameter(updateAndGet,
+                AtomicUpdate.unaryOperator(updateAndGet.getReturnType()));
+        this.updateAndGet = updateAndGet;
+    }
+
+    void setAccumulateAndGet(Method accumulateAndGet) {
+        if (this.accumulateAndGet != null) {
+            throw new IllegalStateException("AccumulateAndGet is already declared for the field " +
+                    name + ": " + this.accumulateAndGet.getName() + ", " +
+                    accumulateAndGet.getName());
+        }
+        checkFunctionParameter(accumulateAndGet,
+                AtomicUpdate.binaryOperator(accumulateAndGet.getReturnType()));
+        this.accumulateAndGet = accumulateAndGet;
+    }
+
+    void setGetAndOr(Method getAndOr) {
+        if (this.getAndOr != null) {
+            throw new IllegalStateException("GetAndOr is already declared for the field " +
+                    name + ": " + this.getAndOr.getName() + ", " + getAndOr.getName());
+        }
+        checkIntegerField(getAndOr);
+        this.getAndOr = getAndOr;
+    }
+
+    void setGetAndAnd(Method getAndAnd) {
+        if (this.getAndAnd != null) {
+            throw new IllegalStateException("GetAndAnd is already declared for the field " +
+                    name + ": " + this.getAndAnd.getName() + ", " + getAndAnd.getName());
+        }
+        checkIntegerField(getAndAnd);
+        this.getAndAnd = getAndAnd;
+    }
+
+    void setGetAndXor(Method getAndXor) {
+        if (this.getAndXor != null) {
+            throw new IllegalStateException("GetAndXor is already declared for the field " +
+                    name + ": " + this.getAndXor.getName() + ", " + getAndXor.getName());
+        }
+        checkIntegerField(getAndXor);
+        this.getAndXor = getAndXor;
+    }
+
+    void setBulkGet(Method bulkGet) {
+        if (this.bulkGet != null) {
+            throw new IllegalStateException("Bulk get is already declared for the field " +
+                    name + ": " + this.bulkGet.getName() + ", " + bulkGet.getName());
+        }
+        this.bulkGet = bulkGet;
+    }
+
+    void setBulkSet(Method bulkSet) {
+        if (this.bulkSet != null) {
+            throw new IllegalStateException("Bulk set is already declared for the field " +
+                    name + ": " + this.bulkSet.getName() + ", " + bulkSet.getName());
+        }
+        this.bulkSet = bulkSet;
+    }
+
+    void setFill(Method fill) {
+        if (this.fill != null) {
+            throw new IllegalStateException("Fill is already declared for the field " +
+                    name + ": " + this.fill.getName() + ", " + fill.getName());
+        }
+        this.fill = fill;
+    }
+
+    void setSum(Method sum) {
+        if (this.sum != null) {
+            throw new IllegalStateException("Sum is already declared for the field " +
+                    name + ": " + this.sum.getName() + ", " + sum.getName());
+        }
+        this.sum = sum;
+    }
+
+    void setMin(Method min) {
+        if (this.min != null) {
+            throw new IllegalStateException("Min is already declared for the field " +
+                    name + ": " + this.min.getName() + ", " + min.getName());
+        }
+        this.min = min;
+    }
+
+    void setMax(Method max) {
+        if (this.max != null) {
+            throw new IllegalStateException("Max is already declared for the field " +
+                    name + ": " + this.max.getName() + ", " + max.getName());
+        }
+        this.max = max;
+    }
+
+    void setIndexOf(Method indexOf) {
+        if (this.indexOf != null) {
+            throw new IllegalStateException("IndexOf is already declared for the field " +
+                    name + ": " + this.indexOf.getName() + ", " + indexOf.getName());
+        }
+        this.indexOf = indexOf;
+    }
+
+    void setDot(Method dot) {
+        if (this.dot != null) {
+            throw new IllegalStateException("Dot is already declared for the field " +
+                    name + ": " + this.dot.getName() + ", " + dot.getName());
+        }
+        this.dot = dot;
+    }
+
+    void setAwait(Method await) {
+        if (this.await != null) {
+            throw new IllegalStateException("Await is already declared for the field " +
+                    name + ": " + this.await.getName() + ", " + await.getName());
+        }
+        checkAwaitMethod(await, boolean.class);
+        this.await = await;
+    }
+
+    void setAwaitChange(Method awaitChange) {
+        if (this.awaitChange != null) {
+            throw new IllegalStateException("AwaitChange is already declared for the field " +
+                    name + ": " + this.awaitChange.getName() + ", " + awaitChange.getName());
+        }
+        checkAwaitMethod(awaitChange, type);
+        this.awaitChange = awaitChange;
+    }
+
+    /**
+     * Await methods compare values of the field by {@code ==}, they are supported for primitive
+     * and enum fields
+     */
+    private void checkAwaitMethod(Method m, Class returnType) {
+        if (!type.isPrimitive() && !type.isEnum()) {
+            throw new IllegalStateException(m.getName() + "() is supported only for primitive " +
+                    "and enum fields, field " + name);
+        }
+        if (m.getReturnType() != returnType) {
+            throw new IllegalStateException(m.getName() + "() should return " + returnType +
+                    ", field " + name);
+        }
+        Class<?>[] parameterTypes = m.getParameterTypes();
+        int timeout = parameterTypes.length - 2;
+        if (parameterTypes[timeout] != long.class ||
+                parameterTypes[timeout + 1] != WaitStrategy.class) {
+            throw new IllegalStateException("The last parameters of " + m.getName() + "() " +
+                    "should be long timeoutNanos and WaitStrategy waitStrategy, field " + name);
+        }
+    }
+
+    private void checkIntegerField(Method m) {
+        if (!isPrimitiveIntegerType(m.getReturnType())) {
+            throw new IllegalStateException(m.getName() + "() is supported only for integer " +
+                    "fields, field " + name);
+        }
+    }
+
+    private void checkFunctionParameter(Method m, Class functionType) {
+        if (functionType == null) {
+            throw new IllegalStateException(m.getName() + "() is supported only for numeric " +
+                    "fields, field " + name);
+        }
+        Class<?>[] parameterTypes = m.getParameterTypes();
+        if (parameterTypes[parameterTypes.length - 1] != functionType) {
+            throw new IllegalStateException("The last parameter of " + m.getName() + "() should " +
+                    "be " + functionType.getName() + ", field " + name);
+        }
+    }
+
     int verifiedByteOffset(ValueBuilder valueBuilder) {
         int bitOffset = valueBuilder.model.fieldBitOffset(this);
         assert bitOffset % 8 == 0 :
@@ -385,6 +867,10 @@ public abstract class FieldModel {
             return get;
         if (getVolatile != null)
             return getVolatile;
+        if (getAcquire != null)
+            return getAcquire;
+        if (getOpaque != null)
+            return getOpaque;
         throw new IllegalStateException("get or getVolatile expected for field " + name);
     }
 }
@@ -22,6 +22,7 @@ import com.squareup.javapoet.MethodSpec;
 
 import static java.lang.String.format;
 import static net.openhft.chronicle.values.Primitives.boxed;
+import static net.openhft.chronicle.values.Utils.capitalize;
 
 class FloatingFieldModel extends PrimitiveFieldModel {
 
@@ -52,16 +53,33 @@ class FloatingFieldModel extends PrimitiveFieldModel {
         private void gen(
                 ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder,
                 String ret, String method, String arguments) {
-            methodBuilder.addStatement("$Nbs.$N$N(offset + $L$N)",
-                    ret, method, capTypeName(), verifiedByteOffset(valueBuilder), arguments);
+            genAccess(valueBuilder, methodBuilder, ret, method,
+                    "offset + " + verifiedByteOffset(valueBuilder), arguments);
         }
 
         private void genArrayElement(
                 ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                 MethodSpec.Builder methodBuilder, String ret, String method, String arguments) {
-            methodBuilder.addStatement("$Nbs.$N$N(offset + $L + $N$N)",
-                    ret, method, capTypeName(), arrayFieldModel.verifiedByteOffset(valueBuilder),
-                    scaledIndex(), arguments);
+            genAccess(valueBuilder, methodBuilder, ret, method, format("offset + %d + %s",
+                    arrayFieldModel.verifiedByteOffset(valueBuilder), scaledIndex()), arguments);
+        }
+
+        /**
+         * Plain reads and writes go to the raw address, if it is cached, see {@link
+         * FieldModel#plainRead}
+         */
+        private void genAccess(
+                ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, String ret,
+                String method, String ioOffset, String arguments) {
+            if (method.equals("read")) {
+                methodBuilder.addStatement("$N$L", ret, plainRead(valueBuilder, type, ioOffset));
+            } else if (method.equals("write")) {
+                genPlainWrite(valueBuilder, methodBuilder, type, ioOffset,
+                        arguments.substring(", ".length()));
+            } else {
+                methodBuilder.addStatement("$Nbs.$N$N($L$N)",
+                        ret, method, capTypeName(), ioOffset, arguments);
+            }
         }
 
         @Override
@@ -73,7 +91,7 @@ class FloatingFieldModel extends PrimitiveFieldModel {
         void generateArrayElementGet(
                 ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                 MethodSpec.Builder methodBuilder) {
-            arrayFieldModel.checkBounds(methodBuilder);
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
             genArrayElement(arrayFieldModel, valueBuilder, methodBuilder, "return ", "read", "");
         }
 
@@ -86,7 +104,7 @@ class FloatingFieldModel extends PrimitiveFieldModel {
         void generateArrayElementGetVolatile(
                 ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                 MethodSpec.Builder methodBuilder) {
-            arrayFieldModel.checkBounds(methodBuilder);
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
             genArrayElement(arrayFieldModel, valueBuilder, methodBuilder,
                     "return ", "readVolatile", "");
         }
@@ -100,7 +118,7 @@ class FloatingFieldModel extends PrimitiveFieldModel {
         void generateArrayElementSet(
                 ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                 MethodSpec.Builder methodBuilder) {
-            arrayFieldModel.checkBounds(methodBuilder);
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
             genArrayElement(arrayFieldModel, valueBuilder, methodBuilder,
                     "", "write", ", " + varName());
         }
@@ -114,7 +132,7 @@ class FloatingFieldModel extends PrimitiveFieldModel {
         void generateArrayElementSetVolatile(
                 ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                 MethodSpec.Builder methodBuilder) {
-            arrayFieldModel.checkBounds(methodBuilder);
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
             genArrayElement(arrayFieldModel, valueBuilder, methodBuilder,
                     "", "writeVolatile", ", " + varName());
         }
@@ -128,7 +146,7 @@ class FloatingFieldModel extends PrimitiveFieldModel {
         void generateArrayElementSetOrdered(
                 ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                 MethodSpec.Builder methodBuilder) {
-            arrayFieldModel.checkBounds(methodBuilder);
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
             genArrayElement(arrayFieldModel, valueBuilder, methodBuilder,
                     "", "writeOrdered", ", " + varName());
         }
@@ -143,7 +161,7 @@ class FloatingFieldModel extends PrimitiveFieldModel {
         void generateArrayElementAdd(
                 ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                 MethodSpec.Builder methodBuilder) {
-            arrayFieldModel.checkBounds(methodBuilder);
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
             methodBuilder.addStatement(
                     "return bs.writeAndGet$NNotAtomic(offset + $L + $N, addition)",
                     capTypeName(), arrayFieldModel.verifiedByteOffset(valueBuilder), scaledIndex());
@@ -158,7 +176,7 @@ class FloatingFieldModel extends PrimitiveFieldModel {
         void generateArrayElementAddAtomic(
                 ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                 MethodSpec.Builder methodBuilder) {
-            arrayFieldModel.checkBounds(methodBuilder);
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
             genArrayElement(arrayFieldModel, valueBuilder, methodBuilder,
                     "return ", "addAndGet", ", addition");
         }
@@ -173,11 +191,47 @@ class FloatingFieldModel extends PrimitiveFieldModel {
         void generateArrayElementCompareAndSwap(
                 ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                 MethodSpec.Builder methodBuilder) {
-            arrayFieldModel.checkBounds(methodBuilder);
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
             genArrayElement(arrayFieldModel, valueBuilder, methodBuilder,
                     "return ", "compareAndSwap", format(", %s, %s", oldName(), newName()));
         }
 
+        @Override
+        void generateAtomicUpdate(
+                ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, AtomicUpdate update) {
+            genAtomicUpdate(methodBuilder, "offset + " + verifiedByteOffset(valueBuilder), update);
+        }
+
+        @Override
+        void generateArrayElementAtomicUpdate(
+                ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
+                MethodSpec.Builder methodBuilder, AtomicUpdate update) {
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
+            genAtomicUpdate(methodBuilder, format("offset + %d + %s",
+                    arrayFieldModel.verifiedByteOffset(valueBuilder), scaledIndex()), update);
+        }
+
+        /**
+         * Compares and swaps the raw bits rather than the values, not to spin forever, if the
+         * field is NaN
+         */
+        private void genAtomicUpdate(
+                MethodSpec.Builder methodBuilder, String offset, AtomicUpdate update) {
+            Class bitsType = type == float.class ? int.class : long.class;
+            String capBitsType = capitalize(bitsType.getSimpleName());
+            methodBuilder.beginControlFlow("while (true)");
+            methodBuilder.addStatement("$T bits = bs.readVolatile$L($L)",
+                    bitsType, capBitsType, offset);
+            methodBuilder.addStatement("$T $N = $L(bits)", type, oldName(), fromBits());
+            methodBuilder.addStatement("$T $N = $L", type, newName(),
+                    update.newValue(FloatingFieldModel.this, oldName()));
+            methodBuilder.beginControlFlow("if (bs.compareAndSwap$L($L, bits, $L($N)))",
+                    capBitsType, offset, toRawBits(), newName());
+            methodBuilder.addStatement("return $N", update.returned(FloatingFieldModel.this));
+            methodBuilder.endControlFlow();
+            methodBuilder.endControlFlow();
+        }
+
         @Override
         void generateCopyFrom(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
             gen(valueBuilder, methodBuilder,
@@ -269,7 +323,7 @@ class FloatingFieldModel extends PrimitiveFieldModel {
             public void generateArrayElementAddAtomic(
                     ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
                     MethodSpec.Builder methodBuilder) {
-                arrayFieldModel.checkBounds(methodBuilder);
+                arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
                 methodBuilder.beginControlFlow("while (true)");
                 Class type = Utils.UNSAFE_CLASS;
                 methodBuilder.addStatement(
@@ -309,6 +363,22 @@ class FloatingFieldModel extends PrimitiveFieldModel {
         };
     }
 
+    private String toRawBits() {
+        if (type == float.class) {
+            return "java.lang.Float.floatToRawIntBits";
+        } else {
+            return "java.lang.Double.doubleToRawLongBits";
+        }
+    }
+
+    private String fromBits() {
+        if (type == float.class) {
+            return "java.lang.Float.intBitsToFloat";
+        } else {
+            return "java.lang.Double.longBitsToDouble";
+        }
+    }
+
     private String toBits() {
         if (type == float.class) {
             return "java.lang.Float.floatToIntBits";
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.util.CompilerUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent cache of generated implementation classes, enabled with {@code
+ * chronicle.values.cacheDir} system property. Class bytes are stored as {@code
+ * <cacheDir>/<package path>/Foo$$Native.class} along with {@code Foo$$Native.fingerprint} file,
+ * containing the {@link #fingerprint} of the value model and the checksum of the class bytes.
+ * Entries with a different fingerprint (stale) or a wrong checksum (corrupt) are regenerated.
+ * <p>
+ * <p>Class files are written to the cache directory by {@link RuntimeCompiler}, which uses it as
+ * the class directory on the classpath of the compiler, this class only maintains fingerprints.
+ */
+final class GeneratedClassCache {
+
+    static final GeneratedClassCache INSTANCE = createInstance();
+
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String FINGERPRINT_SUFFIX = ".fingerprint";
+
+    final File dir;
+
+    GeneratedClassCache(File dir) {
+        this.dir = dir;
+    }
+
+    private static GeneratedClassCache createInstance() {
+        String dir = Jvm.getProperty("chronicle.values.cacheDir");
+        return dir != null && !dir.isEmpty() ? new GeneratedClassCache(new File(dir)) : null;
+    }
+
+    /**
+     * Returns a digest of everything the generated implementation depends on: the library and
+     * Java versions, the generation mode, and signatures and annotations of methods of the value
+     * interface and interfaces of nested values.
+     */
+    static String fingerprint(ValueModel model, boolean heap) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("chronicle-values ").append(libraryVersion())
+                .append("\njava ").append(Jvm.majorVersion())
+                .append(heap ? "\nheap" : "\nnative")
+                .append(BytecodeGenerator.ENABLED ? " bytecode" : "")
+                .append(!heap && Generators.RAW_ADDRESS ? " rawAddress\n" : "\n");
+        Set<ValueModel> models = new LinkedHashSet<>();
+        collectModels(model, models);
+        for (ValueModel m : models) {
+            describe(m.valueType, sb);
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+                        .append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void collectModels(ValueModel model, Set<ValueModel> models) {
+        if (!models.add(model))
+            return;
+        Set<ValueModel> deps = new LinkedHashSet<>();
+        model.collectDependencies(false, deps, deps);
+        model.collectDependencies(true, deps, deps);
+        deps.forEach(dep -> collectModels(dep, models));
+    }
+
+    private static void describe(Class<?> valueType, StringBuilder sb) {
+        sb.append(valueType.getName()).append('\n');
+        appendAnnotations(valueType.getAnnotations(), sb);
+        List<String> methods = new ArrayList<>();
+        for (Method m : valueType.getMethods()) {
+            StringBuilder msb = new StringBuilder(m.toGenericString()).append('\n');
+            appendAnnotations(m.getAnnotations(), msb);
+            for (Annotation[] parameterAnnotations : m.getParameterAnnotations()) {
+                appendAnnotations(parameterAnnotations, msb);
+            }
+            methods.add(msb.toString());
+        }
+        // the order of getMethods() is unspecified
+        Collections.sort(methods);
+        methods.forEach(sb::append);
+    }
+
+    private static void appendAnnotations(Annotation[] annotations, StringBuilder sb) {
+        List<String> strings = new ArrayList<>();
+        for (Annotation a : annotations) {
+            strings.add(a.toString());
+        }
+        Collections.sort(strings);
+        strings.forEach(s -> sb.append(s).append('\n'));
+    }
+
+    private static String libraryVersion() {
+        String version = Values.class.getPackage().getImplementationVersion();
+        if (version != null)
+            return version;
+        // not from a jar, e. g. in development, take the class file time instead
+        URL generators = Generators.class.getResource("Generators.class");
+        try {
+            return "snapshot " + (generators != null ?
+                    generators.openConnection().getLastModified() : 0L);
+        } catch (IOException e) {
+            return "snapshot";
+        }
+    }
+
+    /**
+     * Defines the class from the cache entry with the given fingerprint, or returns {@code null},
+     * if there is no such entry, it is stale or corrupt.
+     */
+    Class load(ClassLoader cl, String classNameWithPackage, String fingerprint) {
+        Path classFile = classFile(classNameWithPackage);
+        Path fingerprintFile = fingerprintFile(classNameWithPackage);
+        if (!Files.exists(fingerprintFile))
+            return null;
+        try {
+            List<String> lines = Files.readAllLines(fingerprintFile, StandardCharsets.UTF_8);
+            if (lines.size() != 2) {
+                corrupt(classNameWithPackage, "malformed " + fingerprintFile);
+                return null;
+            }
+            if (!lines.get(0).equals(fingerprint)) {
+                Jvm.debug().on(GeneratedClassCache.class,
+                        "Stale cached class " + classNameWithPackage + ", regenerating");
+                Files.deleteIfExists(fingerprintFile);
+                return null;
+            }
+            byte[] bytecode = Files.readAllBytes(classFile);
+            if (!lines.get(1).equals(checksum(bytecode))) {
+                corrupt(classNameWithPackage, "checksum mismatch");
+                return null;
+            }
+            return CompilerUtils.defineClass(cl, classNameWithPackage, bytecode);
+        } catch (IOException | LinkageError e) {
+            corrupt(classNameWithPackage, e.toString());
+            return null;
+        }
+    }
+
+    private void corrupt(String classNameWithPackage, String reason) {
+        Jvm.warn().on(GeneratedClassCache.class, "Corrupt cached class " +
+                classNameWithPackage + " (" + reason + "), regenerating");
+        try {
+            Files.deleteIfExists(fingerprintFile(classNameWithPackage));
+        } catch (IOException ignored) {
+            // overwritten when stored
+        }
+    }
+
+    /**
+     * Makes the class file in the cache directory, just written by {@link RuntimeCompiler}, a valid
+     * cache entry with the given fingerprint. The fingerprint file of the previous entry is removed
+     * by {@link #load}, if it is stale or corrupt, before the class file is overwritten.
+     */
+    void store(String classNameWithPackage, String fingerprint) {
+        try {
+            byte[] bytecode = Files.readAllBytes(classFile(classNameWithPackage));
+            String entry = fingerprint + "\n" + checksum(bytecode) + "\n";
+            writeAtomically(fingerprintFile(classNameWithPackage),
+                    entry.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Jvm.warn().on(GeneratedClassCache.class,
+                    "Failed to cache " + classNameWithPackage + ": " + e);
+        }
+    }
+
+    private Path classFile(String classNameWithPackage) {
+        return dir.toPath().resolve(classPath(classNameWithPackage));
+    }
+
+    private Path fingerprintFile(String classNameWithPackage) {
+        return dir.toPath().resolve(
+                classNameWithPackage.replace('.', File.separatorChar) + FINGERPRINT_SUFFIX);
+    }
+
+    private static String classPath(String classNameWithPackage) {
+        return classNameWithPackage.replace('.', File.separatorChar) + CLASS_SUFFIX;
+    }
+
+    private static String checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return Long.toHexString(crc.getValue());
+    }
+
+    static void writeAtomically(Path file, byte[] bytes) throws IOException {
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, bytes);
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
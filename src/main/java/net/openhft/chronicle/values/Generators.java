@@ -21,6 +21,7 @@ package net.openhft.chronicle.values;
 import com.squareup.javapoet.*;
 import net.openhft.chronicle.bytes.*;
 import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.UnsafeMemory;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
@@ -29,18 +30,31 @@ import java.util.List;
 import static java.lang.String.format;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
-import static javax.lang.model.element.Modifier.PRIVATE;
-import static javax.lang.model.element.Modifier.PUBLIC;
+import static java.util.stream.Collectors.toList;
+import static javax.lang.model.element.Modifier.*;
 
 final class Generators {
 
+    /**
+     * If native implementations cache the raw address of a direct bytes store, see {@link
+     * #rawAddressMethod()}
+     */
+    static final boolean RAW_ADDRESS = Jvm.getBoolean("chronicle.values.rawAddress");
+
     private Generators() {
     }
 
     static String generateNativeClass(ValueModel model, String nativeClassName) {
+        return generateNativeClass(model, nativeClassName, RAW_ADDRESS);
+    }
+
+    static String generateNativeClass(
+            ValueModel model, String nativeClassName, boolean rawAddress) {
         TypeSpec.Builder typeBuilder = TypeSpec.classBuilder(nativeClassName);
         typeBuilder.addModifiers(PUBLIC);
         ValueBuilder valueBuilder = new ValueBuilder(model, nativeClassName, typeBuilder);
+        valueBuilder.unchecked = model.unchecked;
+        valueBuilder.cachedAddress = rawAddress;
         model.fields().forEach(f -> f.generateNativeMembers(valueBuilder));
         generateNativeCommons(valueBuilder);
         valueBuilder.closeConstructorsAndInitializationBlocks();
@@ -57,36 +71,91 @@ final class Generators {
     private static void generateNativeCommons(ValueBuilder valueBuilder) {
         generateValueCommons(valueBuilder, ImplType.NATIVE);
         ValueModel model = valueBuilder.model;
-        valueBuilder.typeBuilder
+        TypeSpec.Builder typeBuilder = valueBuilder.typeBuilder
                 .addSuperinterface(Byteable.class)
                 .addField(BytesStore.class, "bs", PRIVATE)
-                .addField(long.class, "offset", PRIVATE)
-                .addMethod(bytesStoreMethod(model))
+                .addField(long.class, "offset", PRIVATE);
+        if (valueBuilder.cachedAddress) {
+            typeBuilder.addField(long.class, "address", PRIVATE)
+                    .addField(FieldSpec.builder(UnsafeMemory.class, "MEMORY",
+                            PRIVATE, STATIC, FINAL)
+                            .initializer("$T.MEMORY", UnsafeMemory.class).build())
+                    .addMethod(rawAddressMethod())
+                    .addMethod(addressForWriteMethod());
+        }
+        typeBuilder
+                .addMethod(bytesStoreMethod(valueBuilder))
                 .addMethod(bytesStoreGetterMethod())
                 .addMethod(offsetMethod())
                 .addMethod(maxSizeMethod(model));
+        WholeValueGenerators.generateNativeMethods(valueBuilder);
     }
 
-    private static MethodSpec bytesStoreMethod(ValueModel model) {
+    private static MethodSpec bytesStoreMethod(ValueBuilder valueBuilder) {
         try {
             Method bytesStoreReflectMethod = Byteable.class
                     .getMethod("bytesStore", BytesStore.class, long.class, long.class);
-            return methodBuilder(bytesStoreReflectMethod, asList("bytesStore", "offset", "length"))
-                    .beginControlFlow("if (length != maxSize())")
-                    .addStatement("throw new $T($S + length)",
-                            IllegalArgumentException.class,
-                            format("Constant size is %d, given length is ", model.sizeInBytes()))
-                    .endControlFlow()
-                    .addStatement("this.bs = bytesStore")
-                    .addStatement("    if (offset + length > bytesStore.capacity())\n" +
-                            "        throw new AssertionError()")
-                    .addStatement("this.offset = offset")
-                    .build();
+            MethodSpec.Builder methodBuilder = methodBuilder(bytesStoreReflectMethod,
+                    asList("bytesStore", "offset", "length"));
+            valueBuilder.check(methodBuilder, CodeBlock.of("length != maxSize()"),
+                    IllegalArgumentException.class, CodeBlock.of("$S + length",
+                            format("Constant size is %d, given length is ",
+                                    valueBuilder.model.sizeInBytes())));
+            methodBuilder.addStatement("this.bs = bytesStore");
+            if (valueBuilder.unchecked) {
+                methodBuilder.addStatement("assert offset + length <= bytesStore.capacity()");
+            } else {
+                methodBuilder.addStatement("    if (offset + length > bytesStore.capacity())\n" +
+                        "        throw new AssertionError()");
+            }
+            methodBuilder.addStatement("this.offset = offset");
+            if (valueBuilder.cachedAddress)
+                methodBuilder.addStatement("this.address = addressForWrite(bytesStore, offset)");
+            return methodBuilder.build();
         } catch (NoSuchMethodException e) {
             throw new AssertionError(e);
         }
     }
 
+    /**
+     * If {@code chronicle.values.rawAddress} is enabled, plain reads and writes of primitive fields
+     * go to the raw address of the value, cached in {@code bytesStore()} if the store is direct
+     * memory. The address is not valid after the store is released: {@code bytesStore()} doesn't
+     * cache the address of a released store, and a value, whose store is released after binding,
+     * should be rebound before use. The latter is only asserted: checking it on every access is a
+     * call to the bytes store, which the raw address avoids
+     */
+    private static MethodSpec rawAddressMethod() {
+        return MethodSpec.methodBuilder("rawAddress")
+                .addModifiers(PRIVATE)
+                .returns(long.class)
+                .addStatement("assert address == 0 || bs.refCount() > 0 : $S",
+                        "BytesStore is released, bind the value to a live store")
+                .addStatement("return address")
+                .build();
+    }
+
+    /**
+     * The address is taken for write: a read-only store (e. g. a read-only memory-mapped file)
+     * doesn't give it, and is accessed via its methods, which throw on writes rather than crash
+     */
+    private static MethodSpec addressForWriteMethod() {
+        return MethodSpec.methodBuilder("addressForWrite")
+                .addModifiers(PRIVATE, STATIC)
+                .returns(long.class)
+                .addParameter(BytesStore.class, "bytesStore")
+                .addParameter(long.class, "offset")
+                .beginControlFlow("if (!bytesStore.isDirectMemory() || bytesStore.refCount() <= 0)")
+                .addStatement("return 0")
+                .endControlFlow()
+                .beginControlFlow("try")
+                .addStatement("return bytesStore.addressForWrite(offset)")
+                .nextControlFlow("catch ($T e)", RuntimeException.class)
+                .addStatement("return 0")
+                .endControlFlow()
+                .build();
+    }
+
     private static MethodSpec bytesStoreGetterMethod() {
         try {
             Method bytesStoreReflectMethod = Byteable.class.getMethod("bytesStore");
@@ -138,13 +207,18 @@ final class Generators {
                 .addAnnotation(Override.class)
                 .addModifiers(PUBLIC)
                 .addParameter(valueBuilder.model.valueType, "from");
-        if (implType == ImplType.NATIVE) {
+        // lock words and sequences of nested versioned values are not copied
+        boolean copyBytes = implType == ImplType.NATIVE && valueBuilder.model.bytesCopyable();
+        if (copyBytes) {
             ClassName nativeClassName = valueBuilder.className();
             methodBuilder.beginControlFlow("if (from instanceof $T)", nativeClassName);
             {
+                // the sequence of versioned values is not copied
+                int fieldsStart = valueBuilder.model.fieldsStartInBytes();
                 methodBuilder.addStatement(
-                        "bs.write(offset, (($T) from).bytesStore(), (($T) from).offset(), $L)",
-                        nativeClassName, nativeClassName, valueBuilder.model.sizeInBytes());
+                        "bs.write(offset + $L, (($T) from).bytesStore(), (($T) from).offset() + $L, $L)",
+                        fieldsStart, nativeClassName, nativeClassName, fieldsStart,
+                        valueBuilder.model.sizeInBytes() - fieldsStart);
             }
             methodBuilder.nextControlFlow("else");
         }
@@ -155,7 +229,7 @@ final class Generators {
                     implType.getMemberGenerator(f).generateCopyFrom(valueBuilder, methodBuilder);
                     methodBuilder.endControlFlow();
                 });
-        if (implType == ImplType.NATIVE) {
+        if (copyBytes) {
             methodBuilder.endControlFlow();
         }
         return methodBuilder.build();
@@ -265,6 +339,7 @@ final class Generators {
         generateValueCommons(valueBuilder, ImplType.HEAP);
         if (Byteable.class.isAssignableFrom(model.valueType))
             typeBuilder.addSuperinterface(HeapByteable.class);
+        WholeValueGenerators.generateHeapMethods(valueBuilder);
         valueBuilder.closeConstructorsAndInitializationBlocks();
         TypeSpec heapType = typeBuilder.build();
         String result = JavaFile
@@ -276,6 +351,43 @@ final class Generators {
         return result;
     }
 
+    /**
+     * Generates {@code Foo$$Access}, a final class of static get and set methods of the fields
+     * (including fields of nested values and array elements), taking the bytes store and the
+     * offset of the value, like {@code getPrice(BytesStore bs, long offset)}. Unlike the native
+     * implementation, it has no state, so records could be scanned without binding flyweights.
+     */
+    static String generateAccessClass(ValueModel model, String accessClassName) {
+        String result = JavaFile
+                .builder(model.valueType.getPackage().getName(),
+                        accessType(model, accessClassName))
+                .build()
+                .toString();
+        if (Jvm.getBoolean("chronicle.values.dumpCode"))
+            System.out.println(result);
+        return result;
+    }
+
+    /**
+     * Returns static accessors of {@code Foo$$Access}, see {@link #generateAccessClass}
+     */
+    static List<MethodSpec> accessMethods(ValueModel model) {
+        return accessType(model, model.accessClassName().simpleName()).methodSpecs.stream()
+                .filter(m -> !m.isConstructor())
+                .collect(toList());
+    }
+
+    private static TypeSpec accessType(ValueModel model, String accessClassName) {
+        TypeSpec.Builder typeBuilder = TypeSpec.classBuilder(accessClassName);
+        typeBuilder.addModifiers(PUBLIC, FINAL);
+        ValueBuilder valueBuilder = new ValueBuilder(model, accessClassName, typeBuilder);
+        valueBuilder.unchecked = model.unchecked;
+        model.fields().forEach(f -> f.generateAccessMembers(valueBuilder));
+        typeBuilder.addMethod(MethodSpec.constructorBuilder().addModifiers(PRIVATE).build());
+        valueBuilder.closeConstructorsAndInitializationBlocks();
+        return typeBuilder.build();
+    }
+
     static MethodSpec.Builder methodBuilder(Method m, List<String> paramNames) {
         MethodSpec.Builder builder = MethodSpec.methodBuilder(m.getName())
                 .addAnnotation(Override.class)
@@ -125,7 +125,7 @@ abstract class HeapMemberGenerator extends MemberGenerator {
     public void generateArrayElementSetVolatile(
             ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
             MethodSpec.Builder methodBuilder) {
-        arrayFieldModel.checkBounds(methodBuilder);
+        arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
         Class type = Utils.UNSAFE_CLASS;
         methodBuilder.addStatement(
                 format("$N.$N($N, (long) $T.$N + (index * (long) $T.$N), %s)",
@@ -145,7 +145,7 @@ abstract class HeapMemberGenerator extends MemberGenerator {
     public void generateArrayElementSetOrdered(
             ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
             MethodSpec.Builder methodBuilder) {
-        arrayFieldModel.checkBounds(methodBuilder);
+        arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
         Class type = Utils.UNSAFE_CLASS;
         methodBuilder.addStatement(
                 format("$N.$N($N, (long) $T.$N + (index * (long) $T.$N), %s)",
@@ -154,6 +154,21 @@ abstract class HeapMemberGenerator extends MemberGenerator {
                 arrayScale());
     }
 
+    /**
+     * A heap field is not shared with other fields, atomic set is volatile set
+     */
+    @Override
+    void generateSetAtomic(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+        generateSetVolatile(valueBuilder, methodBuilder);
+    }
+
+    @Override
+    void generateArrayElementSetAtomic(
+            ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
+            MethodSpec.Builder methodBuilder) {
+        generateArrayElementSetVolatile(arrayFieldModel, valueBuilder, methodBuilder);
+    }
+
     @Override
     public void generateCompareAndSwap(
             ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
@@ -168,7 +183,7 @@ abstract class HeapMemberGenerator extends MemberGenerator {
     public void generateArrayElementCompareAndSwap(
             ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
             MethodSpec.Builder methodBuilder) {
-        arrayFieldModel.checkBounds(methodBuilder);
+        arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
         String unwrappedOld = unwrap(methodBuilder, fieldModel.oldName());
         String unwrappedNew = unwrap(methodBuilder, fieldModel.newName());
         Class type = Utils.UNSAFE_CLASS;
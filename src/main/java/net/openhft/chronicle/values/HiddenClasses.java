@@ -0,0 +1,213 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.core.Jvm;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+
+/**
+ * Defines generated classes as hidden classes (JDK 15+), nestmates of the value interface, via
+ * {@code Lookup.defineHiddenClass()}. Hidden classes are not registered in any class loader, so
+ * they could be unloaded together with their value interface, and are defined without a bridge
+ * class loader from {@link BytecodeGen}. Enabled with {@code chronicle.values.hiddenClasses}
+ * system property.
+ * <p>
+ * <p>Hidden classes couldn't be referred by name, and resolve other classes via the class loader
+ * of the value interface, so native and heap implementations (emitted by {@link
+ * BytecodeGenerator} or compiled from source) are defined hidden only if the value interface
+ * has no nested values, and is not nested in any value interface acquired so far. If an outer
+ * value interface is acquired after the hidden implementation is defined, a named copy is
+ * generated for the outer implementation to refer to, see {@link ValueModel#namedClass}.
+ */
+final class HiddenClasses {
+
+    static final boolean ENABLED =
+            Jvm.getBoolean("chronicle.values.hiddenClasses") && Jvm.isJava15Plus();
+
+    private static final MethodHandle PRIVATE_LOOKUP_IN;
+    private static final MethodHandle DEFINE_HIDDEN_CLASS;
+    /**
+     * {@code Lookup.defineHiddenClassWithClassData()}, absent before Java 16
+     */
+    private static final MethodHandle DEFINE_HIDDEN_CLASS_WITH_CLASS_DATA;
+    private static final Object NESTMATE_OPTIONS;
+    private static final Object NO_OPTIONS;
+    /**
+     * {@code Lookup.MODULE}, absent in Java 8
+     */
+    private static final int MODULE_MODE;
+
+    static {
+        MethodHandle privateLookupIn = null;
+        MethodHandle defineHiddenClass = null;
+        MethodHandle defineHiddenClassWithClassData = null;
+        Object nestmateOptions = null;
+        Object noOptions = null;
+        int moduleMode = 0;
+        if (Jvm.isJava15Plus()) {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                privateLookupIn = lookup.findStatic(MethodHandles.class, "privateLookupIn",
+                        MethodType.methodType(MethodHandles.Lookup.class,
+                                Class.class, MethodHandles.Lookup.class));
+                Class<?> classOption =
+                        Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+                Object options = Array.newInstance(classOption, 1);
+                Array.set(options, 0, classOption.getField("NESTMATE").get(null));
+                defineHiddenClass = lookup.findVirtual(MethodHandles.Lookup.class,
+                        "defineHiddenClass", MethodType.methodType(MethodHandles.Lookup.class,
+                                byte[].class, boolean.class, options.getClass()))
+                        .asFixedArity();
+                nestmateOptions = options;
+                noOptions = Array.newInstance(classOption, 0);
+                moduleMode = MethodHandles.Lookup.class.getField("MODULE").getInt(null);
+                if (Jvm.majorVersion() >= 16) {
+                    defineHiddenClassWithClassData = lookup.findVirtual(
+                            MethodHandles.Lookup.class, "defineHiddenClassWithClassData",
+                            MethodType.methodType(MethodHandles.Lookup.class, byte[].class,
+                                    Object.class, boolean.class, options.getClass()))
+                            .asFixedArity();
+                }
+            } catch (ReflectiveOperationException e) {
+                Jvm.warn().on(HiddenClasses.class, "Hidden classes are not available: " + e);
+                privateLookupIn = null;
+                defineHiddenClass = null;
+                defineHiddenClassWithClassData = null;
+            }
+        }
+        PRIVATE_LOOKUP_IN = privateLookupIn;
+        DEFINE_HIDDEN_CLASS = defineHiddenClass;
+        DEFINE_HIDDEN_CLASS_WITH_CLASS_DATA = defineHiddenClassWithClassData;
+        NESTMATE_OPTIONS = nestmateOptions;
+        NO_OPTIONS = noOptions;
+        MODULE_MODE = moduleMode;
+    }
+
+    private HiddenClasses() {
+    }
+
+    static boolean available() {
+        return DEFINE_HIDDEN_CLASS != null;
+    }
+
+    /**
+     * Defines a hidden class from the given bytes, a nestmate of the {@code valueType}. The class
+     * name in the bytes should be in the package of the {@code valueType}.
+     *
+     * @return the hidden class, or {@code null}, if the library has no full privilege access to
+     * the {@code valueType}, e. g. it is in a different module, including the unnamed module of
+     * another class loader, or the library is not visible from the class loader of the {@code
+     * valueType}
+     */
+    static Class defineHiddenClass(Class<?> valueType, byte[] bytecode) {
+        if (!available())
+            throw new UnsupportedOperationException("Hidden classes require Java 15+");
+        if (!libraryVisibleFrom(valueType.getClassLoader()))
+            return null;
+        MethodHandles.Lookup lookup = fullPrivilegeLookup(valueType);
+        if (lookup == null)
+            return null;
+        try {
+            MethodHandles.Lookup hiddenLookup = (MethodHandles.Lookup)
+                    DEFINE_HIDDEN_CLASS.invoke(lookup, bytecode, true, NESTMATE_OPTIONS);
+            return hiddenLookup.lookupClass();
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (Throwable e) {
+            throw new ImplGenerationFailedException(e);
+        }
+    }
+
+    /**
+     * Defines a hidden class from the given bytes with the given class data (JDK 16+), which
+     * the class could read via {@code MethodHandles.classData()}, and returns a new instance of the
+     * class, created by its no-arg constructor. The class name in the bytes should be in the
+     * package of the {@code valueType}.
+     *
+     * @return the new instance, or {@code null}, if class data is not supported by this JVM, or
+     * the hidden class cannot be defined, see {@link #defineHiddenClass}
+     */
+    static Object newInstanceWithClassData(Class<?> valueType, byte[] bytecode, Object classData) {
+        if (DEFINE_HIDDEN_CLASS_WITH_CLASS_DATA == null)
+            return null;
+        MethodHandles.Lookup lookup = fullPrivilegeLookup(valueType);
+        if (lookup == null)
+            return null;
+        try {
+            MethodHandles.Lookup hiddenLookup = (MethodHandles.Lookup)
+                    DEFINE_HIDDEN_CLASS_WITH_CLASS_DATA.invoke(
+                            lookup, bytecode, classData, true, NO_OPTIONS);
+            return hiddenLookup.findConstructor(hiddenLookup.lookupClass(),
+                    MethodType.methodType(void.class)).invoke();
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (Throwable e) {
+            throw new ImplGenerationFailedException(e);
+        }
+    }
+
+    /**
+     * Returns a lookup into the {@code valueType} with full privilege access, or {@code null}, if
+     * the library has no such access
+     */
+    private static MethodHandles.Lookup fullPrivilegeLookup(Class<?> valueType) {
+        MethodHandles.Lookup lookup;
+        try {
+            lookup = (MethodHandles.Lookup)
+                    PRIVATE_LOOKUP_IN.invoke(valueType, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (Throwable e) {
+            throw new ImplGenerationFailedException(e);
+        }
+        return (lookup.lookupModes() & MODULE_MODE) != 0 ? lookup : null;
+    }
+
+    /**
+     * Hidden classes resolve the library classes, the generated code refers to, via the class
+     * loader of the value interface, rather than via a bridge class loader
+     */
+    private static boolean libraryVisibleFrom(ClassLoader cl) {
+        try {
+            return Class.forName(Values.class.getName(), false, cl) == Values.class;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Names of hidden classes are the names in their bytes, followed by {@code '/'} and a suffix
+     */
+    static boolean isHidden(Class<?> c) {
+        return c.getName().indexOf('/') >= 0;
+    }
+
+    /**
+     * Returns the name of the given class, without a hidden class suffix
+     */
+    static String nameOf(Class<?> c) {
+        String name = c.getName();
+        int slash = name.indexOf('/');
+        return slash >= 0 ? name.substring(0, slash) : name;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.util.CompilerUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.Supplier;
+
+/**
+ * Creates factories of instances of implementation classes, which {@code get()} costs the same as
+ * {@code new Foo$$Native()}, unlike {@code getDeclaredConstructor().newInstance()}.
+ * <p>
+ * <p>For a named implementation class, a {@code Foo$$Native$$Factory} class, calling the
+ * constructor directly, is emitted by {@link BytecodeGenerator#generateFactory} and defined in the
+ * class loader of the implementation. {@link HiddenClasses Hidden} implementation classes cannot
+ * be referred by name, for them the factory is a hidden class too, calling the constructor {@code
+ * MethodHandle}, held in a static final field, see {@link
+ * BytecodeGenerator#generateClassDataFactory}. If neither could be defined, e. g. in a native
+ * image, or hidden classes with class data are not supported by the JVM (before Java 16), the
+ * factory calls the constructor {@code MethodHandle}, which is not inlined.
+ */
+final class ImplFactories {
+
+    static final String $$FACTORY = "$$Factory";
+
+    private ImplFactories() {
+    }
+
+    static <T> Supplier<T> create(Class<T> implClass) {
+        // classes cannot be defined in a native image
+        if (!Utils.inNativeImage()) {
+            Supplier<T> factory = HiddenClasses.isHidden(implClass) ?
+                    hiddenFactory(implClass) : definedFactory(implClass);
+            if (factory != null)
+                return factory;
+        }
+        return methodHandleFactory(implClass);
+    }
+
+    private static <T> Supplier<T> hiddenFactory(Class<T> implClass) {
+        String factoryClassName = HiddenClasses.nameOf(implClass) + $$FACTORY;
+        //noinspection unchecked
+        return (Supplier<T>) HiddenClasses.newInstanceWithClassData(
+                ValueModel.acquire(implClass).valueType,
+                BytecodeGenerator.generateClassDataFactory(factoryClassName),
+                constructor(implClass).asType(MethodType.methodType(Object.class)));
+    }
+
+    private static <T> Supplier<T> definedFactory(Class<T> implClass) {
+        String factoryClassName = implClass.getName() + $$FACTORY;
+        ClassLoader cl = implClass.getClassLoader();
+        Class<?> factoryClass;
+        try {
+            factoryClass = CompilerUtils.defineClass(cl, factoryClassName,
+                    BytecodeGenerator.generateFactory(factoryClassName, implClass.getName()));
+        } catch (LinkageError | RuntimeException e) {
+            // already defined, e. g. by a concurrent call, or defineClass is not permitted
+            try {
+                factoryClass = Class.forName(factoryClassName, true, cl);
+            } catch (ClassNotFoundException notFound) {
+                Jvm.debug().on(ImplFactories.class, "Failed to define " + factoryClassName +
+                        ", creating instances via MethodHandle: " + e);
+                return null;
+            }
+        }
+        try {
+            //noinspection unchecked
+            return (Supplier<T>) factoryClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> implClass) {
+        try {
+            return MethodHandles.publicLookup()
+                    .unreflectConstructor(implClass.getDeclaredConstructor());
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static <T> Supplier<T> methodHandleFactory(Class<T> implClass) {
+        MethodHandle constructor = constructor(implClass);
+        return () -> {
+            try {
+                //noinspection unchecked
+                return (T) constructor.invoke();
+            } catch (Throwable t) {
+                throw Jvm.rethrow(t);
+            }
+        };
+    }
+}
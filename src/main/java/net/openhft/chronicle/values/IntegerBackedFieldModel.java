@@ -44,6 +44,16 @@ class IntegerBackedFieldModel extends PrimitiveFieldModel {
         return backend.dontCrossAlignmentInBytes();
     }
 
+    @Override
+    int atomicWordEnd(int bitOffset) {
+        return backend.atomicWordEnd(bitOffset);
+    }
+
+    @Override
+    int arrayElementsAtomicWordEnd(ArrayFieldModel arrayFieldModel, int arrayBitOffset) {
+        return backend.arrayElementsAtomicWordEnd(arrayFieldModel, arrayBitOffset);
+    }
+
     @Override
     void checkState() {
         super.checkState();
@@ -39,7 +39,16 @@ abstract class IntegerBackedNativeMemberGenerator extends MemberGenerator {
     /**
      * Returns integer value to write (as string)
      */
-    abstract String startSet(MethodSpec.Builder methodBuilder);
+    abstract String startSet(
+            ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder);
+
+    /**
+     * Declares a variable of the integer value, backing the given field value, returns the
+     * variable name. Field models, supporting compare-and-swap, override this method.
+     */
+    String backingValueVariable(MethodSpec.Builder methodBuilder, String value) {
+        throw new UnsupportedOperationException(fieldModel.getClass() + "");
+    }
 
     @Override
     public void generateGet(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
@@ -51,7 +60,7 @@ abstract class IntegerBackedNativeMemberGenerator extends MemberGenerator {
     public void generateArrayElementGet(
             ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
             MethodSpec.Builder methodBuilder) {
-        arrayFieldModel.checkBounds(methodBuilder);
+        arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
         String value = backingFieldModel.genArrayElementGet(
                 arrayFieldModel, valueBuilder, methodBuilder, NORMAL_ACCESS_TYPE);
         finishGet(valueBuilder, methodBuilder, value);
@@ -68,7 +77,7 @@ abstract class IntegerBackedNativeMemberGenerator extends MemberGenerator {
     public void generateArrayElementGetVolatile(
             ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
             MethodSpec.Builder methodBuilder) {
-        arrayFieldModel.checkBounds(methodBuilder);
+        arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
         String value = backingFieldModel.genArrayElementGet(
                 arrayFieldModel, valueBuilder, methodBuilder, VOLATILE_ACCESS_TYPE);
         finishGet(valueBuilder, methodBuilder, value);
@@ -76,7 +85,7 @@ abstract class IntegerBackedNativeMemberGenerator extends MemberGenerator {
 
     @Override
     public void generateSet(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
-        String valueToWrite = startSet(methodBuilder);
+        String valueToWrite = startSet(valueBuilder, methodBuilder);
         backingFieldModel.genSet(valueBuilder, methodBuilder, NORMAL_ACCESS_TYPE, valueToWrite);
     }
 
@@ -84,8 +93,8 @@ abstract class IntegerBackedNativeMemberGenerator extends MemberGenerator {
     public void generateArrayElementSet(
             ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
             MethodSpec.Builder methodBuilder) {
-        arrayFieldModel.checkBounds(methodBuilder);
-        String valueToWrite = startSet(methodBuilder);
+        arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
+        String valueToWrite = startSet(valueBuilder, methodBuilder);
         backingFieldModel.genArrayElementSet(arrayFieldModel, valueBuilder, methodBuilder,
                 NORMAL_ACCESS_TYPE, valueToWrite);
     }
@@ -93,7 +102,7 @@ abstract class IntegerBackedNativeMemberGenerator extends MemberGenerator {
     @Override
     public void generateSetVolatile(
             ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
-        String valueToWrite = startSet(methodBuilder);
+        String valueToWrite = startSet(valueBuilder, methodBuilder);
         backingFieldModel.genSet(valueBuilder, methodBuilder, VOLATILE_ACCESS_TYPE, valueToWrite);
     }
 
@@ -101,8 +110,8 @@ abstract class IntegerBackedNativeMemberGenerator extends MemberGenerator {
     public void generateArrayElementSetVolatile(
             ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
             MethodSpec.Builder methodBuilder) {
-        arrayFieldModel.checkBounds(methodBuilder);
-        String valueToWrite = startSet(methodBuilder);
+        arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
+        String valueToWrite = startSet(valueBuilder, methodBuilder);
         backingFieldModel.genArrayElementSet(arrayFieldModel, valueBuilder, methodBuilder,
                 VOLATILE_ACCESS_TYPE, valueToWrite);
     }
@@ -110,7 +119,7 @@ abstract class IntegerBackedNativeMemberGenerator extends MemberGenerator {
     @Override
     public void generateSetOrdered(
             ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
-        String valueToWrite = startSet(methodBuilder);
+        String valueToWrite = startSet(valueBuilder, methodBuilder);
         backingFieldModel.genSet(valueBuilder, methodBuilder, ORDERED_ACCESS_TYPE, valueToWrite);
     }
 
@@ -118,12 +127,30 @@ abstract class IntegerBackedNativeMemberGenerator extends MemberGenerator {
     public void generateArrayElementSetOrdered(
             ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
             MethodSpec.Builder methodBuilder) {
-        arrayFieldModel.checkBounds(methodBuilder);
-        String valueToWrite = startSet(methodBuilder);
+        arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
+        String valueToWrite = startSet(valueBuilder, methodBuilder);
         backingFieldModel.genArrayElementSet(arrayFieldModel, valueBuilder, methodBuilder,
                 ORDERED_ACCESS_TYPE, valueToWrite);
     }
 
+    @Override
+    void generateCompareAndSwap(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+        String oldValue = backingValueVariable(methodBuilder, fieldModel.oldName());
+        String newValue = backingValueVariable(methodBuilder, fieldModel.newName());
+        backingFieldModel.genCompareAndSwap(valueBuilder, methodBuilder, oldValue, newValue);
+    }
+
+    @Override
+    void generateArrayElementCompareAndSwap(
+            ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
+            MethodSpec.Builder methodBuilder) {
+        arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
+        String oldValue = backingValueVariable(methodBuilder, fieldModel.oldName());
+        String newValue = backingValueVariable(methodBuilder, fieldModel.newName());
+        backingFieldModel.genArrayElementCompareAndSwap(
+                arrayFieldModel, valueBuilder, methodBuilder, oldValue, newValue);
+    }
+
     @Override
     void generateCopyFrom(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
         if (fieldModel.set != null) {
@@ -18,6 +18,7 @@
 
 package net.openhft.chronicle.values;
 
+import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.MethodSpec;
 import net.openhft.chronicle.core.Maths;
 import org.jetbrains.annotations.NotNull;
@@ -34,6 +35,7 @@ import static net.openhft.chronicle.values.Primitives.widthInBits;
 import static net.openhft.chronicle.values.RangeImpl.*;
 import static net.openhft.chronicle.values.Utils.capitalize;
 import static net.openhft.chronicle.values.Utils.formatIntOrLong;
+import static net.openhft.chronicle.values.Utils.roundUp;
 
 class IntegerFieldModel extends PrimitiveFieldModel {
 
@@ -61,32 +63,20 @@ class IntegerFieldModel extends PrimitiveFieldModel {
         }
 
         @Override
-        String startSet(MethodSpec.Builder methodBuilder) {
+        String startSet(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
             String value = varName(); // parameter name
             Range range = range();
             String checkCondition = checkCondition(value, range);
             if (!checkCondition.isEmpty()) {
-                methodBuilder.beginControlFlow(format("if (%s)", checkCondition));
-                methodBuilder.addStatement("throw new $T($S + $N + $S)",
-                        IllegalArgumentException.class,
-                        value + format(" should be in [%d, %d] range, ", range.min(), range.max()),
-                        value, " is given");
-                methodBuilder.endControlFlow();
+                valueBuilder.check(methodBuilder, CodeBlock.of(checkCondition),
+                        IllegalArgumentException.class, CodeBlock.of("$S + $N + $S",
+                                value + format(" should be in [%d, %d] range, ",
+                                        range.min(), range.max()),
+                                value, " is given"));
             }
             return value;
         }
 
-        @NotNull
-        private String checkCondition(String value, Range range) {
-            Range defaultRange = defaultRange();
-            String cond = " || ";
-            if (range.min() != defaultRange.min())
-                cond += value + " < " + formatIntOrLong(range.min());
-            if (range.max() != defaultRange.max())
-                cond += " || " + value + " > " + formatIntOrLong(range.max());
-            return cond.substring(4);
-        }
-
         @Override
         public void generateAdd(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
             // TODO use addAndGetXxxNotAtomic from BytesStore interface when possible
@@ -103,13 +93,13 @@ class IntegerFieldModel extends PrimitiveFieldModel {
             Range range = range();
             String checkCondition = checkCondition(newName(), range);
             if (!checkCondition.isEmpty()) {
-                methodBuilder.beginControlFlow(format("if (%s)", checkCondition));
-                methodBuilder.addStatement("throw new $T($S + $N + $S + $N + $S + $N + $S)",
+                valueBuilder.check(methodBuilder, CodeBlock.of(checkCondition),
                         IllegalStateException.class,
-                        value + format(" should be in [%d, %d] range, the value was ",
-                                range.min(), range.max()),
-                        oldName(), ", + ", "addition", " = ", newName(), " out of the range");
-                methodBuilder.endControlFlow();
+                        CodeBlock.of("$S + $N + $S + $N + $S + $N + $S",
+                                value + format(" should be in [%d, %d] range, the value was ",
+                                        range.min(), range.max()),
+                                oldName(), ", + ", "addition", " = ", newName(),
+                                " out of the range"));
             }
             genSet(valueBuilder, methodBuilder, NORMAL_ACCESS_TYPE, newName());
             methodBuilder.addStatement("return $N", newName());
@@ -117,43 +107,87 @@ class IntegerFieldModel extends PrimitiveFieldModel {
 
         @Override
         public void generateAddAtomic(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
-            int bitOffset = valueBuilder.model.fieldBitOffset(outerModel);
-            if (bitOffset % 8 == 0) {
-                Range range = range();
-                int byteOffset = bitOffset / 8;
-                if (DEFAULT_INT_RANGE.equals(range) && type == int.class) {
-                    methodBuilder.addStatement("return bs.addAndGetInt(offset + $L, addition)",
-                            byteOffset);
-                } else if (DEFAULT_LONG_RANGE.equals(range)) {
-                    methodBuilder.addStatement("return bs.addAndGetLong(offset + $L, addition)",
-                            byteOffset);
+            generateAtomicUpdate(valueBuilder, methodBuilder, AtomicUpdate.ADD_AND_GET);
+        }
+
+        @Override
+        void generateArrayElementAddAtomic(
+                ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
+                MethodSpec.Builder methodBuilder) {
+            generateArrayElementAtomicUpdate(
+                    arrayFieldModel, valueBuilder, methodBuilder, AtomicUpdate.ADD_AND_GET);
+        }
+
+        @Override
+        void generateAtomicUpdate(
+                ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, AtomicUpdate update) {
+            genAtomicUpdate(valueBuilder, methodBuilder, atomicWord(valueBuilder), update);
+        }
+
+        @Override
+        void generateArrayElementAtomicUpdate(
+                ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
+                MethodSpec.Builder methodBuilder, AtomicUpdate update) {
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
+            AtomicWord word = arrayElementAtomicWord(arrayFieldModel, valueBuilder, methodBuilder);
+            genAtomicUpdate(valueBuilder, methodBuilder, word, update);
+        }
+
+        /**
+         * Atomic additions to the field, taking the whole word, are done via addAndGet of the
+         * bytes store, other updates compare-and-swap the word in a loop
+         */
+        private void genAtomicUpdate(
+                ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, AtomicWord word,
+                AtomicUpdate update) {
+            String addend = update.addend();
+            if (addend != null && word.isWholeWord() && hasDefaultRange() && type == word.type) {
+                String addAndGet = format("bs.addAndGet%s(%s, %s)",
+                        capitalize(type.getSimpleName()), word.offset, addend);
+                if (update.returnsOld) {
+                    methodBuilder.addStatement("return $L - $L", addAndGet, addend);
                 } else {
-                    throw new UnsupportedOperationException("not implemented yet");
+                    methodBuilder.addStatement("return $L", addAndGet);
                 }
-            } else {
-                throw new UnsupportedOperationException("not implemented yet");
+                return;
+            }
+            if (update == AtomicUpdate.GET_AND_SET)
+                startSet(valueBuilder, methodBuilder);
+            methodBuilder.beginControlFlow("while (true)");
+            methodBuilder.addStatement("$T word = $L", word.type, word.readVolatile());
+            methodBuilder.addStatement("$T $N = $L", type, oldName(), word.decode("word"));
+            methodBuilder.addStatement("$T $N = $L", type, newName(),
+                    update.newValue(IntegerFieldModel.this, oldName()));
+            Range range = range();
+            String checkCondition = checkCondition(newName(), range);
+            if (update != AtomicUpdate.GET_AND_SET && !checkCondition.isEmpty()) {
+                valueBuilder.check(methodBuilder, CodeBlock.of(checkCondition),
+                        IllegalStateException.class, CodeBlock.of("$S + $N + $S + $N + $S",
+                                name + format(" should be in [%d, %d] range, the value was ",
+                                        range.min(), range.max()),
+                                oldName(), ", the updated value ", newName(),
+                                " is out of the range"));
             }
+            methodBuilder.beginControlFlow("if ($L)",
+                    word.compareAndSwap("word", word.encode("word", newName())));
+            methodBuilder.addStatement("return $N", update.returned(IntegerFieldModel.this));
+            methodBuilder.endControlFlow();
+            methodBuilder.endControlFlow();
         }
 
         @Override
         public void generateCompareAndSwap(
                 ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
-            int bitOffset = valueBuilder.model.fieldBitOffset(outerModel);
-            if (bitOffset % 8 == 0) {
-                Range range = range();
-                int byteOffset = bitOffset / 8;
-                if (DEFAULT_INT_RANGE.equals(range) && type == int.class) {
-                    methodBuilder.addStatement("return bs.compareAndSwapInt(offset + $L, $N, $N)",
-                            byteOffset, oldName(), newName());
-                } else if (DEFAULT_LONG_RANGE.equals(range)) {
-                    methodBuilder.addStatement("return bs.compareAndSwapLong(offset + $L, $N, $N)",
-                            byteOffset, oldName(), newName());
-                } else {
-                    throw new UnsupportedOperationException("not implemented yet");
-                }
-            } else {
-                throw new UnsupportedOperationException("not implemented yet");
-            }
+            genCompareAndSwap(valueBuilder, methodBuilder, oldName(), newName());
+        }
+
+        @Override
+        void generateArrayElementCompareAndSwap(
+                ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
+                MethodSpec.Builder methodBuilder) {
+            arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
+            genArrayElementCompareAndSwap(
+                    arrayFieldModel, valueBuilder, methodBuilder, oldName(), newName());
         }
 
         @Override
@@ -199,7 +233,11 @@ class IntegerFieldModel extends PrimitiveFieldModel {
         return Maths.intLog2(options - 1) + 1;
     }
 
-    private static String read(String offset, int bitsToRead, Function<String, String> accessType) {
+    private static String read(
+            ValueBuilder valueBuilder, String offset, int bitsToRead,
+            Function<String, String> accessType) {
+        if (accessType == NORMAL_ACCESS_TYPE)
+            return plainRead(valueBuilder, integerBytesIoType(bitsToRead), offset);
         return format("bs.read%s(%s)",
                 accessType.apply(integerBytesMethodSuffix(bitsToRead)), offset);
     }
@@ -269,6 +307,12 @@ class IntegerFieldModel extends PrimitiveFieldModel {
         return range != null ? range : defaultRange();
     }
 
+    boolean hasDefaultRange() {
+        Range range = range();
+        Range defaultRange = defaultRange();
+        return range.min() == defaultRange.min() && range.max() == defaultRange.max();
+    }
+
     // The methods below are named with "gen" prefix instead of "generate" to avoid confusion
     // and possible bugs when called from MemberGenerator methods, that have the same names
 
@@ -293,18 +337,18 @@ class IntegerFieldModel extends PrimitiveFieldModel {
         int bitExtent = valueBuilder.model.fieldBitExtent(outerModel);
         String readOffset = "offset + " + byteOffset;
         int lowMaskBits = bitOffset - (byteOffset * 8);
-        return genGet(lowMaskBits, bitExtent, readOffset, accessType);
+        return genGet(valueBuilder, lowMaskBits, bitExtent, readOffset, accessType);
     }
 
     private String genGet(
-            int lowMaskBits, int bitExtent, String readOffset,
+            ValueBuilder valueBuilder, int lowMaskBits, int bitExtent, String readOffset,
             Function<String, String> accessType) {
         int leastBitsToRead = lowMaskBits + sizeInBits();
         int bitsToRead = Maths.nextPower2(leastBitsToRead, 8);
         int highMaskBits = Math.max(bitsToRead - bitExtent - lowMaskBits, 0);
         int fieldBits = bitsToRead - lowMaskBits - highMaskBits;
 
-        String read = read(readOffset, bitsToRead, accessType);
+        String read = read(valueBuilder, readOffset, bitsToRead, accessType);
 
         long readMin = (-1L) << (fieldBits - 1);
         long readMax = -(readMin + 1);
@@ -322,9 +366,10 @@ class IntegerFieldModel extends PrimitiveFieldModel {
 
         Range range = range();
 
-        // No read value translation
+        // No read value translation. A byte, char or short field could be read as a wider word,
+        // if written by ordered writes, see sizeInBitsConsideringVolatileOrOrderedPuts()
         if (readMin <= range.min() && readMax >= range.max())
-            return read;
+            return bitsToRead > widthInBits(type) ? cast(read) : read;
 
         // "Unsigned" value. This is a special case of the next next block, but treated
         // differently, because `readByte() & 0xFF` looks more familiar than `readByte() + 128`,
@@ -367,17 +412,27 @@ class IntegerFieldModel extends PrimitiveFieldModel {
             ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
             MethodSpec.Builder methodBuilder, Function<String, String> accessType) {
         int arrayBitOffset = valueBuilder.model.fieldBitOffset(arrayFieldModel);
-        if (arrayBitOffset % 8 != 0)
-            throw new UnsupportedOperationException("not implemented yet");
-        int arrayByteOffset = arrayBitOffset / 8;
         int elemBitExtent = arrayFieldModel.elemBitExtent();
-        if (elemBitExtent % 8 == 0) {
-            genVerifiedElementOffset(arrayFieldModel, methodBuilder);
-            String readOffset = format("offset + %d + elementOffset", arrayByteOffset);
-            return genGet(0, elemBitExtent, readOffset, accessType);
-        } else {
-            throw new UnsupportedOperationException("not implemented yet");
+        if (bitPacked(arrayBitOffset, elemBitExtent)) {
+            AtomicWord word = packedElementWord(arrayFieldModel, valueBuilder, methodBuilder);
+            String read = accessType == NORMAL_ACCESS_TYPE ?
+                    plainRead(valueBuilder, word.type, word.offset) :
+                    format("bs.read%s(%s)",
+                            accessType.apply(capitalize(word.type.getSimpleName())), word.offset);
+            return word.decode(read);
         }
+        int arrayByteOffset = arrayBitOffset / 8;
+        genVerifiedElementOffset(arrayFieldModel, methodBuilder);
+        String readOffset = format("offset + %d + elementOffset", arrayByteOffset);
+        return genGet(valueBuilder, 0, elemBitExtent, readOffset, accessType);
+    }
+
+    /**
+     * If elements of the array don't start at byte boundaries, and are read and written via
+     * {@link #packedElementWord}
+     */
+    private static boolean bitPacked(int arrayBitOffset, int elemBitExtent) {
+        return arrayBitOffset % 8 != 0 || elemBitExtent % 8 != 0;
     }
 
     void genSet(
@@ -388,11 +443,13 @@ class IntegerFieldModel extends PrimitiveFieldModel {
         String ioOffset = "offset + " + byteOffset;
         int lowMaskBits = bitOffset - (byteOffset * 8);
         int bitExtent = valueBuilder.model.fieldBitExtent(outerModel);
-        genSet(methodBuilder, lowMaskBits, bitExtent, ioOffset, accessType, valueToWrite);
+        genSet(valueBuilder, methodBuilder, lowMaskBits, bitExtent, ioOffset, accessType,
+                valueToWrite);
     }
 
     private void genSet(
-            MethodSpec.Builder methodBuilder, int lowMaskBits, int bitExtent, String ioOffset,
+            ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder,
+            int lowMaskBits, int bitExtent, String ioOffset,
             Function<String, String> accessType, String valueToWrite) {
         int leastBitsToWrite = lowMaskBits + sizeInBits();
         int bitsToWrite = Maths.nextPower2(leastBitsToWrite, 8);
@@ -437,7 +494,7 @@ class IntegerFieldModel extends PrimitiveFieldModel {
             }
             if (bitsToWrite == 64)
                 mask += "L";
-            String read = read(ioOffset, bitsToWrite, NORMAL_ACCESS_TYPE);
+            String read = read(valueBuilder, ioOffset, bitsToWrite, NORMAL_ACCESS_TYPE);
             if (lowMaskBits > 0)
                 valueToWrite = format("((%s) << %s)", valueToWrite, lowMaskBits);
             valueToWrite = format("((%s) & %s) | (%s)", read, mask, valueToWrite);
@@ -446,6 +503,11 @@ class IntegerFieldModel extends PrimitiveFieldModel {
         Class ioType = integerBytesIoType(bitsToWrite);
         if (ioType != type)
             valueToWrite = format("(%s) (%s)", ioType.getSimpleName(), valueToWrite);
+        if (accessType == NORMAL_ACCESS_TYPE) {
+            // char is cast to short above, so the unsigned short write is not needed
+            genPlainWrite(valueBuilder, methodBuilder, ioType, ioOffset, valueToWrite);
+            return;
+        }
         String writeMethod = "write" + accessType.apply(
                 type != char.class ? integerBytesMethodSuffix(bitsToWrite) : "UnsignedShort");
         String write = format("bs.%s(%s, %s)", writeMethod, ioOffset, valueToWrite);
@@ -457,16 +519,370 @@ class IntegerFieldModel extends PrimitiveFieldModel {
             MethodSpec.Builder methodBuilder, Function<String, String> accessType,
             String valueToWrite) {
         int arrayBitOffset = valueBuilder.model.fieldBitOffset(arrayFieldModel);
-        if (arrayBitOffset % 8 != 0)
-            throw new UnsupportedOperationException("not implemented yet");
-        int arrayByteOffset = arrayBitOffset / 8;
         int elemBitExtent = arrayFieldModel.elemBitExtent();
-        if (elemBitExtent % 8 == 0) {
-            genVerifiedElementOffset(arrayFieldModel, methodBuilder);
-            String ioOffset = format("offset + %d + elementOffset", arrayByteOffset);
-            genSet(methodBuilder, 0, elemBitExtent, ioOffset, accessType, valueToWrite);
+        if (bitPacked(arrayBitOffset, elemBitExtent)) {
+            // the word is compared-and-swapped, not to lose concurrent writes of the other bits
+            // of the word, thus the write is volatile regardless of the access type
+            AtomicWord word = packedElementWord(arrayFieldModel, valueBuilder, methodBuilder);
+            methodBuilder.addStatement("$T packedElement = $L", type, valueToWrite);
+            methodBuilder.beginControlFlow("while (true)");
+            methodBuilder.addStatement("$T word = $L", word.type, word.readVolatile());
+            methodBuilder.beginControlFlow("if ($L)",
+                    word.compareAndSwap("word", word.encode("word", "packedElement")));
+            methodBuilder.addStatement("break");
+            methodBuilder.endControlFlow();
+            methodBuilder.endControlFlow();
+            return;
+        }
+        int arrayByteOffset = arrayBitOffset / 8;
+        genVerifiedElementOffset(arrayFieldModel, methodBuilder);
+        String ioOffset = format("offset + %d + elementOffset", arrayByteOffset);
+        genSet(valueBuilder, methodBuilder, 0, elemBitExtent, ioOffset, accessType, valueToWrite);
+    }
+
+    @NotNull
+    private String checkCondition(String value, Range range) {
+        Range defaultRange = defaultRange();
+        String cond = " || ";
+        if (range.min() != defaultRange.min())
+            cond += value + " < " + formatIntOrLong(range.min());
+        if (range.max() != defaultRange.max())
+            cond += " || " + value + " > " + formatIntOrLong(range.max());
+        return cond.substring(4);
+    }
+
+    /**
+     * Generates compare-and-swap of this field, the expected and the new values are given as
+     * names of variables of this field type.
+     */
+    void genCompareAndSwap(
+            ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder,
+            String oldValue, String newValue) {
+        int bitOffset = valueBuilder.model.fieldBitOffset(outerModel);
+        if (!atomicViaWord(bitOffset)) {
+            methodBuilder.addStatement("return bs.compareAndSwap$L(offset + $L, $N, $N)",
+                    capitalize(type.getSimpleName()), bitOffset / 8, oldValue, newValue);
         } else {
-            throw new UnsupportedOperationException("not implemented yet");
+            genCompareAndSwapChecks(valueBuilder, methodBuilder, oldValue, newValue);
+            genWordCompareAndSwap(methodBuilder, atomicWord(valueBuilder), oldValue, newValue);
+        }
+    }
+
+    /**
+     * Generates compare-and-swap of the array element of this field at {@code index}, the
+     * bounds should be already checked.
+     */
+    void genArrayElementCompareAndSwap(
+            ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
+            MethodSpec.Builder methodBuilder, String oldValue, String newValue) {
+        genCompareAndSwapChecks(valueBuilder, methodBuilder, oldValue, newValue);
+        AtomicWord word = arrayElementAtomicWord(arrayFieldModel, valueBuilder, methodBuilder);
+        if (word.isWholeWord() && hasDefaultRange() && type == word.type) {
+            methodBuilder.addStatement("return bs.compareAndSwap$L($L, $N, $N)",
+                    capitalize(type.getSimpleName()), word.offset, oldValue, newValue);
+        } else {
+            genWordCompareAndSwap(methodBuilder, word, oldValue, newValue);
+        }
+    }
+
+    private void genCompareAndSwapChecks(
+            ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, String oldValue,
+            String newValue) {
+        Range range = range();
+        String newCheckCondition = checkCondition(newValue, range);
+        if (!newCheckCondition.isEmpty()) {
+            valueBuilder.check(methodBuilder, CodeBlock.of(newCheckCondition),
+                    IllegalArgumentException.class, CodeBlock.of("$S + $N + $S",
+                            newValue + format(" should be in [%d, %d] range, ",
+                                    range.min(), range.max()),
+                            newValue, " is given"));
+            // the field never has a value out of the range, while the encoded out of the
+            // range value might coincide with the encoded value of the field
+            methodBuilder.beginControlFlow(format("if (%s)", checkCondition(oldValue, range)));
+            methodBuilder.addStatement("return false");
+            methodBuilder.endControlFlow();
+        }
+    }
+
+    private void genWordCompareAndSwap(
+            MethodSpec.Builder methodBuilder, AtomicWord word, String oldValue, String newValue) {
+        methodBuilder.beginControlFlow("while (true)");
+        methodBuilder.addStatement("$T word = $L", word.type, word.readVolatile());
+        methodBuilder.beginControlFlow("if ($L != $N)", word.decode("word"), oldValue);
+        methodBuilder.addStatement("return false");
+        methodBuilder.endControlFlow();
+        methodBuilder.beginControlFlow("if ($L)",
+                word.compareAndSwap("word", word.encode("word", newValue)));
+        methodBuilder.addStatement("return true");
+        methodBuilder.endControlFlow();
+        methodBuilder.endControlFlow();
+    }
+
+    /**
+     * Whether atomic operations of this field, at the given offset, compare-and-swap the enclosing
+     * {@link AtomicWord}, rather than the field itself
+     */
+    private boolean atomicViaWord(int bitOffset) {
+        return bitOffset % 8 != 0 || !hasDefaultRange() ||
+                (type != int.class && type != long.class);
+    }
+
+    /**
+     * Returns the size of the smallest aligned word (32 or 64 bits), enclosing the given bits,
+     * or 0, if the bits cross a 64-bit word boundary
+     */
+    private static int enclosingWordBits(int bitOffset, int bits) {
+        for (int wordBits = 32; wordBits <= 64; wordBits *= 2) {
+            if (bitOffset % wordBits + bits <= wordBits)
+                return wordBits;
+        }
+        return 0;
+    }
+
+    @Override
+    int atomicWordEnd(int bitOffset) {
+        if (!outerModel.updatedAtomically() || !atomicViaWord(bitOffset)) {
+            return 0;
+        }
+        int lowMaskBits = bitOffset % 8;
+        // the field extent is not known until all fields are laid out, the word is not smaller
+        // than the word of the field with the minimum extent
+        int wordBits = enclosingWordBits(bitOffset, storedFieldBits(lowMaskBits, sizeInBits()));
+        return wordBits != 0 ? roundUp(bitOffset + 1, wordBits) : 0;
+    }
+
+    @Override
+    int arrayElementsAtomicWordEnd(ArrayFieldModel arrayFieldModel, int arrayBitOffset) {
+        int elemBitExtent = arrayFieldModel.elemBitExtent();
+        // bit-packed elements are read and written via the word as well
+        if (!arrayFieldModel.updatedAtomically() && !bitPacked(arrayBitOffset, elemBitExtent))
+            return 0;
+        int lastElemBitOffset = arrayFieldModel.elemBitOffset(arrayBitOffset,
+                arrayFieldModel.array.length() - 1);
+        int wordBits = arrayElementsWordBits(arrayFieldModel, arrayBitOffset);
+        return wordBits != 0 ? roundUp(lastElemBitOffset + 1, wordBits) : 0;
+    }
+
+    private int arrayElementsWordBits(ArrayFieldModel arrayFieldModel, int arrayBitOffset) {
+        int fieldBits = storedFieldBits(0, arrayFieldModel.elemBitExtent());
+        int wordBits = 32;
+        for (int i = 0; i < arrayFieldModel.array.length(); i++) {
+            int elemWordBits = enclosingWordBits(
+                    arrayFieldModel.elemBitOffset(arrayBitOffset, i), fieldBits);
+            if (elemWordBits == 0)
+                return 0;
+            wordBits = Math.max(wordBits, elemWordBits);
+        }
+        return wordBits;
+    }
+
+    /**
+     * Returns the aligned 32- or 64-bit word, enclosing the bits of this field, for atomic
+     * operations via compare-and-swap of the whole word. An {@code int} or {@code long} field
+     * without range, at a byte boundary, is the word itself.
+     *
+     * @throws IllegalStateException if the field crosses a 64-bit word boundary
+     */
+    AtomicWord atomicWord(ValueBuilder valueBuilder) {
+        int bitOffset = valueBuilder.model.fieldBitOffset(outerModel);
+        int byteOffset = bitOffset / 8;
+        int lowMaskBits = bitOffset - (byteOffset * 8);
+        int bitExtent = valueBuilder.model.fieldBitExtent(outerModel);
+        if (!atomicViaWord(bitOffset)) {
+            // the field is the word itself
+            return new AtomicWord(widthInBits(type), "offset + " + byteOffset, "0", 0, bitExtent);
+        }
+        int wordBits = enclosingWordBits(bitOffset, storedFieldBits(lowMaskBits, bitExtent));
+        if (wordBits == 0) {
+            throw new IllegalStateException(outerModel.name + " field crosses a 64-bit word " +
+                    "boundary, atomic operations are not supported, specify " +
+                    "@Align(dontCross = 4) or @Align(dontCross = 8) for the field");
+        }
+        int wordBitOffset = bitOffset / wordBits * wordBits;
+        assert wordBitOffset + wordBits <= valueBuilder.model.sizeInBytes() * 8;
+        return new AtomicWord(wordBits, "offset + " + (wordBitOffset / 8),
+                String.valueOf(bitOffset - wordBitOffset), lowMaskBits, bitExtent);
+    }
+
+    /**
+     * Returns the aligned 32- or 64-bit word, enclosing the bits of the array element of this
+     * field at {@code index}. Generates {@code elementOffset} variable, and {@code wordOffset}
+     * and {@code shift} variables, if the element doesn't start at the word boundary.
+     *
+     * @throws IllegalStateException if some element crosses a 64-bit word boundary
+     */
+    AtomicWord arrayElementAtomicWord(
+            ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
+            MethodSpec.Builder methodBuilder) {
+        int arrayBitOffset = valueBuilder.model.fieldBitOffset(arrayFieldModel);
+        int elemBitExtent = arrayFieldModel.elemBitExtent();
+        if (bitPacked(arrayBitOffset, elemBitExtent))
+            return packedElementWord(arrayFieldModel, valueBuilder, methodBuilder);
+        int arrayByteOffset = arrayBitOffset / 8;
+        int length = arrayFieldModel.array.length();
+        int wordBits = checkedArrayElementsWordBits(arrayFieldModel, arrayBitOffset);
+        boolean wordStart = true;
+        for (int i = 0; i < length; i++) {
+            wordStart &= arrayFieldModel.elemBitOffset(arrayBitOffset, i) % wordBits == 0;
+        }
+        genVerifiedElementOffset(arrayFieldModel, methodBuilder);
+        if (wordStart) {
+            return new AtomicWord(wordBits, "offset + " + arrayByteOffset + " + elementOffset",
+                    "0", 0, elemBitExtent);
+        }
+        methodBuilder.addStatement("long fieldOffset = $L + elementOffset", arrayByteOffset);
+        methodBuilder.addStatement("long wordOffset = fieldOffset & ~$LL", wordBits / 8 - 1);
+        methodBuilder.addStatement("int shift = ((int) (fieldOffset - wordOffset)) << 3");
+        return new AtomicWord(wordBits, "offset + wordOffset", "shift", 0, elemBitExtent);
+    }
+
+    /**
+     * Returns the aligned 32- or 64-bit word, enclosing the bits of the bit-packed array element
+     * at {@code index}, via which the element is read, written and updated atomically. Generates
+     * {@code elementBitOffset}, {@code wordOffset} and {@code shift} variables.
+     *
+     * @throws IllegalStateException if some element crosses a 64-bit word boundary
+     */
+    private AtomicWord packedElementWord(
+            ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
+            MethodSpec.Builder methodBuilder) {
+        int arrayBitOffset = valueBuilder.model.fieldBitOffset(arrayFieldModel);
+        int wordBits = checkedArrayElementsWordBits(arrayFieldModel, arrayBitOffset);
+        arrayFieldModel.genElementBitOffset(arrayBitOffset, methodBuilder);
+        methodBuilder.addStatement("long wordOffset = (elementBitOffset >>> 3) & ~$LL",
+                wordBits / 8 - 1);
+        methodBuilder.addStatement("int shift = (int) (elementBitOffset - (wordOffset << 3))");
+        return new AtomicWord(wordBits, "offset + wordOffset", "shift", 0,
+                arrayFieldModel.elemBitExtent());
+    }
+
+    private int checkedArrayElementsWordBits(ArrayFieldModel arrayFieldModel, int arrayBitOffset) {
+        int wordBits = arrayElementsWordBits(arrayFieldModel, arrayBitOffset);
+        if (wordBits == 0) {
+            throw new IllegalStateException(outerModel.name + " array elements cross 64-bit " +
+                    "word boundaries, bit-packed elements and atomic operations are not " +
+                    "supported, specify @Array(elementOffsetAlignment) or " +
+                    "@Array(elementDontCrossAlignment)");
+        }
+        return wordBits;
+    }
+
+    /**
+     * The number of bits {@link #genSet} writes, the field bits of the word read by {@link
+     * #genGet}
+     */
+    private int storedFieldBits(int lowMaskBits, int bitExtent) {
+        int bitsToRead = Maths.nextPower2(lowMaskBits + sizeInBits(), 8);
+        int highMaskBits = Math.max(bitsToRead - bitExtent - lowMaskBits, 0);
+        return bitsToRead - lowMaskBits - highMaskBits;
+    }
+
+    /**
+     * An aligned 32- or 64-bit word, enclosing the bits of the field. Decodes and encodes the
+     * field value the same way as {@link #genGet} and {@link #genSet}, that read and write the
+     * field via the smallest (possibly not aligned) byte, short, int or long word, enclosing the
+     * field bits.
+     */
+    final class AtomicWord {
+        final Class type;
+        final String offset;
+        private final String shift;
+        private final int fieldBits;
+        private final boolean signed;
+        private final long translation;
+
+        AtomicWord(int wordBits, String offset, String shift, int lowMaskBits, int bitExtent) {
+            this.type = wordBits == 32 ? int.class : long.class;
+            this.offset = offset;
+            this.shift = shift;
+            int bitsToRead = Maths.nextPower2(lowMaskBits + sizeInBits(), 8);
+            int highMaskBits = Math.max(bitsToRead - bitExtent - lowMaskBits, 0);
+            fieldBits = bitsToRead - lowMaskBits - highMaskBits;
+            // see genGet() and genSet()
+            boolean signedBits = highMaskBits == 0;
+            long readMin = signedBits ? (-1L) << (fieldBits - 1) : 0;
+            long readMax = signedBits ? -(readMin + 1) : (1L << fieldBits) - 1;
+            long readRange = readMax - readMin;
+            Range range = range();
+            if (readMin <= range.min() && readMax >= range.max()) {
+                signed = signedBits;
+                translation = 0;
+            } else if (range.min() == 0 && (readRange < 0 || range.max() <= readRange)) {
+                signed = false;
+                translation = 0;
+            } else {
+                signed = signedBits;
+                translation = range.min() - readMin;
+            }
+        }
+
+        /**
+         * The field takes the whole word, without translation
+         */
+        boolean isWholeWord() {
+            return fieldBits == (type == int.class ? 32 : 64) && translation == 0 && signed;
+        }
+
+        String readVolatile() {
+            return format("bs.readVolatile%s(%s)", capitalize(type.getSimpleName()), offset);
+        }
+
+        String compareAndSwap(String expectedWord, String newWord) {
+            return format("bs.compareAndSwap%s(%s, %s, %s)",
+                    capitalize(type.getSimpleName()), offset, expectedWord, newWord);
+        }
+
+        /**
+         * Returns the expression of the field value, taken from the given word
+         */
+        String decode(String word) {
+            if (isWholeWord() && IntegerFieldModel.this.type == type)
+                return word;
+            String bits = "0".equals(shift) ? format("((long) %s)", word) :
+                    format("((long) %s >>> %s)", word, shift);
+            if (fieldBits < 64) {
+                if (signed) {
+                    bits = format("(%s << %d >> %d)", bits, 64 - fieldBits, 64 - fieldBits);
+                } else {
+                    bits = format("(%s & %s)", bits, mask());
+                }
+            }
+            if (translation != 0)
+                bits = format("(%s + %dL)", bits, translation);
+            return type(bits);
+        }
+
+        private String type(String longValue) {
+            return IntegerFieldModel.this.type == long.class ? longValue :
+                    format("((%s) %s)", IntegerFieldModel.this.type.getSimpleName(), longValue);
+        }
+
+        /**
+         * Returns the expression of the given word with the field bits replaced with the given
+         * value
+         */
+        String encode(String word, String value) {
+            if (isWholeWord() && IntegerFieldModel.this.type == type)
+                return value;
+            String bits = format("(long) %s", value);
+            if (translation != 0)
+                bits = format("(%s - %dL)", bits, translation);
+            if (fieldBits == 64)
+                return bits;
+            bits = format("((%s) & %s)", bits, mask());
+            String clearedWord;
+            if ("0".equals(shift)) {
+                clearedWord = format("((long) %s & ~%s)", word, mask());
+            } else {
+                bits = format("(%s << %s)", bits, shift);
+                clearedWord = format("((long) %s & ~(%s << %s))", word, mask(), shift);
+            }
+            String newWord = format("%s | %s", clearedWord, bits);
+            return type == int.class ? format("(int) (%s)", newWord) : newWord;
+        }
+
+        private String mask() {
+            return format("0x%XL", (1L << fieldBits) - 1);
         }
     }
 
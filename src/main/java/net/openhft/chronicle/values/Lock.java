@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Declares a lock field: a 64-bit word, accessed via {@code boolean tryLockFoo()}, {@code boolean
+ * lockFoo(long timeoutNanos)} and {@code void unlockFoo()}, and, in reader-writer mode, {@code
+ * boolean tryReadLockFoo()}, {@code boolean readLockFoo(long timeoutNanos)} and {@code void
+ * readUnlockFoo()} methods. This annotation should be put on any single method of the lock field,
+ * methods with these names of fields without the annotation are regular field accessors.
+ * <p>
+ * <p>The exclusive lock is held by a thread of a process, its id and the process id are stored in
+ * the lock word. The lock is not reentrant. If the process, holding the lock, has died, {@code
+ * lockFoo()} and {@code readLockFoo()} take the lock over.
+ * <p>
+ * <p>Only a dead process is recovered from:
+ * <ul>
+ *     <li>The shared lock word is the number of holders, the holders are not recorded. If a
+ *     process dies, holding the shared lock, the number never returns to 0, {@code lockFoo()}
+ *     times out and {@code tryLockFoo()} fails until the value is reinitialized. If processes
+ *     could die while holding a shared lock, don't use the reader-writer mode across processes:
+ *     declare only the exclusive methods.</li>
+ *     <li>A thread, which terminates without unlocking, is not detected as dead. The lock stays
+ *     held, other threads of the process couldn't unlock it, and threads of other processes wait
+ *     as long as the process is alive.</li>
+ * </ul>
+ * <p>
+ * <p>The lock word is not a part of the value: it is not serialized, compared or copied by {@link
+ * Copyable#copyFrom copyFrom()}.
+ */
+@Target(METHOD)
+@Retention(RUNTIME)
+@Documented
+public @interface Lock {
+    int DEFAULT_SPINS = 100;
+    int DEFAULT_YIELDS = 10;
+    long DEFAULT_PARK_NANOS = 100_000;
+
+    /**
+     * The number of busy-spinning attempts to take the lock, before yielding.
+     *
+     * @return the number of spins
+     */
+    int spins() default DEFAULT_SPINS;
+
+    /**
+     * The number of attempts to take the lock, followed by {@link Thread#yield()}, after spinning
+     * and before parking.
+     *
+     * @return the number of yields
+     */
+    int yields() default DEFAULT_YIELDS;
+
+    /**
+     * The time to park between subsequent attempts to take the lock, after spinning and yielding.
+     * The lock word might be in memory, shared with other processes, so waiting threads couldn't
+     * be unparked on unlocking, they poll the lock word.
+     *
+     * @return the park time in nanoseconds
+     */
+    long parkNanos() default DEFAULT_PARK_NANOS;
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import net.openhft.chronicle.core.Jvm;
+
+import java.lang.reflect.Method;
+
+import static javax.lang.model.element.Modifier.*;
+
+/**
+ * A {@link Lock} field, see the lock word encoding in {@link Locks}.
+ */
+class LockFieldModel extends ScalarFieldModel {
+
+    Method tryLock;
+    Method lock;
+    Method unlock;
+    Method tryReadLock;
+    Method readLock;
+    Method readUnlock;
+    private boolean configured;
+    private int spins = Lock.DEFAULT_SPINS;
+    private int yields = Lock.DEFAULT_YIELDS;
+    private long parkNanos = Lock.DEFAULT_PARK_NANOS;
+
+    private final MemberGenerator nativeGenerator = new LockMemberGenerator() {
+
+        private String word(ValueBuilder valueBuilder) {
+            return "offset + " + verifiedByteOffset(valueBuilder);
+        }
+
+        @Override
+        String readVolatile(ValueBuilder valueBuilder) {
+            return "bs.readVolatileLong(" + word(valueBuilder) + ")";
+        }
+
+        @Override
+        String compareAndSwap(ValueBuilder valueBuilder, String expected, String newValue) {
+            return "bs.compareAndSwapLong(" + word(valueBuilder) + ", " + expected + ", " +
+                    newValue + ")";
+        }
+
+        @Override
+        String writeOrdered(ValueBuilder valueBuilder, String value) {
+            return "bs.writeOrderedLong(" + word(valueBuilder) + ", " + value + ")";
+        }
+    };
+
+    @Override
+    void addTypeInfo(Method m, MethodTemplate template) {
+        type = long.class;
+    }
+
+    @Override
+    void addLayoutInfo(Method m, MethodTemplate template) {
+        super.addLayoutInfo(m, template);
+        Lock lockAnnotation = m.getAnnotation(Lock.class);
+        if (lockAnnotation != null) {
+            if (configured) {
+                throw new IllegalStateException("@Lock should be put on a single method of " +
+                        "the field " + name);
+            }
+            if (lockAnnotation.spins() < 0 || lockAnnotation.yields() < 0 ||
+                    lockAnnotation.parkNanos() <= 0) {
+                throw new IllegalStateException(lockAnnotation + " spins and yields should " +
+                        "be non-negative, parkNanos should be positive, field " + name);
+            }
+            configured = true;
+            spins = lockAnnotation.spins();
+            yields = lockAnnotation.yields();
+            parkNanos = lockAnnotation.parkNanos();
+        }
+    }
+
+    @Override
+    int sizeInBits() {
+        return 64;
+    }
+
+    @Override
+    int offsetAlignmentInBytes() {
+        // compare-and-swap of a long requires natural alignment
+        return alignmentSpecifiedExplicitly ? Math.max(offsetAlignment, 8) : 8;
+    }
+
+    @Override
+    void checkAnyWriteMethodPresent() {
+        if (unlock == null && readUnlock == null) {
+            throw new IllegalStateException("unlock" + capitalizedName() + "() or readUnlock" +
+                    capitalizedName() + "() should be present for the lock field " + name);
+        }
+        if ((tryLock != null || lock != null) != (unlock != null)) {
+            throw new IllegalStateException("unlock" + capitalizedName() + "() should be " +
+                    "present along with tryLock" + capitalizedName() + "() or lock" +
+                    capitalizedName() + "(), field " + name);
+        }
+        if ((tryReadLock != null || readLock != null) != (readUnlock != null)) {
+            throw new IllegalStateException("readUnlock" + capitalizedName() + "() should be " +
+                    "present along with tryReadLock" + capitalizedName() + "() or readLock" +
+                    capitalizedName() + "(), field " + name);
+        }
+    }
+
+    private String capitalizedName() {
+        return Utils.capitalize(name);
+    }
+
+    /**
+     * The lock word encodes the owner, it is not copied
+     */
+    @Override
+    boolean bytesCopyable() {
+        return false;
+    }
+
+    @Override
+    MemberGenerator nativeGenerator() {
+        return nativeGenerator;
+    }
+
+    @Override
+    MemberGenerator createHeapGenerator() {
+        return new LockMemberGenerator() {
+            private FieldSpec field;
+            private FieldSpec fieldAddress;
+
+            @Override
+            void generateFields(ValueBuilder valueBuilder) {
+                field = FieldSpec.builder(long.class, fieldName(), PRIVATE).build();
+                valueBuilder.typeBuilder.addField(field);
+                fieldAddress = FieldSpec.builder(long.class, name + "Address")
+                        .addModifiers(PRIVATE, STATIC, FINAL)
+                        .build();
+                valueBuilder.staticBlockBuilder().addStatement(
+                        "$N = $N.objectFieldOffset($T.getField($N.class, $S))",
+                        fieldAddress, valueBuilder.unsafe(), Jvm.class, valueBuilder.className,
+                        field.name);
+                valueBuilder.typeBuilder.addField(fieldAddress);
+            }
+
+            @Override
+            String readVolatile(ValueBuilder valueBuilder) {
+                return valueBuilder.unsafe().name + ".getLongVolatile(this, " +
+                        fieldAddress.name + ")";
+            }
+
+            @Override
+            String compareAndSwap(ValueBuilder valueBuilder, String expected, String newValue) {
+                return valueBuilder.unsafe().name + ".compareAndSwapLong(this, " +
+                        fieldAddress.name + ", " + expected + ", " + newValue + ")";
+            }
+
+            @Override
+            String writeOrdered(ValueBuilder valueBuilder, String value) {
+                return valueBuilder.unsafe().name + ".putOrderedLong(this, " +
+                        fieldAddress.name + ", " + value + ")";
+            }
+        };
+    }
+
+    @Override
+    void generateMembers(MemberGenerator generator, ValueBuilder valueBuilder) {
+        LockMemberGenerator g = (LockMemberGenerator) generator;
+        g.generateFields(valueBuilder);
+        generateMethod(valueBuilder, tryLock, g::generateTryLock);
+        generateMethod(valueBuilder, lock, g::generateLock, "timeoutNanos");
+        generateMethod(valueBuilder, unlock, g::generateUnlock);
+        generateMethod(valueBuilder, tryReadLock, g::generateTryReadLock);
+        generateMethod(valueBuilder, readLock, g::generateReadLock, "timeoutNanos");
+        generateMethod(valueBuilder, readUnlock, g::generateReadUnlock);
+    }
+
+    void setTryLock(Method tryLock) {
+        checkLockMethod(this.tryLock, tryLock, boolean.class);
+        this.tryLock = tryLock;
+    }
+
+    void setLock(Method lock) {
+        checkLockMethod(this.lock, lock, boolean.class);
+        this.lock = lock;
+    }
+
+    void setUnlock(Method unlock) {
+        checkLockMethod(this.unlock, unlock, void.class);
+        this.unlock = unlock;
+    }
+
+    void setTryReadLock(Method tryReadLock) {
+        checkLockMethod(this.tryReadLock, tryReadLock, boolean.class);
+        this.tryReadLock = tryReadLock;
+    }
+
+    void setReadLock(Method readLock) {
+        checkLockMethod(this.readLock, readLock, boolean.class);
+        this.readLock = readLock;
+    }
+
+    void setReadUnlock(Method readUnlock) {
+        checkLockMethod(this.readUnlock, readUnlock, void.class);
+        this.readUnlock = readUnlock;
+    }
+
+    private void checkLockMethod(Method declared, Method m, Class returnType) {
+        if (declared != null) {
+            throw new IllegalStateException(m.getName() + "() is already declared for the " +
+                    "lock field " + name);
+        }
+        if (m.getReturnType() != returnType) {
+            throw new IllegalStateException(m.getName() + "() should return " + returnType +
+                    ", lock field " + name);
+        }
+        if (m.getParameterCount() == 1 && m.getParameterTypes()[0] != long.class) {
+            throw new IllegalStateException("The parameter of " + m.getName() + "() should be " +
+                    "long timeoutNanos, lock field " + name);
+        }
+    }
+
+    /**
+     * Generates the lock methods in terms of volatile read, compare-and-swap and ordered write
+     * of the lock word, which differ in native and heap implementations. Lock words are not
+     * copied, serialized nor compared.
+     */
+    private abstract class LockMemberGenerator extends MemberGenerator {
+
+        LockMemberGenerator() {
+            super(LockFieldModel.this);
+        }
+
+        abstract String readVolatile(ValueBuilder valueBuilder);
+
+        abstract String compareAndSwap(
+                ValueBuilder valueBuilder, String expected, String newValue);
+
+        abstract String writeOrdered(ValueBuilder valueBuilder, String value);
+
+        void generateTryLock(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            methodBuilder.addStatement("long owner = $T.owner()", Locks.class);
+            methodBuilder.addStatement("return $L", compareAndSwap(valueBuilder, "0L", "owner"));
+        }
+
+        void generateLock(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            methodBuilder.addStatement("long owner = $T.owner()", Locks.class);
+            genAcquireLoop(valueBuilder, methodBuilder, () -> {
+                methodBuilder.beginControlFlow("if (word == 0L)");
+                genReturnIfSwapped(valueBuilder, methodBuilder, "word", "owner");
+                methodBuilder.endControlFlow();
+            }, "owner");
+        }
+
+        void generateUnlock(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            methodBuilder.addStatement("long word = $L", readVolatile(valueBuilder));
+            methodBuilder.beginControlFlow("if (word != $T.owner())", Locks.class);
+            methodBuilder.addStatement("throw $T.notOwner($S, word)", Locks.class, name);
+            methodBuilder.endControlFlow();
+            methodBuilder.addStatement("$L", writeOrdered(valueBuilder, "0L"));
+        }
+
+        void generateTryReadLock(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            // retry only if other readers change the word
+            methodBuilder.beginControlFlow("while (true)");
+            methodBuilder.addStatement("long word = $L", readVolatile(valueBuilder));
+            methodBuilder.beginControlFlow("if (word < 0L)");
+            methodBuilder.addStatement("return false");
+            methodBuilder.endControlFlow();
+            genReturnIfSwapped(valueBuilder, methodBuilder, "word", "word + 1L");
+            methodBuilder.endControlFlow();
+        }
+
+        void generateReadLock(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            genAcquireLoop(valueBuilder, methodBuilder, () -> {
+                methodBuilder.beginControlFlow("if (word >= 0L)");
+                genReturnIfSwapped(valueBuilder, methodBuilder, "word", "word + 1L");
+                methodBuilder.endControlFlow();
+            }, "1L");
+        }
+
+        void generateReadUnlock(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            methodBuilder.beginControlFlow("while (true)");
+            methodBuilder.addStatement("long word = $L", readVolatile(valueBuilder));
+            methodBuilder.beginControlFlow("if (word <= 0L)");
+            methodBuilder.addStatement("throw $T.notOwner($S, word)", Locks.class, name);
+            methodBuilder.endControlFlow();
+            methodBuilder.beginControlFlow("if ($L)",
+                    compareAndSwap(valueBuilder, "word", "word - 1L"));
+            methodBuilder.addStatement("return");
+            methodBuilder.endControlFlow();
+            methodBuilder.endControlFlow();
+        }
+
+        /**
+         * Generates the loop, which tries to take the lock via {@code tryAcquire} code, which
+         * returns {@code true} from the method, if succeeded. After yielding, takes the lock over
+         * from a dead owner, replacing the lock word with {@code ownerWord}. Returns {@code false}
+         * when the timeout elapses.
+         */
+        private void genAcquireLoop(
+                ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder,
+                Runnable tryAcquire, String ownerWord) {
+            methodBuilder.addStatement("long start = 0L");
+            methodBuilder.beginControlFlow("for (int attempt = 0; ; attempt++)");
+            methodBuilder.addStatement("long word = $L", readVolatile(valueBuilder));
+            tryAcquire.run();
+            // checking if the owner is alive is a system call, it is done only while parking
+            methodBuilder.beginControlFlow("if (attempt >= $L && $T.isOwnerDead(word))",
+                    spins + yields, Locks.class);
+            genReturnIfSwapped(valueBuilder, methodBuilder, "word", ownerWord);
+            methodBuilder.endControlFlow();
+            // don't read the clock, if the lock is taken on the first attempt
+            methodBuilder.beginControlFlow("if (attempt == 0)");
+            methodBuilder.addStatement("start = $T.nanoTime()", System.class);
+            methodBuilder.nextControlFlow("else if ($T.nanoTime() - start >= timeoutNanos)",
+                    System.class);
+            methodBuilder.addStatement("return false");
+            methodBuilder.endControlFlow();
+            methodBuilder.addStatement("$T.backOff(attempt, $L, $L, $LL)", Locks.class,
+                    spins, yields, parkNanos);
+            methodBuilder.endControlFlow();
+        }
+
+        private void genReturnIfSwapped(
+                ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder,
+                String expected, String newValue) {
+            methodBuilder.beginControlFlow("if ($L)",
+                    compareAndSwap(valueBuilder, expected, newValue));
+            methodBuilder.addStatement("return true");
+            methodBuilder.endControlFlow();
+        }
+
+        @Override
+        void generateCopyFrom(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            // not copied
+        }
+
+        @Override
+        void generateWriteMarshallable(
+                ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            // not serialized
+        }
+
+        @Override
+        void generateReadMarshallable(
+                ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            // not serialized
+        }
+
+        @Override
+        void generateEquals(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            // not compared
+        }
+
+        @Override
+        String generateHashCode(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            return "0";
+        }
+
+        @Override
+        void generateToString(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            // not a part of the value
+        }
+    }
+}
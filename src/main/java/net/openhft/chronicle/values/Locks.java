@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.Jvm;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock word encoding and back-off of {@link Lock} fields and sequences of {@link Versioned}
+ * values, used by the generated implementations.
+ * <p>
+ * <p>The lock word is 0, if the lock is free, the number of holders, if the lock is shared, or
+ * {@link #owner()} of the exclusive holder, which has the sign bit set, the process id in the
+ * following 31 bits and the lower 32 bits of the thread id in the lower bits.
+ * <p>
+ * <p>The sequence is even, if no update is in progress. During an update it has the sign bit set,
+ * the process id of the updater in the following 31 bits and the lower 32 bits of the sequence
+ * plus one, i. e. it is odd, in the lower bits. If the updater has died, the sequence is taken
+ * over, the next sequence is derived from the lower bits, so it differs from the sequence before
+ * the update, which readers might have observed.
+ */
+public final class Locks {
+
+    private static final long WRITE_LOCKED = 1L << 63;
+    private static final long PROCESS_ID = Jvm.getProcessId();
+
+    private Locks() {
+    }
+
+    /**
+     * Returns the lock word of the exclusive lock, held by the current thread.
+     */
+    public static long owner() {
+        return WRITE_LOCKED | (PROCESS_ID << 32) |
+                (Thread.currentThread().getId() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns {@code true}, if the given lock word is of an exclusive lock, held by a thread of a
+     * process, which is not alive.
+     */
+    public static boolean isOwnerDead(long lockWord) {
+        if (lockWord >= 0)
+            return false;
+        long processId = (lockWord & ~WRITE_LOCKED) >>> 32;
+        return processId != PROCESS_ID && !Jvm.isProcessAlive(processId);
+    }
+
+    /**
+     * Makes the sequence of the {@link Versioned} value odd, waiting while another update is in
+     * progress, and returns the even sequence before the update. The update is finished by
+     * writing the returned sequence plus two.
+     *
+     * @throws IllegalStateException if another update is in progress for longer than the timeout
+     */
+    public static long lockSequence(BytesStore bs, long offset, long timeoutNanos) {
+        long start = 0L;
+        for (int attempt = 0; ; attempt++) {
+            long sequence = bs.readVolatileLong(offset);
+            if ((sequence & 1) == 0) {
+                if (bs.compareAndSwapLong(offset, sequence, updatingSequence(sequence)))
+                    return sequence;
+            } else if (attempt >= Lock.DEFAULT_SPINS + Lock.DEFAULT_YIELDS &&
+                    isOwnerDead(sequence)) {
+                long next = sequenceAfterDeadUpdate(sequence);
+                if (bs.compareAndSwapLong(offset, sequence, updatingSequence(next)))
+                    return next;
+            }
+            start = waitForUpdate(attempt, start, timeoutNanos, sequence);
+        }
+    }
+
+    /**
+     * Returns the even sequence of the {@link Versioned} value, waiting while an update is in
+     * progress.
+     *
+     * @throws IllegalStateException if an update is in progress for longer than the timeout
+     */
+    public static long readSequence(BytesStore bs, long offset, long timeoutNanos) {
+        long start = 0L;
+        for (int attempt = 0; ; attempt++) {
+            long sequence = bs.readVolatileLong(offset);
+            if ((sequence & 1) == 0)
+                return sequence;
+            if (attempt >= Lock.DEFAULT_SPINS + Lock.DEFAULT_YIELDS && isOwnerDead(sequence)) {
+                long next = sequenceAfterDeadUpdate(sequence);
+                // another reader or updater might have taken the sequence over, then re-read
+                if (bs.compareAndSwapLong(offset, sequence, next))
+                    return next;
+            }
+            start = waitForUpdate(attempt, start, timeoutNanos, sequence);
+        }
+    }
+
+    private static long updatingSequence(long sequence) {
+        return WRITE_LOCKED | (PROCESS_ID << 32) | ((sequence + 1) & 0xFFFFFFFFL);
+    }
+
+    private static long sequenceAfterDeadUpdate(long updatingSequence) {
+        return (updatingSequence & 0xFFFFFFFFL) + 1;
+    }
+
+    /**
+     * Backs off after the failed attempt, returns the time of the first attempt
+     */
+    private static long waitForUpdate(int attempt, long start, long timeoutNanos, long sequence) {
+        // don't read the clock, if the update is over after the first attempt
+        if (attempt == 0) {
+            start = System.nanoTime();
+        } else if (System.nanoTime() - start >= timeoutNanos) {
+            long processId = (sequence & ~WRITE_LOCKED) >>> 32;
+            String updater = sequence >= 0 ? "unknown" : processId == PROCESS_ID ?
+                    "this process, is update() or readConsistent() called from the updater?" :
+                    "process " + processId;
+            throw new IllegalStateException("An update of the versioned value is in progress " +
+                    "for longer than " + timeoutNanos / 1_000_000 + " ms, updater: " + updater);
+        }
+        backOff(attempt, Lock.DEFAULT_SPINS, Lock.DEFAULT_YIELDS, Lock.DEFAULT_PARK_NANOS);
+        return start;
+    }
+
+    /**
+     * Waits before the next attempt to take the lock: spins, yields or parks, depending on the
+     * number of the failed attempts.
+     */
+    public static void backOff(int attempt, int spins, int yields, long parkNanos) {
+        if (attempt < spins) {
+            Jvm.nanoPause();
+        } else if (attempt - spins < yields) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(parkNanos);
+        }
+    }
+
+    /**
+     * Returns the exception to throw on unlocking the lock, not held by the current thread.
+     */
+    public static IllegalMonitorStateException notOwner(String lockName, long lockWord) {
+        String state = lockWord == 0 ? "not locked" : lockWord > 0 ? "locked shared" :
+                "locked exclusively, lock word " + Long.toHexString(lockWord);
+        return new IllegalMonitorStateException(lockName + " is " + state);
+    }
+}
@@ -100,6 +100,16 @@ abstract class MemberGenerator {
         throw new UnsupportedOperationException(fieldModelClass() + "");
     }
 
+    void generateSetAtomic(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+        throw new UnsupportedOperationException(fieldModelClass() + "");
+    }
+
+    void generateArrayElementSetAtomic(
+            ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
+            MethodSpec.Builder methodBuilder) {
+        throw new UnsupportedOperationException(fieldModelClass() + "");
+    }
+
     void generateAdd(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
         throw new UnsupportedOperationException(fieldModelClass() + "");
     }
@@ -131,6 +141,17 @@ abstract class MemberGenerator {
         throw new UnsupportedOperationException(fieldModelClass() + "");
     }
 
+    void generateAtomicUpdate(
+            ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, AtomicUpdate update) {
+        throw new UnsupportedOperationException(fieldModelClass() + "");
+    }
+
+    void generateArrayElementAtomicUpdate(
+            ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
+            MethodSpec.Builder methodBuilder, AtomicUpdate update) {
+        throw new UnsupportedOperationException(fieldModelClass() + "");
+    }
+
     void generateCopyFrom(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
         throw new UnsupportedOperationException(fieldModelClass() + "");
     }
@@ -22,26 +22,62 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 class MethodTemplate {
     final String regex;
+    final String prefix;
+    private final String suffix;
+    private final Pattern pattern;
     final int parameters;
     final Type type;
     final Function<Method, Class> fieldType;
     final Function<Method, Parameter> annotatedParameter;
+    /**
+     * If this is a template of a method of {@link Lock} fields, matching only the fields, which
+     * have a method annotated {@code @Lock}
+     */
+    final boolean lock;
+    /**
+     * If this is a template of a whole-array method, like {@code sum<Field>()} or {@code
+     * fill<Field>(value)}, matching only the fields, which have other methods of array fields,
+     * because otherwise the method is a getter or a setter of a scalar field, like {@code
+     * sumPrices()} or {@code fillPrice(double)}
+     */
+    final boolean wholeArray;
     final BiConsumer<FieldModel, Method> addMethodToModel;
 
-    MethodTemplate(String regex, int parameters, Type type, Function<Method, Class> fieldType,
-                   Function<Method, Parameter> annotatedParameter,
+    MethodTemplate(String prefix, String suffix, int parameters, Type type,
+                   Function<Method, Class> fieldType, Function<Method, Parameter> annotatedParameter,
+                   boolean lock, boolean wholeArray,
                    BiConsumer<FieldModel, Method> addMethodToModel) {
-        this.regex = regex;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.regex = prefix + CodeTemplate.FIELD_NAME + suffix;
+        this.pattern = Pattern.compile(regex);
         this.parameters = parameters;
         this.type = type;
         this.fieldType = fieldType;
         this.annotatedParameter = annotatedParameter;
+        this.lock = lock;
+        this.wholeArray = wholeArray;
         this.addMethodToModel = addMethodToModel;
     }
 
+    /**
+     * Returns the field name part of the given method name, if it matches this template, or
+     * {@code null}. Cheap prefix and suffix checks rule out most templates before the regex match.
+     */
+    String fieldName(String methodName) {
+        if (methodName.length() <= prefix.length() + suffix.length() ||
+                !methodName.startsWith(prefix) || !methodName.endsWith(suffix)) {
+            return null;
+        }
+        Matcher matcher = pattern.matcher(methodName);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
     enum Type {
         SCALAR, ARRAY
     }
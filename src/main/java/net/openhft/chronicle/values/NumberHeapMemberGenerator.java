@@ -20,6 +20,8 @@ package net.openhft.chronicle.values;
 
 import com.squareup.javapoet.MethodSpec;
 
+import static java.lang.String.format;
+
 class NumberHeapMemberGenerator extends PrimitiveBackedHeapMemberGenerator {
 
     NumberHeapMemberGenerator(FieldModel fieldModel) {
@@ -61,21 +63,75 @@ class NumberHeapMemberGenerator extends PrimitiveBackedHeapMemberGenerator {
 
     @Override
     public void generateAddAtomic(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
-        methodBuilder.addStatement("return " +
-                        wrap(valueBuilder, methodBuilder, "$N.$N(this, $N, addition) + addition"),
-                valueBuilder.unsafe(), getAndAdd(), fieldOffset(valueBuilder));
+        generateAtomicUpdate(valueBuilder, methodBuilder, AtomicUpdate.ADD_AND_GET);
     }
 
     @Override
     public void generateArrayElementAddAtomic(
             ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
             MethodSpec.Builder methodBuilder) {
-        arrayFieldModel.checkBounds(methodBuilder);
+        generateArrayElementAtomicUpdate(
+                arrayFieldModel, valueBuilder, methodBuilder, AtomicUpdate.ADD_AND_GET);
+    }
+
+    @Override
+    void generateAtomicUpdate(
+            ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, AtomicUpdate update) {
+        genAtomicUpdate(valueBuilder, methodBuilder, update, "this",
+                fieldOffset(valueBuilder).name);
+    }
+
+    @Override
+    void generateArrayElementAtomicUpdate(
+            ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
+            MethodSpec.Builder methodBuilder, AtomicUpdate update) {
+        arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
         Class type = Utils.UNSAFE_CLASS;
-        methodBuilder.addStatement(
-                "return " + wrap(valueBuilder, methodBuilder, "$N.$N($N, (long) $T.$N + " +
-                        "(index * (long) $T.$N), addition) + addition"),
-                valueBuilder.unsafe(), getAndAdd(), field, type, arrayBase(),
-                type, arrayScale());
+        methodBuilder.addStatement("long address = (long) $T.$N + (index * (long) $T.$N)",
+                type, arrayBase(), type, arrayScale());
+        genAtomicUpdate(valueBuilder, methodBuilder, update, field.name, "address");
+    }
+
+    /**
+     * Uses getAndSet and getAndAdd of Unsafe, when possible, otherwise compares and swaps the
+     * stored value in a loop. byte, short and char fields are stored as int, if accessed
+     * atomically, the stored int value is kept within the narrow type range (as if written by
+     * the plain set), to compare-and-swap the field correctly.
+     */
+    private void genAtomicUpdate(
+            ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, AtomicUpdate update,
+            String object, String address) {
+        if (update == AtomicUpdate.GET_AND_SET) {
+            methodBuilder.addStatement("return " + wrap(valueBuilder, methodBuilder,
+                    "$N.$N($L, $L, " + unwrap(methodBuilder, "$N") + ")"),
+                    valueBuilder.unsafe(), "getAndSet" + capType, object, address,
+                    fieldModel.varName());
+            return;
+        }
+        String addend = update.addend();
+        if (addend != null && fieldType() == fieldModel.type &&
+                (fieldType() == int.class || fieldType() == long.class)) {
+            String getAndAdd = format("%s.%s(%s, %s, %s)",
+                    valueBuilder.unsafe().name, getAndAdd(), object, address, addend);
+            if (update.returnsOld) {
+                methodBuilder.addStatement("return $L", getAndAdd);
+            } else {
+                methodBuilder.addStatement("return $L + $L", getAndAdd, addend);
+            }
+            return;
+        }
+        methodBuilder.beginControlFlow("while (true)");
+        methodBuilder.addStatement("$T raw = $N.$N($L, $L)",
+                fieldType(), valueBuilder.unsafe(), getVolatile(), object, address);
+        methodBuilder.addStatement("$T $N = " + wrap(valueBuilder, methodBuilder, "raw"),
+                fieldModel.type, fieldModel.oldName());
+        methodBuilder.addStatement("$T $N = $L", fieldModel.type, fieldModel.newName(),
+                update.newValue(fieldModel, fieldModel.oldName()));
+        methodBuilder.beginControlFlow("if ($N.$N($L, $L, raw, " +
+                        unwrap(methodBuilder, "$N") + "))",
+                valueBuilder.unsafe(), compareAndSwap(), object, address, fieldModel.newName());
+        methodBuilder.addStatement("return $N", update.returned(fieldModel));
+        methodBuilder.endControlFlow();
+        methodBuilder.endControlFlow();
     }
 }
@@ -74,7 +74,7 @@ class ObjectHeapMemberGenerator extends HeapMemberGenerator {
     public void generateArrayElementGetVolatile(
             ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
             MethodSpec.Builder methodBuilder) {
-        arrayFieldModel.checkBounds(methodBuilder);
+        arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
         Class type = Utils.UNSAFE_CLASS;
         methodBuilder.addStatement("return ($T) $N.getObjectVolatile($N, " +
                         "(long) $T.ARRAY_OBJECT_BASE_OFFSET + " +
@@ -22,6 +22,8 @@ import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import net.openhft.chronicle.bytes.Byteable;
 
+import java.util.Set;
+
 import static java.lang.String.format;
 import static net.openhft.chronicle.values.IntegerFieldModel.NORMAL_ACCESS_TYPE;
 import static net.openhft.chronicle.values.Utils.capitalize;
@@ -61,7 +63,7 @@ final class PointerFieldModel extends IntegerBackedFieldModel {
         }
 
         @Override
-        String startSet(MethodSpec.Builder methodBuilder) {
+        String startSet(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
             return extractAddress(methodBuilder, varName());
         }
 
@@ -159,6 +161,12 @@ final class PointerFieldModel extends IntegerBackedFieldModel {
         pointedModel.checkState();
     }
 
+    @Override
+    void collectDependencies(boolean heap, Set<ValueModel> nativeDeps, Set<ValueModel> heapDeps) {
+        // both heap and native implementations access the pointed value via a flyweight
+        pointedModel.collectDependencies(false, nativeDeps, heapDeps);
+    }
+
     private FieldSpec cachedValue() {
         return pointedModel.nativeGenerator().cachedValue;
     }
@@ -246,6 +254,20 @@ final class PointerFieldModel extends IntegerBackedFieldModel {
         return nativeGenerator;
     }
 
+    /**
+     * Pointed values are cached in the flyweight
+     */
+    @Override
+    void generateAccessMembers(ValueBuilder valueBuilder) {
+        // no static accessors
+    }
+
+    @Override
+    void generateArrayElementAccessMembers(
+            ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder) {
+        // no static accessors
+    }
+
     @Override
     MemberGenerator createHeapGenerator() {
         return new PrimitiveBackedHeapMemberGenerator(this, backend.type) {
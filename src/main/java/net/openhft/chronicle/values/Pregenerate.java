@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.PACKAGE;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+/**
+ * Requests generation of native and heap implementations of the listed value interfaces at
+ * compile time, by {@link PregenerateProcessor}. The generated {@code Foo$$Native} and {@code
+ * Foo$$Heap} classes are compiled along with the annotated type and then picked up by {@link
+ * Values#nativeClassFor} and {@link Values#heapClassFor}, without generation and compilation at
+ * runtime. {@code Foo$$Access} classes of static accessors, see {@link Values#accessClassFor},
+ * are generated as well, so that code, depending on the annotated module, could call them.
+ * <p>
+ * <p>The value interfaces must be already compiled, i. e. come from the classpath of the
+ * compilation, where the annotation is processed, not from the same compilation. E. g. put the
+ * value interfaces into one module, and this annotation on any type or package of a module,
+ * depending on it.
+ * <p>
+ * <p>Implementations of value interfaces of nested value fields are generated as well, unless
+ * they are already present on the classpath.
+ */
+@Target({TYPE, PACKAGE})
+@Retention(SOURCE)
+@Documented
+public @interface Pregenerate {
+    /**
+     * The value interfaces to generate native and heap implementations for.
+     *
+     * @return the value interfaces
+     */
+    Class<?>[] value();
+}
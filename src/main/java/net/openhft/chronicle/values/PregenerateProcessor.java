@@ -0,0 +1,280 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import com.squareup.javapoet.ClassName;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+import static java.util.Collections.singleton;
+
+/**
+ * Generates sources of native and heap implementations and classes of static accessors of value
+ * interfaces at compile time, the same sources as {@link Values#nativeClassFor}, {@link
+ * Values#heapClassFor} and {@link Values#accessClassFor} generate and compile at runtime
+ * otherwise. Value interfaces are taken from {@link Pregenerate} annotations
+ * and from the {@value #PREGENERATE_OPTION} processor option, a comma-separated list of value
+ * interface names and package names. All value interfaces of the listed packages are processed,
+ * other types of these packages are ignored.
+ * <p>
+ * <p>Value interfaces are loaded with the class loader of this processor, so they must be already
+ * compiled and present on the processor path (which is the compilation classpath, if processors
+ * are discovered from the classpath). Errors in value interfaces, which would make runtime
+ * generation fail, are reported as compilation errors.
+ * <p>
+ * <p>Along with the sources, the processor writes GraalVM native image reflection metadata to
+ * {@code META-INF/native-image/chronicle-values/}, registering the generated implementations and
+ * value interfaces, so that the generated classes are baked into a native image, where they
+ * cannot be generated at runtime.
+ */
+public class PregenerateProcessor extends AbstractProcessor {
+
+    static final String PREGENERATE_OPTION = "chronicle.values.pregenerate";
+
+    static final String NATIVE_IMAGE_CONFIG_DIR = "META-INF/native-image/chronicle-values/";
+
+    private final Set<String> generated = new HashSet<>();
+    private final SortedSet<String> generatedImplementations = new TreeSet<>();
+    private final SortedSet<String> generatedAccessClasses = new TreeSet<>();
+    private final SortedSet<String> generatedValueTypes = new TreeSet<>();
+    private boolean optionProcessed = false;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        // Processor should be called even if no @Pregenerate annotations are present, to process
+        // the option
+        if (processingEnv.getOptions().get(PREGENERATE_OPTION) != null)
+            return singleton("*");
+        return singleton(Pregenerate.class.getCanonicalName());
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return singleton(PREGENERATE_OPTION);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (!optionProcessed) {
+            optionProcessed = true;
+            processOption();
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(Pregenerate.class)) {
+            for (TypeElement valueType : pregenerateValues(element)) {
+                generateImplementations(valueType, element);
+            }
+        }
+        if (roundEnv.processingOver() && !generatedImplementations.isEmpty())
+            writeNativeImageConfig();
+        return false;
+    }
+
+    /**
+     * Writes {@code reflect-config.json}: {@code ValueModel} is built from public methods and
+     * annotations of value interfaces at runtime, and implementations are instantiated via their
+     * constructors. The directory name is derived from the generated classes, to be different in
+     * different modules, pregenerating implementations.
+     */
+    private void writeNativeImageConfig() {
+        String id = Integer.toHexString(generatedImplementations.toString().hashCode());
+        String path = NATIVE_IMAGE_CONFIG_DIR + "pregenerated-" + id + "/reflect-config.json";
+        StringBuilder sb = new StringBuilder("[\n");
+        for (String valueType : generatedValueTypes) {
+            sb.append("  {\"name\": \"").append(valueType)
+                    .append("\", \"allPublicMethods\": true},\n");
+        }
+        for (String implementation : generatedImplementations) {
+            sb.append("  {\"name\": \"").append(implementation)
+                    .append("\", \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]},\n");
+        }
+        // access classes are only loaded by name, their accessors are called statically
+        for (String accessClass : generatedAccessClasses) {
+            sb.append("  {\"name\": \"").append(accessClass).append("\"},\n");
+        }
+        sb.setLength(sb.length() - 2);
+        sb.append("\n]\n");
+        try (Writer writer = processingEnv.getFiler()
+                .createResource(StandardLocation.CLASS_OUTPUT, "", path).openWriter()) {
+            writer.write(sb.toString());
+        } catch (IOException e) {
+            error("Failed to write " + path + ": " + e, null);
+        }
+    }
+
+    private void processOption() {
+        String option = processingEnv.getOptions().get(PREGENERATE_OPTION);
+        if (option == null)
+            return;
+        Elements elements = processingEnv.getElementUtils();
+        for (String name : option.split(",")) {
+            name = name.trim();
+            if (name.isEmpty())
+                continue;
+            TypeElement valueType = elements.getTypeElement(name);
+            if (valueType != null) {
+                generateImplementations(valueType, null);
+                continue;
+            }
+            PackageElement packageElement = elements.getPackageElement(name);
+            if (packageElement == null) {
+                error(name + " from " + PREGENERATE_OPTION +
+                        " option is neither a type nor a package", null);
+                continue;
+            }
+            for (Element e : packageElement.getEnclosedElements()) {
+                if (e.getKind() != ElementKind.INTERFACE)
+                    continue;
+                Class<?> type = loadValueType((TypeElement) e, null);
+                if (type != null && Values.isValueInterfaceOrImplClass(type))
+                    generateImplementations(type, null);
+            }
+        }
+    }
+
+    private List<TypeElement> pregenerateValues(Element element) {
+        List<TypeElement> valueTypes = new ArrayList<>();
+        Elements elements = processingEnv.getElementUtils();
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (!annotationType.getQualifiedName().contentEquals(
+                    Pregenerate.class.getCanonicalName())) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e :
+                    elements.getElementValuesWithDefaults(annotation).entrySet()) {
+                if (!e.getKey().getSimpleName().contentEquals("value"))
+                    continue;
+                @SuppressWarnings("unchecked")
+                List<? extends AnnotationValue> values =
+                        (List<? extends AnnotationValue>) e.getValue().getValue();
+                for (AnnotationValue value : values) {
+                    // unresolvable classes are already reported by the compiler
+                    if (value.getValue() instanceof DeclaredType) {
+                        DeclaredType type = (DeclaredType) value.getValue();
+                        valueTypes.add((TypeElement) type.asElement());
+                    }
+                }
+            }
+        }
+        return valueTypes;
+    }
+
+    private void generateImplementations(TypeElement valueType, Element origin) {
+        Class<?> type = loadValueType(valueType, origin);
+        if (type != null)
+            generateImplementations(type, origin);
+    }
+
+    private void generateImplementations(Class<?> valueType, Element origin) {
+        try {
+            ValueModel model = ValueModel.acquire(valueType);
+            generate(model, false, origin);
+            generate(model, true, origin);
+            generateAccess(model, origin);
+        } catch (IOException | RuntimeException e) {
+            Throwable cause = e instanceof IllegalArgumentException && e.getCause() != null ?
+                    e.getCause() : e;
+            error("Failed to generate implementations of " + valueType.getName() + ": " +
+                    cause, origin);
+        }
+    }
+
+    private Class<?> loadValueType(TypeElement valueType, Element origin) {
+        String binaryName =
+                processingEnv.getElementUtils().getBinaryName(valueType).toString();
+        try {
+            return Class.forName(binaryName, false, PregenerateProcessor.class.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            error("Value interface " + binaryName + " is not found on the processor path, " +
+                    "value interfaces should be compiled before their implementations are " +
+                    "generated", origin);
+            return null;
+        }
+    }
+
+    private void generate(ValueModel model, boolean heap, Element origin) throws IOException {
+        ClassName className = heap ? model.heapClassName() : model.nativeClassName();
+        String qualifiedName = className.packageName() + "." + className.simpleName();
+        if (!generated.add(qualifiedName) ||
+                processingEnv.getElementUtils().getTypeElement(qualifiedName) != null) {
+            // already generated in this compilation or present on the classpath
+            return;
+        }
+        Set<ValueModel> nativeDeps = new LinkedHashSet<>();
+        Set<ValueModel> heapDeps = new LinkedHashSet<>();
+        model.collectDependencies(heap, nativeDeps, heapDeps);
+        for (ValueModel dep : nativeDeps) {
+            generate(dep, false, origin);
+        }
+        for (ValueModel dep : heapDeps) {
+            generate(dep, true, origin);
+        }
+        String javaCode = heap ?
+                Generators.generateHeapClass(model, className.simpleName()) :
+                Generators.generateNativeClass(model, className.simpleName());
+        writeSource(qualifiedName, javaCode, origin);
+        generatedImplementations.add(qualifiedName);
+        generatedValueTypes.add(model.valueType.getName());
+    }
+
+    private void generateAccess(ValueModel model, Element origin) throws IOException {
+        ClassName className = model.accessClassName();
+        String qualifiedName = className.packageName() + "." + className.simpleName();
+        if (!generated.add(qualifiedName) ||
+                processingEnv.getElementUtils().getTypeElement(qualifiedName) != null) {
+            return;
+        }
+        Set<ValueModel> deps = new LinkedHashSet<>();
+        model.collectAccessDependencies(deps);
+        for (ValueModel dep : deps) {
+            generateAccess(dep, origin);
+        }
+        writeSource(qualifiedName,
+                Generators.generateAccessClass(model, className.simpleName()), origin);
+        generatedAccessClasses.add(qualifiedName);
+    }
+
+    private void writeSource(String qualifiedName, String javaCode, Element origin)
+            throws IOException {
+        Element[] originatingElements = origin != null ? new Element[]{origin} : new Element[0];
+        try (Writer writer = processingEnv.getFiler()
+                .createSourceFile(qualifiedName, originatingElements).openWriter()) {
+            writer.write(javaCode);
+        }
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -55,8 +55,7 @@ class PrimitiveBackedHeapMemberGenerator extends HeapMemberGenerator {
         if (modelType == long.class || modelType == int.class)
             return modelType;
         PrimitiveFieldModel fieldModel = (PrimitiveFieldModel) this.fieldModel;
-        if (fieldModel.setOrdered != null || fieldModel.compareAndSwap != null ||
-                fieldModel.addAtomic != null) {
+        if (fieldModel.hasOrderedSet() || fieldModel.updatedAtomically()) {
             if (modelType == double.class)
                 return long.class;
             return int.class;
@@ -137,7 +136,7 @@ class PrimitiveBackedHeapMemberGenerator extends HeapMemberGenerator {
     public void generateArrayElementGetVolatile(
             ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder,
             MethodSpec.Builder methodBuilder) {
-        arrayFieldModel.checkBounds(methodBuilder);
+        arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
         String rawValue = "raw" + capitalize(field.name) + "Value";
         Class type = Utils.UNSAFE_CLASS;
         methodBuilder.addStatement("$T $N = $N.$N($N, (long) $T.$N + (index * (long) $T.$N))",
@@ -18,11 +18,13 @@
 
 package net.openhft.chronicle.values;
 
+import com.squareup.javapoet.MethodSpec;
 import net.openhft.chronicle.core.Maths;
 
 import java.lang.reflect.Method;
 
 import static net.openhft.chronicle.values.Primitives.widthInBits;
+import static net.openhft.chronicle.values.Utils.capitalize;
 
 abstract class PrimitiveFieldModel extends ScalarFieldModel {
 
@@ -35,7 +37,10 @@ abstract class PrimitiveFieldModel extends ScalarFieldModel {
     void addVolatileInfo(MethodTemplate template) {
         String regex = template.regex;
         if (regex.contains("Volatile") || regex.contains("Ordered") ||
-                regex.contains("Atomic") || regex.contains("compareAndSwap")) {
+                regex.contains("Acquire") || regex.contains("Release") ||
+                regex.contains("Opaque") ||
+                regex.contains("Atomic") || regex.contains("compareAndSwap") ||
+                regex.startsWith("getAnd") || regex.contains("AndGet")) {
             if (!alignmentSpecifiedExplicitly)
                 offsetAlignment = Align.DEFAULT;
             // do not set alignmentSpecifiedExplicitly = true intentionally (later explicit
@@ -48,8 +53,8 @@ abstract class PrimitiveFieldModel extends ScalarFieldModel {
      * field from wider byte/short/int/long word, => must be alone in the word.
      */
     int sizeInBitsConsideringVolatileOrOrderedPuts(int rawSizeInBits) {
-        int minBits = setOrdered != null ? 32 : 8;
-        return setVolatile != null || setOrdered != null ?
+        int minBits = hasOrderedSet() ? 32 : 8;
+        return setVolatile != null || hasOrderedSet() ?
                 Maths.nextPower2(rawSizeInBits, minBits) : rawSizeInBits;
     }
 
@@ -58,6 +63,35 @@ abstract class PrimitiveFieldModel extends ScalarFieldModel {
         return sizeInBitsConsideringVolatileOrOrderedPuts(widthInBits(type));
     }
 
+    @Override
+    void generateAccessMembers(ValueBuilder valueBuilder) {
+        MemberGenerator generator = nativeGenerator();
+        generator.generateFields(valueBuilder);
+        MethodSpec.Builder get = accessMethodBuilder("get" + capitalize(name), false)
+                .returns(type);
+        generator.generateGet(valueBuilder, get);
+        valueBuilder.typeBuilder.addMethod(get.build());
+        MethodSpec.Builder set = accessMethodBuilder("set" + capitalize(name), false)
+                .addParameter(type, varName());
+        generator.generateSet(valueBuilder, set);
+        valueBuilder.typeBuilder.addMethod(set.build());
+    }
+
+    @Override
+    void generateArrayElementAccessMembers(
+            ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder) {
+        MemberGenerator generator = nativeGenerator();
+        generator.generateArrayElementFields(arrayFieldModel, valueBuilder);
+        String name = capitalize(arrayFieldModel.name) + "At";
+        MethodSpec.Builder get = accessMethodBuilder("get" + name, true).returns(type);
+        generator.generateArrayElementGet(arrayFieldModel, valueBuilder, get);
+        valueBuilder.typeBuilder.addMethod(get.build());
+        MethodSpec.Builder set = accessMethodBuilder("set" + name, true)
+                .addParameter(type, varName());
+        generator.generateArrayElementSet(arrayFieldModel, valueBuilder, set);
+        valueBuilder.typeBuilder.addMethod(set.build());
+    }
+
     @Override
     int offsetAlignmentInBytes() {
         if (offsetAlignment == Align.DEFAULT)
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.util.CompilerUtils;
+
+import javax.tools.*;
+import java.io.*;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Compiles generated sources of implementations, possibly many in a single javac pass, and
+ * defines implementation classes.
+ * <p>
+ * <p>Generated sources of outer models refer to implementations of nested models by name, so the
+ * bytes of all defined classes (compiled, or emitted by {@link BytecodeGenerator}) are kept in
+ * memory, per class loader, and listed by the file manager of the compiler along with the
+ * classpath. If {@link GeneratedClassCache} is enabled, classes are written to the cache
+ * directory instead, which is on the classpath of the compiler, as well as the classes loaded
+ * from the cache.
+ */
+final class RuntimeCompiler {
+
+    private static final JavaCompiler COMPILER = ToolProvider.getSystemJavaCompiler();
+    private static final Map<ClassLoader, Map<String, byte[]>> definedClasses =
+            new WeakHashMap<>();
+
+    private RuntimeCompiler() {
+    }
+
+    /**
+     * Compiles the given sources (by class name with package) in a single javac pass, against the
+     * classes defined in the given class loader. Classes should be then {@link #defineClass
+     * defined}.
+     *
+     * @return bytes of compiled classes, by class name with package
+     * @throws ImplGenerationFailedException if compilation failed
+     */
+    static Map<String, byte[]> compile(ClassLoader cl, Map<String, String> sources) {
+        Map<String, byte[]> loaderClasses;
+        synchronized (definedClasses) {
+            Map<String, byte[]> defined = definedClasses.get(cl);
+            loaderClasses = defined != null ? new HashMap<>(defined) : Collections.emptyMap();
+        }
+        return compileToBytes(loaderClasses, sources);
+    }
+
+    /**
+     * Defines the class in the given class loader, and keeps its bytes for subsequent
+     * compilations, or writes them to the cache directory, if the cache is enabled
+     */
+    static Class defineClass(ClassLoader cl, String classNameWithPackage, byte[] bytecode) {
+        GeneratedClassCache cache = GeneratedClassCache.INSTANCE;
+        if (cache != null) {
+            Path classPath = cache.dir.toPath()
+                    .resolve(classNameWithPackage.replace('.', '/') + ".class");
+            try {
+                if (!Files.exists(classPath) ||
+                        !Arrays.equals(bytecode, Files.readAllBytes(classPath))) {
+                    Files.createDirectories(classPath.getParent());
+                    GeneratedClassCache.writeAtomically(classPath, bytecode);
+                }
+            } catch (IOException e) {
+                throw new ImplGenerationFailedException(e);
+            }
+        } else {
+            synchronized (definedClasses) {
+                definedClasses.computeIfAbsent(cl, k -> new HashMap<>())
+                        .put(classNameWithPackage, bytecode);
+            }
+        }
+        return CompilerUtils.defineClass(cl, classNameWithPackage, bytecode);
+    }
+
+    private static Map<String, byte[]> compileToBytes(
+            Map<String, byte[]> loaderClasses, Map<String, String> sources) {
+        JavaCompiler compiler = COMPILER;
+        if (compiler == null) {
+            throw new ImplGenerationFailedException(
+                    new IllegalStateException("Java compiler is not available, run on a JDK"));
+        }
+        List<JavaFileObject> compilationUnits = new ArrayList<>();
+        sources.forEach((className, code) ->
+                compilationUnits.add(new JavaSourceFromString(className, code)));
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Map<String, ByteArrayOutputStream> outputs = new LinkedHashMap<>();
+        String classPath = System.getProperty("java.class.path");
+        GeneratedClassCache cache = GeneratedClassCache.INSTANCE;
+        if (cache != null)
+            classPath += File.pathSeparator + cache.dir;
+        try (StandardJavaFileManager standardFileManager =
+                     compiler.getStandardFileManager(diagnostics, null, null);
+             JavaFileManager fileManager =
+                     new InMemoryClasses(standardFileManager, loaderClasses, outputs)) {
+            boolean success = compiler.getTask(null, fileManager, diagnostics,
+                    asList("-g", "-nowarn", "-proc:none", "-classpath", classPath),
+                    null, compilationUnits).call();
+            if (!success) {
+                StringBuilder sb = new StringBuilder("Failed to compile " + sources.keySet());
+                for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+                    sb.append('\n').append(d);
+                }
+                for (String code : sources.values()) {
+                    sb.append('\n').append(code);
+                }
+                Jvm.warn().on(RuntimeCompiler.class, sb.toString());
+                throw new ImplGenerationFailedException(
+                        new IllegalStateException("Failed to compile " + sources.keySet()));
+            }
+        } catch (IOException e) {
+            throw new ImplGenerationFailedException(e);
+        }
+        Map<String, byte[]> compiled = new LinkedHashMap<>();
+        outputs.forEach((className, output) -> compiled.put(className, output.toByteArray()));
+        return compiled;
+    }
+
+    /**
+     * Lists the classes, defined before, along with the classpath, and keeps the output in memory
+     */
+    private static class InMemoryClasses extends ForwardingJavaFileManager<JavaFileManager> {
+        private final Map<String, byte[]> loaderClasses;
+        private final Map<String, ByteArrayOutputStream> outputs;
+
+        InMemoryClasses(JavaFileManager fileManager, Map<String, byte[]> loaderClasses,
+                        Map<String, ByteArrayOutputStream> outputs) {
+            super(fileManager);
+            this.loaderClasses = loaderClasses;
+            this.outputs = outputs;
+        }
+
+        @Override
+        public Iterable<JavaFileObject> list(
+                Location location, String packageName, Set<JavaFileObject.Kind> kinds,
+                boolean recurse) throws IOException {
+            Iterable<JavaFileObject> listed = super.list(location, packageName, kinds, recurse);
+            if (location != StandardLocation.CLASS_PATH ||
+                    !kinds.contains(JavaFileObject.Kind.CLASS) || loaderClasses.isEmpty()) {
+                return listed;
+            }
+            List<JavaFileObject> result = new ArrayList<>();
+            listed.forEach(result::add);
+            loaderClasses.forEach((className, bytecode) -> {
+                int lastDot = className.lastIndexOf('.');
+                String classPackage = lastDot >= 0 ? className.substring(0, lastDot) : "";
+                if (classPackage.equals(packageName) ||
+                        (recurse && classPackage.startsWith(packageName + "."))) {
+                    result.add(new DefinedClass(className, bytecode));
+                }
+            });
+            return result;
+        }
+
+        @Override
+        public String inferBinaryName(Location location, JavaFileObject file) {
+            if (file instanceof DefinedClass)
+                return ((DefinedClass) file).className;
+            return super.inferBinaryName(location, file);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(
+                Location location, String className, JavaFileObject.Kind kind,
+                FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("mem:///" +
+                    className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    outputs.put(className, output);
+                    return output;
+                }
+            };
+        }
+    }
+
+    private static class DefinedClass extends SimpleJavaFileObject {
+        final String className;
+        private final byte[] bytecode;
+
+        DefinedClass(String className, byte[] bytecode) {
+            super(URI.create("mem:///" + className.replace('.', '/') + Kind.CLASS.extension),
+                    Kind.CLASS);
+            this.className = className;
+            this.bytecode = bytecode;
+        }
+
+        @Override
+        public InputStream openInputStream() {
+            return new ByteArrayInputStream(bytecode);
+        }
+    }
+}
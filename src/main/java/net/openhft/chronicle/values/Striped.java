@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Declares a striped counter: a {@code long} field, which is laid out as several 64-bit cells,
+ * each on its own cache line. {@code addFoo()} and {@code addAtomicFoo()} add to the cell, chosen
+ * by the hash of the current thread and process, {@code getFoo()} sums all cells. Like {@link
+ * java.util.concurrent.atomic.LongAdder}, this reduces contention of threads, which increment the
+ * counter concurrently, for the price of the footprint and slower reads. This annotation should be
+ * put on the getter.
+ * <p>
+ * <p>Only {@code get}, {@code getVolatile}, {@code set}, {@code add} and {@code addAtomic} methods
+ * are supported, additions return {@code void}. {@code setFoo()} writes the value to the first cell
+ * and zeroes the others, it is not atomic with respect to concurrent additions.
+ */
+@Target(METHOD)
+@Retention(RUNTIME)
+@Documented
+public @interface Striped {
+    int DEFAULT_CELLS = 16;
+
+    /**
+     * The number of cells, should be a power of 2. Each cell takes {@link Stripes#CELL_SIZE}
+     * bytes in the flyweight layout.
+     *
+     * @return the number of cells
+     */
+    int cells() default DEFAULT_CELLS;
+}
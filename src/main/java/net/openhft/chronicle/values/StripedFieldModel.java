@@ -0,0 +1,239 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+import static java.util.Arrays.asList;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+
+/**
+ * A {@link Striped} counter field. Native implementations lay out the cells one per {@link
+ * Stripes#CELL_SIZE} bytes, heap implementations delegate to a {@link LongAdder}.
+ */
+class StripedFieldModel extends ScalarFieldModel {
+
+    private boolean configured;
+    private int cells = Striped.DEFAULT_CELLS;
+
+    private final MemberGenerator nativeGenerator = new StripedMemberGenerator() {
+
+        private String cellOffset(ValueBuilder valueBuilder, String index) {
+            return format("offset + %d + %s * %dL",
+                    verifiedByteOffset(valueBuilder), index, Stripes.CELL_SIZE);
+        }
+
+        @Override
+        void genGet(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, String read) {
+            methodBuilder.addStatement("long sum = 0L");
+            methodBuilder.beginControlFlow("for (int i = 0; i < $L; i++)", cells);
+            methodBuilder.addStatement("sum += bs.$N($L)", read, cellOffset(valueBuilder, "i"));
+            methodBuilder.endControlFlow();
+            methodBuilder.addStatement("return sum");
+        }
+
+        @Override
+        void genWrite(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, String value) {
+            methodBuilder.addStatement("bs.writeLong(offset + $L, $L)",
+                    verifiedByteOffset(valueBuilder), value);
+            methodBuilder.beginControlFlow("for (int i = 1; i < $L; i++)", cells);
+            methodBuilder.addStatement("bs.writeLong($L, 0L)", cellOffset(valueBuilder, "i"));
+            methodBuilder.endControlFlow();
+        }
+
+        @Override
+        void genAdd(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, boolean atomic) {
+            methodBuilder.addStatement("long cell = offset + $L + $T.cell($L) * $LL",
+                    verifiedByteOffset(valueBuilder), Stripes.class, cells, Stripes.CELL_SIZE);
+            if (atomic) {
+                methodBuilder.addStatement("bs.addAndGetLong(cell, addition)");
+            } else {
+                methodBuilder.addStatement("bs.writeLong(cell, bs.readLong(cell) + addition)");
+            }
+        }
+    };
+
+    @Override
+    void addLayoutInfo(Method m, MethodTemplate template) {
+        super.addLayoutInfo(m, template);
+        Striped striped = m.getAnnotation(Striped.class);
+        if (striped != null) {
+            if (configured) {
+                throw new IllegalStateException("@Striped should be put on a single method of " +
+                        "the field " + name);
+            }
+            if (Integer.bitCount(striped.cells()) != 1) {
+                throw new IllegalStateException(striped + " cells should be a positive power " +
+                        "of 2, field " + name);
+            }
+            configured = true;
+            cells = striped.cells();
+        }
+    }
+
+    @Override
+    int sizeInBits() {
+        return cells * Stripes.CELL_SIZE * 8;
+    }
+
+    @Override
+    int offsetAlignmentInBytes() {
+        // cells shouldn't share cache lines with other fields, nor with each other
+        return alignmentSpecifiedExplicitly ?
+                Math.max(offsetAlignment, Stripes.CELL_SIZE) : Stripes.CELL_SIZE;
+    }
+
+    @Override
+    void checkState() {
+        super.checkState();
+        if (type != long.class)
+            throw new IllegalStateException("Striped counter " + name + " should be long");
+        if (get == null && getVolatile == null) {
+            throw new IllegalStateException("get or getVolatile method should be present for " +
+                    "the striped counter " + name);
+        }
+        for (Method m : asList(getAcquire, getOpaque, getUsing, setVolatile, setOrdered,
+                setRelease, setOpaque, setAtomic, compareAndSwap, getAndSet, getAndAdd,
+                getAndIncrement, updateAndGet, accumulateAndGet, getAndOr, getAndAnd,
+                getAndXor)) {
+            if (m != null) {
+                throw new IllegalStateException(m.getName() + "() is not supported by the " +
+                        "striped counter " + name);
+            }
+        }
+        for (Method m : asList(add, addAtomic)) {
+            if (m != null && m.getReturnType() != void.class) {
+                throw new IllegalStateException(m.getName() + "() of the striped counter " +
+                        name + " should return void, the sum is not computed on addition");
+            }
+        }
+    }
+
+    @Override
+    MemberGenerator nativeGenerator() {
+        return nativeGenerator;
+    }
+
+    @Override
+    MemberGenerator createHeapGenerator() {
+        return new StripedMemberGenerator() {
+            private FieldSpec field;
+
+            @Override
+            void generateFields(ValueBuilder valueBuilder) {
+                field = FieldSpec.builder(LongAdder.class, fieldName(), PRIVATE, FINAL)
+                        .initializer("new $T()", LongAdder.class)
+                        .build();
+                valueBuilder.typeBuilder.addField(field);
+            }
+
+            @Override
+            void genGet(
+                    ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, String read) {
+                methodBuilder.addStatement("return $N.sum()", field);
+            }
+
+            @Override
+            void genWrite(
+                    ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, String value) {
+                methodBuilder.addStatement("$N.reset()", field);
+                methodBuilder.addStatement("$N.add($L)", field, value);
+            }
+
+            @Override
+            void genAdd(
+                    ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, boolean atomic) {
+                methodBuilder.addStatement("$N.add(addition)", field);
+            }
+        };
+    }
+
+    /**
+     * Generates the counter methods in terms of summing the cells, writing the value to the cells
+     * and adding to a cell, which differ in native and heap implementations
+     */
+    private abstract class StripedMemberGenerator extends MemberGenerator {
+
+        StripedMemberGenerator() {
+            super(StripedFieldModel.this);
+        }
+
+        abstract void genGet(
+                ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, String read);
+
+        abstract void genWrite(
+                ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, String value);
+
+        abstract void genAdd(
+                ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder, boolean atomic);
+
+        @Override
+        void generateGet(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            genGet(valueBuilder, methodBuilder, "readLong");
+        }
+
+        @Override
+        void generateGetVolatile(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            genGet(valueBuilder, methodBuilder, "readVolatileLong");
+        }
+
+        @Override
+        void generateSet(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            genWrite(valueBuilder, methodBuilder, varName());
+        }
+
+        @Override
+        void generateAdd(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            genAdd(valueBuilder, methodBuilder, false);
+        }
+
+        @Override
+        void generateAddAtomic(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            genAdd(valueBuilder, methodBuilder, true);
+        }
+
+        @Override
+        void generateCopyFrom(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            genWrite(valueBuilder, methodBuilder,
+                    format("from.%s()", getOrGetVolatile().getName()));
+        }
+
+        @Override
+        void generateReadMarshallable(
+                ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            genWrite(valueBuilder, methodBuilder, "bytes.readLong()");
+        }
+
+        @Override
+        void generateEquals(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            methodBuilder.addCode("if ($N() != other.$N()) return false;\n",
+                    getOrGetVolatile().getName(), getOrGetVolatile().getName());
+        }
+
+        @Override
+        String generateHashCode(ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+            return format("java.lang.Long.hashCode(%s())", getOrGetVolatile().getName());
+        }
+    }
+}
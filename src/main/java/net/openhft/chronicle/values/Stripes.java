@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.core.Jvm;
+
+/**
+ * Cell choice of {@link Striped} counters, used by the generated implementations.
+ */
+public final class Stripes {
+
+    /**
+     * The size of a cell in bytes, a cache line
+     */
+    public static final int CELL_SIZE = 64;
+
+    /**
+     * Threads of different processes, updating a counter in shared memory, have the same ids
+     */
+    private static final long PROCESS_SEED = Jvm.getProcessId() * 0xC2B2AE3D27D4EB4FL;
+
+    private Stripes() {
+    }
+
+    /**
+     * Returns the index of the cell, which the current thread adds to.
+     *
+     * @param cells the number of cells, a power of 2
+     */
+    public static int cell(int cells) {
+        long h = (Thread.currentThread().getId() + PROCESS_SEED) * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (cells - 1);
+    }
+}
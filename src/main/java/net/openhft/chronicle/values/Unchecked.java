@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Makes the native implementation of the annotated value interface {@code Foo$$NativeUnchecked}
+ * instead of {@code Foo$$Native}, in which array index bounds, {@link Range} and {@code
+ * bytesStore()} length checks are generated as {@code assert} statements. They are compiled out
+ * by the JIT, unless assertions are enabled (e. g. in tests) with {@code -ea}, and then throw
+ * {@code AssertionError} instead of {@code ArrayIndexOutOfBoundsException} or {@code
+ * IllegalArgumentException}. Writing an out of the range value, or accessing an element out of the
+ * bounds without assertions enabled, corrupts the neighbour fields or the memory beyond the value.
+ * <p>
+ * <p>{@code -Dchronicle.values.unchecked=true} generates unchecked native implementations of all
+ * value interfaces, {@code -Dchronicle.values.unchecked=false} - of none, regardless of this
+ * annotation. The annotation and the property only choose the default implementation, {@link
+ * Values#nativeFactory(Class, boolean)} and {@link Values#nativeClassFor(Class, boolean)} choose
+ * it explicitly, so checked and unchecked flyweights could be used in the same JVM. Heap
+ * implementations are always checked.
+ */
+@Target(TYPE)
+@Retention(RUNTIME)
+@Documented
+public @interface Unchecked {
+}
@@ -32,6 +32,16 @@ final class Utils {
     private Utils() {
     }
 
+    /**
+     * Returns {@code true}, if running in a GraalVM native image, where classes cannot be
+     * generated, only classes {@link Pregenerate pregenerated} at compile time are available.
+     * Checked on each call rather than stored in a constant, which might be initialized during
+     * the image build.
+     */
+    static boolean inNativeImage() {
+        return "runtime".equals(System.getProperty("org.graalvm.nativeimage.imagecode"));
+    }
+
     public static int roundUp(int divident, int divisor) {
         return ((divident + divisor - 1) / divisor) * divisor;
     }
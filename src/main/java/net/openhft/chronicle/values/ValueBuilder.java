@@ -31,6 +31,16 @@ class ValueBuilder {
     final ValueModel model;
     final String className;
     final TypeSpec.Builder typeBuilder;
+    /**
+     * If checks are generated as asserts, in unchecked native implementations, see {@link
+     * Unchecked}
+     */
+    boolean unchecked;
+    /**
+     * If the generated class caches the raw address of a direct bytes store, see {@link
+     * FieldModel#plainRead}
+     */
+    boolean cachedAddress;
     private FieldSpec unsafe;
     private CodeBlock.Builder staticBlockBuilder;
     private MethodSpec.Builder defaultConstructorBuilder;
@@ -46,6 +56,21 @@ class ValueBuilder {
         return ClassName.get(model.valueType.getPackage().getName(), className);
     }
 
+    /**
+     * Generates {@code if (condition) throw new exceptionType(message);}, or {@code assert
+     * !(condition) : message;}, if {@link #unchecked}
+     */
+    void check(MethodSpec.Builder methodBuilder, CodeBlock condition,
+               Class<? extends RuntimeException> exceptionType, CodeBlock message) {
+        if (unchecked) {
+            methodBuilder.addStatement("assert !($L) : $L", condition, message);
+        } else {
+            methodBuilder.beginControlFlow("if ($L)", condition);
+            methodBuilder.addStatement("throw new $T($L)", exceptionType, message);
+            methodBuilder.endControlFlow();
+        }
+    }
+
     FieldSpec unsafe() {
         if (unsafe == null) {
             Class type = Utils.UNSAFE_CLASS;
@@ -19,14 +19,23 @@
 package net.openhft.chronicle.values;
 
 import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
 
 import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
+import static java.lang.String.format;
+import static java.util.Arrays.asList;
 import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.PRIVATE;
+import static net.openhft.chronicle.values.Utils.capitalize;
 
 class ValueFieldModel extends ScalarFieldModel {
     private final NativeMemberGenerator nativeGenerator = new NativeMemberGenerator();
@@ -51,6 +60,80 @@ class ValueFieldModel extends ScalarFieldModel {
         return Math.max(1, offsetAlignment);
     }
 
+    @Override
+    void collectDependencies(boolean heap, Set<ValueModel> nativeDeps, Set<ValueModel> heapDeps) {
+        (heap ? heapDeps : nativeDeps).add(valueModel());
+    }
+
+    /**
+     * The sequence of a nested {@link Versioned} value is not copied, as well as the lock words,
+     * reachable from the nested value
+     */
+    @Override
+    boolean bytesCopyable() {
+        return !valueModel().versioned && valueModel().bytesCopyable();
+    }
+
+    @Override
+    void collectAccessDependencies(Set<ValueModel> deps) {
+        deps.add(valueModel());
+    }
+
+    @Override
+    void generateAccessMembers(ValueBuilder valueBuilder) {
+        generateAccessDelegates(valueBuilder, null);
+    }
+
+    @Override
+    void generateArrayElementAccessMembers(
+            ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder) {
+        generateAccessDelegates(valueBuilder, arrayFieldModel);
+    }
+
+    /**
+     * Generates static accessors of the fields of the nested value, delegating to the static
+     * accessors of the nested value interface, e. g. {@code getCenterX(bs, offset)} calls {@code
+     * Point$$Access.getX(bs, offset + centerOffset)}
+     */
+    private void generateAccessDelegates(
+            ValueBuilder valueBuilder, ArrayFieldModel arrayFieldModel) {
+        ClassName nestedAccess = valueModel().accessClassName();
+        String path = arrayFieldModel != null ?
+                capitalize(arrayFieldModel.name) + "At" : capitalize(name);
+        for (MethodSpec nested : Generators.accessMethods(valueModel())) {
+            // nested accessors are getXxx or setXxx
+            String accessorName = nested.name.substring(0, 3) + path + nested.name.substring(3);
+            MethodSpec.Builder methodBuilder =
+                    accessMethodBuilder(accessorName, arrayFieldModel != null)
+                            .returns(nested.returnType);
+            Set<String> names = new HashSet<>(asList("bs", "offset", "index", "elementOffset"));
+            StringBuilder arguments = new StringBuilder();
+            // the first parameters are the bytes store and the offset of the nested value
+            List<ParameterSpec> nestedParameters =
+                    nested.parameters.subList(2, nested.parameters.size());
+            for (ParameterSpec nestedParameter : nestedParameters) {
+                String parameterName = nestedParameter.name;
+                while (!names.add(parameterName))
+                    parameterName = "nested" + capitalize(parameterName);
+                methodBuilder.addParameter(nestedParameter.type, parameterName);
+                arguments.append(", ").append(parameterName);
+            }
+            String nestedOffset;
+            if (arrayFieldModel != null) {
+                arrayFieldModel.checkBounds(valueBuilder, methodBuilder);
+                genVerifiedElementOffset(arrayFieldModel, methodBuilder);
+                nestedOffset = format("offset + %d + elementOffset",
+                        arrayFieldModel.verifiedByteOffset(valueBuilder));
+            } else {
+                nestedOffset = "offset + " + verifiedByteOffset(valueBuilder);
+            }
+            methodBuilder.addStatement("$L$T.$N(bs, $L$L)",
+                    nested.returnType.equals(TypeName.VOID) ? "" : "return ",
+                    nestedAccess, nested.name, nestedOffset, arguments);
+            valueBuilder.typeBuilder.addMethod(methodBuilder.build());
+        }
+    }
+
     @Override
     NativeMemberGenerator nativeGenerator() {
         return nativeGenerator;
@@ -63,8 +146,8 @@ class ValueFieldModel extends ScalarFieldModel {
 
             @Override
             void generateFields(ValueBuilder valueBuilder) {
-                field = FieldSpec.builder(valueModel().heapClass(), fieldName(), PRIVATE)
-                        .initializer("new $T()", valueModel().heapClass())
+                field = FieldSpec.builder(valueModel().heapClassName(), fieldName(), PRIVATE)
+                        .initializer("new $T()", valueModel().heapClassName())
                         .build();
                 valueBuilder.typeBuilder.addField(field);
             }
@@ -72,21 +155,21 @@ class ValueFieldModel extends ScalarFieldModel {
             @Override
             void generateArrayElementFields(
                     ArrayFieldModel arrayFieldModel, ValueBuilder valueBuilder) {
-                field = FieldSpec.builder(ArrayTypeName.of(valueModel().heapClass()), fieldName())
+                field = FieldSpec.builder(ArrayTypeName.of(valueModel().heapClassName()), fieldName())
                         .addModifiers(PRIVATE, FINAL)
                         .initializer("new $T[$L]",
-                                valueModel().heapClass(), arrayFieldModel.array.length())
+                                valueModel().heapClassName(), arrayFieldModel.array.length())
                         .build();
                 valueBuilder.typeBuilder.addField(field);
-                usingValue = FieldSpec.builder(valueModel().heapClass(), fieldName() + "Value", PRIVATE)
-                        .initializer("new $T()", valueModel().heapClass())
+                usingValue = FieldSpec.builder(valueModel().heapClassName(), fieldName() + "Value", PRIVATE)
+                        .initializer("new $T()", valueModel().heapClassName())
                         .build();
                 valueBuilder.typeBuilder.addField(usingValue);
                 MethodSpec.Builder constructor = valueBuilder.defaultConstructorBuilder();
                 constructor.beginControlFlow("for (int index = 0; index < $L; index++)",
                         arrayFieldModel.array.length());
                 constructor.addStatement("$N[index] = new $T()",
-                        fieldName(), valueModel().heapClass());
+                        fieldName(), valueModel().heapClassName());
                 constructor.endControlFlow();
             }
 
@@ -235,7 +318,7 @@ class ValueFieldModel extends ScalarFieldModel {
 
         FieldSpec cachedValue;
         FieldSpec otherCachedValue;
-        private Class nativeType;
+        private ClassName nativeType;
 
         NativeMemberGenerator() {
             super(ValueFieldModel.this);
@@ -243,7 +326,7 @@ class ValueFieldModel extends ScalarFieldModel {
 
         @Override
         public void generateFields(ValueBuilder valueBuilder) {
-            nativeType = Values.nativeClassFor(type);
+            nativeType = valueModel().nativeClassName();
             cachedValue = FieldSpec
                     .builder(nativeType, name + "CachedValue", PRIVATE, FINAL)
                     .initializer("new $T()", nativeType)
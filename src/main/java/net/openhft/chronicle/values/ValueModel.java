@@ -18,27 +18,37 @@
 
 package net.openhft.chronicle.values;
 
+import com.squareup.javapoet.ClassName;
 import net.openhft.chronicle.core.Jvm;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.*;
-import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
+import static java.util.Collections.singletonMap;
 import static java.util.Comparator.comparing;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 import static net.openhft.chronicle.values.Align.NO_ALIGNMENT;
-import static net.openhft.compiler.CompilerUtils.CACHED_COMPILER;
 import static net.openhft.chronicle.values.Utils.roundUp;
 
 public class ValueModel {
 
     public static final String $$NATIVE = "$$Native";
     public static final String $$HEAP = "$$Heap";
+    public static final String $$NATIVE_UNCHECKED = "$$NativeUnchecked";
+    public static final String $$ACCESS = "$$Access";
+    /**
+     * If set, overrides {@link Unchecked} annotations of all value interfaces
+     */
+    private static final String UNCHECKED = Jvm.getProperty("chronicle.values.unchecked");
+    /**
+     * The size of the sequence, reserved in the beginning of {@link Versioned} values
+     */
+    static final int SEQUENCE_SIZE_IN_BYTES = 8;
     private static ClassValue<Object> classValueModel = new ClassValue<Object>() {
         @Override
         protected Object computeValue(Class<?> valueType) {
@@ -50,16 +60,72 @@ public class ValueModel {
         }
     };
     final Class<?> valueType;
+    /**
+     * If the value interface is annotated {@link Versioned}
+     */
+    final boolean versioned;
+    /**
+     * If the value interface extends {@link AtomicValue}
+     */
+    final boolean atomicValue;
+    /**
+     * If the native implementation is generated without checks, see {@link Unchecked}
+     */
+    final boolean unchecked;
+    /**
+     * The model, acquired for the value interface, if this model is its other native flavour,
+     * see {@link #nativeFlavour}, otherwise {@code null}
+     */
+    private final ValueModel primary;
+    private volatile ValueModel otherNativeFlavour;
     private final Map<FieldModel, FieldData> fieldData = new HashMap<>();
     private final List<FieldModel> orderedFields;
     private final int sizeInBytes;
+    /**
+     * Alignment of words, which atomic operations of some fields compare-and-swap, relative to the
+     * value start, see {@link FieldModel#atomicWordEnd}
+     */
+    private int atomicWordAlignment = 1;
     private volatile Class nativeClass;
     private volatile Class heapClass;
+    private volatile Class accessClass;
+    /**
+     * Differ from {@link #nativeClass} and {@link #heapClass}, if the latter are hidden classes,
+     * see {@link #namedClass}
+     */
+    private Class namedNativeClass;
+    private Class namedHeapClass;
+    /**
+     * If generated implementations of some value interface, acquired so far, refer to
+     * implementations of this value interface by name, i. e. this value interface is nested
+     */
+    private volatile boolean nested;
+    /**
+     * If generated implementations of this value interface refer to implementations of nested
+     * value interfaces by name
+     */
+    private final boolean hasDependencies;
+    private volatile Supplier nativeFactory;
+    private volatile Supplier heapFactory;
 
-    ValueModel(Class<?> valueType, Stream<FieldModel> fields) {
+    ValueModel(Class<?> valueType, Stream<FieldModel> fields, ValueModel primary) {
         this.valueType = valueType;
+        this.primary = primary;
+        versioned = valueType.isAnnotationPresent(Versioned.class);
+        atomicValue = AtomicValue.class.isAssignableFrom(valueType);
+        if (primary != null) {
+            unchecked = !primary.unchecked;
+        } else {
+            unchecked = UNCHECKED != null ? Boolean.parseBoolean(UNCHECKED) :
+                    valueType.isAnnotationPresent(Unchecked.class);
+        }
         orderedFields = new ArrayList<>();
         sizeInBytes = arrangeFields(fields);
+        Set<ValueModel> deps = new LinkedHashSet<>();
+        collectDependencies(false, deps, deps);
+        collectDependencies(true, deps, deps);
+        deps.forEach(dep -> dep.nested = true);
+        hasDependencies = !deps.isEmpty();
     }
 
     /**
@@ -98,12 +164,13 @@ public class ValueModel {
 
     private static <T> T doSomethingForInterfaceOr(
             Class<?> valueType, Function<Class, T> actionForInterface, Supplier<T> ifNotFound) {
-        String typeName = valueType.getName();
-        if (typeName.endsWith($$NATIVE) || typeName.endsWith($$HEAP)) {
+        String typeName = HiddenClasses.nameOf(valueType);
+        if (typeName.endsWith($$NATIVE) || typeName.endsWith($$HEAP) ||
+                typeName.endsWith($$NATIVE_UNCHECKED)) {
             Type[] superInterfaces = valueType.getGenericInterfaces();
             for (Type superInterface : superInterfaces) {
                 Class rawInterface = rawInterface(superInterface);
-                // index of first $ in Foo$$Heap or Foo$$Native
+                // index of first $ in Foo$$Heap, Foo$$Native or Foo$$NativeUnchecked
                 int firstDollarIndex = typeName.lastIndexOf('$') - 1;
                 if (rawInterface.getName().equals(typeName.substring(0, firstDollarIndex)))
                     return actionForInterface.apply(rawInterface);
@@ -161,7 +228,10 @@ public class ValueModel {
                 fields.collect(groupingBy(f -> f.groupOrder, TreeMap::new, toList()));
         // Global watermark across field groups, doesn't let fields from higher groups go earlier
         // than any fields from lower groups
-        int watermark = 0;
+        int fieldsStart = fieldsStartInBytes() * 8;
+        int watermark = fieldsStart;
+        if (versioned)
+            atomicWordAlignment = SEQUENCE_SIZE_IN_BYTES;
         Map<Integer, FieldModel> fieldEnds = new HashMap<>();
         for (Map.Entry<Long, List<FieldModel>> e : fieldGroups.entrySet()) {
             List<FieldModel> groupFields = e.getValue();
@@ -211,7 +281,7 @@ public class ValueModel {
             }
             // Drain holes, increasing field extents
             for (BitRange hole : holes) {
-                if (hole.from == 0)
+                if (hole.from == fieldsStart)
                     continue;
                 FieldModel fieldToExtend = fieldEnds.remove(hole.from);
                 assert fieldToExtend != null;
@@ -224,7 +294,29 @@ public class ValueModel {
             assert lastField != null;
             fieldData.get(lastField).bitExtent += byteRoundedWatermark - watermark;
         }
-        return byteRoundedWatermark / 8;
+        // Atomic operations of some fields compare-and-swap the enclosing aligned word, which
+        // might stick out of the last field
+        int sizeInBits = byteRoundedWatermark;
+        for (FieldModel field : orderedFields) {
+            int atomicWordEnd = field.atomicWordEnd(fieldBitOffset(field));
+            if (atomicWordEnd > 0) {
+                sizeInBits = Math.max(sizeInBits, atomicWordEnd);
+                // a word, not ending at 64-bit boundary, is 32-bit
+                int wordAlignment = atomicWordEnd % 64 != 0 ? 4 : 8;
+                atomicWordAlignment = Math.max(atomicWordAlignment, wordAlignment);
+            }
+        }
+        if (atomicValue && !versioned) {
+            if (sizeInBits > 64) {
+                throw new IllegalStateException(valueType + " is " + sizeInBits / 8 + " bytes, " +
+                        "AtomicValue is supported for values up to 8 bytes, or @Versioned values");
+            }
+            // the value is compare-and-swapped as a whole word
+            int wordBits = sizeInBits > 32 ? 64 : 32;
+            sizeInBits = wordBits;
+            atomicWordAlignment = Math.max(atomicWordAlignment, wordBits / 8);
+        }
+        return sizeInBits / 8;
     }
 
     public Stream<FieldModel> fields() {
@@ -248,13 +340,44 @@ public class ValueModel {
      * @return the alignment of the flyweight value itself, to satisfy fields' alignments
      */
     public int recommendedOffsetAlignment() {
-        return Math.max(fields().mapToInt(FieldModel::maxAlignmentInBytes).max().getAsInt(), 1);
+        return Math.max(fields().mapToInt(FieldModel::maxAlignmentInBytes).max().getAsInt(),
+                atomicWordAlignment);
     }
 
     public int sizeInBytes() {
         return sizeInBytes;
     }
 
+    /**
+     * Returns the mask of the bits of the word of an {@link AtomicValue}, occupied by the fields
+     */
+    long atomicValueMask() {
+        long mask = 0;
+        for (FieldModel field : orderedFields) {
+            int bitOffset = fieldBitOffset(field);
+            int sizeInBits = field.sizeInBits();
+            mask |= (sizeInBits == 64 ? -1L : (1L << sizeInBits) - 1) << bitOffset;
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the offset of the fields from the value start, i. e. the size of the sequence of
+     * {@link Versioned} values, or 0
+     */
+    int fieldsStartInBytes() {
+        return versioned ? SEQUENCE_SIZE_IN_BYTES : 0;
+    }
+
+    /**
+     * If the native {@code copyFrom()} could copy the bytes of the other value, after {@link
+     * #fieldsStartInBytes}, at once: no lock words and no sequences of nested {@link Versioned}
+     * values are reachable from the fields, otherwise the fields are copied one by one
+     */
+    boolean bytesCopyable() {
+        return fields().allMatch(FieldModel::bytesCopyable);
+    }
+
     int fieldBitOffset(FieldModel field) {
         return fieldData.get(field).bitOffset;
     }
@@ -276,10 +399,76 @@ public class ValueModel {
         Class c;
         if ((c = nativeClass) != null)
             return c;
+        if (!Utils.inNativeImage())
+            resolveDependencies(false);
         synchronized (this) {
             if ((c = nativeClass) != null)
                 return c;
-            nativeClass = c = createNativeClass();
+            nativeClass = c = createNativeClass(hiddenClassEligible());
+            return c;
+        }
+    }
+
+    /**
+     * Returns this model, if its native implementation is unchecked as requested, otherwise the
+     * model of the other native implementation of the same value interface, so that {@code
+     * Foo$$Native} and {@code Foo$$NativeUnchecked} could be used in the same JVM. Both models
+     * share the heap implementation and the class of static accessors.
+     */
+    ValueModel nativeFlavour(boolean unchecked) {
+        if (unchecked == this.unchecked)
+            return this;
+        if (primary != null)
+            return primary;
+        ValueModel m;
+        if ((m = otherNativeFlavour) != null)
+            return m;
+        synchronized (this) {
+            if ((m = otherNativeFlavour) != null)
+                return m;
+            otherNativeFlavour = m = CodeTemplate.createValueModel(valueType, this);
+            return m;
+        }
+    }
+
+    /**
+     * Returns {@code true}, if {@link #nativeClass()} is already generated and returns without
+     * blocking.
+     */
+    boolean isNativeClassGenerated() {
+        return nativeClass != null;
+    }
+
+    /**
+     * Implementations are defined as hidden classes (if enabled) only if generated implementations
+     * of other value interfaces don't refer to them by name, and they don't refer to named
+     * implementations of nested values, which are defined in a bridge class loader.
+     */
+    private boolean hiddenClassEligible() {
+        return HiddenClasses.ENABLED && !nested && !hasDependencies;
+    }
+
+    /**
+     * Returns a heap ({@code heap == true}) or native implementation, which could be referred by
+     * name from the generated code, i. e. {@link #heapClass()} or {@link #nativeClass()}, if it is
+     * not a hidden class. A named copy of the hidden class is generated only if this value
+     * interface is nested in another value interface, acquired after the hidden class is defined.
+     */
+    Class namedClass(boolean heap) {
+        Class c = heap ? heapClass() : nativeClass();
+        if (!HiddenClasses.isHidden(c))
+            return c;
+        synchronized (this) {
+            if ((c = heap ? namedHeapClass : namedNativeClass) != null)
+                return c;
+            Jvm.warn().on(ValueModel.class, valueType + " is nested in a value interface, " +
+                    "acquired after its hidden implementation is defined, generating a named copy");
+            c = createClass(heap, false);
+            if (heap) {
+                namedHeapClass = c;
+            } else {
+                namedNativeClass = c;
+            }
             return c;
         }
     }
@@ -291,42 +480,385 @@ public class ValueModel {
      * @throws ImplGenerationFailedException if generation failed
      */
     public Class heapClass() {
+        if (primary != null)
+            return primary.heapClass();
         Class c;
         if ((c = heapClass) != null)
             return c;
+        if (!Utils.inNativeImage())
+            resolveDependencies(true);
         synchronized (this) {
             if ((c = heapClass) != null)
                 return c;
-            heapClass = c = createHeapClass();
+            heapClass = c = createClass(true, hiddenClassEligible());
             return c;
         }
     }
 
-    private Class createNativeClass() {
-        return createClass(simpleName() + $$NATIVE, Generators::generateNativeClass);
+    /**
+     * Generates (if not yet) and returns the class of static accessors for this ValueModel, see
+     * {@link Values#accessClassFor}.
+     *
+     * @return the class of static accessors for this ValueModel
+     * @throws ImplGenerationFailedException if generation failed
+     */
+    public Class accessClass() {
+        if (primary != null)
+            return primary.accessClass();
+        Class c;
+        if ((c = accessClass) != null)
+            return c;
+        synchronized (this) {
+            if ((c = accessClass) != null)
+                return c;
+            accessClass = c = createAccessClass();
+            return c;
+        }
+    }
+
+    private Class createAccessClass() {
+        String classNameWithPackage = accessClassName().reflectionName();
+        if (Utils.inNativeImage())
+            return loadPregenerated(classNameWithPackage);
+        ClassLoader cl = BytecodeGen.getClassLoader(valueType);
+        try {
+            return cl.loadClass(classNameWithPackage);
+        } catch (ClassNotFoundException ignored) {
+            // generate
+        }
+        // accessors of nested values delegate to their access classes by name
+        Set<ValueModel> deps = new LinkedHashSet<>();
+        collectAccessDependencies(deps);
+        deps.forEach(ValueModel::accessClass);
+        byte[] bytecode = RuntimeCompiler.compile(cl, singletonMap(classNameWithPackage,
+                Generators.generateAccessClass(this, accessClassName().simpleName())))
+                .get(classNameWithPackage);
+        return RuntimeCompiler.defineClass(cl, classNameWithPackage, bytecode);
     }
 
-    private Class createHeapClass() {
-        return createClass(simpleName() + $$HEAP, Generators::generateHeapClass);
+    /**
+     * Returns a factory of instances of {@link #nativeClass()}, see {@link ImplFactories}.
+     */
+    Supplier nativeFactory() {
+        Supplier f;
+        if ((f = nativeFactory) != null)
+            return f;
+        synchronized (this) {
+            if ((f = nativeFactory) != null)
+                return f;
+            nativeFactory = f = ImplFactories.create(nativeClass());
+            return f;
+        }
+    }
+
+    /**
+     * Returns a factory of instances of {@link #heapClass()}, see {@link ImplFactories}.
+     */
+    Supplier heapFactory() {
+        if (primary != null)
+            return primary.heapFactory();
+        Supplier f;
+        if ((f = heapFactory) != null)
+            return f;
+        synchronized (this) {
+            if ((f = heapFactory) != null)
+                return f;
+            heapFactory = f = ImplFactories.create(heapClass());
+            return f;
+        }
+    }
+
+    private Class createNativeClass(boolean hidden) {
+        return createClass(false, hidden);
     }
 
     String simpleName() {
         return simpleName(valueType);
     }
 
-    private Class createClass(
-            String className, BiFunction<ValueModel, String, String> generateClass) {
-        String classNameWithPackage = valueType.getPackage().getName() + "." + className;
+    String packageName() {
+        return valueType.getPackage().getName();
+    }
+
+    ClassName nativeClassName() {
+        return ClassName.get(packageName(),
+                simpleName() + (unchecked ? $$NATIVE_UNCHECKED : $$NATIVE));
+    }
+
+    ClassName heapClassName() {
+        return ClassName.get(packageName(), simpleName() + $$HEAP);
+    }
+
+    ClassName accessClassName() {
+        return ClassName.get(packageName(), simpleName() + $$ACCESS);
+    }
+
+    /**
+     * Collects value models of the nested value fields, the generated heap ({@code heap == true})
+     * or native implementation of this model refers to generated implementations of. Models
+     * whose native implementations are referred are added to {@code nativeDeps}, models whose
+     * heap implementations are referred are added to {@code heapDeps}.
+     */
+    void collectDependencies(boolean heap, Set<ValueModel> nativeDeps, Set<ValueModel> heapDeps) {
+        fields().forEach(f -> f.collectDependencies(heap, nativeDeps, heapDeps));
+    }
+
+    /**
+     * Collects value models of the nested value fields, {@code Foo$$Access} of this model
+     * delegates to access classes of
+     */
+    void collectAccessDependencies(Set<ValueModel> deps) {
+        fields().forEach(f -> f.collectAccessDependencies(deps));
+    }
+
+    String classNameWithPackage(boolean heap) {
+        return (heap ? heapClassName() : nativeClassName()).reflectionName();
+    }
+
+    private String generateSource(boolean heap) {
+        String className = (heap ? heapClassName() : nativeClassName()).simpleName();
+        return heap ? Generators.generateHeapClass(this, className) :
+                Generators.generateNativeClass(this, className);
+    }
+
+    /**
+     * Returns the implementation class bytes, emitted by {@link BytecodeGenerator}, or {@code
+     * null}, if the implementation should be compiled from the generated source
+     */
+    private byte[] generateBytecode(boolean heap, String classNameWithPackage) {
+        return !heap && BytecodeGenerator.ENABLED ?
+                BytecodeGenerator.generateNativeClass(this, classNameWithPackage) : null;
+    }
+
+    /**
+     * @param hidden whether to define a hidden class, see {@link HiddenClasses}
+     */
+    private Class createClass(boolean heap, boolean hidden) {
+        String classNameWithPackage = classNameWithPackage(heap);
+        if (Utils.inNativeImage())
+            return loadPregenerated(classNameWithPackage);
         ClassLoader cl = BytecodeGen.getClassLoader(valueType);
+        byte[] compiled = null;
+        if (hidden) {
+            // pregenerated classes are loaded by the loader of the value interface, hidden
+            // classes don't need the bridge class loader
+            ClassLoader valueTypeLoader = valueType.getClassLoader();
+            if (valueTypeLoader != null) {
+                try {
+                    return valueTypeLoader.loadClass(classNameWithPackage);
+                } catch (ClassNotFoundException ignored) {
+                    // generate
+                }
+            }
+            byte[] bytecode = generateBytecode(heap, classNameWithPackage);
+            if (bytecode == null)
+                bytecode = compiled = compile(cl, heap);
+            Class c = HiddenClasses.defineHiddenClass(valueType, bytecode);
+            if (c != null)
+                return c;
+        }
+        Class c = loadOrDefine(cl, heap, true);
+        if (c != null)
+            return c;
+        byte[] bytecode = compiled != null ? compiled : compile(cl, heap);
+        c = RuntimeCompiler.defineClass(cl, classNameWithPackage, bytecode);
+        storeInCache(heap);
+        return c;
+    }
+
+    private byte[] compile(ClassLoader cl, boolean heap) {
+        String classNameWithPackage = classNameWithPackage(heap);
+        return RuntimeCompiler.compile(cl, singletonMap(classNameWithPackage, generateSource(heap)))
+                .get(classNameWithPackage);
+    }
+
+    /**
+     * Loads the implementation, {@link Pregenerate pregenerated} at compile time and included into
+     * the native image along with the reflection metadata, written by {@link PregenerateProcessor}
+     */
+    private Class loadPregenerated(String classNameWithPackage) {
+        try {
+            return Class.forName(classNameWithPackage, true, valueType.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new ImplGenerationFailedException(new IllegalStateException(
+                    classNameWithPackage + " cannot be generated in a native image, " +
+                            "pregenerate it at compile time, see @Pregenerate", e));
+        }
+    }
+
+    /**
+     * Loads a pregenerated implementation, or an implementation from {@link GeneratedClassCache},
+     * or defines the implementation emitted by {@link BytecodeGenerator}.
+     *
+     * @param resolveDependencies whether to generate implementations of nested values first
+     * @return the implementation class, or {@code null}, if the implementation should be compiled
+     */
+    private Class loadOrDefine(ClassLoader cl, boolean heap, boolean resolveDependencies) {
+        String classNameWithPackage = classNameWithPackage(heap);
         try {
             return cl.loadClass(classNameWithPackage);
         } catch (ClassNotFoundException ignored) {
-            String javaCode = generateClass.apply(this, className);
+            // generate
+        }
+        if (resolveDependencies) {
+            // usually already resolved before the monitor of this model is taken, see
+            // resolveDependencies(), generated here sequentially otherwise
+            dependencyGenerations(heap).forEach(Runnable::run);
+        }
+        GeneratedClassCache cache = GeneratedClassCache.INSTANCE;
+        if (cache != null) {
+            Class c = cache.load(cl, classNameWithPackage,
+                    GeneratedClassCache.fingerprint(this, heap));
+            if (c != null)
+                return c;
+        }
+        byte[] bytecode = generateBytecode(heap, classNameWithPackage);
+        if (bytecode == null)
+            return null;
+        Class c = RuntimeCompiler.defineClass(cl, classNameWithPackage, bytecode);
+        storeInCache(heap);
+        return c;
+    }
+
+    /**
+     * Returns generations of the implementations of nested values, which are not generated yet.
+     * Generated code refers to implementations of nested values by name, they should be loadable
+     * before compilation.
+     */
+    private List<Runnable> dependencyGenerations(boolean heap) {
+        Set<ValueModel> nativeDeps = new LinkedHashSet<>();
+        Set<ValueModel> heapDeps = new LinkedHashSet<>();
+        collectDependencies(heap, nativeDeps, heapDeps);
+        List<Runnable> generations = new ArrayList<>();
+        for (ValueModel dep : nativeDeps) {
+            if (dep.generatedNamedClass(false) == null)
+                generations.add(() -> dep.namedClass(false));
+        }
+        for (ValueModel dep : heapDeps) {
+            if (dep.generatedNamedClass(true) == null)
+                generations.add(() -> dep.namedClass(true));
+        }
+        return generations;
+    }
+
+    /**
+     * Generates (if not yet) implementations of nested values before the monitor of this model is
+     * taken. Implementations of different models don't share locks nor the compiler, so
+     * independent nested implementations are generated concurrently, in the common pool. As no
+     * monitor is held while waiting for the pool, tasks of the pool, blocked on the monitor of
+     * some model, don't block the generation.
+     */
+    private void resolveDependencies(boolean heap) {
+        List<Runnable> generations = dependencyGenerations(heap);
+        if (generations.size() > 1) {
+            generations.parallelStream().forEach(Runnable::run);
+        } else {
+            generations.forEach(Runnable::run);
+        }
+    }
+
+    private void storeInCache(boolean heap) {
+        GeneratedClassCache cache = GeneratedClassCache.INSTANCE;
+        if (cache != null)
+            cache.store(classNameWithPackage(heap), GeneratedClassCache.fingerprint(this, heap));
+    }
+
+    /**
+     * Returns the implementation, which could be referred by name from the generated code, if it
+     * is already generated, otherwise {@code null}.
+     */
+    synchronized Class generatedNamedClass(boolean heap) {
+        Class c = heap ? heapClass : nativeClass;
+        if (c != null && HiddenClasses.isHidden(c))
+            return heap ? namedHeapClass : namedNativeClass;
+        return c;
+    }
+
+    private synchronized void setGeneratedNamedClass(boolean heap, Class c) {
+        if (heap) {
+            if (heapClass == null) {
+                heapClass = c;
+            } else if (HiddenClasses.isHidden(heapClass) && namedHeapClass == null) {
+                namedHeapClass = c;
+            }
+        } else if (nativeClass == null) {
+            nativeClass = c;
+        } else if (HiddenClasses.isHidden(nativeClass) && namedNativeClass == null) {
+            namedNativeClass = c;
+        }
+    }
+
+    /**
+     * Generates (if not yet) heap and/or native implementations of the given models and of the
+     * models of their nested values. The sources of all implementations, which are not
+     * pregenerated, cached or emitted by {@link BytecodeGenerator}, are compiled in a single javac
+     * pass per class loader.
+     */
+    static void pregenerate(Collection<ValueModel> models, boolean heap, boolean nativeImpl) {
+        Set<ValueModel> nativeModels = new LinkedHashSet<>();
+        Set<ValueModel> heapModels = new LinkedHashSet<>();
+        for (ValueModel model : models) {
+            if (nativeImpl)
+                addWithDependencies(model, false, nativeModels, heapModels);
+            if (heap)
+                addWithDependencies(model, true, nativeModels, heapModels);
+        }
+        Map<ClassLoader, Map<String, String>> sources = new LinkedHashMap<>();
+        Map<ClassLoader, Map<String, ValueModel>> compiledModels = new HashMap<>();
+        for (boolean heapImpl : new boolean[]{false, true}) {
+            for (ValueModel model : heapImpl ? heapModels : nativeModels) {
+                if (model.generatedNamedClass(heapImpl) != null)
+                    continue;
+                ClassLoader cl = BytecodeGen.getClassLoader(model.valueType);
+                // implementations of nested values are either defined here, or compiled in the
+                // same batch
+                Class c = model.loadOrDefine(cl, heapImpl, false);
+                if (c != null) {
+                    model.setGeneratedNamedClass(heapImpl, c);
+                    continue;
+                }
+                String classNameWithPackage = model.classNameWithPackage(heapImpl);
+                sources.computeIfAbsent(cl, k -> new LinkedHashMap<>())
+                        .put(classNameWithPackage, model.generateSource(heapImpl));
+                compiledModels.computeIfAbsent(cl, k -> new HashMap<>())
+                        .put(classNameWithPackage, model);
+            }
+        }
+        sources.forEach((cl, loaderSources) -> RuntimeCompiler.compile(cl, loaderSources)
+                .forEach((classNameWithPackage, bytecode) -> {
+                    Class c = defineCompiled(cl, classNameWithPackage, bytecode);
+                    ValueModel model = compiledModels.get(cl).get(classNameWithPackage);
+                    if (model != null) {
+                        boolean heapImpl = classNameWithPackage.endsWith($$HEAP);
+                        model.setGeneratedNamedClass(heapImpl, c);
+                        model.storeInCache(heapImpl);
+                    }
+                }));
+    }
+
+    private static void addWithDependencies(
+            ValueModel model, boolean heap, Set<ValueModel> nativeModels,
+            Set<ValueModel> heapModels) {
+        if (!(heap ? heapModels : nativeModels).add(model))
+            return;
+        Set<ValueModel> nativeDeps = new LinkedHashSet<>();
+        Set<ValueModel> heapDeps = new LinkedHashSet<>();
+        model.collectDependencies(heap, nativeDeps, heapDeps);
+        nativeDeps.forEach(dep -> addWithDependencies(dep, false, nativeModels, heapModels));
+        heapDeps.forEach(dep -> addWithDependencies(dep, true, nativeModels, heapModels));
+    }
+
+    private static Class defineCompiled(
+            ClassLoader cl, String classNameWithPackage, byte[] bytecode) {
+        try {
+            return RuntimeCompiler.defineClass(cl, classNameWithPackage, bytecode);
+        } catch (LinkageError e) {
+            // the same implementation is concurrently generated via nativeClass() or heapClass()
             try {
-                return CACHED_COMPILER.loadFromJava(cl, classNameWithPackage, javaCode);
-            } catch (ClassNotFoundException e) {
-                Jvm.warn().on(ValueModel.class, "Failed to compile " + e + "\n" + javaCode);
-                throw new ImplGenerationFailedException(e);
+                return cl.loadClass(classNameWithPackage);
+            } catch (ClassNotFoundException cnfe) {
+                e.addSuppressed(cnfe);
+                throw e;
             }
         }
     }
@@ -18,7 +18,12 @@
 
 package net.openhft.chronicle.values;
 
-import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 /**
  * This class is a central access point for loading generated heap and native Values.
@@ -33,31 +38,92 @@ public final class Values {
     }
 
     /**
-     * Equivalent for {@link #heapClassFor(Class) heapClassFor(valueType)}{@code .newInstance()}.
+     * Equivalent for {@link #heapFactory heapFactory(valueType)}{@code .get()}.
      *
      * @throws IllegalArgumentException      if the given {@code valueType} is not a value interface
      * @throws ImplGenerationFailedException if generation of a heap implementation failed
      */
     public static <T> T newHeapInstance(Class<T> valueType) {
-        try {
-            return heapClassFor(valueType).getDeclaredConstructor().newInstance();
-        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-            throw new AssertionError(e);
-        }
+        return heapFactory(valueType).get();
     }
 
     /**
-     * Equivalent for {@link #nativeClassFor nativeClassFor(valueType)}{@code .newInstance()}.
+     * Equivalent for {@link #nativeFactory nativeFactory(valueType)}{@code .get()}.
      *
      * @throws IllegalArgumentException      if the given {@code valueType} is not a value interface
      * @throws ImplGenerationFailedException if generation of a native implementation failed
      */
     public static <T> T newNativeReference(Class<T> valueType) {
-        try {
-            return nativeClassFor(valueType).getDeclaredConstructor().newInstance();
-        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-            throw new AssertionError(e);
-        }
+        return nativeFactory(valueType).get();
+    }
+
+    /**
+     * Equivalent for {@link #nativeFactory(Class, boolean) nativeFactory(valueType, unchecked)}
+     * {@code .get()}.
+     *
+     * @throws IllegalArgumentException      if the given {@code valueType} is not a value interface
+     * @throws ImplGenerationFailedException if generation of a native implementation failed
+     */
+    public static <T> T newNativeReference(Class<T> valueType, boolean unchecked) {
+        return nativeFactory(valueType, unchecked).get();
+    }
+
+    /**
+     * Generates (if not yet) a heap implementation for the given value interface, and returns a
+     * factory of its instances. Unlike {@link #newHeapInstance}, {@code get()} of the returned
+     * factory doesn't look up the implementation and doesn't use reflection, and costs the same as
+     * the constructor call, so the factory should be kept, if instances are created in a loop.
+     *
+     * @param valueType the value interface to return a heap instance factory for
+     * @param <T>       the value interface as a type parameter
+     * @return a factory of new heap instances of the given value interface
+     * @throws IllegalArgumentException      if the given {@code valueType} is not a value interface
+     * @throws ImplGenerationFailedException if generation of a heap implementation failed
+     */
+    public static <T> Supplier<T> heapFactory(Class<T> valueType) {
+        //noinspection unchecked
+        return ValueModel.acquire(valueType).heapFactory();
+    }
+
+    /**
+     * Generates (if not yet) a native (flyweight) implementation for the given value interface,
+     * and returns a factory of its instances, not pointing to any memory yet. Unlike {@link
+     * #newNativeReference}, {@code get()} of the returned factory doesn't look up the
+     * implementation and doesn't use reflection, and costs the same as the constructor call.
+     *
+     * <p>With {@code chronicle.values.rawAddress} system property, native implementations read
+     * and write the raw address of the direct store they are bound to. There is no protection
+     * against use after release in this mode: if the store is released after binding, accesses
+     * read and write freed memory, which may crash the JVM or corrupt unrelated data, unless
+     * assertions are enabled. A native reference should be rebound to a live store before use.
+     *
+     * @param valueType the value interface to return a native reference factory for
+     * @param <T>       the value interface as a type parameter
+     * @return a factory of new native references of the given value interface
+     * @throws IllegalArgumentException      if the given {@code valueType} is not a value interface
+     * @throws ImplGenerationFailedException if generation of a native implementation failed
+     */
+    public static <T> Supplier<T> nativeFactory(Class<T> valueType) {
+        //noinspection unchecked
+        return ValueModel.acquire(valueType).nativeFactory();
+    }
+
+    /**
+     * Like {@link #nativeFactory(Class)}, but returns a factory of instances of {@code
+     * Foo$$NativeUnchecked} ({@code unchecked == true}) or {@code Foo$$Native}, regardless of
+     * {@link Unchecked} annotation of the value interface and {@code chronicle.values.unchecked}
+     * system property. Both implementations could be used in the same JVM.
+     *
+     * @param valueType the value interface to return a native reference factory for
+     * @param unchecked whether the native implementation is unchecked, see {@link Unchecked}
+     * @param <T>       the value interface as a type parameter
+     * @return a factory of new native references of the given value interface
+     * @throws IllegalArgumentException      if the given {@code valueType} is not a value interface
+     * @throws ImplGenerationFailedException if generation of a native implementation failed
+     */
+    public static <T> Supplier<T> nativeFactory(Class<T> valueType, boolean unchecked) {
+        //noinspection unchecked
+        return ValueModel.acquire(valueType).nativeFlavour(unchecked).nativeFactory();
     }
 
     /**
@@ -88,4 +154,115 @@ public final class Values {
         //noinspection unchecked
         return ValueModel.acquire(valueType).nativeClass();
     }
-}
\ No newline at end of file
+
+    /**
+     * Generates (if not yet) and returns {@code Foo$$NativeUnchecked} ({@code unchecked == true})
+     * or {@code Foo$$Native}, regardless of {@link Unchecked} annotation of the value interface
+     * and {@code chronicle.values.unchecked} system property.
+     *
+     * @param valueType the value interface to return a native implementation for
+     * @param unchecked whether the native implementation is unchecked, see {@link Unchecked}
+     * @param <T>       the value interface as a type parameter
+     * @return a native (flyweight) implementation class for the given value interface
+     * @throws IllegalArgumentException      if the given {@code valueType} is not a value interface
+     * @throws ImplGenerationFailedException if generation of a native implementation failed
+     */
+    public static <T> Class<T> nativeClassFor(Class<T> valueType, boolean unchecked) {
+        //noinspection unchecked
+        return ValueModel.acquire(valueType).nativeFlavour(unchecked).nativeClass();
+    }
+
+    /**
+     * Generates (if not yet) and returns {@code Foo$$Access}, a final class of static accessors of
+     * the given value interface: {@code getPrice(BytesStore bs, long offset)} and {@code
+     * setPrice(BytesStore bs, long offset, long price)} for every primitive, {@code enum} and
+     * {@code Date} field, {@code getPriceAt(BytesStore bs, long offset, int index)} for array
+     * elements, and {@code getCenterX(BytesStore bs, long offset)} for fields of nested values.
+     * Accessors address the value at the given offset in the bytes store directly, without
+     * binding a flyweight, so they could be used from any thread. {@code CharSequence} and
+     * {@code @Pointer} fields have no static accessors.
+     *
+     * <p>To call the accessors statically, generate the class at compile time, see {@link
+     * Pregenerate}.
+     *
+     * @param valueType the value interface to return the class of static accessors for
+     * @return the class of static accessors of the given value interface
+     * @throws IllegalArgumentException      if the given {@code valueType} is not a value interface
+     * @throws ImplGenerationFailedException if generation of the class failed
+     */
+    public static Class<?> accessClassFor(Class<?> valueType) {
+        return ValueModel.acquire(valueType).accessClass();
+    }
+
+    /**
+     * Returns a future of {@link #nativeClassFor nativeClassFor(valueType)}, generating the native
+     * implementation (if not yet) on a dedicated pool of daemon, low-priority threads, so that the
+     * calling thread never blocks on the Java compiler. The returned future is already completed,
+     * if the implementation is already generated.
+     *
+     * @param valueType the value interface to return a native implementation for
+     * @param <T>       the value interface as a type parameter
+     * @return the future of a native (flyweight) implementation class, completed exceptionally
+     * with {@code IllegalArgumentException}, if the given {@code valueType} is not a value
+     * interface, or {@code ImplGenerationFailedException}, if generation failed
+     * @see #isGenerated
+     */
+    public static <T> CompletableFuture<Class<T>> nativeClassForAsync(Class<T> valueType) {
+        if (isGenerated(valueType))
+            return CompletableFuture.completedFuture(nativeClassFor(valueType));
+        return CompletableFuture.supplyAsync(
+                () -> nativeClassFor(valueType), GeneratorPool.EXECUTOR);
+    }
+
+    /**
+     * Returns {@code true}, if the native implementation for the given value interface is already
+     * generated, i. e. {@link #nativeClassFor}, {@link #newNativeReference} and {@link
+     * #nativeFactory} don't block on its generation. Returns {@code false}, if the given type is
+     * not a value interface.
+     *
+     * @param valueType the value interface to check
+     * @return whether the native implementation is generated
+     */
+    public static boolean isGenerated(Class<?> valueType) {
+        try {
+            return ValueModel.acquire(valueType).isNativeClassGenerated();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Generates (if not yet) heap and/or native implementations for the given value interfaces,
+     * and for the value interfaces of their nested values. Unlike {@link #heapClassFor} and {@link
+     * #nativeClassFor}, called for each value interface, all implementations are compiled in a
+     * single Java compiler pass, that allows to warm up all value interfaces at startup at once.
+     *
+     * @param valueTypes the value interfaces to generate implementations for
+     * @param heap       whether to generate heap implementations
+     * @param nativeImpl whether to generate native implementations
+     * @throws IllegalArgumentException      if any of the given {@code valueTypes} is not a value
+     *                                       interface
+     * @throws ImplGenerationFailedException if generation of implementations failed
+     */
+    public static void pregenerate(
+            Collection<Class<?>> valueTypes, boolean heap, boolean nativeImpl) {
+        List<ValueModel> models = new ArrayList<>(valueTypes.size());
+        for (Class<?> valueType : valueTypes) {
+            models.add(ValueModel.acquire(valueType));
+        }
+        ValueModel.pregenerate(models, heap, nativeImpl);
+    }
+
+    /**
+     * Runs {@link #pregenerate(Collection, boolean, boolean)} using the given executor.
+     *
+     * @return the future, completed when implementations are generated, or exceptionally with
+     * {@code IllegalArgumentException} or {@code ImplGenerationFailedException}
+     */
+    public static CompletableFuture<Void> pregenerate(
+            Collection<Class<?>> valueTypes, boolean heap, boolean nativeImpl,
+            Executor executor) {
+        return CompletableFuture.runAsync(
+                () -> pregenerate(valueTypes, heap, nativeImpl), executor);
+    }
+}
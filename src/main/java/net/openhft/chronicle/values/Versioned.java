@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Reserves a 64-bit sequence in the beginning of the native layout of the annotated value
+ * interface, and makes the generated implementations to implement {@link VersionedValue}, i. e. to
+ * update and read the value as a whole, under a seqlock. The value interface might extend {@code
+ * VersionedValue} itself, to call these methods without a cast.
+ * <p>
+ * <p>The sequence is not a field of the value: it is not serialized, compared, copied by {@link
+ * Copyable#copyFrom copyFrom()}, and doesn't have accessor methods.
+ */
+@Target(TYPE)
+@Retention(RUNTIME)
+@Documented
+public @interface Versioned {
+    long DEFAULT_TIMEOUT_MILLIS = 10_000L;
+
+    /**
+     * How long {@code update()} and {@code readConsistent()} wait for an update in progress,
+     * before throwing {@link IllegalStateException}. An update of a process, which has died, is
+     * taken over without waiting for the timeout. Within a process an update never ends, if
+     * {@code update()} or {@code readConsistent()} is called from the updater.
+     *
+     * @return the timeout in milliseconds
+     */
+    long timeoutMillis() default DEFAULT_TIMEOUT_MILLIS;
+}
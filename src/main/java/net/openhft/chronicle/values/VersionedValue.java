@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import java.util.function.Consumer;
+
+/**
+ * Methods of implementations of {@link Versioned} value interfaces.
+ * <p>
+ * <p>In native implementations {@link #update} makes the sequence odd via compare-and-swap
+ * (waiting while another update is in progress), applies the updater, and makes the sequence even
+ * via an ordered write. {@link #readConsistent} copies the value and retries, until the sequence
+ * is even and the same before and after the copying. Reads don't write to the memory of the
+ * value (unless taking over an update of a dead process), so they don't contend with each other.
+ * In heap implementations both methods are {@code synchronized}.
+ *
+ * @param <T> the value interface
+ */
+public interface VersionedValue<T> {
+    /**
+     * Applies the given updater to this value, readers via {@link #readConsistent} observe either
+     * all or none of the field changes. The updater shouldn't call {@code update()} or {@code
+     * readConsistent()} of the same native value, that throws {@link IllegalStateException} after
+     * {@link Versioned#timeoutMillis()}. If the updater throws an exception, the changes it made
+     * before are published as they are.
+     *
+     * @param updater the function, which updates fields of this value
+     * @throws IllegalStateException if another update is in progress for longer than {@link
+     *                               Versioned#timeoutMillis()}
+     */
+    void update(Consumer<T> updater);
+
+    /**
+     * Copies a consistent snapshot of this value, i. e. not torn by a concurrent {@link #update},
+     * to the given value via {@link Copyable#copyFrom copyFrom()}.
+     *
+     * @param using the value to copy this value to, a heap or native implementation of the value
+     *              interface, not shared with other threads
+     * @throws IllegalStateException if an update is in progress for longer than {@link
+     *                               Versioned#timeoutMillis()}
+     */
+    void readConsistent(T using);
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.core.Jvm;
+
+/**
+ * How {@code awaitFoo()} and {@code awaitFooChange()} methods of the generated implementations
+ * wait between reads of the field. There is no cross-process notification of writes, waiting
+ * threads re-read the field, a strategy trades the latency of noticing a write for the CPU usage.
+ * <p>
+ * <p>Parking is done via {@link java.util.concurrent.locks.LockSupport#parkNanos(long)}, which
+ * doesn't pin the carrier thread of a virtual thread.
+ */
+@FunctionalInterface
+public interface WaitStrategy {
+
+    /**
+     * Busy-spins between reads: the lowest latency, a core is burnt while waiting.
+     */
+    static WaitStrategy busySpin() {
+        return attempt -> Jvm.nanoPause();
+    }
+
+    /**
+     * Spins for the given number of attempts, then yields between reads.
+     *
+     * @param spins the number of busy-spinning attempts
+     */
+    static WaitStrategy spinThenYield(int spins) {
+        if (spins < 0)
+            throw new IllegalArgumentException("spins should be non-negative: " + spins);
+        return attempt -> {
+            if (attempt < spins) {
+                Jvm.nanoPause();
+            } else {
+                Thread.yield();
+            }
+        };
+    }
+
+    /**
+     * Spins, then yields, then parks for {@code parkNanos} between reads, like waiting {@link
+     * Lock} methods. The latency of noticing a write, once parking, is about {@code parkNanos}.
+     *
+     * @param spins     the number of busy-spinning attempts
+     * @param yields    the number of attempts, followed by {@link Thread#yield()}
+     * @param parkNanos the time to park between the following attempts
+     */
+    static WaitStrategy spinThenPark(int spins, int yields, long parkNanos) {
+        if (spins < 0 || yields < 0 || parkNanos <= 0) {
+            throw new IllegalArgumentException("spins and yields should be non-negative, " +
+                    "parkNanos should be positive: " + spins + ", " + yields + ", " + parkNanos);
+        }
+        return attempt -> Locks.backOff(attempt, spins, yields, parkNanos);
+    }
+
+    /**
+     * Waits after the given failed attempt, before the next read of the field.
+     *
+     * @param attempt the number of the failed attempt, starting from 0
+     */
+    void idle(int attempt);
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import com.squareup.javapoet.*;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.UnsafeMemory;
+
+import java.util.function.Consumer;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static javax.lang.model.element.Modifier.*;
+
+/**
+ * Generates methods of {@link VersionedValue} and {@link AtomicValue}, which operate the value as
+ * a whole.
+ */
+final class WholeValueGenerators {
+
+    private WholeValueGenerators() {
+    }
+
+    static void generateNativeMethods(ValueBuilder valueBuilder) {
+        ValueModel model = valueBuilder.model;
+        TypeSpec.Builder typeBuilder = valueBuilder.typeBuilder;
+        if (model.versioned) {
+            typeBuilder.addSuperinterface(versionedValueType(model))
+                    .addMethod(nativeUpdateMethod(valueBuilder))
+                    .addMethod(nativeReadConsistentMethod(valueBuilder));
+        }
+        if (model.atomicValue) {
+            typeBuilder.addSuperinterface(atomicValueType(model));
+            if (model.versioned) {
+                typeBuilder.addMethod(versionedCompareAndSwapValueMethod(valueBuilder))
+                        .addMethod(versionedGetAndSetValueMethod(valueBuilder));
+            } else {
+                generateWordMethods(valueBuilder);
+            }
+        }
+    }
+
+    /**
+     * Heap values are not shared between processes, a monitor is simpler than a seqlock or
+     * packing the fields into a word
+     */
+    static void generateHeapMethods(ValueBuilder valueBuilder) {
+        ValueModel model = valueBuilder.model;
+        TypeSpec.Builder typeBuilder = valueBuilder.typeBuilder;
+        if (model.versioned) {
+            typeBuilder.addSuperinterface(versionedValueType(model))
+                    .addMethod(updateMethodBuilder(valueBuilder)
+                            .addModifiers(SYNCHRONIZED)
+                            .addStatement("updater.accept(this)")
+                            .build())
+                    .addMethod(readConsistentMethodBuilder(valueBuilder)
+                            .addModifiers(SYNCHRONIZED)
+                            .addStatement("(($T) using).copyFrom(this)", Copyable.class)
+                            .build());
+        }
+        if (model.atomicValue) {
+            typeBuilder.addSuperinterface(atomicValueType(model));
+            MethodSpec.Builder compareAndSwapValue = compareAndSwapValueMethodBuilder(valueBuilder)
+                    .addModifiers(SYNCHRONIZED);
+            genCompareAndCopy(compareAndSwapValue);
+            MethodSpec.Builder getAndSetValue = getAndSetValueMethodBuilder(valueBuilder)
+                    .addModifiers(SYNCHRONIZED);
+            genCopyAndSet(getAndSetValue);
+            typeBuilder.addMethod(compareAndSwapValue.build())
+                    .addMethod(getAndSetValue.build());
+        }
+    }
+
+    private static TypeName versionedValueType(ValueModel model) {
+        return ParameterizedTypeName.get(VersionedValue.class, model.valueType);
+    }
+
+    private static TypeName atomicValueType(ValueModel model) {
+        return ParameterizedTypeName.get(AtomicValue.class, model.valueType);
+    }
+
+    private static MethodSpec.Builder overridingMethodBuilder(String name) {
+        return MethodSpec.methodBuilder(name)
+                .addAnnotation(Override.class)
+                .addModifiers(PUBLIC);
+    }
+
+    private static MethodSpec.Builder updateMethodBuilder(ValueBuilder valueBuilder) {
+        TypeName valueType = TypeName.get(valueBuilder.model.valueType);
+        return overridingMethodBuilder("update").addParameter(ParameterizedTypeName.get(
+                ClassName.get(Consumer.class), valueType), "updater");
+    }
+
+    private static MethodSpec.Builder readConsistentMethodBuilder(ValueBuilder valueBuilder) {
+        return overridingMethodBuilder("readConsistent")
+                .addParameter(valueBuilder.model.valueType, "using");
+    }
+
+    private static MethodSpec.Builder compareAndSwapValueMethodBuilder(
+            ValueBuilder valueBuilder) {
+        Class<?> valueType = valueBuilder.model.valueType;
+        return overridingMethodBuilder("compareAndSwapValue")
+                .returns(boolean.class)
+                .addParameter(valueType, "expected")
+                .addParameter(valueType, "newValue");
+    }
+
+    private static MethodSpec.Builder getAndSetValueMethodBuilder(ValueBuilder valueBuilder) {
+        Class<?> valueType = valueBuilder.model.valueType;
+        return overridingMethodBuilder("getAndSetValue")
+                .returns(valueType)
+                .addParameter(valueType, "newValue")
+                .addParameter(valueType, "using");
+    }
+
+    private static MethodSpec nativeUpdateMethod(ValueBuilder valueBuilder) {
+        MethodSpec.Builder methodBuilder = updateMethodBuilder(valueBuilder);
+        genSequenceAcquire(valueBuilder, methodBuilder);
+        methodBuilder.beginControlFlow("try");
+        methodBuilder.addStatement("updater.accept(this)");
+        genSequenceRelease(methodBuilder);
+        return methodBuilder.build();
+    }
+
+    /**
+     * Makes the sequence odd, waiting while another update is in progress, see {@link
+     * Locks#lockSequence}
+     */
+    private static void genSequenceAcquire(
+            ValueBuilder valueBuilder, MethodSpec.Builder methodBuilder) {
+        methodBuilder.addStatement("long sequence = $T.lockSequence(bs, offset, $LL)",
+                Locks.class, timeoutNanos(valueBuilder));
+    }
+
+    private static long timeoutNanos(ValueBuilder valueBuilder) {
+        Versioned versioned = valueBuilder.model.valueType.getAnnotation(Versioned.class);
+        return MILLISECONDS.toNanos(versioned.timeoutMillis());
+    }
+
+    /**
+     * Closes the {@code try} block, opened after {@link #genSequenceAcquire}
+     */
+    private static void genSequenceRelease(MethodSpec.Builder methodBuilder) {
+        methodBuilder.nextControlFlow("finally");
+        methodBuilder.addStatement("bs.writeOrderedLong(offset, sequence + 2)");
+        methodBuilder.endControlFlow();
+    }
+
+    private static MethodSpec nativeReadConsistentMethod(ValueBuilder valueBuilder) {
+        MethodSpec.Builder methodBuilder = readConsistentMethodBuilder(valueBuilder);
+        methodBuilder.beginControlFlow("while (true)");
+        {
+            methodBuilder.addStatement("long sequence = $T.readSequence(bs, offset, $LL)",
+                    Locks.class, timeoutNanos(valueBuilder));
+            methodBuilder.addStatement("$T failure = null", RuntimeException.class);
+            methodBuilder.beginControlFlow("try");
+            methodBuilder.addStatement("(($T) using).copyFrom(this)", Copyable.class);
+            methodBuilder.nextControlFlow("catch ($T e)", RuntimeException.class);
+            // a torn read might fail, e. g. read an out of range enum constant ordinal
+            methodBuilder.addStatement("failure = e");
+            methodBuilder.endControlFlow();
+            // don't let the reads of the fields to go after the sequence re-read
+            methodBuilder.addStatement("$T.unsafeLoadFence()", UnsafeMemory.class);
+            methodBuilder.beginControlFlow("if (bs.readVolatileLong(offset) == sequence)");
+            {
+                methodBuilder.beginControlFlow("if (failure != null)");
+                methodBuilder.addStatement("throw failure");
+                methodBuilder.endControlFlow();
+                methodBuilder.addStatement("return");
+            }
+            methodBuilder.endControlFlow();
+        }
+        methodBuilder.endControlFlow();
+        return methodBuilder.build();
+    }
+
+    private static MethodSpec versionedCompareAndSwapValueMethod(ValueBuilder valueBuilder) {
+        MethodSpec.Builder methodBuilder = compareAndSwapValueMethodBuilder(valueBuilder);
+        genSequenceAcquire(valueBuilder, methodBuilder);
+        methodBuilder.beginControlFlow("try");
+        genCompareAndCopy(methodBuilder);
+        genSequenceRelease(methodBuilder);
+        return methodBuilder.build();
+    }
+
+    private static MethodSpec versionedGetAndSetValueMethod(ValueBuilder valueBuilder) {
+        MethodSpec.Builder methodBuilder = getAndSetValueMethodBuilder(valueBuilder);
+        genSequenceAcquire(valueBuilder, methodBuilder);
+        methodBuilder.beginControlFlow("try");
+        genCopyAndSet(methodBuilder);
+        genSequenceRelease(methodBuilder);
+        return methodBuilder.build();
+    }
+
+    private static void genCompareAndCopy(MethodSpec.Builder methodBuilder) {
+        methodBuilder.beginControlFlow("if (!equals(expected))");
+        methodBuilder.addStatement("return false");
+        methodBuilder.endControlFlow();
+        methodBuilder.addStatement("copyFrom(newValue)");
+        methodBuilder.addStatement("return true");
+    }
+
+    private static void genCopyAndSet(MethodSpec.Builder methodBuilder) {
+        methodBuilder.addStatement("(($T) using).copyFrom(this)", Copyable.class);
+        methodBuilder.addStatement("copyFrom(newValue)");
+        methodBuilder.addStatement("return using");
+    }
+
+    /**
+     * Generates {@link AtomicValue} methods, which compare-and-swap the whole word of the value.
+     * The bits of the word, which are not occupied by the fields, are masked out, they might be
+     * not zeroed. Values of other implementations are converted to the word via a thread-local
+     * native value over a heap bytes store.
+     */
+    private static void generateWordMethods(ValueBuilder valueBuilder) {
+        ValueModel model = valueBuilder.model;
+        int size = model.sizeInBytes();
+        Class wordType = size == 8 ? long.class : int.class;
+        String word = size == 8 ? "Long" : "Int";
+        String mask = size == 8 ? String.format("0x%xL", model.atomicValueMask()) :
+                String.format("0x%x", (int) model.atomicValueMask());
+        ClassName nativeClassName = valueBuilder.className();
+        Class<?> valueType = model.valueType;
+        TypeSpec.Builder typeBuilder = valueBuilder.typeBuilder;
+
+        TypeName scratchType = ParameterizedTypeName.get(ClassName.get(ThreadLocal.class),
+                nativeClassName);
+        FieldSpec scratch = FieldSpec.builder(scratchType, "WORD_SCRATCH", PRIVATE, STATIC, FINAL)
+                .initializer("$T.withInitial(() -> {\n" +
+                                "$>$T scratch = new $T();\n" +
+                                "scratch.bytesStore($T.wrap(new byte[$L]), 0, $L);\n" +
+                                "return scratch;\n" +
+                                "$<})",
+                        ThreadLocal.class, nativeClassName, nativeClassName, BytesStore.class,
+                        size, size)
+                .build();
+        typeBuilder.addField(scratch);
+
+        MethodSpec.Builder wordBits = MethodSpec.methodBuilder("wordBits")
+                .addModifiers(PRIVATE, STATIC)
+                .returns(wordType)
+                .addParameter(valueType, "value");
+        wordBits.beginControlFlow("if (value instanceof $T)", nativeClassName);
+        wordBits.addStatement("$T nativeValue = ($T) value", nativeClassName, nativeClassName);
+        wordBits.addStatement("return nativeValue.bs.read$N(nativeValue.offset) & $L",
+                word, mask);
+        wordBits.endControlFlow();
+        wordBits.addStatement("$T scratch = $N.get()", nativeClassName, scratch);
+        wordBits.addStatement("scratch.copyFrom(value)");
+        wordBits.addStatement("return scratch.bs.read$N(0) & $L", word, mask);
+        typeBuilder.addMethod(wordBits.build());
+
+        MethodSpec.Builder compareAndSwapValue = compareAndSwapValueMethodBuilder(valueBuilder);
+        compareAndSwapValue.addStatement("$T expectedBits = wordBits(expected)", wordType);
+        compareAndSwapValue.addStatement("$T newBits = wordBits(newValue)", wordType);
+        compareAndSwapValue.beginControlFlow("while (true)");
+        {
+            compareAndSwapValue.addStatement("$T word = bs.readVolatile$N(offset)",
+                    wordType, word);
+            compareAndSwapValue.beginControlFlow("if ((word & $L) != expectedBits)", mask);
+            compareAndSwapValue.addStatement("return false");
+            compareAndSwapValue.endControlFlow();
+            compareAndSwapValue.beginControlFlow(
+                    "if (bs.compareAndSwap$N(offset, word, (word & ~$L) | newBits))", word, mask);
+            compareAndSwapValue.addStatement("return true");
+            compareAndSwapValue.endControlFlow();
+        }
+        compareAndSwapValue.endControlFlow();
+        typeBuilder.addMethod(compareAndSwapValue.build());
+
+        MethodSpec.Builder getAndSetValue = getAndSetValueMethodBuilder(valueBuilder);
+        getAndSetValue.addStatement("$T newBits = wordBits(newValue)", wordType);
+        getAndSetValue.beginControlFlow("while (true)");
+        {
+            getAndSetValue.addStatement("$T word = bs.readVolatile$N(offset)", wordType, word);
+            getAndSetValue.beginControlFlow(
+                    "if (bs.compareAndSwap$N(offset, word, (word & ~$L) | newBits))", word, mask);
+            getAndSetValue.addStatement("$T scratch = $N.get()", nativeClassName, scratch);
+            getAndSetValue.addStatement("scratch.bs.write$N(0, word)", word);
+            getAndSetValue.addStatement("(($T) using).copyFrom(scratch)", Copyable.class);
+            getAndSetValue.addStatement("return using");
+            getAndSetValue.endControlFlow();
+        }
+        getAndSetValue.endControlFlow();
+        typeBuilder.addMethod(getAndSetValue.build());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AsyncGenerationTest extends ValuesTestCommon {
+
+    @Override
+    public void checkThreadDump() {
+        // generator threads are daemon and terminate when idle
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().startsWith(GeneratorPool.THREAD_NAME_PREFIX))
+                threadDump.ignore(t.getName());
+        }
+        super.checkThreadDump();
+    }
+
+    @Test
+    public void nativeClassForAsync() throws Exception {
+        assertFalse(Values.isGenerated(AsyncValue.class));
+        CompletableFuture<Class<AsyncValue>> future = Values.nativeClassForAsync(AsyncValue.class);
+        Class<AsyncValue> nativeClass = future.get(1, TimeUnit.MINUTES);
+        assertTrue(Values.isGenerated(AsyncValue.class));
+        assertSame(Values.nativeClassFor(AsyncValue.class), nativeClass);
+
+        CompletableFuture<Class<AsyncValue>> generated =
+                Values.nativeClassForAsync(AsyncValue.class);
+        assertTrue(generated.isDone());
+        assertSame(nativeClass, generated.get());
+    }
+
+    @Test
+    public void notValueInterface() throws Exception {
+        assertFalse(Values.isGenerated(Runnable.class));
+        try {
+            Values.nativeClassForAsync(Runnable.class).get(1, TimeUnit.MINUTES);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    public interface AsyncValue {
+        int getX();
+
+        void setX(int x);
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+public class AtomicFlagsTest extends ValuesTestCommon {
+
+    @Test
+    public void heap() {
+        testFlags(Values.newHeapInstance(Session.class), false);
+    }
+
+    @Test
+    public void nativeReference() {
+        testFlags(nativeValue(Session.class), true);
+    }
+
+    private static void testFlags(Session session, boolean checksRange) {
+        session.setState(0b0101);
+        assertEquals(0b0101, session.getAndOrState(0b0010));
+        assertEquals(0b0111, session.getAndAndState(~0b0001));
+        assertEquals(0b0110, session.getAndXorState(0b1100));
+        assertEquals(0b1010, session.getState());
+
+        session.setMask((short) -1);
+        assertEquals(-1, session.getAndAndMask((short) 0xFF));
+        assertEquals(0xFF, session.getAndXorMask((short) 0x1FF));
+        assertEquals(0x100, session.getMask());
+
+        session.setPriority(6);
+        assertEquals(6, session.getAndOrPriority(1));
+        if (checksRange) {
+            try {
+                session.getAndOrPriority(8);
+                fail("out of the range value");
+            } catch (IllegalStateException expected) {
+                assertEquals(7, session.getPriority());
+            }
+        }
+
+        session.setChannelAt(2, 0xF0L);
+        assertEquals(0xF0L, session.getAndXorChannelAt(2, 0xFFL));
+        assertEquals(0x0FL, session.getChannelAt(2));
+        assertEquals(0L, session.getChannelAt(1));
+
+        session.setActive(true);
+        assertTrue(session.compareAndSwapActive(true, false));
+        assertFalse(session.compareAndSwapActive(true, false));
+        assertTrue(session.compareAndSwapActive(false, false));
+        session.setAtomicClosing(true);
+        assertTrue(session.getClosing());
+        assertFalse(session.getActive());
+        session.setAtomicClosing(false);
+        assertFalse(session.getClosing());
+
+        session.setAtomicFlagAt(3, true);
+        assertTrue(session.compareAndSwapFlagAt(5, false, true));
+        assertFalse(session.compareAndSwapFlagAt(5, false, true));
+        for (int i = 0; i < 40; i++) {
+            assertEquals(i == 3 || i == 5, session.getFlagAt(i));
+        }
+        assertEquals(7, session.getPriority());
+    }
+
+    @Test
+    public void flagsShareWords() {
+        assertEquals(8, ValueModel.acquire(Session.class).recommendedOffsetAlignment());
+        assertEquals(4, ValueModel.acquire(Flag.class).sizeInBytes());
+        Flag flag = nativeValue(Flag.class);
+        flag.setAtomicOn(true);
+        assertTrue(flag.getOn());
+        assertTrue(flag.compareAndSwapOn(true, false));
+        assertFalse(flag.getOn());
+    }
+
+    @Test
+    public void fieldsNamedAtomicXxx() {
+        // getAtomicFlag() names the field, setAtomicFlag() is its plain setter
+        AtomicNamed named = nativeValue(AtomicNamed.class);
+        named.setAtomicFlag(true);
+        assertTrue(named.getAtomicFlag());
+        assertEquals(asList("atomicFlag"), fieldNames(AtomicNamed.class));
+
+        // both flag and atomicFlag are known, setAtomicFlag() is the setter of the longer one
+        assertEquals(asList("atomicFlag", "flag"), fieldNames(FlagAndAtomicFlag.class));
+        FlagAndAtomicFlag both = Values.newHeapInstance(FlagAndAtomicFlag.class);
+        both.setAtomicFlag(true);
+        assertTrue(both.getAtomicFlag());
+        assertFalse(both.getFlag());
+    }
+
+    private static List<String> fieldNames(Class<?> valueType) {
+        return ValueModel.acquire(valueType).fields().map(f -> f.name).sorted().collect(toList());
+    }
+
+    @Test
+    public void concurrentSetAtomic() throws InterruptedException {
+        Session session = nativeValue(Session.class);
+        int threads = 4;
+        int rounds = 10_000;
+        List<Thread> setters = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread setter = new Thread(() -> {
+                // each thread owns every 4th flag, all of them share words
+                for (int i = 0; i < rounds; i++) {
+                    int index = (i % 10) * threads + thread;
+                    session.setAtomicFlagAt(index, true);
+                    assertTrue(session.compareAndSwapFlagAt(index, true, false));
+                    session.setAtomicFlagAt(index, true);
+                }
+            }, "flag-setter~" + t);
+            setters.add(setter);
+            setter.start();
+        }
+        for (Thread setter : setters) {
+            setter.join();
+        }
+        for (int i = 0; i < 40; i++) {
+            assertTrue(session.getFlagAt(i));
+        }
+    }
+
+    public interface Session {
+        int getState();
+
+        void setState(int state);
+
+        int getAndOrState(int mask);
+
+        int getAndAndState(int mask);
+
+        int getAndXorState(int mask);
+
+        short getMask();
+
+        void setMask(short mask);
+
+        short getAndAndMask(short mask);
+
+        short getAndXorMask(short mask);
+
+        int getPriority();
+
+        void setPriority(@Range(min = 0, max = 7) int priority);
+
+        int getAndOrPriority(int mask);
+
+        @Array(length = 4)
+        long getChannelAt(int index);
+
+        void setChannelAt(int index, long channel);
+
+        long getAndXorChannelAt(int index, long mask);
+
+        boolean getActive();
+
+        void setActive(boolean active);
+
+        boolean compareAndSwapActive(boolean oldActive, boolean newActive);
+
+        boolean getClosing();
+
+        void setAtomicClosing(boolean closing);
+
+        @Array(length = 40)
+        boolean getFlagAt(int index);
+
+        void setAtomicFlagAt(int index, boolean flag);
+
+        boolean compareAndSwapFlagAt(int index, boolean oldFlag, boolean newFlag);
+    }
+
+    public interface AtomicNamed {
+        boolean getAtomicFlag();
+
+        void setAtomicFlag(boolean atomicFlag);
+    }
+
+    public interface FlagAndAtomicFlag {
+        boolean getFlag();
+
+        void setFlag(boolean flag);
+
+        boolean getAtomicFlag();
+
+        void setAtomicFlag(boolean atomicFlag);
+    }
+
+    public interface Flag {
+        boolean getOn();
+
+        void setAtomicOn(boolean on);
+
+        boolean compareAndSwapOn(boolean oldOn, boolean newOn);
+    }
+}
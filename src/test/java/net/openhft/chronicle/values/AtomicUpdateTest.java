@@ -0,0 +1,290 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongUnaryOperator;
+
+import static org.junit.Assert.*;
+
+public class AtomicUpdateTest extends ValuesTestCommon {
+
+    @Test
+    public void heap() {
+        testAtomicUpdates(Values.newHeapInstance(AtomicUpdates.class));
+    }
+
+    @Test
+    public void nativeReference() {
+        testAtomicUpdates(nativeValue(AtomicUpdates.class));
+    }
+
+    private static void testAtomicUpdates(AtomicUpdates value) {
+        value.setCount(10);
+        assertEquals(10, value.getAndIncrementCount());
+        assertEquals(11, value.getAndAddCount(5));
+        assertEquals(16, value.getAndSetCount(-1));
+        assertEquals(-2, value.updateAndGetCount(c -> c * 2));
+        assertEquals(3, value.accumulateAndGetCount(5, Integer::sum));
+        assertEquals(3, value.getCount());
+
+        value.setSequence(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, value.getAndIncrementSequence());
+        assertEquals(Long.MIN_VALUE, value.getAndSetSequence(100L));
+        assertEquals(50L, value.updateAndGetSequence(s -> s / 2));
+
+        value.setB((byte) 127);
+        assertEquals(127, value.getAndIncrementB());
+        assertEquals(-128, value.getAndAddB((byte) -1));
+        assertEquals(127, value.getAndSetB((byte) 3));
+        assertEquals(9, value.updateAndGetB(b -> b * 3));
+        assertEquals(9, value.getB());
+
+        value.setPrice(1.5);
+        assertEquals(1.5, value.getAndAddPrice(1.0), 0.0);
+        assertEquals(2.5, value.getAndSetPrice(Double.NaN), 0.0);
+        assertEquals(4.0, value.updateAndGetPrice(p -> Double.isNaN(p) ? 4.0 : p), 0.0);
+        assertEquals(4.0, value.accumulateAndGetPrice(3.0, Math::max), 0.0);
+
+        for (int i = 0; i < 4; i++) {
+            value.setLevelAt(i, 0.5f * i);
+            value.setSlotAt(i, i);
+        }
+        assertEquals(1.0f, value.getAndAddLevelAt(2, 2.0f), 0.0f);
+        assertEquals(3.0f, value.getAndSetLevelAt(2, -1.0f), 0.0f);
+        assertEquals(-3.0f, value.updateAndGetLevelAt(2, l -> l * 3), 0.0f);
+        assertEquals(3, value.getAndIncrementSlotAt(3));
+        assertEquals(1, value.getAndAddSlotAt(1, 10));
+        assertEquals(22, value.accumulateAndGetSlotAt(1, 2, (s, x) -> s * x));
+        float[] expectedLevels = {0.0f, 0.5f, -3.0f, 1.5f};
+        int[] expectedSlots = {0, 22, 2, 4};
+        for (int i = 0; i < 4; i++) {
+            assertEquals(expectedLevels[i], value.getLevelAt(i), 0.0f);
+            assertEquals(expectedSlots[i], value.getSlotAt(i));
+        }
+    }
+
+    @Test
+    public void rangeFields() {
+        RangeUpdates value = nativeValue(RangeUpdates.class);
+        value.setFlags(5);
+        value.setPacked(998);
+        assertEquals(998, value.getAndIncrementPacked());
+        assertEquals(999, value.getAndAddPacked(1));
+        try {
+            value.getAndIncrementPacked();
+            fail("out of the range value");
+        } catch (IllegalStateException expected) {
+            assertEquals(1000, value.getPacked());
+        }
+        try {
+            value.getAndSetPacked(1001);
+            fail("out of the range value");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(1000, value.getPacked());
+        }
+        assertEquals(1000, value.getAndSetPacked(0));
+        try {
+            value.updateAndGetPacked(p -> p - 1);
+            fail("out of the range value");
+        } catch (IllegalStateException expected) {
+            assertEquals(0, value.getPacked());
+        }
+        assertEquals(700, value.accumulateAndGetPacked(700, (p, x) -> p + x));
+        assertEquals(5, value.getFlags());
+
+        for (int i = 0; i < 6; i++) {
+            value.setElementAt(i, i);
+        }
+        assertEquals(2, value.getAndSetElementAt(2, -100));
+        assertEquals(-100, value.getAndIncrementElementAt(2));
+        assertEquals(300, value.updateAndGetElementAt(3, e -> e * 100));
+        int[] expectedElements = {0, 1, -99, 300, 4, 5};
+        for (int i = 0; i < 6; i++) {
+            assertEquals(expectedElements[i], value.getElementAt(i));
+        }
+    }
+
+    @Test
+    public void concurrentGetAndIncrement() throws InterruptedException {
+        RangeUpdates value = nativeValue(RangeUpdates.class);
+        int threads = 4;
+        int increments = 10_000;
+        List<Thread> incrementers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread incrementer = new Thread(() -> {
+                for (int i = 0; i < increments; i++) {
+                    value.getAndIncrementCounterAt(i % 4);
+                    value.getAndIncrementTotal();
+                }
+            }, "incrementer~" + t);
+            incrementers.add(incrementer);
+            incrementer.start();
+        }
+        for (Thread incrementer : incrementers) {
+            incrementer.join();
+        }
+        for (int i = 0; i < 4; i++) {
+            assertEquals(threads * increments / 4, value.getCounterAt(i));
+        }
+        assertEquals(threads * increments, value.getTotal());
+    }
+
+    @Test
+    public void functionTypeMismatch() {
+        try {
+            ValueModel.acquire(WrongFunction.class);
+            fail("LongUnaryOperator is not applicable to int field");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    public interface AtomicUpdates {
+        int getCount();
+
+        void setCount(int count);
+
+        int getAndIncrementCount();
+
+        int getAndAddCount(int addition);
+
+        int getAndSetCount(int count);
+
+        int updateAndGetCount(IntUnaryOperator updateFunction);
+
+        int accumulateAndGetCount(int x, IntBinaryOperator accumulatorFunction);
+
+        long getSequence();
+
+        void setSequence(long sequence);
+
+        long getAndIncrementSequence();
+
+        long getAndSetSequence(long sequence);
+
+        long updateAndGetSequence(LongUnaryOperator updateFunction);
+
+        byte getB();
+
+        void setB(byte b);
+
+        byte getAndIncrementB();
+
+        byte getAndAddB(byte addition);
+
+        byte getAndSetB(byte b);
+
+        byte updateAndGetB(IntUnaryOperator updateFunction);
+
+        double getPrice();
+
+        void setPrice(double price);
+
+        double getAndAddPrice(double addition);
+
+        double getAndSetPrice(double price);
+
+        double updateAndGetPrice(DoubleUnaryOperator updateFunction);
+
+        double accumulateAndGetPrice(double x, DoubleBinaryOperator accumulatorFunction);
+
+        @Array(length = 4)
+        float getLevelAt(int index);
+
+        void setLevelAt(int index, float level);
+
+        float getAndAddLevelAt(int index, float addition);
+
+        float getAndSetLevelAt(int index, float level);
+
+        float updateAndGetLevelAt(int index, DoubleUnaryOperator updateFunction);
+
+        @Array(length = 4)
+        int getSlotAt(int index);
+
+        void setSlotAt(int index, int slot);
+
+        int getAndIncrementSlotAt(int index);
+
+        int getAndAddSlotAt(int index, int addition);
+
+        int accumulateAndGetSlotAt(int index, int x, IntBinaryOperator accumulatorFunction);
+    }
+
+    public interface RangeUpdates {
+        int getFlags();
+
+        void setFlags(@Range(min = 0, max = 7) int flags);
+
+        @Align(offset = 0, dontCross = 4)
+        int getPacked();
+
+        void setPacked(@Range(min = 0, max = 1000) int packed);
+
+        int getAndIncrementPacked();
+
+        int getAndAddPacked(int addition);
+
+        int getAndSetPacked(int packed);
+
+        int updateAndGetPacked(IntUnaryOperator updateFunction);
+
+        int accumulateAndGetPacked(int x, IntBinaryOperator accumulatorFunction);
+
+        @Array(length = 6, elementOffsetAlignment = 2)
+        int getElementAt(int index);
+
+        void setElementAt(int index, @Range(min = -100, max = 1000) int element);
+
+        int getAndSetElementAt(int index, int element);
+
+        int getAndIncrementElementAt(int index);
+
+        int updateAndGetElementAt(int index, IntUnaryOperator updateFunction);
+
+        @Array(length = 4, elementOffsetAlignment = 1)
+        int getCounterAt(int index);
+
+        void setCounterAt(int index, @Range(min = 0, max = 65535) int counter);
+
+        int getAndIncrementCounterAt(int index);
+
+        long getTotal();
+
+        void setTotal(long total);
+
+        long getAndIncrementTotal();
+    }
+
+    public interface WrongFunction {
+        int getCount();
+
+        void setCount(int count);
+
+        int updateAndGetCount(LongUnaryOperator updateFunction);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AtomicValueTest extends ValuesTestCommon {
+
+    @Test
+    public void layout() {
+        ValueModel model = ValueModel.acquire(Level.class);
+        assertEquals(8, model.sizeInBytes());
+        assertEquals(8, model.recommendedOffsetAlignment());
+        ValueModel small = ValueModel.acquire(Flags.class);
+        assertEquals(4, small.sizeInBytes());
+        assertEquals(4, small.recommendedOffsetAlignment());
+    }
+
+    @Test
+    public void heap() {
+        testCompareAndSwap(Values.newHeapInstance(Level.class), Values::newHeapInstance);
+    }
+
+    @Test
+    public void nativeReference() {
+        testCompareAndSwap(nativeValue(Level.class), this::nativeValue);
+        // the values of other implementations are compared and swapped as well
+        testCompareAndSwap(nativeValue(Level.class), Values::newHeapInstance);
+    }
+
+    private interface Factory {
+        <T> T create(Class<T> valueType);
+    }
+
+    private static void testCompareAndSwap(Level level, Factory factory) {
+        Level expected = factory.create(Level.class);
+        Level newLevel = factory.create(Level.class);
+        newLevel.setPrice(10.5f);
+        newLevel.setQuantity(100);
+        assertTrue(level.compareAndSwapValue(expected, newLevel));
+        assertEquals(10.5f, level.getPrice(), 0.0f);
+        assertEquals(100, level.getQuantity());
+        assertFalse(level.compareAndSwapValue(expected, expected));
+        assertEquals(100, level.getQuantity());
+
+        expected.copyFrom(newLevel);
+        newLevel.setQuantity(99);
+        assertTrue(level.compareAndSwapValue(expected, newLevel));
+        assertEquals(99, level.getQuantity());
+
+        Level old = level.getAndSetValue(expected, factory.create(Level.class));
+        assertEquals(10.5f, old.getPrice(), 0.0f);
+        assertEquals(99, old.getQuantity());
+        assertEquals(expected, level);
+    }
+
+    @Test
+    public void nativeSmallValue() {
+        Flags flags = nativeValue(Flags.class);
+        Flags expected = Values.newHeapInstance(Flags.class);
+        Flags newFlags = Values.newHeapInstance(Flags.class);
+        newFlags.setKind((byte) 3);
+        newFlags.setActive(true);
+        assertTrue(flags.compareAndSwapValue(expected, newFlags));
+        assertFalse(flags.compareAndSwapValue(expected, newFlags));
+        Flags old = flags.getAndSetValue(expected, Values.newHeapInstance(Flags.class));
+        assertEquals(newFlags, old);
+        assertEquals(expected, flags);
+    }
+
+    @Test
+    public void versioned() {
+        testCompareAndSwap(Values.newHeapInstance(Quote.class));
+        testCompareAndSwap(nativeValue(Quote.class));
+    }
+
+    private static void testCompareAndSwap(Quote quote) {
+        Quote expected = Values.newHeapInstance(Quote.class);
+        Quote newQuote = Values.newHeapInstance(Quote.class);
+        newQuote.setBid(1.5);
+        newQuote.setAsk(1.6);
+        assertTrue(quote.compareAndSwapValue(expected, newQuote));
+        assertFalse(quote.compareAndSwapValue(expected, newQuote));
+        Quote old = quote.getAndSetValue(expected, Values.newHeapInstance(Quote.class));
+        assertEquals(newQuote, old);
+        assertEquals(expected, quote);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooLargeNotVersioned() {
+        ValueModel.acquire(TooLarge.class);
+    }
+
+    @Test
+    public void concurrentCompareAndSwap() throws InterruptedException {
+        Level level = nativeValue(Level.class);
+        int threads = 4;
+        int increments = 10_000;
+        List<Thread> incrementers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread incrementer = new Thread(() -> {
+                Level current = Values.newHeapInstance(Level.class);
+                Level next = Values.newHeapInstance(Level.class);
+                for (int i = 0; i < increments; i++) {
+                    do {
+                        current.copyFrom(level);
+                        next.setQuantity(current.getQuantity() + 1);
+                        next.setPrice(current.getPrice() + 1);
+                    } while (!level.compareAndSwapValue(current, next));
+                }
+            }, "cas-incrementer~" + t);
+            incrementers.add(incrementer);
+            incrementer.start();
+        }
+        for (Thread incrementer : incrementers) {
+            incrementer.join();
+        }
+        assertEquals(threads * increments, level.getQuantity());
+        assertEquals(threads * increments, level.getPrice(), 0.0f);
+    }
+
+    public interface Level extends AtomicValue<Level>, Copyable<Level> {
+        float getPrice();
+
+        void setPrice(float price);
+
+        int getQuantity();
+
+        void setQuantity(int quantity);
+    }
+
+    public interface Flags extends AtomicValue<Flags> {
+        byte getKind();
+
+        void setKind(byte kind);
+
+        boolean getActive();
+
+        void setActive(boolean active);
+    }
+
+    @Versioned
+    public interface Quote extends AtomicValue<Quote> {
+        double getBid();
+
+        void setBid(double bid);
+
+        double getAsk();
+
+        void setAsk(double ask);
+    }
+
+    public interface TooLarge extends AtomicValue<TooLarge> {
+        long getFirst();
+
+        void setFirst(long first);
+
+        int getSecond();
+
+        void setSecond(int second);
+    }
+}
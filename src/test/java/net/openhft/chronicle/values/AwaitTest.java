@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.core.Jvm;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AwaitTest extends ValuesTestCommon {
+
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    public void heap() throws InterruptedException {
+        testAwait(Values.newHeapInstance(Mailbox.class), Values.newHeapInstance(Signal.class));
+    }
+
+    @Test
+    public void nativeReference() throws InterruptedException {
+        testAwait(nativeValue(Mailbox.class), nativeValue(Signal.class));
+    }
+
+    private static void testAwait(Mailbox mailbox, Signal signal)
+            throws InterruptedException {
+        WaitStrategy busySpin = WaitStrategy.busySpin();
+        mailbox.setSequence(3);
+        assertTrue(mailbox.awaitSequence(3, 0, busySpin));
+        assertFalse(mailbox.awaitSequence(4, 1_000, busySpin));
+        assertEquals(3, mailbox.awaitSequenceChange(3, 1_000, busySpin));
+        assertEquals(3, mailbox.awaitSequenceChange(2, 0, busySpin));
+
+        mailbox.setPrice(-0.0);
+        assertFalse(mailbox.awaitPrice(0.0, 1_000, busySpin));
+        mailbox.setPrice(Double.NaN);
+        assertTrue(mailbox.awaitPrice(Double.NaN, 0, busySpin));
+
+        mailbox.setSlotAt(1, 5);
+        assertTrue(mailbox.awaitSlotAt(1, 5, 0, busySpin));
+        assertFalse(mailbox.awaitSlotAt(0, 5, 1_000, busySpin));
+        assertFalse(signal.awaitState(State.READY, 1_000, busySpin));
+
+        Thread writer = new Thread(() -> {
+            Jvm.pause(10);
+            signal.setState(State.READY);
+            Jvm.pause(10);
+            mailbox.setSlotAt(2, 7);
+            Jvm.pause(10);
+            mailbox.setSequence(4);
+        }, "await-writer~");
+        writer.start();
+        try {
+            WaitStrategy park = WaitStrategy.spinThenPark(100, 10, 100_000);
+            assertTrue(signal.awaitState(State.READY, TIMEOUT, park));
+            assertTrue(mailbox.awaitSlotAt(2, 7, TIMEOUT, WaitStrategy.spinThenYield(100)));
+            assertEquals(4, mailbox.awaitSequenceChange(3, TIMEOUT, park));
+        } finally {
+            writer.join();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notPrimitive() {
+        ValueModel.acquire(NotPrimitive.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeSpins() {
+        WaitStrategy.spinThenYield(-1);
+    }
+
+    public enum State {
+        EMPTY, READY
+    }
+
+    public interface Mailbox {
+        long getSequence();
+
+        void setSequence(long sequence);
+
+        boolean awaitSequence(long expected, long timeoutNanos, WaitStrategy waitStrategy);
+
+        long awaitSequenceChange(long oldSequence, long timeoutNanos, WaitStrategy waitStrategy);
+
+        double getPrice();
+
+        void setPrice(double price);
+
+        boolean awaitPrice(double expected, long timeoutNanos, WaitStrategy waitStrategy);
+
+        @Array(length = 4)
+        int getSlotAt(int index);
+
+        void setSlotAt(int index, int slot);
+
+        boolean awaitSlotAt(int index, int expected, long timeoutNanos, WaitStrategy waitStrategy);
+    }
+
+    public interface Signal {
+        State getVolatileState();
+
+        void setState(State state);
+
+        boolean awaitState(State expected, long timeoutNanos, WaitStrategy waitStrategy);
+    }
+
+    public interface NotPrimitive {
+        String getName();
+
+        void setName(@MaxUtf8Length(10) String name);
+
+        boolean awaitName(String expected, long timeoutNanos, WaitStrategy waitStrategy);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.BytesStore;
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class BatchPregenerationTest extends ValuesTestCommon {
+
+    @Test
+    public void pregenerateWithNestedValues() {
+        Values.pregenerate(Arrays.asList(BatchOuter.class, BatchOther.class), true, true);
+        for (Class<?> valueType : new Class<?>[]{BatchOuter.class, BatchInner.class}) {
+            ValueModel model = ValueModel.acquire(valueType);
+            assertNotNull(model.generatedNamedClass(false));
+            assertNotNull(model.generatedNamedClass(true));
+        }
+        assertNotNull(ValueModel.acquire(BatchOther.class).generatedNamedClass(false));
+
+        BatchOuter outer = Values.newNativeReference(BatchOuter.class);
+        long size = ((Byteable) outer).maxSize();
+        ((Byteable) outer).bytesStore(BytesStore.wrap(ByteBuffer.allocate((int) size)), 0, size);
+        outer.getInner().setX(5);
+        outer.getItemAt(1).setX(6);
+        BatchOuter heap = Values.newHeapInstance(BatchOuter.class);
+        heap.copyFrom(outer);
+        assertEquals(5, heap.getInner().getX());
+        assertEquals(6, heap.getItemAt(1).getX());
+        assertEquals(outer, heap);
+
+        // generated later, referring to the pregenerated implementation by name
+        BatchLater later = Values.newHeapInstance(BatchLater.class);
+        later.getInner().setX(7);
+        assertEquals(7, later.getInner().getX());
+    }
+
+    @Test
+    public void pregenerateAsync() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Values.pregenerate(Collections.singletonList(BatchAsync.class), true, false, executor)
+                    .get(1, TimeUnit.MINUTES);
+            assertNotNull(ValueModel.acquire(BatchAsync.class).generatedNamedClass(true));
+            assertNull(ValueModel.acquire(BatchAsync.class).generatedNamedClass(false));
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+    }
+
+    @Test
+    public void compileAgainstClassesDefinedInMemory() throws Exception {
+        assumeTrue(GeneratedClassCache.INSTANCE == null);
+        ClassLoader cl = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        String a = "net.openhft.chronicle.values.InMemoryA";
+        String b = "net.openhft.chronicle.values.InMemoryB";
+        RuntimeCompiler.defineClass(cl, a, RuntimeCompiler.compile(cl, singletonMap(a,
+                "package net.openhft.chronicle.values;\n" +
+                        "public class InMemoryA { public int x() { return 42; } }")).get(a));
+        Class<?> classB = RuntimeCompiler.defineClass(cl, b, RuntimeCompiler.compile(cl,
+                singletonMap(b, "package net.openhft.chronicle.values;\n" +
+                        "public class InMemoryB implements java.util.function.IntSupplier {\n" +
+                        "    public int getAsInt() { return new InMemoryA().x(); }\n" +
+                        "}")).get(b));
+        assertEquals(42, ((IntSupplier) classB.getDeclaredConstructor().newInstance()).getAsInt());
+    }
+
+    public interface BatchInner {
+        int getX();
+
+        void setX(int x);
+    }
+
+    public interface BatchOuter extends Copyable<BatchOuter> {
+        BatchInner getInner();
+
+        void setInner(BatchInner inner);
+
+        @Array(length = 2)
+        BatchInner getItemAt(int index);
+
+        void setItemAt(int index, BatchInner item);
+    }
+
+    public interface BatchOther {
+        long getY();
+
+        void setY(long y);
+    }
+
+    public interface BatchLater {
+        BatchInner getInner();
+
+        void setInner(BatchInner inner);
+    }
+
+    public interface BatchAsync {
+        double getZ();
+
+        void setZ(double z);
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BulkArrayTest extends ValuesTestCommon {
+
+    @Test
+    public void heap() {
+        testBulk(Values.newHeapInstance(Samples.class));
+    }
+
+    @Test
+    public void nativeDirect() {
+        testBulk(nativeValue(Samples.class, true));
+    }
+
+    @Test
+    public void nativeHeapBytes() {
+        testBulk(nativeValue(Samples.class, false));
+    }
+
+    private static void testBulk(Samples samples) {
+        long[] longs = {1, -2, Long.MAX_VALUE, 4, 5, 6, 7, Long.MIN_VALUE};
+        samples.setLongs(0, longs, 0, 8);
+        for (int i = 0; i < 8; i++)
+            assertEquals(longs[i], samples.getLongsAt(i));
+        long[] dst = new long[10];
+        samples.getLongs(2, dst, 1, 5);
+        assertArrayEquals(new long[]{0, Long.MAX_VALUE, 4, 5, 6, 7, 0, 0, 0, 0}, dst);
+        samples.setLongs(6, new long[]{-1, -1, 42}, 2, 1);
+        assertEquals(42, samples.getLongsAt(6));
+        assertEquals(Long.MIN_VALUE, samples.getLongsAt(7));
+        samples.fillLongs(9);
+        for (int i = 0; i < 8; i++)
+            assertEquals(9, samples.getLongsAt(i));
+
+        byte[] bytes = {1, 2, 3, 4, 5, 6};
+        samples.setBytes(0, bytes, 0, 6);
+        byte[] bytesDst = new byte[6];
+        samples.getBytes(0, bytesDst, 0, 6);
+        assertArrayEquals(bytes, bytesDst);
+
+        char[] chars = "abcd".toCharArray();
+        samples.setChars(0, chars, 0, 4);
+        assertEquals('c', samples.getCharsAt(2));
+        char[] charsDst = new char[4];
+        samples.getChars(0, charsDst, 0, 4);
+        assertArrayEquals(chars, charsDst);
+
+        double[] doubles = {0.5, -0.0, Double.NaN, 1e300};
+        samples.setDoubles(0, doubles, 0, 4);
+        double[] doublesDst = new double[4];
+        samples.getDoubles(0, doublesDst, 0, 4);
+        assertArrayEquals(doubles, doublesDst, 0.0);
+
+        // floats are stored as int bits in the heap implementation, because of compareAndSwap
+        float[] prices = {1.5f, 2.5f, 3.5f, 4.5f};
+        samples.setPrices(0, prices, 0, 4);
+        assertTrue(samples.compareAndSwapPricesAt(1, 2.5f, 3f));
+        float[] pricesDst = new float[4];
+        samples.getPrices(0, pricesDst, 0, 4);
+        assertArrayEquals(new float[]{1.5f, 3f, 3.5f, 4.5f}, pricesDst, 0.0f);
+        samples.fillPrices(0.25f);
+        assertEquals(0.25f, samples.getPricesAt(3), 0.0f);
+
+        samples.fillLongs(0);
+        assertOutOfBounds(() -> samples.getLongs(5, dst, 0, 4));
+        assertOutOfBounds(() -> samples.getLongs(-1, dst, 0, 1));
+        assertOutOfBounds(() -> samples.getLongs(0, dst, 8, 3));
+        assertOutOfBounds(() -> samples.setLongs(0, longs, 0, -1));
+        assertOutOfBounds(() -> samples.setLongs(0, longs, 1, 8));
+        // nothing is copied, if the bounds are violated
+        long[] copy = new long[8];
+        samples.getLongs(0, copy, 0, 8);
+        assertArrayEquals(new long[8], copy);
+    }
+
+    @Test
+    public void packedElements() {
+        testPackedElements(Values.newHeapInstance(Levels.class));
+        testPackedElements(nativeValue(Levels.class, true));
+    }
+
+    /**
+     * Elements are packed into 10 bits, and copied element by element
+     */
+    private static void testPackedElements(Levels levels) {
+        int[] src = {0, 1000, 500, 7};
+        levels.setLevels(0, src, 0, 4);
+        assertEquals(500, levels.getLevelsAt(2));
+        int[] dst = new int[4];
+        levels.getLevels(0, dst, 0, 4);
+        assertArrayEquals(src, dst);
+        levels.fillLevels(3);
+        levels.getLevels(0, dst, 0, 4);
+        assertArrayEquals(new int[]{3, 3, 3, 3}, dst);
+    }
+
+    private static void assertOutOfBounds(Runnable bulk) {
+        try {
+            bulk.run();
+            fail("out of bounds");
+        } catch (ArrayIndexOutOfBoundsException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void layout() {
+        ValueModel model = ValueModel.acquire(Samples.class);
+        Arrays.asList("longs", "bytes", "chars", "doubles").forEach(name ->
+                assertTrue(model.fields().anyMatch(f -> f.name.equals(name))));
+    }
+
+    @Test
+    public void scalarFieldsNamedFillXxx() {
+        // without array accessors of price, fillPrice(double) is a setter of fillPrice
+        ValueModel model = ValueModel.acquire(Fill.class);
+        assertTrue(model.fields().allMatch(f -> f instanceof ScalarFieldModel));
+        assertTrue(model.fields().anyMatch(f -> f.name.equals("fillPrice")));
+        Fill fill = nativeValue(Fill.class);
+        fill.fillPrice(1.5);
+        fill.setFillQty(3);
+        assertEquals(1.5, fill.getFillPrice(), 0.0);
+        assertEquals(3, fill.getFillQty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void booleanArray() {
+        ValueModel.acquire(Flags.class);
+    }
+
+    public interface Samples {
+        @Array(length = 8)
+        long getLongsAt(int index);
+
+        void setLongsAt(int index, long value);
+
+        void getLongs(int from, long[] dst, int dstOff, int len);
+
+        void setLongs(int from, long[] src, int srcOff, int len);
+
+        void fillLongs(long value);
+
+        @Array(length = 6)
+        byte getBytesAt(int index);
+
+        void setBytesAt(int index, byte value);
+
+        void getBytes(int from, byte[] dst, int dstOff, int len);
+
+        void setBytes(int from, byte[] src, int srcOff, int len);
+
+        @Array(length = 4)
+        char getCharsAt(int index);
+
+        void setCharsAt(int index, char value);
+
+        void getChars(int from, char[] dst, int dstOff, int len);
+
+        void setChars(int from, char[] src, int srcOff, int len);
+
+        @Array(length = 4)
+        double getDoublesAt(int index);
+
+        void setDoublesAt(int index, double value);
+
+        void getDoubles(int from, double[] dst, int dstOff, int len);
+
+        void setDoubles(int from, double[] src, int srcOff, int len);
+
+        @Array(length = 4)
+        float getPricesAt(int index);
+
+        void setPricesAt(int index, float price);
+
+        boolean compareAndSwapPricesAt(int index, float oldPrice, float newPrice);
+
+        void getPrices(int from, float[] dst, int dstOff, int len);
+
+        void setPrices(int from, float[] src, int srcOff, int len);
+
+        void fillPrices(float price);
+    }
+
+    public interface Levels {
+        @Array(length = 4, elementOffsetAlignment = 1)
+        int getLevelsAt(int index);
+
+        void setLevelsAt(int index, @Range(min = 0, max = 1000) int level);
+
+        void getLevels(int from, int[] dst, int dstOff, int len);
+
+        void setLevels(int from, int[] src, int srcOff, int len);
+
+        void fillLevels(int level);
+    }
+
+    public interface Fill {
+        double getFillPrice();
+
+        void fillPrice(double fillPrice);
+
+        int getFillQty();
+
+        void setFillQty(int fillQty);
+    }
+
+    public interface Flags {
+        @Array(length = 8)
+        boolean getFlagsAt(int index);
+
+        void setFlagsAt(int index, boolean flag);
+
+        void fillFlags(boolean flag);
+    }
+}
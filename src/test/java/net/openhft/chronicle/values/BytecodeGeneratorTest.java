@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesMarshallable;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.util.CompilerUtils;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class BytecodeGeneratorTest extends ValuesTestCommon {
+
+    @Test
+    public void bytecodeImplementationMatchesCompiled() throws Exception {
+        ValueModel model = ValueModel.acquire(PrimitiveFields.class);
+        assertTrue(BytecodeGenerator.supportsNative(model));
+        String className = PrimitiveFields.class.getName() + "$$NativeBytecode";
+        byte[] bytecode = BytecodeGenerator.generateNativeClass(model, className);
+        Class<?> bytecodeClass = CompilerUtils.defineClass(
+                PrimitiveFields.class.getClassLoader(), className, bytecode);
+
+        PrimitiveFields generated = (PrimitiveFields) bytecodeClass.getDeclaredConstructor()
+                .newInstance();
+        PrimitiveFields compiled = Values.newNativeReference(PrimitiveFields.class);
+        BytesStore generatedStore = BytesStore.wrap(ByteBuffer.allocate(64));
+        BytesStore compiledStore = BytesStore.wrap(ByteBuffer.allocate(64));
+        ((Byteable) generated).bytesStore(generatedStore, 1, model.sizeInBytes());
+        ((Byteable) compiled).bytesStore(compiledStore, 1, model.sizeInBytes());
+
+        for (PrimitiveFields value : new PrimitiveFields[]{generated, compiled}) {
+            value.setI(-3);
+            assertEquals(7, value.addI(10));
+            assertEquals(9, value.addAtomicI(2));
+            assertTrue(value.compareAndSwapI(9, 11));
+            assertFalse(value.compareAndSwapI(9, 12));
+            value.setOrderedL(Long.MIN_VALUE);
+            assertEquals(Long.MIN_VALUE + 1, value.addAtomicL(1));
+            value.setVolatileD(1.5);
+            assertEquals(2.0, value.addD(0.5), 0.0);
+            assertTrue(value.compareAndSwapD(2.0, 2.5));
+            value.setF(-0.25f);
+            value.setS((short) -2);
+            value.setB((byte) 0x80);
+            value.setC('z');
+        }
+        assertEquals(11, generated.getVolatileI());
+        assertEquals(Long.MIN_VALUE + 1, generated.getL());
+        assertEquals(2.5, generated.getD(), 0.0);
+        assertEquals(-0.25f, generated.getF(), 0.0f);
+        assertEquals((short) -2, generated.getS());
+        assertEquals((byte) 0x80, generated.getB());
+        assertEquals('z', generated.getC());
+        assertTrue(generatedStore.contentEquals(compiledStore));
+        assertEquals(compiled, generated);
+        assertEquals(generated, compiled);
+        assertEquals(compiled.hashCode(), generated.hashCode());
+
+        Bytes<?> bytes = Bytes.allocateElasticOnHeap();
+        ((BytesMarshallable) compiled).writeMarshallable(bytes);
+        PrimitiveFields heap = Values.newHeapInstance(PrimitiveFields.class);
+        heap.copyFrom(generated);
+        assertEquals(heap, generated);
+        heap.setI(42);
+        assertNotEquals(heap, generated);
+        generated.copyFrom(heap);
+        assertEquals(42, generated.getI());
+        ((BytesMarshallable) generated).readMarshallable(bytes);
+        assertEquals(compiled, generated);
+        bytes.clear();
+        ((BytesMarshallable) generated).writeMarshallable(bytes);
+        ((BytesMarshallable) heap).readMarshallable(bytes);
+        assertEquals(compiled, heap);
+        bytes.releaseLast();
+
+        assertEquals(model.sizeInBytes(), ((Byteable) generated).maxSize());
+        assertEquals(1, ((Byteable) generated).offset());
+        assertSame(generatedStore, ((Byteable) generated).bytesStore());
+    }
+
+    @Test
+    public void unsupportedModelsFallBack() {
+        assertFalse(BytecodeGenerator.supportsNative(ValueModel.acquire(MinimalInterface.class)));
+        assertNull(BytecodeGenerator.generateNativeClass(
+                ValueModel.acquire(UnsignedIntValue.class), "UnsignedIntValue$$Native"));
+    }
+
+    public interface PrimitiveFields extends Copyable<PrimitiveFields> {
+        int getI();
+
+        void setI(int i);
+
+        int getVolatileI();
+
+        int addI(int addition);
+
+        int addAtomicI(int addition);
+
+        boolean compareAndSwapI(int expected, int value);
+
+        long getL();
+
+        void setOrderedL(long l);
+
+        long addAtomicL(long addition);
+
+        double getD();
+
+        void setVolatileD(double d);
+
+        double addD(double addition);
+
+        boolean compareAndSwapD(double expected, double value);
+
+        float getF();
+
+        void setF(float f);
+
+        short getS();
+
+        void setS(short s);
+
+        byte getB();
+
+        void setB(byte b);
+
+        char getC();
+
+        void setC(char c);
+    }
+}
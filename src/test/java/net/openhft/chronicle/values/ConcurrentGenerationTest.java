@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.values.benchmarks.GenerationBenchmark;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentGenerationTest extends ValuesTestCommon {
+
+    @Test
+    public void warmUpOnSeveralThreads() throws Exception {
+        List<Class<?>> valueTypes = new ArrayList<>(
+                GenerationBenchmark.generateValueInterfaces(20, 4));
+        valueTypes.add(ConcurrentOuter.class);
+        valueTypes.add(ConcurrentInnerA.class);
+        valueTypes.add(ConcurrentInnerB.class);
+
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CyclicBarrier barrier = new CyclicBarrier(threads);
+            List<Future<Map<Class<?>, List<Class<?>>>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    List<Class<?>> order = new ArrayList<>(valueTypes);
+                    Collections.shuffle(order, new Random(seed));
+                    barrier.await();
+                    Map<Class<?>, List<Class<?>>> impls = new HashMap<>();
+                    for (Class<?> valueType : order) {
+                        impls.put(valueType, Arrays.asList(Values.nativeClassFor(valueType),
+                                Values.heapClassFor(valueType)));
+                    }
+                    return impls;
+                }));
+            }
+            Map<Class<?>, List<Class<?>>> first = futures.get(0).get(1, TimeUnit.MINUTES);
+            for (Future<Map<Class<?>, List<Class<?>>>> future : futures) {
+                assertEquals(first, future.get(1, TimeUnit.MINUTES));
+            }
+        } finally {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+
+        ConcurrentOuter outer = Values.newHeapInstance(ConcurrentOuter.class);
+        outer.getA().setA(1);
+        outer.getB().setB(2L);
+        assertEquals(1, outer.getA().getA());
+        assertEquals(2L, outer.getB().getB());
+    }
+
+    public interface ConcurrentInnerA {
+        int getA();
+
+        void setA(int a);
+    }
+
+    public interface ConcurrentInnerB {
+        long getB();
+
+        void setB(long b);
+    }
+
+    public interface ConcurrentOuter {
+        ConcurrentInnerA getA();
+
+        void setA(ConcurrentInnerA a);
+
+        ConcurrentInnerB getB();
+
+        void setB(ConcurrentInnerB b);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.*;
+
+public class GeneratedClassCacheTest extends ValuesTestCommon {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void fingerprint() {
+        ValueModel model = ValueModel.acquire(CachedValue.class);
+        String fingerprint = GeneratedClassCache.fingerprint(model, false);
+        assertEquals(fingerprint, GeneratedClassCache.fingerprint(model, false));
+        assertNotEquals(fingerprint, GeneratedClassCache.fingerprint(model, true));
+        // depends on the nested value interface
+        String holderFingerprint =
+                GeneratedClassCache.fingerprint(ValueModel.acquire(CachedValueHolder.class), false);
+        assertNotEquals(holderFingerprint, GeneratedClassCache.fingerprint(
+                ValueModel.acquire(OtherValueHolder.class), false));
+    }
+
+    @Test
+    public void compiledClassIsLoadedFromCache() throws Exception {
+        File dir = folder.newFolder();
+        GeneratedClassCache cache = new GeneratedClassCache(dir);
+        ValueModel model = ValueModel.acquire(CachedValue.class);
+        String fingerprint = GeneratedClassCache.fingerprint(model, true);
+        String className = model.heapClassName().simpleName();
+        String classNameWithPackage = model.heapClassName().reflectionName();
+
+        try (URLClassLoader cl = newClassLoader()) {
+            assertNull(cache.load(cl, classNameWithPackage, fingerprint));
+            byte[] bytecode = RuntimeCompiler.compile(cl, singletonMap(classNameWithPackage,
+                    Generators.generateHeapClass(model, className))).get(classNameWithPackage);
+            writeClassFile(dir, classNameWithPackage, bytecode);
+            cache.store(classNameWithPackage, fingerprint);
+        }
+
+        try (URLClassLoader cl = newClassLoader()) {
+            Class<?> cached = cache.load(cl, classNameWithPackage, fingerprint);
+            assertNotNull(cached);
+            assertSame(cl, cached.getClassLoader());
+            CachedValue value = (CachedValue) cached.getDeclaredConstructor().newInstance();
+            value.setX(3);
+            assertEquals(3, value.getX());
+        }
+
+        try (URLClassLoader cl = newClassLoader()) {
+            // stale
+            assertNull(cache.load(cl, classNameWithPackage, "other"));
+        }
+    }
+
+    @Test
+    public void corruptEntryIsRegenerated() throws Exception {
+        File dir = folder.newFolder();
+        GeneratedClassCache cache = new GeneratedClassCache(dir);
+        ValueModel model = ValueModel.acquire(CachedValue.class);
+        String fingerprint = GeneratedClassCache.fingerprint(model, true);
+        String classNameWithPackage = model.heapClassName().reflectionName();
+        writeClassFile(dir, classNameWithPackage, new byte[]{(byte) 0xCA, (byte) 0xFE});
+        cache.store(classNameWithPackage, fingerprint);
+        writeClassFile(dir, classNameWithPackage, new byte[]{(byte) 0xCA, (byte) 0xFF});
+        expectException("Corrupt cached class");
+        try (URLClassLoader cl = newClassLoader()) {
+            assertNull(cache.load(cl, classNameWithPackage, fingerprint));
+            // the entry is invalidated
+            assertNull(cache.load(cl, classNameWithPackage, fingerprint));
+        }
+    }
+
+    private static void writeClassFile(File dir, String classNameWithPackage, byte[] bytecode)
+            throws IOException {
+        Path classFile = dir.toPath().resolve(
+                classNameWithPackage.replace('.', File.separatorChar) + ".class");
+        Files.createDirectories(classFile.getParent());
+        Files.write(classFile, bytecode);
+    }
+
+    private static URLClassLoader newClassLoader() {
+        return new URLClassLoader(new URL[0], GeneratedClassCacheTest.class.getClassLoader());
+    }
+
+    public interface CachedValue {
+        int getX();
+
+        void setX(int x);
+    }
+
+    public interface OtherValue {
+        long getX();
+
+        void setX(long x);
+    }
+
+    public interface CachedValueHolder {
+        CachedValue getValue();
+
+        void setValue(CachedValue value);
+    }
+
+    public interface OtherValueHolder {
+        OtherValue getValue();
+
+        void setValue(OtherValue value);
+    }
+}
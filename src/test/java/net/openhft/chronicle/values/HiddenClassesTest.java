@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.Jvm;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class HiddenClassesTest extends ValuesTestCommon {
+
+    @Test
+    public void hiddenNativeClass() throws Exception {
+        assumeTrue(Jvm.isJava15Plus());
+        ValueModel model = ValueModel.acquire(HiddenValue.class);
+        String className = HiddenValue.class.getName() + ValueModel.$$NATIVE;
+        Class<?> hiddenClass = HiddenClasses.defineHiddenClass(HiddenValue.class,
+                BytecodeGenerator.generateNativeClass(model, className));
+        assertTrue(HiddenClasses.isHidden(hiddenClass));
+        assertEquals(className, HiddenClasses.nameOf(hiddenClass));
+        assertSame(model, ValueModel.acquire(hiddenClass));
+        assertTrue(ValueModel.isValueInterfaceOrImplClass(hiddenClass));
+
+        Supplier<?> factory = ImplFactories.create(hiddenClass);
+        assertSame(hiddenClass, factory.get().getClass());
+        if (Jvm.majorVersion() >= 16) {
+            // the constructor handle is a constant in the hidden factory class
+            assertTrue(HiddenClasses.isHidden(factory.getClass()));
+            assertEquals(className + ImplFactories.$$FACTORY,
+                    HiddenClasses.nameOf(factory.getClass()));
+        }
+
+        HiddenValue value = (HiddenValue) hiddenClass.getDeclaredConstructor().newInstance();
+        BytesStore store = BytesStore.wrap(ByteBuffer.allocate(model.sizeInBytes()));
+        ((Byteable) value).bytesStore(store, 0, model.sizeInBytes());
+        value.setA(7);
+        assertEquals(8, value.addAtomicA(1));
+        value.setB(-1L);
+        assertEquals(8, value.getA());
+        assertEquals(-1L, value.getB());
+
+        HiddenValue heap = Values.newHeapInstance(HiddenValue.class);
+        heap.copyFrom(value);
+        assertEquals(value, heap);
+        assertEquals(heap.hashCode(), value.hashCode());
+    }
+
+    @Test
+    public void outerValueRefersToNamedImplementation() {
+        // generated code of HiddenValueHolder refers to HiddenValue$$Native by name
+        assertFalse(HiddenClasses.isHidden(Values.nativeClassFor(HiddenValueHolder.class)));
+        HiddenValueHolder holder = Values.newNativeReference(HiddenValueHolder.class);
+        BytesStore store = BytesStore.wrap(ByteBuffer.allocate(
+                ValueModel.acquire(HiddenValueHolder.class).sizeInBytes()));
+        ((Byteable) holder).bytesStore(store, 0, ((Byteable) holder).maxSize());
+        holder.getInner().setA(3);
+        holder.getInner().setB(4L);
+        HiddenValue inner = Values.newHeapInstance(HiddenValue.class);
+        inner.setA(3);
+        inner.setB(4L);
+        assertEquals(inner, holder.getInner());
+        // HiddenValue is nested, so its implementations are never hidden
+        assertFalse(HiddenClasses.isHidden(Values.nativeClassFor(HiddenValue.class)));
+        assertFalse(HiddenClasses.isHidden(Values.heapClassFor(HiddenValue.class)));
+    }
+
+    @Test
+    public void leafImplementationsAreHidden() {
+        // compiled from source, as BytecodeGenerator doesn't support boolean fields
+        assertEquals(HiddenClasses.ENABLED,
+                HiddenClasses.isHidden(Values.nativeClassFor(LeafValue.class)));
+        assertEquals(HiddenClasses.ENABLED,
+                HiddenClasses.isHidden(Values.heapClassFor(LeafValue.class)));
+        LeafValue value = Values.newHeapInstance(LeafValue.class);
+        value.setFlag(true);
+        assertTrue(value.getFlag());
+    }
+
+    @Test
+    public void namedCopyOnlyIfNestedLater() {
+        Class<?> nativeClass = Values.nativeClassFor(LateNestedValue.class);
+        if (HiddenClasses.isHidden(nativeClass))
+            expectException("generating a named copy");
+        // acquiring the outer value interface marks LateNestedValue nested
+        LateNestedValueHolder holder = Values.newNativeReference(LateNestedValueHolder.class);
+        Class<?> named = ValueModel.acquire(LateNestedValue.class).namedClass(false);
+        assertFalse(HiddenClasses.isHidden(named));
+        assertEquals(HiddenClasses.isHidden(nativeClass), named != nativeClass);
+        assertSame(named, holder.getInner().getClass());
+    }
+
+    public interface LeafValue {
+        boolean getFlag();
+
+        void setFlag(boolean flag);
+    }
+
+    public interface LateNestedValue {
+        int getA();
+
+        void setA(int a);
+    }
+
+    public interface LateNestedValueHolder {
+        LateNestedValue getInner();
+
+        void setInner(LateNestedValue inner);
+    }
+
+    public interface HiddenValue extends Copyable<HiddenValue> {
+        int getA();
+
+        void setA(int a);
+
+        int addAtomicA(int addition);
+
+        long getB();
+
+        void setB(long b);
+    }
+
+    public interface HiddenValueHolder {
+        HiddenValue getInner();
+
+        void setInner(HiddenValue inner);
+    }
+}
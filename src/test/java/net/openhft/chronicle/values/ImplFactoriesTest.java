@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.core.Jvm;
+import org.junit.Test;
+
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ImplFactoriesTest extends ValuesTestCommon {
+
+    @Test
+    public void heapAndNativeFactories() {
+        Supplier<FactoryValue> heapFactory = Values.heapFactory(FactoryValue.class);
+        assertSame(heapFactory, Values.heapFactory(FactoryValue.class));
+        FactoryValue heap = heapFactory.get();
+        assertNotSame(heap, heapFactory.get());
+        assertSame(Values.heapClassFor(FactoryValue.class), heap.getClass());
+        heap.setX(3);
+        assertEquals(3, heap.getX());
+
+        Supplier<FactoryValue> nativeFactory = Values.nativeFactory(FactoryValue.class);
+        assertSame(nativeFactory, Values.nativeFactory(FactoryValue.class));
+        FactoryValue nativeRef = nativeFactory.get();
+        assertSame(Values.nativeClassFor(FactoryValue.class), nativeRef.getClass());
+        assertSame(Values.nativeClassFor(FactoryValue.class),
+                Values.newNativeReference(FactoryValue.class).getClass());
+    }
+
+    @Test
+    public void hiddenImplClassFactory() throws Exception {
+        assumeTrue(Jvm.isJava15Plus());
+        ValueModel model = ValueModel.acquire(FactoryValue.class);
+        Class<?> hiddenClass = HiddenClasses.defineHiddenClass(FactoryValue.class,
+                BytecodeGenerator.generateNativeClass(model,
+                        FactoryValue.class.getName() + ValueModel.$$NATIVE));
+        assertTrue(HiddenClasses.isHidden(hiddenClass));
+        Supplier<?> factory = ImplFactories.create(hiddenClass);
+        assertSame(hiddenClass, factory.get().getClass());
+    }
+
+    public interface FactoryValue {
+        int getX();
+
+        void setX(int x);
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.OS;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LockTest extends ValuesTestCommon {
+
+    @Test
+    public void heap() throws InterruptedException {
+        testLocks(Values.newHeapInstance(Record.class));
+        testMutualExclusion(Values.newHeapInstance(Record.class));
+    }
+
+    @Test
+    public void nativeReference() throws InterruptedException {
+        testLocks(nativeValue(Record.class));
+        testMutualExclusion(nativeValue(Record.class));
+    }
+
+    private static void testLocks(Record record) throws InterruptedException {
+        assertTrue(record.tryLockRow());
+        // not reentrant
+        assertFalse(record.tryLockRow());
+        assertFalse(record.lockRow(TimeUnit.MILLISECONDS.toNanos(1)));
+        assertFalse(record.tryReadLockRow());
+        assertFalse(inAnotherThread(() -> record.lockRow(TimeUnit.MILLISECONDS.toNanos(10))));
+        try {
+            inAnotherThread(() -> {
+                record.unlockRow();
+                return true;
+            });
+            fail("unlocked by a thread, not holding the lock");
+        } catch (IllegalMonitorStateException expected) {
+            // expected
+        }
+        record.unlockRow();
+        try {
+            record.unlockRow();
+            fail("not locked");
+        } catch (IllegalMonitorStateException expected) {
+            // expected
+        }
+
+        assertTrue(record.tryReadLockRow());
+        assertTrue(record.readLockRow(0));
+        assertTrue(inAnotherThread(() -> record.tryReadLockRow()));
+        assertFalse(record.tryLockRow());
+        assertFalse(inAnotherThread(() -> record.lockRow(TimeUnit.MILLISECONDS.toNanos(10))));
+        for (int i = 0; i < 3; i++) {
+            record.readUnlockRow();
+        }
+        try {
+            record.readUnlockRow();
+            fail("not locked");
+        } catch (IllegalMonitorStateException expected) {
+            // expected
+        }
+        assertTrue(record.lockRow(Long.MAX_VALUE));
+        record.unlockRow();
+
+        // the lock word is not a part of the value
+        record.setCount(3);
+        assertTrue(record.tryLockRow());
+        Record copy = Values.newHeapInstance(Record.class);
+        copy.copyFrom(record);
+        assertEquals(copy, record);
+        assertEquals(copy.hashCode(), record.hashCode());
+        assertTrue(copy.tryLockRow());
+        record.unlockRow();
+        copy.unlockRow();
+    }
+
+    private static boolean inAnotherThread(Locking locking) throws InterruptedException {
+        boolean[] result = new boolean[1];
+        RuntimeException[] exception = new RuntimeException[1];
+        Thread thread = new Thread(() -> {
+            try {
+                result[0] = locking.lock();
+            } catch (RuntimeException e) {
+                exception[0] = e;
+            }
+        }, "lock-test~");
+        thread.start();
+        thread.join();
+        if (exception[0] != null)
+            throw exception[0];
+        return result[0];
+    }
+
+    private static void testMutualExclusion(Record record) throws InterruptedException {
+        int threads = 4;
+        int increments = 10_000;
+        List<Thread> incrementers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread incrementer = new Thread(() -> {
+                for (int i = 0; i < increments; i++) {
+                    assertTrue(record.lockRow(Long.MAX_VALUE));
+                    try {
+                        record.setCount(record.getCount() + 1);
+                    } finally {
+                        record.unlockRow();
+                    }
+                }
+            }, "lock-incrementer~" + t);
+            incrementers.add(incrementer);
+            incrementer.start();
+        }
+        for (Thread incrementer : incrementers) {
+            incrementer.join();
+        }
+        assertEquals(threads * increments, record.getCount());
+    }
+
+    @Test
+    public void nestedLocksAreNotCopied() {
+        assertFalse(ValueModel.acquire(Table.class).bytesCopyable());
+        Table table = nativeValue(Table.class);
+        table.getFirst().setCount(1);
+        table.getRowAt(1).setCount(2);
+        assertTrue(table.getFirst().tryLockRow());
+        assertTrue(table.getRowAt(1).tryLockRow());
+
+        Table copy = nativeValue(Table.class);
+        copy.copyFrom(table);
+        assertEquals(1, copy.getFirst().getCount());
+        assertEquals(2, copy.getRowAt(1).getCount());
+        // the owner of the source locks is not copied
+        assertTrue(copy.getFirst().tryLockRow());
+        assertTrue(copy.getRowAt(1).tryLockRow());
+        copy.getFirst().unlockRow();
+        copy.getRowAt(1).unlockRow();
+        table.getFirst().unlockRow();
+        table.getRowAt(1).unlockRow();
+    }
+
+    @Test
+    public void deadOwnerRecovery() {
+        Record record = nativeValue(Record.class);
+        ValueModel model = ValueModel.acquire(Record.class);
+        FieldModel row = model.fields().filter(f -> f.name.equals("row")).findFirst().get();
+        long deadProcessId = OS.getPidMax() + 1;
+        long deadOwner = (1L << 63) | (deadProcessId << 32) | 1;
+        BytesStore bs = ((Byteable) record).bytesStore();
+        bs.writeLong(model.fieldBitOffset(row) / 8, deadOwner);
+
+        assertFalse(record.tryLockRow());
+        assertTrue(record.lockRow(TimeUnit.SECONDS.toNanos(10)));
+        record.unlockRow();
+
+        bs.writeLong(model.fieldBitOffset(row) / 8, deadOwner);
+        assertTrue(record.readLockRow(TimeUnit.SECONDS.toNanos(10)));
+        record.readUnlockRow();
+        assertTrue(record.tryLockRow());
+    }
+
+    @Test
+    public void deadSharedHolderIsNotRecovered() {
+        Record record = nativeValue(Record.class);
+        ValueModel model = ValueModel.acquire(Record.class);
+        FieldModel row = model.fields().filter(f -> f.name.equals("row")).findFirst().get();
+        BytesStore bs = ((Byteable) record).bytesStore();
+        // a shared holder, whatever process it was, is just a count
+        bs.writeLong(model.fieldBitOffset(row) / 8, 1L);
+
+        assertFalse(record.tryLockRow());
+        assertFalse(record.lockRow(TimeUnit.MILLISECONDS.toNanos(10)));
+        assertTrue(record.tryReadLockRow());
+        record.readUnlockRow();
+        assertFalse(record.tryLockRow());
+    }
+
+    @Test
+    public void terminatedHolderThreadIsNotRecovered() throws InterruptedException {
+        Record record = nativeValue(Record.class);
+        assertTrue(inAnotherThread(record::tryLockRow));
+        // the thread has terminated, but its process is alive
+        assertFalse(record.lockRow(TimeUnit.MILLISECONDS.toNanos(10)));
+        try {
+            record.unlockRow();
+            fail("unlocked by a thread, not holding the lock");
+        } catch (IllegalMonitorStateException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void lockMethodNamesOfRegularFields() {
+        Timeouts timeouts = Values.newHeapInstance(Timeouts.class);
+        timeouts.lockTimeout(10);
+        assertEquals(10, timeouts.lockTimeout());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lockFieldWithGetter() {
+        ValueModel.acquire(LockWithGetter.class);
+    }
+
+    @FunctionalInterface
+    interface Locking {
+        boolean lock();
+    }
+
+    public interface Record extends Copyable<Record> {
+        @Lock(spins = 10, yields = 10, parkNanos = 10_000)
+        boolean tryLockRow();
+
+        boolean lockRow(long timeoutNanos);
+
+        void unlockRow();
+
+        boolean tryReadLockRow();
+
+        boolean readLockRow(long timeoutNanos);
+
+        void readUnlockRow();
+
+        int getCount();
+
+        void setCount(int count);
+    }
+
+    public interface Table extends Copyable<Table> {
+        Record getFirst();
+
+        void setFirst(Record first);
+
+        @Array(length = 2)
+        Record getRowAt(int index);
+
+        void setRowAt(int index, Record row);
+    }
+
+    public interface Timeouts {
+        long lockTimeout();
+
+        void lockTimeout(long lockTimeout);
+    }
+
+    public interface LockWithGetter {
+        @Lock
+        boolean tryLockRow();
+
+        void unlockRow();
+
+        long getRow();
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.BytesStore;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+/**
+ * Litmus tests in the spirit of jcstress: message passing via release/acquire, and coherence of
+ * opaque accesses, repeated many times in two threads.
+ */
+public class MemoryOrderingTest extends ValuesTestCommon {
+
+    private static final int ROUNDS = 20_000;
+
+    @Test
+    public void heap() throws InterruptedException {
+        testAccessors(Values.newHeapInstance(Message.class));
+        messagePassing(Values.newHeapInstance(Message.class));
+    }
+
+    @Test
+    public void nativeReference() throws InterruptedException {
+        Message value = Values.newNativeReference(Message.class);
+        long size = ((Byteable) value).maxSize();
+        BytesStore bs = BytesStore.nativeStoreWithFixedCapacity(size);
+        try {
+            bs.zeroOut(0, size);
+            ((Byteable) value).bytesStore(bs, 0, size);
+            testAccessors(value);
+            bs.zeroOut(0, size);
+            messagePassing(value);
+        } finally {
+            bs.releaseLast();
+        }
+    }
+
+    private static void testAccessors(Message message) {
+        message.setReleaseSequence(5L);
+        assertEquals(5L, message.getAcquireSequence());
+        message.setOpaqueSize((short) -7);
+        assertEquals(-7, message.getOpaqueSize());
+        message.setReleasePrice(1.5);
+        assertEquals(1.5, message.getAcquirePrice(), 0.0);
+        message.setReleaseReady(true);
+        assertTrue(message.getAcquireReady());
+        message.setReleaseSlotAt(2, 3);
+        message.setOpaqueSlotAt(3, 4);
+        assertEquals(3, message.getAcquireSlotAt(2));
+        assertEquals(4, message.getOpaqueSlotAt(3));
+        assertEquals(0, message.getAcquireSlotAt(1));
+    }
+
+    @Test
+    public void fieldsNamedAcquireOpaqueRelease() {
+        assertEquals(asList("acquireCount", "opaqueId", "releaseTime"),
+                ValueModel.acquire(Names.class).fields().map(f -> f.name).sorted()
+                        .collect(toList()));
+        Names names = nativeValue(Names.class);
+        names.setAcquireCount(3);
+        names.setOpaqueId(4L);
+        names.setReleaseTime(5L);
+        assertEquals(3, names.getAcquireCount());
+        assertEquals(4L, names.opaqueId());
+        assertEquals(5L, names.getReleaseTime());
+        // ordered accessors still apply to known fields
+        names.setReleaseAcquireCount(6);
+        assertEquals(6, names.getAcquireAcquireCount());
+    }
+
+    /**
+     * The writer writes the payload with plain writes, then publishes the sequence with a release
+     * write. The reader, once it observes the sequence with an acquire read, must observe the
+     * payload. Opaque reads of the sequence must never go back in time.
+     */
+    private static void messagePassing(Message message) throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                long lastOpaque = 0;
+                for (long expected = 1; expected <= ROUNDS; ) {
+                    long opaque = message.getOpaqueSequence();
+                    if (opaque < lastOpaque)
+                        throw new AssertionError("opaque read went back: " + opaque);
+                    lastOpaque = opaque;
+                    long sequence = message.getAcquireSequence();
+                    if (sequence < expected)
+                        continue;
+                    long payload = message.getPayload();
+                    if (payload < sequence)
+                        throw new AssertionError(
+                                "payload " + payload + " is older than sequence " + sequence);
+                    expected = sequence + 1;
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        }, "acquire-reader~");
+        reader.start();
+        for (long i = 1; i <= ROUNDS; i++) {
+            message.setPayload(i);
+            message.setReleaseSequence(i);
+        }
+        reader.join();
+        assertNull(failure.get());
+        assertEquals(ROUNDS, message.getAcquireSequence());
+    }
+
+    public interface Names {
+        int getAcquireCount();
+
+        void setAcquireCount(int acquireCount);
+
+        int getAcquireAcquireCount();
+
+        void setReleaseAcquireCount(int acquireCount);
+
+        long opaqueId();
+
+        void setOpaqueId(long opaqueId);
+
+        long getReleaseTime();
+
+        void setReleaseTime(long releaseTime);
+    }
+
+    public interface Message {
+        long getPayload();
+
+        void setPayload(long payload);
+
+        long getAcquireSequence();
+
+        long getOpaqueSequence();
+
+        void setReleaseSequence(long sequence);
+
+        short getOpaqueSize();
+
+        void setOpaqueSize(short size);
+
+        double getAcquirePrice();
+
+        void setReleasePrice(double price);
+
+        boolean getAcquireReady();
+
+        void setReleaseReady(boolean ready);
+
+        @Array(length = 4)
+        int getAcquireSlotAt(int index);
+
+        int getOpaqueSlotAt(int index);
+
+        void setReleaseSlotAt(int index, int slot);
+
+        void setOpaqueSlotAt(int index, int slot);
+    }
+}
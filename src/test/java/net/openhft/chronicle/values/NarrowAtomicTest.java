@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.BytesStore;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class NarrowAtomicTest extends ValuesTestCommon {
+
+    @Test
+    public void heap() {
+        testNarrowAtomic(Values.newHeapInstance(NarrowAtomic.class));
+    }
+
+    @Test
+    public void nativeReference() {
+        NarrowAtomic value = Values.newNativeReference(NarrowAtomic.class);
+        long size = ((Byteable) value).maxSize();
+        BytesStore bs = BytesStore.nativeStoreWithFixedCapacity(size);
+        try {
+            bs.zeroOut(0, size);
+            ((Byteable) value).bytesStore(bs, 0, size);
+            testNarrowAtomic(value);
+        } finally {
+            bs.releaseLast();
+        }
+    }
+
+    private static void testNarrowAtomic(NarrowAtomic value) {
+        value.setB((byte) 120);
+        assertEquals((byte) -126, value.addAtomicB((byte) 10));
+        assertTrue(value.compareAndSwapB((byte) -126, (byte) 5));
+        assertFalse(value.compareAndSwapB((byte) -126, (byte) 6));
+        assertEquals(5, value.getB());
+
+        value.setS((short) -1);
+        assertEquals(Short.MAX_VALUE, value.addAtomicS(Short.MIN_VALUE));
+        assertTrue(value.compareAndSwapS(Short.MAX_VALUE, (short) 7));
+        assertEquals(7, value.getS());
+
+        value.setC('a');
+        assertEquals('c', value.addAtomicC((char) 2));
+        assertTrue(value.compareAndSwapC('c', '￿'));
+        assertFalse(value.compareAndSwapC('c', 'd'));
+        assertEquals('￿', value.getC());
+
+        value.setStatus(OrderState.NEW);
+        assertTrue(value.compareAndSwapStatus(OrderState.NEW, OrderState.FILLED));
+        assertFalse(value.compareAndSwapStatus(OrderState.NEW, OrderState.CANCELLED));
+        assertEquals(OrderState.FILLED, value.getStatus());
+
+        assertTrue(value.compareAndSwapNullableStatus(null, OrderState.CANCELLED));
+        assertFalse(value.compareAndSwapNullableStatus(null, OrderState.NEW));
+        assertTrue(value.compareAndSwapNullableStatus(OrderState.CANCELLED, null));
+        assertNull(value.getNullableStatus());
+
+        value.setTime(new Date(1000));
+        // compared by time, not by identity
+        assertTrue(value.compareAndSwapTime(new Date(1000), new Date(2000)));
+        assertFalse(value.compareAndSwapTime(new Date(1000), new Date(3000)));
+        assertEquals(new Date(2000), value.getTime());
+
+        for (int i = 0; i < 4; i++) {
+            value.setStateAt(i, OrderState.NEW);
+            value.setCountAt(i, (short) i);
+        }
+        assertTrue(value.compareAndSwapStateAt(2, OrderState.NEW, OrderState.CANCELLED));
+        assertFalse(value.compareAndSwapStateAt(2, OrderState.NEW, OrderState.FILLED));
+        assertEquals(5, value.addAtomicCountAt(1, (short) 4));
+        assertTrue(value.compareAndSwapCountAt(3, (short) 3, (short) -3));
+        OrderState[] expectedStates =
+                {OrderState.NEW, OrderState.NEW, OrderState.CANCELLED, OrderState.NEW};
+        short[] expectedCounts = {0, 5, 2, -3};
+        for (int i = 0; i < 4; i++) {
+            assertEquals(expectedStates[i], value.getStateAt(i));
+            assertEquals(expectedCounts[i], value.getCountAt(i));
+        }
+    }
+
+    public enum OrderState {
+        NEW, FILLED, CANCELLED
+    }
+
+    public interface NarrowAtomic {
+        byte getB();
+
+        void setB(byte b);
+
+        byte addAtomicB(byte addition);
+
+        boolean compareAndSwapB(byte oldB, byte newB);
+
+        short getS();
+
+        void setS(short s);
+
+        short addAtomicS(short addition);
+
+        boolean compareAndSwapS(short oldS, short newS);
+
+        char getC();
+
+        void setC(char c);
+
+        char addAtomicC(char addition);
+
+        boolean compareAndSwapC(char oldC, char newC);
+
+        OrderState getStatus();
+
+        void setStatus(@NotNull OrderState status);
+
+        boolean compareAndSwapStatus(OrderState oldStatus, OrderState newStatus);
+
+        OrderState getNullableStatus();
+
+        void setNullableStatus(OrderState nullableStatus);
+
+        boolean compareAndSwapNullableStatus(
+                OrderState oldNullableStatus, OrderState newNullableStatus);
+
+        Date getTime();
+
+        void setTime(Date time);
+
+        boolean compareAndSwapTime(Date oldTime, Date newTime);
+
+        @Array(length = 4, elementOffsetAlignment = 1)
+        OrderState getStateAt(int index);
+
+        void setStateAt(int index, OrderState state);
+
+        boolean compareAndSwapStateAt(int index, OrderState oldState, OrderState newState);
+
+        @Array(length = 4, elementOffsetAlignment = 2)
+        short getCountAt(int index);
+
+        void setCountAt(int index, short count);
+
+        short addAtomicCountAt(int index, short addition);
+
+        boolean compareAndSwapCountAt(int index, short oldCount, short newCount);
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PackedAtomicTest extends ValuesTestCommon {
+
+    @Test
+    public void rangeFields() {
+        PackedAtomic value = nativeValue(PackedAtomic.class);
+        value.setFlags(5);
+
+        assertEquals(10, value.addAtomicPacked(10));
+        assertEquals(1000, value.addAtomicPacked(990));
+        assertEquals(5, value.getFlags());
+        try {
+            value.addAtomicPacked(1);
+            fail("out of the range value");
+        } catch (IllegalStateException expected) {
+            assertEquals(1000, value.getPacked());
+        }
+        assertTrue(value.compareAndSwapPacked(1000, 7));
+        assertFalse(value.compareAndSwapPacked(1000, 8));
+        // the stored bits of 1024 + 7 are the bits of 7
+        assertFalse(value.compareAndSwapPacked(1031, 8));
+        try {
+            value.compareAndSwapPacked(7, 1001);
+            fail("out of the range value");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(7, value.getPacked());
+        }
+        assertEquals(5, value.getFlags());
+
+        value.setSigned(-100);
+        assertEquals(-50, value.addAtomicSigned(50));
+        assertTrue(value.compareAndSwapSigned(-50, 100));
+        assertEquals(100, value.getSigned());
+
+        value.setTranslated(1_000_000);
+        assertEquals(1_000_255, value.addAtomicTranslated(255));
+        assertTrue(value.compareAndSwapTranslated(1_000_255, 1_000_001));
+        assertFalse(value.compareAndSwapTranslated(1_000_255, 1_000_002));
+        assertEquals(1_000_001, value.getTranslated());
+        assertEquals(5, value.getFlags());
+        assertEquals(100, value.getSigned());
+    }
+
+    @Test
+    public void arrayElements() {
+        PackedAtomic value = nativeValue(PackedAtomic.class);
+        for (int i = 0; i < 6; i++) {
+            value.setElementAt(i, i);
+            value.setPlainAt(i, i);
+        }
+        assertEquals(-98, value.addAtomicElementAt(2, -100));
+        assertTrue(value.compareAndSwapElementAt(3, 3, 1000));
+        assertFalse(value.compareAndSwapElementAt(3, 3, 4));
+        try {
+            value.addAtomicElementAt(3, 1);
+            fail("out of the range value");
+        } catch (IllegalStateException expected) {
+            assertEquals(1000, value.getElementAt(3));
+        }
+        try {
+            value.compareAndSwapElementAt(4, 4, -101);
+            fail("out of the range value");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(4, value.getElementAt(4));
+        }
+        assertEquals(Integer.MIN_VALUE + 1, value.addAtomicPlainAt(1, Integer.MAX_VALUE + 1));
+        assertTrue(value.compareAndSwapPlainAt(5, 5, -5));
+        int[] expectedElements = {0, 1, -98, 1000, 4, 5};
+        int[] expectedPlain = {0, Integer.MIN_VALUE + 1, 2, 3, 4, -5};
+        for (int i = 0; i < 6; i++) {
+            assertEquals(expectedElements[i], value.getElementAt(i));
+            assertEquals(expectedPlain[i], value.getPlainAt(i));
+        }
+    }
+
+    @Test
+    public void concurrentAddAtomic() throws InterruptedException {
+        PackedAtomic value = nativeValue(PackedAtomic.class);
+        int threads = 4;
+        int additions = 10_000;
+        List<Thread> adders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int element = t;
+            Thread adder = new Thread(() -> {
+                for (int i = 0; i < additions; i++) {
+                    // neighbour elements share the word
+                    value.addAtomicElementAt(element, element % 2 == 0 ? 1 : -1);
+                    value.addAtomicElementAt(element, element % 2 == 0 ? -1 : 1);
+                    value.addAtomicCounterAt(element, 1);
+                }
+            }, "packed-adder~" + t);
+            adders.add(adder);
+            adder.start();
+        }
+        for (Thread adder : adders) {
+            adder.join();
+        }
+        for (int t = 0; t < threads; t++) {
+            assertEquals(0, value.getElementAt(t));
+            assertEquals(additions, value.getCounterAt(t));
+        }
+    }
+
+    @Test
+    public void bitPackedArrayElements() {
+        // 1 + 20 * 3 bits, elements are not padded to whole bytes
+        assertEquals(8, ValueModel.acquire(Levels.class).sizeInBytes());
+        Levels value = nativeValue(Levels.class);
+        value.setMark(1);
+        for (int i = 0; i < 20; i++) {
+            value.setLevelAt(i, i % 8);
+        }
+        assertEquals(7, value.addAtomicLevelAt(3, 4));
+        try {
+            value.addAtomicLevelAt(3, 1);
+            fail("out of the range value");
+        } catch (IllegalStateException expected) {
+            assertEquals(7, value.getLevelAt(3));
+        }
+        assertTrue(value.compareAndSwapLevelAt(10, 2, 5));
+        assertFalse(value.compareAndSwapLevelAt(10, 2, 6));
+        try {
+            value.compareAndSwapLevelAt(11, 3, 8);
+            fail("out of the range value");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(3, value.getLevelAt(11));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i == 3 ? 7 : i == 10 ? 5 : i % 8, value.getLevelAt(i));
+        }
+        assertEquals(1, value.getMark());
+
+        Grouped grouped = nativeValue(Grouped.class);
+        for (int i = 0; i < 6; i++) {
+            grouped.setNibbleAt(i, 7 - i);
+        }
+        assertEquals(3, grouped.addAtomicNibbleAt(5, 1));
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i == 5 ? 3 : 7 - i, grouped.getNibbleAt(i));
+        }
+    }
+
+    @Test
+    public void concurrentBitPackedUpdates() throws InterruptedException {
+        Levels value = nativeValue(Levels.class);
+        int threads = 4;
+        int rounds = 10_000;
+        List<Thread> updaters = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int element = t;
+            Thread updater = new Thread(() -> {
+                // all elements share the word
+                for (int i = 0; i < rounds; i++) {
+                    value.addAtomicLevelAt(element, 1);
+                    value.addAtomicLevelAt(element, -1);
+                    value.setLevelAt(element + threads, i % 8);
+                }
+            }, "packed-updater~" + t);
+            updaters.add(updater);
+            updater.start();
+        }
+        for (Thread updater : updaters) {
+            updater.join();
+        }
+        for (int t = 0; t < threads; t++) {
+            assertEquals(0, value.getLevelAt(t));
+            assertEquals((rounds - 1) % 8, value.getLevelAt(t + threads));
+        }
+    }
+
+    @Test
+    public void bitPackedElementsCrossingWordBoundary() {
+        try {
+            Values.nativeClassFor(CrossingLevels.class);
+            fail("the element at bits 63-65 crosses a 64-bit word boundary");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void valuePaddedToEnclosingWord() {
+        assertEquals(4, ValueModel.acquire(SmallValue.class).sizeInBytes());
+        assertEquals(4, ValueModel.acquire(SmallValue.class).recommendedOffsetAlignment());
+        SmallValue value = nativeValue(SmallValue.class);
+        value.setValue(10);
+        assertTrue(value.compareAndSwapValue(10, 1000));
+        assertEquals(1000, value.getValue());
+    }
+
+    @Test
+    public void elementsCrossingWordBoundary() {
+        try {
+            Values.nativeClassFor(CrossingElements.class);
+            fail("the third element crosses a 64-bit word boundary");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    public interface PackedAtomic {
+        int getFlags();
+
+        void setFlags(@Range(min = 0, max = 7) int flags);
+
+        @Align(offset = 0, dontCross = 4)
+        int getPacked();
+
+        void setPacked(@Range(min = 0, max = 1000) int packed);
+
+        int addAtomicPacked(int addition);
+
+        boolean compareAndSwapPacked(int oldPacked, int newPacked);
+
+        int getSigned();
+
+        void setSigned(@Range(min = -100, max = 100) int signed);
+
+        int addAtomicSigned(int addition);
+
+        boolean compareAndSwapSigned(int oldSigned, int newSigned);
+
+        long getTranslated();
+
+        void setTranslated(@Range(min = 1_000_000, max = 1_000_255) long translated);
+
+        long addAtomicTranslated(long addition);
+
+        boolean compareAndSwapTranslated(long oldTranslated, long newTranslated);
+
+        @Array(length = 6, elementOffsetAlignment = 2)
+        int getElementAt(int index);
+
+        void setElementAt(int index, @Range(min = -100, max = 1000) int element);
+
+        int addAtomicElementAt(int index, int addition);
+
+        boolean compareAndSwapElementAt(int index, int oldElement, int newElement);
+
+        @Array(length = 6)
+        int getPlainAt(int index);
+
+        void setPlainAt(int index, int plain);
+
+        int addAtomicPlainAt(int index, int addition);
+
+        boolean compareAndSwapPlainAt(int index, int oldPlain, int newPlain);
+
+        @Array(length = 4, elementOffsetAlignment = 1)
+        int getCounterAt(int index);
+
+        void setCounterAt(int index, @Range(min = 0, max = 65535) int counter);
+
+        int addAtomicCounterAt(int index, int addition);
+    }
+
+    public interface Levels {
+        int getMark();
+
+        void setMark(@Range(min = 0, max = 1) int mark);
+
+        @Array(length = 20)
+        int getLevelAt(int index);
+
+        void setLevelAt(int index, @Range(min = 0, max = 7) int level);
+
+        int addAtomicLevelAt(int index, int addition);
+
+        boolean compareAndSwapLevelAt(int index, int oldLevel, int newLevel);
+    }
+
+    public interface Grouped {
+        // two elements in a byte, at bits 0 and 3
+        @Array(length = 6, elementDontCrossAlignment = 1)
+        int getNibbleAt(int index);
+
+        void setNibbleAt(int index, @Range(min = 0, max = 7) int nibble);
+
+        int addAtomicNibbleAt(int index, int addition);
+    }
+
+    public interface CrossingLevels {
+        @Array(length = 30)
+        int getLevelAt(int index);
+
+        void setLevelAt(int index, @Range(min = 0, max = 7) int level);
+    }
+
+    public interface SmallValue {
+        int getValue();
+
+        void setValue(@Range(min = 0, max = 1000) int value);
+
+        boolean compareAndSwapValue(int oldValue, int newValue);
+    }
+
+    public interface CrossingElements {
+        @Array(length = 4, elementOffsetAlignment = 1)
+        int getElementAt(int index);
+
+        void setElementAt(int index, @Range(min = 0, max = (1 << 20) - 1) int element);
+
+        boolean compareAndSwapElementAt(int index, int oldElement, int newElement);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+interface ReadOnlyValue {
+    int getValue();
+}
+
+interface NotPregeneratedValue {
+    int getValue();
+
+    void setValue(int value);
+}
+
+public class PregenerateProcessorTest extends ValuesTestCommon {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+    @Test
+    public void generatesImplementationsOfNestedValues() throws Exception {
+        File out = temporaryFolder.newFolder();
+        assertTrue(diagnostics.getDiagnostics().toString(), compile(out,
+                "@net.openhft.chronicle.values.Pregenerate(net.openhft.chronicle.values.NestedA.class)\n" +
+                        "class Holder {}"));
+        for (String type : asList("NestedA", "NestedB")) {
+            assertGenerated(out, type + ValueModel.$$NATIVE);
+            assertGenerated(out, type + ValueModel.$$HEAP);
+        }
+        String reflectConfig = readNativeImageConfig(out);
+        assertTrue(reflectConfig, reflectConfig.contains(
+                "{\"name\": \"" + NestedB.class.getName() + "\", \"allPublicMethods\": true}"));
+        assertTrue(reflectConfig, reflectConfig.contains("{\"name\": \"" +
+                NestedA.class.getName() + ValueModel.$$NATIVE + "\", \"methods\": [{\"name\": \"<init>\""));
+
+        try (URLClassLoader cl = new URLClassLoader(
+                new URL[]{out.toURI().toURL()}, getClass().getClassLoader())) {
+            NestedA a = (NestedA) cl.loadClass(NestedA.class.getName() + ValueModel.$$HEAP)
+                    .getDeclaredConstructor().newInstance();
+            a.key("key");
+            a.one().bid(1.0);
+            assertEquals("key", a.key());
+            assertEquals(1.0, a.one().bid(), 0.0);
+        }
+    }
+
+    @Test
+    public void generatesImplementationsFromOption() throws IOException {
+        File out = temporaryFolder.newFolder();
+        assertTrue(diagnostics.getDiagnostics().toString(), compile(out, "class Holder {}",
+                "-A" + PregenerateProcessor.PREGENERATE_OPTION + "=" + NestedB.class.getName()));
+        assertGenerated(out, "NestedB" + ValueModel.$$NATIVE);
+        assertGenerated(out, "NestedB" + ValueModel.$$HEAP);
+    }
+
+    @Test
+    public void reportsModelErrors() throws IOException {
+        File out = temporaryFolder.newFolder();
+        assertFalse(compile(out, "package net.openhft.chronicle.values;\n" +
+                "@Pregenerate(ReadOnlyValue.class)\n" +
+                "class Holder {}"));
+        assertTrue(diagnostics.getDiagnostics().stream().anyMatch(d ->
+                d.getKind() == Diagnostic.Kind.ERROR &&
+                        d.getMessage(null).contains(ReadOnlyValue.class.getName())));
+    }
+
+    @Test
+    public void nativeImageRequiresPregeneratedClasses() {
+        String property = "org.graalvm.nativeimage.imagecode";
+        System.setProperty(property, "runtime");
+        try {
+            Values.nativeClassFor(NotPregeneratedValue.class);
+            fail();
+        } catch (ImplGenerationFailedException e) {
+            assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains("@Pregenerate"));
+        } finally {
+            System.clearProperty(property);
+        }
+        assertNotNull(Values.nativeClassFor(NotPregeneratedValue.class));
+    }
+
+    private boolean compile(File out, String source, String... options) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager =
+                     compiler.getStandardFileManager(diagnostics, null, null)) {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, singletonList(out));
+            fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, singletonList(out));
+            List<String> allOptions = new ArrayList<>(
+                    asList("-classpath", System.getProperty("java.class.path")));
+            allOptions.addAll(asList(options));
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    allOptions, null, singletonList(new JavaSourceFromString("Holder", source)));
+            task.setProcessors(singletonList(new PregenerateProcessor()));
+            return task.call();
+        }
+    }
+
+    private static String readNativeImageConfig(File out) throws IOException {
+        File[] dirs = new File(out, PregenerateProcessor.NATIVE_IMAGE_CONFIG_DIR).listFiles();
+        assertNotNull(dirs);
+        assertEquals(1, dirs.length);
+        return new String(Files.readAllBytes(new File(dirs[0], "reflect-config.json").toPath()),
+                StandardCharsets.UTF_8);
+    }
+
+    private static void assertGenerated(File out, String className) {
+        String path = Values.class.getPackage().getName().replace('.', '/') + "/" + className;
+        assertTrue(path, new File(out, path + ".java").exists());
+        assertTrue(path, new File(out, path + ".class").exists());
+    }
+}
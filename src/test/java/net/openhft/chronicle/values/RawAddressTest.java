@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.util.CompilerUtils;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.*;
+
+public class RawAddressTest extends ValuesTestCommon {
+
+    private static final String RAW_CLASS_NAME = Sample.class.getName() + "$$NativeRaw";
+    private static Class<?> rawClass;
+
+    @Test
+    public void generatedSource() {
+        String source = rawSource();
+        assertTrue(source, source.contains("this.address = addressForWrite(bytesStore, offset)"));
+        assertTrue(source, source.contains("bytesStore.refCount() <= 0"));
+        assertTrue(source, source.contains("return bytesStore.addressForWrite(offset)"));
+        assertTrue(source, source.contains("MEMORY.readLong(address + "));
+        assertTrue(source, source.contains("MEMORY.writeDouble(address + "));
+        // volatile access still goes via the bytes store
+        assertTrue(source, source.contains("bs.readVolatileInt(offset + "));
+    }
+
+    @Test
+    public void offByDefault() {
+        assertFalse(Generators.RAW_ADDRESS);
+        ValueModel model = ValueModel.acquire(Sample.class);
+        String source = Generators.generateNativeClass(model, model.nativeClassName().simpleName());
+        assertFalse(source, source.contains("private long address"));
+        assertFalse(source, source.contains("rawAddress()"));
+        assertFalse(source, source.contains("MEMORY.readLong"));
+        assertTrue(source, source.contains("bs.readLong(offset + "));
+    }
+
+    @Test
+    public void releasedStoreIsNotCached() throws Exception {
+        Sample sample = newRawSample();
+        long size = ((Byteable) sample).maxSize();
+        BytesStore bs = BytesStore.nativeStoreWithFixedCapacity(size);
+        bs.zeroOut(0, size);
+        ((Byteable) sample).bytesStore(bs, 0, size);
+        assertNotEquals(0L, address(sample));
+        bs.releaseLast();
+        ((Byteable) sample).bytesStore(bs, 0, size);
+        assertEquals(0L, address(sample));
+
+        BytesStore heap = BytesStore.wrap(new byte[(int) size]);
+        ((Byteable) sample).bytesStore(heap, 0, size);
+        assertEquals(0L, address(sample));
+    }
+
+    @Test
+    public void directStore() throws Exception {
+        directStore(Values.newNativeReference(Sample.class));
+        directStore(newRawSample());
+    }
+
+    private static void directStore(Sample sample) {
+        long size = ((Byteable) sample).maxSize();
+        BytesStore bs = BytesStore.nativeStoreWithFixedCapacity(size + 8);
+        try {
+            bs.zeroOut(0, size + 8);
+            ((Byteable) sample).bytesStore(bs, 8, size);
+            testAccessors(sample);
+            assertEquals(Long.MAX_VALUE, bs.readLong(8 + offsetOf(Sample.class, "id")));
+        } finally {
+            bs.releaseLast();
+        }
+    }
+
+    @Test
+    public void heapStore() throws Exception {
+        heapStore(Values.newNativeReference(Sample.class));
+        heapStore(newRawSample());
+    }
+
+    private static void heapStore(Sample sample) {
+        long size = ((Byteable) sample).maxSize();
+        BytesStore bs = BytesStore.wrap(new byte[(int) size]);
+        ((Byteable) sample).bytesStore(bs, 0, size);
+        testAccessors(sample);
+        assertEquals(Long.MAX_VALUE, bs.readLong(offsetOf(Sample.class, "id")));
+    }
+
+    @Test
+    public void rebind() throws Exception {
+        rebind(Values.newNativeReference(Sample.class));
+        rebind(newRawSample());
+    }
+
+    private static void rebind(Sample sample) {
+        long size = ((Byteable) sample).maxSize();
+        BytesStore heap = BytesStore.wrap(new byte[(int) size]);
+        BytesStore direct = BytesStore.nativeStoreWithFixedCapacity(size);
+        try {
+            direct.zeroOut(0, size);
+            ((Byteable) sample).bytesStore(direct, 0, size);
+            sample.setId(1);
+            ((Byteable) sample).bytesStore(heap, 0, size);
+            sample.setId(2);
+            assertEquals(2, sample.getId());
+            ((Byteable) sample).bytesStore(direct, 0, size);
+            assertEquals(1, sample.getId());
+        } finally {
+            direct.releaseLast();
+        }
+    }
+
+    private static String rawSource() {
+        ValueModel model = ValueModel.acquire(Sample.class);
+        return Generators.generateNativeClass(model,
+                RAW_CLASS_NAME.substring(RAW_CLASS_NAME.lastIndexOf('.') + 1), true);
+    }
+
+    /**
+     * The implementation with the raw address, the property is not enabled in tests
+     */
+    private static synchronized Sample newRawSample() throws Exception {
+        if (rawClass == null) {
+            ClassLoader cl = Sample.class.getClassLoader();
+            byte[] bytecode = RuntimeCompiler.compile(cl, singletonMap(RAW_CLASS_NAME, rawSource()))
+                    .get(RAW_CLASS_NAME);
+            rawClass = CompilerUtils.defineClass(cl, RAW_CLASS_NAME, bytecode);
+        }
+        return (Sample) rawClass.getDeclaredConstructor().newInstance();
+    }
+
+    private static long address(Sample sample) throws ReflectiveOperationException {
+        Field address = sample.getClass().getDeclaredField("address");
+        address.setAccessible(true);
+        return address.getLong(sample);
+    }
+
+    private static long offsetOf(Class<?> valueType, String field) {
+        ValueModel model = ValueModel.acquire(valueType);
+        return model.fieldBitOffset(model.fields()
+                .filter(f -> f.name.equals(field)).findFirst().get()) / 8;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void testAccessors(Sample sample) {
+        sample.setId(Long.MAX_VALUE);
+        sample.setCount(-5);
+        sample.setLevel(700);
+        sample.setCode('\uFFFE');
+        sample.setRatio(0.25f);
+        sample.setCounter(3);
+        sample.setFlag(true);
+        for (int i = 0; i < 4; i++)
+            sample.setPriceAt(i, i * 1.5);
+        assertEquals(Long.MAX_VALUE, sample.getId());
+        assertEquals(-5, sample.getCount());
+        assertEquals(700, sample.getLevel());
+        assertEquals('\uFFFE', sample.getCode());
+        assertEquals(0.25f, sample.getRatio(), 0.0f);
+        assertEquals(3, sample.getVolatileCounter());
+        assertTrue(sample.getFlag());
+        for (int i = 0; i < 4; i++)
+            assertEquals(i * 1.5, sample.getPriceAt(i), 0.0);
+
+        Sample heap = Values.newHeapInstance(Sample.class);
+        heap.setRatio(-1.0f);
+        heap.setPriceAt(2, 7.0);
+        ((Copyable<Sample>) sample).copyFrom(heap);
+        assertEquals(-1.0f, sample.getRatio(), 0.0f);
+        assertEquals(7.0, sample.getPriceAt(2), 0.0);
+        assertEquals(0, sample.getId());
+    }
+
+    public interface Sample {
+        long getId();
+
+        void setId(long id);
+
+        int getCount();
+
+        void setCount(int count);
+
+        int getLevel();
+
+        void setLevel(@Range(min = 0, max = 1000) int level);
+
+        char getCode();
+
+        void setCode(char code);
+
+        float getRatio();
+
+        void setRatio(float ratio);
+
+        int getVolatileCounter();
+
+        void setCounter(int counter);
+
+        @Array(length = 4)
+        double getPriceAt(int index);
+
+        void setPriceAt(int index, double price);
+
+        boolean getFlag();
+
+        void setFlag(boolean flag);
+    }
+}
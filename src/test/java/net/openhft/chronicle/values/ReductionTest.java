@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReductionTest extends ValuesTestCommon {
+
+    @Test
+    public void heap() {
+        testReductions(Values.newHeapInstance(Vectors.class),
+                Values.newHeapInstance(Vectors.class));
+    }
+
+    @Test
+    public void generatedSource() {
+        ValueModel model = ValueModel.acquire(Vectors.class);
+        String name = model.nativeClassName().simpleName();
+        // without the raw address, the address of direct memory is taken once per call
+        String source = Generators.generateNativeClass(model, name, false);
+        assertTrue(source, source.contains("if (bs.isDirectMemory())"));
+        assertTrue(source, source.contains("MEMORY.readDouble(elements + i * 8L)"));
+        String rawAddressSource = Generators.generateNativeClass(model, name, true);
+        assertTrue(rawAddressSource, rawAddressSource.contains("if (rawAddress() != 0)"));
+        assertTrue(rawAddressSource,
+                rawAddressSource.contains("MEMORY.readDouble(elements + i * 8L)"));
+    }
+
+    @Test
+    public void nativeDirect() {
+        testReductions(nativeValue(Vectors.class, true), nativeValue(Vectors.class, true));
+    }
+
+    @Test
+    public void nativeHeapBytes() {
+        testReductions(nativeValue(Vectors.class, false), nativeValue(Vectors.class, false));
+    }
+
+    @Test
+    public void mixed() {
+        testReductions(nativeValue(Vectors.class, true), Values.newHeapInstance(Vectors.class));
+        testReductions(Values.newHeapInstance(Vectors.class), nativeValue(Vectors.class, false));
+    }
+
+    private static void testReductions(Vectors v, Vectors other) {
+        double[] weights = {0.5, -1.5, 2.0, 4.0};
+        for (int i = 0; i < weights.length; i++) {
+            v.setWeightsAt(i, weights[i]);
+            other.setWeightsAt(i, i + 1);
+        }
+        assertEquals(5.0, v.sumWeights(), 0.0);
+        assertEquals(-1.5, v.minWeights(), 0.0);
+        assertEquals(4.0, v.maxWeights(), 0.0);
+        assertEquals(2, v.indexOfWeights(2.0));
+        assertEquals(-1, v.indexOfWeights(3.0));
+        assertEquals(0.5 - 3.0 + 6.0 + 16.0, v.dotWeights(other), 0.0);
+        v.setWeightsAt(3, Double.NaN);
+        assertEquals(3, v.indexOfWeights(Double.NaN));
+        assertTrue(Double.isNaN(v.maxWeights()));
+
+        for (int i = 0; i < 8; i++) {
+            v.setCountsAt(i, i - 3);
+            other.setCountsAt(i, 2);
+        }
+        assertEquals(4, v.sumCounts());
+        assertEquals(-3, v.minCounts());
+        assertEquals(4, v.maxCounts());
+        assertEquals(3, v.indexOfCounts(0));
+        assertEquals(8, v.dotCounts(other));
+
+        for (int i = 0; i < 4; i++)
+            v.setSmallAt(i, (short) (i * 1000 - 1000));
+        assertEquals(2000, v.sumSmall());
+        assertEquals(-1000, v.minSmall());
+        assertEquals(2000, v.maxSmall());
+    }
+
+    @Test
+    public void packedElements() {
+        testPackedElements(Values.newHeapInstance(Levels.class));
+        testPackedElements(nativeValue(Levels.class, true));
+    }
+
+    /**
+     * Elements are packed into 10 bits, and read via the getter
+     */
+    private static void testPackedElements(Levels levels) {
+        int[] values = {7, 1000, 0, 500};
+        for (int i = 0; i < values.length; i++)
+            levels.setLevelsAt(i, values[i]);
+        assertEquals(1507, levels.sumLevels());
+        assertEquals(0, levels.minLevels());
+        assertEquals(1000, levels.maxLevels());
+        assertEquals(3, levels.indexOfLevels(500));
+    }
+
+    @Test
+    public void scalarFieldsNamedLikeReductions() {
+        Limits limits = Values.newHeapInstance(Limits.class);
+        limits.maxCount(10);
+        limits.sumTotal(20L);
+        assertEquals(10, limits.maxCount());
+        assertEquals(20L, limits.sumTotal());
+        assertEquals(2, ValueModel.acquire(Limits.class).fields().count());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void booleanArray() {
+        ValueModel.acquire(Flags.class);
+    }
+
+    public interface Vectors {
+        @Array(length = 4)
+        double getWeightsAt(int index);
+
+        void setWeightsAt(int index, double weight);
+
+        double sumWeights();
+
+        double minWeights();
+
+        double maxWeights();
+
+        int indexOfWeights(double weight);
+
+        double dotWeights(Vectors other);
+
+        @Array(length = 8)
+        int getCountsAt(int index);
+
+        void setCountsAt(int index, int count);
+
+        int sumCounts();
+
+        int minCounts();
+
+        int maxCounts();
+
+        int indexOfCounts(int count);
+
+        int dotCounts(Vectors other);
+
+        @Array(length = 4)
+        short getSmallAt(int index);
+
+        void setSmallAt(int index, short small);
+
+        short sumSmall();
+
+        short minSmall();
+
+        short maxSmall();
+    }
+
+    public interface Levels {
+        @Array(length = 4, elementOffsetAlignment = 1)
+        int getLevelsAt(int index);
+
+        void setLevelsAt(int index, @Range(min = 0, max = 1000) int level);
+
+        int sumLevels();
+
+        int minLevels();
+
+        int maxLevels();
+
+        int indexOfLevels(int level);
+    }
+
+    /**
+     * There are no array fields, so the methods are accessors of scalar fields
+     */
+    public interface Limits {
+        int maxCount();
+
+        void maxCount(int maxCount);
+
+        long sumTotal();
+
+        void sumTotal(long sumTotal);
+    }
+
+    public interface Flags {
+        @Array(length = 8)
+        boolean getFlagsAt(int index);
+
+        void setFlagsAt(int index, boolean flag);
+
+        boolean maxFlags();
+    }
+}
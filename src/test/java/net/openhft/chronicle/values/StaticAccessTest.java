@@ -0,0 +1,203 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.BytesStore;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.*;
+
+public class StaticAccessTest extends ValuesTestCommon {
+
+    @Test
+    public void generatedSource() {
+        ValueModel model = ValueModel.acquire(Record.class);
+        String source = Generators.generateAccessClass(model, model.accessClassName().simpleName());
+        assertTrue(source, source.contains("public final class StaticAccessTest$Record$$Access"));
+        assertTrue(source, source.contains("public static long getId(BytesStore bs, long offset)"));
+        assertTrue(source, source.contains(
+                "public static void setQty(BytesStore bs, long offset, int qty)"));
+        assertTrue(source, source.contains(
+                "public static long getSlotAt(BytesStore bs, long offset, int index)"));
+        assertTrue(source, source.contains(
+                "public static int getCenterX(BytesStore bs, long offset)"));
+        assertTrue(source, source.contains("StaticAccessTest$Point$$Access.getX(bs, offset + "));
+        assertTrue(source, source.contains(
+                "public static void setCornerAtY(BytesStore bs, long offset, int index, int y)"));
+        // access classes have no state, thus no raw address
+        assertFalse(source, source.contains("MEMORY"));
+        assertFalse(source, source.contains("getName"));
+    }
+
+    @Test
+    public void staticWritesFlyweightReads() throws Exception {
+        Class<?> access = Values.accessClassFor(Record.class);
+        assertSame(access, Values.accessClassFor(Record.class));
+        Record record = Values.newNativeReference(Record.class);
+        long size = ((Byteable) record).maxSize();
+        BytesStore bs = BytesStore.nativeStoreWithFixedCapacity(size * 2);
+        try {
+            bs.zeroOut(0, size * 2);
+            ((Byteable) record).bytesStore(bs, size, size);
+
+            invoke(access, "setId", bs, size, Long.MAX_VALUE);
+            invoke(access, "setQty", bs, size, -3);
+            invoke(access, "setPrice", bs, size, 1.25);
+            invoke(access, "setActive", bs, size, true);
+            invoke(access, "setSide", bs, size, Side.SELL);
+            invoke(access, "setSlotAt", bs, size, 3, 42L);
+            invoke(access, "setCenterX", bs, size, 5);
+            invoke(access, "setCenterY", bs, size, 6);
+            invoke(access, "setCornerAtX", bs, size, 1, 7);
+            invoke(access, "setCornerAtY", bs, size, 1, 8);
+
+            assertEquals(Long.MAX_VALUE, record.getId());
+            assertEquals(-3, record.getQty());
+            assertEquals(1.25, record.getPrice(), 0.0);
+            assertTrue(record.getActive());
+            assertEquals(Side.SELL, record.getSide());
+            assertEquals(42L, record.getSlotAt(3));
+            assertEquals(0L, record.getSlotAt(2));
+            assertEquals(5, record.getCenter().getX());
+            assertEquals(6, record.getCenter().getY());
+            assertEquals(7, record.getCornerAt(1).getX());
+            assertEquals(8, record.getCornerAt(1).getY());
+            assertEquals(0, record.getCornerAt(0).getX());
+            // the record before is untouched
+            assertEquals(0L, (long) invoke(access, "getId", bs, 0L));
+        } finally {
+            bs.releaseLast();
+        }
+    }
+
+    @Test
+    public void flyweightWritesStaticReads() throws Exception {
+        Class<?> access = Values.accessClassFor(Record.class);
+        Record record = Values.newNativeReference(Record.class);
+        long size = ((Byteable) record).maxSize();
+        BytesStore bs = BytesStore.wrap(new byte[(int) size]);
+        ((Byteable) record).bytesStore(bs, 0, size);
+
+        record.setId(11);
+        record.setQty(12);
+        record.setPrice(-0.5);
+        record.setActive(true);
+        record.setSide(Side.BUY);
+        record.setSlotAt(0, -1L);
+        record.getCenter().setX(13);
+        record.getCornerAt(0).setY(14);
+
+        assertEquals(11L, invoke(access, "getId", bs, 0L));
+        assertEquals(12, invoke(access, "getQty", bs, 0L));
+        assertEquals(-0.5, invoke(access, "getPrice", bs, 0L));
+        assertEquals(true, invoke(access, "getActive", bs, 0L));
+        assertEquals(Side.BUY, invoke(access, "getSide", bs, 0L));
+        assertEquals(-1L, invoke(access, "getSlotAt", bs, 0L, 0));
+        assertEquals(13, invoke(access, "getCenterX", bs, 0L));
+        assertEquals(14, invoke(access, "getCornerAtY", bs, 0L, 0));
+    }
+
+    @Test
+    public void indexOutOfBounds() throws Exception {
+        Class<?> access = Values.accessClassFor(Record.class);
+        BytesStore bs = BytesStore.wrap(new byte[256]);
+        try {
+            invoke(access, "getSlotAt", bs, 0L, 4);
+            fail();
+        } catch (ArrayIndexOutOfBoundsException expected) {
+            // expected
+        }
+        try {
+            invoke(access, "setCornerAtX", bs, 0L, -1, 1);
+            fail();
+        } catch (ArrayIndexOutOfBoundsException expected) {
+            // expected
+        }
+    }
+
+    private static Object invoke(Class<?> access, String name, Object... args) throws Exception {
+        for (Method m : access.getMethods()) {
+            if (m.getName().equals(name)) {
+                try {
+                    return m.invoke(null, args);
+                } catch (InvocationTargetException e) {
+                    throw (Exception) e.getCause();
+                }
+            }
+        }
+        throw new AssertionError("No " + name + " in " + access);
+    }
+
+    public enum Side {
+        BUY, SELL
+    }
+
+    public interface Point {
+        int getX();
+
+        void setX(int x);
+
+        int getY();
+
+        void setY(int y);
+    }
+
+    public interface Record {
+        long getId();
+
+        void setId(long id);
+
+        int getQty();
+
+        void setQty(int qty);
+
+        double getPrice();
+
+        void setPrice(double price);
+
+        boolean getActive();
+
+        void setActive(boolean active);
+
+        Side getSide();
+
+        void setSide(Side side);
+
+        @Array(length = 4)
+        long getSlotAt(int index);
+
+        void setSlotAt(int index, long slot);
+
+        Point getCenter();
+
+        void setCenter(Point center);
+
+        @Array(length = 2)
+        Point getCornerAt(int index);
+
+        void setCornerAt(int index, Point corner);
+
+        CharSequence getName();
+
+        void setName(@MaxUtf8Length(8) CharSequence name);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesMarshallable;
+import net.openhft.chronicle.bytes.BytesStore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StripedTest extends ValuesTestCommon {
+
+    @Test
+    public void layout() {
+        ValueModel model = ValueModel.acquire(Stats.class);
+        assertEquals(64, model.recommendedOffsetAlignment());
+        FieldModel hits = model.fields().filter(f -> f.name.equals("hits")).findFirst().get();
+        assertEquals(4 * 64, hits.sizeInBytes());
+        assertEquals(0, model.fieldBitOffset(hits) % (64 * 8));
+        assertEquals(4 * 64 + 4, model.sizeInBytes());
+    }
+
+    @Test
+    public void heap() {
+        testCounter(Values.newHeapInstance(Stats.class), Values.newHeapInstance(Stats.class));
+    }
+
+    @Test
+    public void nativeReference() {
+        testCounter(nativeValue(Stats.class), nativeValue(Stats.class));
+        testCounter(nativeValue(Stats.class), Values.newHeapInstance(Stats.class));
+        testCounter(Values.newHeapInstance(Stats.class), nativeValue(Stats.class));
+
+        Stats stats = nativeValue(Stats.class);
+        ValueModel model = ValueModel.acquire(Stats.class);
+        FieldModel hits = model.fields().filter(f -> f.name.equals("hits")).findFirst().get();
+        int hitsOffset = model.fieldBitOffset(hits) / 8;
+        BytesStore bs = ((Byteable) stats).bytesStore();
+        bs.writeLong(hitsOffset + 64, 3);
+        stats.addAtomicHits(4);
+        assertEquals(7, stats.getHits());
+        stats.setHits(5);
+        assertEquals(5, bs.readLong(hitsOffset));
+        for (int i = 1; i < 4; i++)
+            assertEquals(0, bs.readLong(hitsOffset + i * 64));
+    }
+
+    private static void testCounter(Stats stats, Stats copy) {
+        stats.setHits(10);
+        stats.addHits(5);
+        stats.addAtomicHits(-2);
+        stats.setId(7);
+        assertEquals(13, stats.getHits());
+        assertEquals(13, stats.getVolatileHits());
+
+        ((Copyable<Stats>) copy).copyFrom(stats);
+        assertEquals(13, copy.getHits());
+        assertEquals(7, copy.getId());
+        assertEquals(stats, copy);
+        assertEquals(stats.hashCode(), copy.hashCode());
+        copy.addAtomicHits(1);
+        assertNotEquals(stats, copy);
+
+        Bytes<?> bytes = Bytes.allocateElasticOnHeap();
+        ((BytesMarshallable) stats).writeMarshallable(bytes);
+        ((BytesMarshallable) copy).readMarshallable(bytes);
+        assertEquals(stats, copy);
+        bytes.releaseLast();
+    }
+
+    @Test
+    public void concurrentAddAtomic() throws InterruptedException {
+        Stats stats = nativeValue(Stats.class);
+        int threads = 8;
+        int additions = 100_000;
+        List<Thread> adders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread adder = new Thread(() -> {
+                for (int i = 0; i < additions; i++)
+                    stats.addAtomicHits(1);
+            }, "striped-adder~" + t);
+            adders.add(adder);
+            adder.start();
+        }
+        for (Thread adder : adders) {
+            adder.join();
+        }
+        assertEquals((long) threads * additions, stats.getHits());
+    }
+
+    @Test
+    public void cellIsStable() {
+        assertEquals(Stripes.cell(16), Stripes.cell(16));
+        for (int i = 0; i < 100; i++) {
+            int cell = Stripes.cell(8);
+            assertTrue(cell >= 0 && cell < 8);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notLong() {
+        ValueModel.acquire(NotLong.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compareAndSwapNotSupported() {
+        ValueModel.acquire(WithCompareAndSwap.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void additionReturningSum() {
+        ValueModel.acquire(AdditionReturningSum.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cellsNotPowerOfTwo() {
+        ValueModel.acquire(ThreeCells.class);
+    }
+
+    public interface Stats {
+        @Striped(cells = 4)
+        long getHits();
+
+        long getVolatileHits();
+
+        void setHits(long hits);
+
+        void addHits(long addition);
+
+        void addAtomicHits(long addition);
+
+        int getId();
+
+        void setId(int id);
+    }
+
+    public interface NotLong {
+        @Striped
+        int getHits();
+
+        void addAtomicHits(int addition);
+    }
+
+    public interface WithCompareAndSwap {
+        @Striped
+        long getHits();
+
+        void addAtomicHits(long addition);
+
+        boolean compareAndSwapHits(long oldHits, long newHits);
+    }
+
+    public interface AdditionReturningSum {
+        @Striped
+        long getHits();
+
+        long addAtomicHits(long addition);
+    }
+
+    public interface ThreeCells {
+        @Striped(cells = 3)
+        long getHits();
+
+        void addAtomicHits(long addition);
+    }
+}
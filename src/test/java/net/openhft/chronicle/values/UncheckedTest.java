@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.BytesStore;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UncheckedTest extends ValuesTestCommon {
+
+    @Test
+    public void className() {
+        Class<?> nativeClass = Values.nativeClassFor(TrustedQuote.class);
+        assertTrue(nativeClass.getName().endsWith(ValueModel.$$NATIVE_UNCHECKED));
+        assertSame(ValueModel.acquire(TrustedQuote.class), ValueModel.acquire(nativeClass));
+        assertTrue(Values.nativeClassFor(CheckedQuote.class).getName()
+                .endsWith(ValueModel.$$NATIVE));
+    }
+
+    @Test
+    public void bothFlavoursInOneJvm() {
+        Class<?> checked = Values.nativeClassFor(TrustedQuote.class, false);
+        assertTrue(checked.getName().endsWith(ValueModel.$$NATIVE));
+        assertSame(Values.nativeClassFor(TrustedQuote.class),
+                Values.nativeClassFor(TrustedQuote.class, true));
+        assertTrue(Values.nativeClassFor(CheckedQuote.class, true).getName()
+                .endsWith(ValueModel.$$NATIVE_UNCHECKED));
+        assertSame(Values.nativeClassFor(CheckedQuote.class),
+                Values.nativeClassFor(CheckedQuote.class, false));
+        // the heap implementation is shared
+        ValueModel model = ValueModel.acquire(TrustedQuote.class);
+        assertSame(model.heapClass(), model.nativeFlavour(false).heapClass());
+
+        TrustedQuote quote = Values.newNativeReference(TrustedQuote.class, false);
+        assertSame(checked, quote.getClass());
+        BytesStore bs = BytesStore.wrap(new byte[(int) ((Byteable) quote).maxSize()]);
+        ((Byteable) quote).bytesStore(bs, 0, ((Byteable) quote).maxSize());
+        quote.setPriceAt(3, 1.5);
+        assertEquals(1.5, quote.getPriceAt(3), 0.0);
+        try {
+            quote.setPriceAt(4, 1.0);
+            fail("checked implementation");
+        } catch (ArrayIndexOutOfBoundsException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void checksAreAsserts() {
+        ValueModel model = ValueModel.acquire(TrustedQuote.class);
+        String source = Generators.generateNativeClass(model, model.nativeClassName().simpleName());
+        assertTrue(source, source.contains("assert !(index < 0 || index >= 4)"));
+        assertTrue(source, source.contains("assert !(level < 0 || level > 1000)"));
+        assertFalse(source, source.contains("throw new ArrayIndexOutOfBoundsException"));
+    }
+
+    @Test
+    public void valuesInRange() {
+        TrustedQuote quote = Values.newNativeReference(TrustedQuote.class);
+        BytesStore bs = BytesStore.wrap(new byte[(int) ((Byteable) quote).maxSize()]);
+        ((Byteable) quote).bytesStore(bs, 0, ((Byteable) quote).maxSize());
+        quote.setLevel(1000);
+        quote.setPriceAt(3, 1.5);
+        assertEquals(1000, quote.getLevel());
+        assertEquals(1.5, quote.getPriceAt(3), 0.0);
+    }
+
+    @Test
+    public void assertionsEnabledInTests() {
+        boolean assertionsEnabled = false;
+        assert assertionsEnabled = true;
+        if (!assertionsEnabled)
+            return;
+        TrustedQuote quote = Values.newNativeReference(TrustedQuote.class);
+        BytesStore bs = BytesStore.wrap(new byte[(int) ((Byteable) quote).maxSize()]);
+        ((Byteable) quote).bytesStore(bs, 0, ((Byteable) quote).maxSize());
+        assertFailsAssertion(() -> quote.setPriceAt(4, 1.0));
+        assertFailsAssertion(() -> quote.setLevel(1001));
+    }
+
+    private static void assertFailsAssertion(Runnable unchecked) {
+        try {
+            unchecked.run();
+        } catch (AssertionError expected) {
+            return;
+        }
+        fail("assert expected to fail");
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void heapIsChecked() {
+        Values.newHeapInstance(TrustedQuote.class).setPriceAt(4, 1.0);
+    }
+
+    @Unchecked
+    public interface TrustedQuote {
+        int getLevel();
+
+        void setLevel(@Range(min = 0, max = 1000) int level);
+
+        @Array(length = 4)
+        double getPriceAt(int index);
+
+        void setPriceAt(int index, double price);
+    }
+
+    public interface CheckedQuote {
+        int getLevel();
+
+        void setLevel(@Range(min = 0, max = 1000) int level);
+    }
+}
@@ -18,6 +18,8 @@
 
 package net.openhft.chronicle.values;
 
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.BytesStore;
 import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.io.AbstractCloseable;
 import net.openhft.chronicle.core.io.AbstractReferenceCounted;
@@ -29,7 +31,9 @@ import net.openhft.chronicle.core.time.SystemTimeProvider;
 import org.junit.After;
 import org.junit.Before;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Predicate;
 
@@ -38,6 +42,33 @@ public class ValuesTestCommon {
     protected ThreadDump threadDump;
     protected Map<ExceptionKey, Integer> exceptions;
     private final Map<Predicate<ExceptionKey>, String> expectedExceptions = new LinkedHashMap<>();
+    private final List<BytesStore> stores = new ArrayList<>();
+
+    /**
+     * Returns a native reference bound to a zeroed native store, released after the test
+     */
+    protected <T> T nativeValue(Class<T> valueType) {
+        return nativeValue(valueType, true);
+    }
+
+    /**
+     * Returns a native reference bound to a zeroed native ({@code direct}) store, released after
+     * the test, or to a store wrapping a byte array
+     */
+    protected <T> T nativeValue(Class<T> valueType, boolean direct) {
+        T value = Values.newNativeReference(valueType);
+        int size = (int) ((Byteable) value).maxSize();
+        BytesStore bs;
+        if (direct) {
+            bs = BytesStore.nativeStoreWithFixedCapacity(size);
+            bs.zeroOut(0, size);
+            stores.add(bs);
+        } else {
+            bs = BytesStore.wrap(new byte[size]);
+        }
+        ((Byteable) value).bytesStore(bs, 0, size);
+        return value;
+    }
 
     @Before
     public void enableReferenceTracing() {
@@ -85,6 +116,8 @@ public class ValuesTestCommon {
 
     @After
     public void afterChecks() {
+        stores.forEach(BytesStore::releaseLast);
+        stores.clear();
         SystemTimeProvider.CLOCK = SystemTimeProvider.INSTANCE;
         CleaningThread.performCleanup(Thread.currentThread());
 
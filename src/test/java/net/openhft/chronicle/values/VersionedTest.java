@@ -0,0 +1,273 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values;
+
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.core.OS;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class VersionedTest extends ValuesTestCommon {
+
+    @Test
+    public void layout() {
+        ValueModel model = ValueModel.acquire(Quote.class);
+        assertEquals(8 + 8 + 8 + 4 + 1, model.sizeInBytes());
+        assertEquals(8, model.recommendedOffsetAlignment());
+        model.fields().forEach(f -> assertTrue(model.fieldBitOffset(f) >= 64));
+    }
+
+    @Test
+    public void heap() {
+        Quote quote = Values.newHeapInstance(Quote.class);
+        testUpdateAndRead(quote, Values.newHeapInstance(Quote.class));
+        // interfaces, which don't extend VersionedValue, are implemented as well
+        assertTrue(Values.newHeapInstance(Plain.class) instanceof VersionedValue);
+    }
+
+    @Test
+    public void nativeReference() {
+        Quote quote = Values.newNativeReference(Quote.class);
+        long size = ((Byteable) quote).maxSize();
+        BytesStore bs = BytesStore.nativeStoreWithFixedCapacity(size);
+        try {
+            bs.zeroOut(0, size);
+            ((Byteable) quote).bytesStore(bs, 0, size);
+            testUpdateAndRead(quote, Values.newHeapInstance(Quote.class));
+            assertEquals(4, bs.readLong(0));
+
+            // the sequence is not copied
+            Quote copy = Values.newNativeReference(Quote.class);
+            BytesStore copyBs = BytesStore.nativeStoreWithFixedCapacity(size);
+            try {
+                copyBs.zeroOut(0, size);
+                ((Byteable) copy).bytesStore(copyBs, 0, size);
+                quote.readConsistent(copy);
+                assertEquals(0, copyBs.readLong(0));
+                assertEquals(quote, copy);
+            } finally {
+                copyBs.releaseLast();
+            }
+
+            try {
+                quote.update(q -> {
+                    q.setPrice(1);
+                    throw new IllegalStateException();
+                });
+                fail("updater exception should be propagated");
+            } catch (IllegalStateException expected) {
+                // the sequence is even again, reads don't hang
+                assertEquals(6, bs.readLong(0));
+                assertEquals(1, quote.getPrice(), 0.0);
+            }
+
+            assertTrue(Values.newNativeReference(Plain.class) instanceof VersionedValue);
+        } finally {
+            bs.releaseLast();
+        }
+    }
+
+    private static void testUpdateAndRead(Quote quote, Quote snapshot) {
+        quote.update(q -> {
+            q.setPrice(10.5);
+            q.setQuantity(100);
+            q.setTimestamp(1000L);
+        });
+        quote.readConsistent(snapshot);
+        assertEquals(10.5, snapshot.getPrice(), 0.0);
+        assertEquals(100, snapshot.getQuantity());
+        assertEquals(1000L, snapshot.getTimestamp());
+
+        quote.update(q -> q.setQuantity(q.getQuantity() + 1));
+        quote.readConsistent(snapshot);
+        assertEquals(101, snapshot.getQuantity());
+        assertEquals(10.5, snapshot.getPrice(), 0.0);
+    }
+
+    @Test
+    public void concurrentReadsAreNotTorn() throws InterruptedException {
+        Quote quote = Values.newNativeReference(Quote.class);
+        long size = ((Byteable) quote).maxSize();
+        BytesStore bs = BytesStore.nativeStoreWithFixedCapacity(size);
+        try {
+            bs.zeroOut(0, size);
+            ((Byteable) quote).bytesStore(bs, 0, size);
+            int updates = 100_000;
+            AtomicBoolean done = new AtomicBoolean();
+            AtomicReference<String> torn = new AtomicReference<>();
+            Thread reader = new Thread(() -> {
+                Quote snapshot = Values.newHeapInstance(Quote.class);
+                while (!done.get() && torn.get() == null) {
+                    quote.readConsistent(snapshot);
+                    long timestamp = snapshot.getTimestamp();
+                    if (snapshot.getPrice() != timestamp ||
+                            snapshot.getQuantity() != (int) timestamp * 2 ||
+                            snapshot.getLive() != (timestamp % 2 == 0)) {
+                        torn.set("torn snapshot at timestamp " + timestamp);
+                    }
+                }
+            }, "versioned-reader~");
+            reader.start();
+            for (int i = 1; i <= updates && torn.get() == null; i++) {
+                long timestamp = i;
+                quote.update(q -> {
+                    q.setTimestamp(timestamp);
+                    q.setQuantity((int) timestamp * 2);
+                    q.setLive(timestamp % 2 == 0);
+                    q.setPrice(timestamp);
+                });
+            }
+            done.set(true);
+            reader.join();
+            assertNull(torn.get());
+            assertEquals(updates * 2L, bs.readLong(0));
+        } finally {
+            bs.releaseLast();
+        }
+    }
+
+    @Test
+    public void reentrantUpdateTimesOut() {
+        Counter counter = nativeValue(Counter.class);
+        try {
+            counter.update(c -> c.update(inner -> inner.setCount(1)));
+            fail("re-entrant update");
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("this process"));
+        }
+        Counter snapshot = Values.newHeapInstance(Counter.class);
+        try {
+            counter.update(c -> c.readConsistent(snapshot));
+            fail("readConsistent() from the updater");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        // the outer updates have finished the sequence
+        counter.update(c -> c.setCount(2));
+        counter.readConsistent(snapshot);
+        assertEquals(2, snapshot.getCount());
+        assertEquals(6, ((Byteable) counter).bytesStore().readLong(0));
+    }
+
+    @Test
+    public void deadUpdaterRecovery() {
+        Counter counter = nativeValue(Counter.class);
+        BytesStore bs = ((Byteable) counter).bytesStore();
+        long deadProcessId = OS.getPidMax() + 1;
+        // the process died in the middle of the update after the sequence 4
+        long deadUpdate = (1L << 63) | (deadProcessId << 32) | 5;
+        bs.writeLong(0, deadUpdate);
+
+        Counter snapshot = Values.newHeapInstance(Counter.class);
+        counter.readConsistent(snapshot);
+        assertEquals(6, bs.readLong(0));
+
+        bs.writeLong(0, deadUpdate);
+        counter.update(c -> c.setCount(3));
+        assertEquals(8, bs.readLong(0));
+        counter.readConsistent(snapshot);
+        assertEquals(3, snapshot.getCount());
+    }
+
+    @Test
+    public void nestedSequenceIsNotCopied() {
+        assertFalse(ValueModel.acquire(Tally.class).bytesCopyable());
+        Tally tally = nativeValue(Tally.class);
+        tally.setId(1);
+        tally.getTotal().update(c -> c.setCount(2));
+        tally.getCountAt(1).update(c -> c.setCount(3));
+        // the updates of the source are in progress
+        Counter total = tally.getTotal();
+        ((Byteable) total).bytesStore().writeLong(((Byteable) total).offset(), 7);
+        Counter count = tally.getCountAt(1);
+        ((Byteable) count).bytesStore().writeLong(((Byteable) count).offset(), 7);
+
+        Tally copy = nativeValue(Tally.class);
+        copy.copyFrom(tally);
+        assertEquals(1, copy.getId());
+        Counter snapshot = Values.newHeapInstance(Counter.class);
+        copy.getTotal().readConsistent(snapshot);
+        assertEquals(2, snapshot.getCount());
+        copy.getCountAt(1).readConsistent(snapshot);
+        assertEquals(3, snapshot.getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notAnnotated() {
+        ValueModel.acquire(NotAnnotated.class);
+    }
+
+    @Versioned
+    public interface Quote extends VersionedValue<Quote> {
+        double getPrice();
+
+        void setPrice(double price);
+
+        int getQuantity();
+
+        void setQuantity(int quantity);
+
+        long getTimestamp();
+
+        void setTimestamp(long timestamp);
+
+        boolean getLive();
+
+        void setLive(boolean live);
+    }
+
+    @Versioned(timeoutMillis = 100)
+    public interface Counter extends VersionedValue<Counter> {
+        int getCount();
+
+        void setCount(int count);
+    }
+
+    public interface Tally extends Copyable<Tally> {
+        int getId();
+
+        void setId(int id);
+
+        Counter getTotal();
+
+        void setTotal(Counter total);
+
+        @Array(length = 2)
+        Counter getCountAt(int index);
+
+        void setCountAt(int index, Counter count);
+    }
+
+    @Versioned
+    public interface Plain {
+        int getValue();
+
+        void setValue(int value);
+    }
+
+    public interface NotAnnotated extends VersionedValue<NotAnnotated> {
+        int getValue();
+
+        void setValue(int value);
+    }
+}
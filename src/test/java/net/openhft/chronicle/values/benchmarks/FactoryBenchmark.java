@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values.benchmarks;
+
+import net.openhft.chronicle.values.Values;
+
+import java.util.function.Supplier;
+
+/**
+ * Compares the cost of creating native references via {@link Values#newNativeReference}, via
+ * reflective {@code getDeclaredConstructor().newInstance()}, via {@link Values#nativeFactory} and
+ * the cost of {@code new} of a plain class of the same shape:
+ * <pre>
+ * java -cp ... net.openhft.chronicle.values.benchmarks.FactoryBenchmark [iterations]
+ * </pre>
+ */
+public final class FactoryBenchmark {
+
+    private static final int BATCH = 1024;
+
+    private FactoryBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        Class<? extends Point> nativeClass = Values.nativeClassFor(Point.class);
+        Supplier<Point> factory = Values.nativeFactory(Point.class);
+        Object[] sink = new Object[BATCH];
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink[i & (BATCH - 1)] = new PlainPoint();
+            }
+            report("new PlainPoint()", start, iterations);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink[i & (BATCH - 1)] = factory.get();
+            }
+            report("nativeFactory(Point.class).get()", start, iterations);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink[i & (BATCH - 1)] = Values.newNativeReference(Point.class);
+            }
+            report("newNativeReference(Point.class)", start, iterations);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink[i & (BATCH - 1)] = nativeClass.getDeclaredConstructor().newInstance();
+            }
+            report("getDeclaredConstructor().newInstance()", start, iterations);
+            System.out.println();
+        }
+    }
+
+    private static void report(String what, long start, int iterations) {
+        System.out.printf("%-40s %6.2f ns/op%n", what,
+                (System.nanoTime() - start) / (double) iterations);
+    }
+
+    public interface Point {
+        int getX();
+
+        void setX(int x);
+
+        int getY();
+
+        void setY(int y);
+    }
+
+    static final class PlainPoint {
+        Object bs;
+        long offset;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values.benchmarks;
+
+import net.openhft.chronicle.values.Values;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures time and metaspace taken by generation of native implementations for many value
+ * interfaces. Compare the default (Java source compilation) and the direct bytecode generation
+ * by running in separate JVMs:
+ * <pre>
+ * java -cp ... net.openhft.chronicle.values.benchmarks.GenerationBenchmark [interfaces] [fields]
+ * java -Dchronicle.values.bytecode=true -cp ... net.openhft.chronicle.values.benchmarks.GenerationBenchmark
+ * </pre>
+ * With the third argument {@code batch}, all implementations are generated by a single {@link
+ * Values#pregenerate} call, rather than {@link Values#nativeClassFor} per interface.
+ */
+public final class GenerationBenchmark {
+
+    private GenerationBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int interfaces = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int fields = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        boolean batch = args.length > 2 && args[2].equals("batch");
+        List<Class<?>> valueTypes = generateValueInterfaces(interfaces, fields);
+
+        long metaspaceBefore = metaspaceUsed();
+        long start = System.nanoTime();
+        if (batch) {
+            Values.pregenerate(valueTypes, false, true);
+        } else {
+            for (Class<?> valueType : valueTypes) {
+                Values.nativeClassFor(valueType);
+            }
+        }
+        long time = System.nanoTime() - start;
+        System.gc();
+        long metaspaceAfter = metaspaceUsed();
+
+        System.out.printf("%s: %d interfaces with %d fields generated in %.1f ms " +
+                        "(%.2f ms per interface), metaspace +%d KiB%n",
+                (Boolean.getBoolean("chronicle.values.bytecode") ? "bytecode" : "javac") +
+                        (batch ? " batch" : ""),
+                interfaces, fields, time / 1e6, time / 1e6 / interfaces,
+                (metaspaceAfter - metaspaceBefore) / 1024);
+    }
+
+    private static long metaspaceUsed() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getName().equals("Metaspace"))
+                return pool.getUsage().getUsed();
+        }
+        return 0;
+    }
+
+    /**
+     * Writes interfaces with {@code long getFieldN()}/{@code void setFieldN(long)} pairs to a
+     * temporary directory, which is added to the classpath of the runtime compiler, and loads them
+     * in a new class loader
+     */
+    public static List<Class<?>> generateValueInterfaces(int interfaces, int fields) throws IOException {
+        Path dir = Files.createTempDirectory("values-benchmark");
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < interfaces; i++) {
+            String name = GenerationBenchmark.class.getPackage().getName() + ".Synthetic" + i;
+            ClassWriter cw = new ClassWriter(0);
+            cw.visit(Opcodes.V1_8,
+                    Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT,
+                    name.replace('.', '/'), null, "java/lang/Object", null);
+            for (int f = 0; f < fields; f++) {
+                cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "getField" + f,
+                        "()J", null, null).visitEnd();
+                cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "setField" + f,
+                        "(J)V", null, null).visitEnd();
+            }
+            cw.visitEnd();
+            Path classFile = dir.resolve(name.replace('.', '/') + ".class");
+            Files.createDirectories(classFile.getParent());
+            Files.write(classFile, cw.toByteArray());
+            names.add(name);
+        }
+        // javac needs the interfaces on its classpath, heap implementations are always compiled
+        System.setProperty("java.class.path",
+                System.getProperty("java.class.path") + File.pathSeparator + dir);
+        URLClassLoader loader = new URLClassLoader(new URL[]{dir.toUri().toURL()},
+                GenerationBenchmark.class.getClassLoader());
+        List<Class<?>> valueTypes = new ArrayList<>();
+        for (String name : names) {
+            try {
+                valueTypes.add(loader.loadClass(name));
+            } catch (ClassNotFoundException e) {
+                throw new AssertionError(e);
+            }
+        }
+        return valueTypes;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values.benchmarks;
+
+import net.openhft.chronicle.values.ValueModel;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures {@link ValueModel#acquire} (without implementation generation) of wide value
+ * interfaces, each long field of which has {@code get}, {@code set}, {@code getVolatile}, {@code
+ * setOrdered}, {@code addAtomic} and {@code compareAndSwap} accessors:
+ * <pre>
+ * java -cp ... net.openhft.chronicle.values.benchmarks.ModelConstructionBenchmark [interfaces] [fields]
+ * </pre>
+ */
+public final class ModelConstructionBenchmark {
+
+    private ModelConstructionBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int interfaces = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int fields = args.length > 1 ? Integer.parseInt(args[1]) : 70;
+        for (int round = 0; round < 5; round++) {
+            List<Class<?>> valueTypes = generateWideInterfaces(round, interfaces, fields);
+            long start = System.nanoTime();
+            for (Class<?> valueType : valueTypes) {
+                ValueModel.acquire(valueType);
+            }
+            long time = System.nanoTime() - start;
+            System.out.printf("round %d: %d interfaces with %d accessors, %.3f ms per interface%n",
+                    round, interfaces, fields * 6, time / 1e6 / interfaces);
+        }
+    }
+
+    private static List<Class<?>> generateWideInterfaces(int round, int interfaces, int fields) {
+        SyntheticLoader loader = new SyntheticLoader();
+        List<Class<?>> valueTypes = new ArrayList<>();
+        for (int i = 0; i < interfaces; i++) {
+            String name = ModelConstructionBenchmark.class.getPackage().getName() +
+                    ".Wide" + round + "_" + i;
+            ClassWriter cw = new ClassWriter(0);
+            cw.visit(Opcodes.V1_8,
+                    Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT,
+                    name.replace('.', '/'), null, "java/lang/Object", null);
+            for (int f = 0; f < fields; f++) {
+                abstractMethod(cw, "getField" + f, "()J");
+                abstractMethod(cw, "setField" + f, "(J)V");
+                abstractMethod(cw, "getVolatileField" + f, "()J");
+                abstractMethod(cw, "setOrderedField" + f, "(J)V");
+                abstractMethod(cw, "addAtomicField" + f, "(J)J");
+                abstractMethod(cw, "compareAndSwapField" + f, "(JJ)Z");
+            }
+            cw.visitEnd();
+            valueTypes.add(loader.define(name, cw.toByteArray()));
+        }
+        return valueTypes;
+    }
+
+    private static void abstractMethod(ClassWriter cw, String name, String descriptor) {
+        cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, name, descriptor, null, null)
+                .visitEnd();
+    }
+
+    private static final class SyntheticLoader extends ClassLoader {
+        SyntheticLoader() {
+            super(ModelConstructionBenchmark.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
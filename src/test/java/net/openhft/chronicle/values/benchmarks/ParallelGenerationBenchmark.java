@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.openhft.chronicle.values.benchmarks;
+
+import net.openhft.chronicle.values.Values;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the wall time of warming up (generating native and heap implementations of) many value
+ * interfaces on several threads. Compare different numbers of threads in separate JVMs:
+ * <pre>
+ * java -cp ... net.openhft.chronicle.values.benchmarks.ParallelGenerationBenchmark [interfaces] [fields] [threads]
+ * </pre>
+ */
+public final class ParallelGenerationBenchmark {
+
+    private ParallelGenerationBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int interfaces = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int fields = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) :
+                Runtime.getRuntime().availableProcessors();
+        List<Class<?>> valueTypes =
+                GenerationBenchmark.generateValueInterfaces(interfaces, fields);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger next = new AtomicInteger();
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i; (i = next.getAndIncrement()) < valueTypes.size(); ) {
+                    Values.nativeClassFor(valueTypes.get(i));
+                    Values.heapClassFor(valueTypes.get(i));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long time = System.nanoTime() - start;
+        executor.shutdown();
+
+        System.out.printf("%d interfaces with %d fields warmed up on %d threads " +
+                        "(%d cores) in %.1f ms%n",
+                interfaces, fields, threads, Runtime.getRuntime().availableProcessors(),
+                time / 1e6);
+    }
+}
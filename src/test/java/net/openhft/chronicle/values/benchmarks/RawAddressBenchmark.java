@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values.benchmarks;
+
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.bytes.PointerBytesStore;
+import net.openhft.chronicle.values.Values;
+
+/**
+ * Per-access cost of native value accessors, which read and write the raw address of a direct
+ * store, against {@code BytesStore} reads and writes at the same offsets (what accessors did
+ * before). Native, heap and pointer stores are all used, so {@code BytesStore} call sites are
+ * megamorphic, as in an application using several store implementations. The raw address is
+ * opt-in, the benchmark enables it, as if run with {@code -Dchronicle.values.rawAddress=true}:
+ * <pre>
+ * java -cp ... net.openhft.chronicle.values.benchmarks.RawAddressBenchmark [iterations]
+ * </pre>
+ */
+public final class RawAddressBenchmark {
+
+    private static final int VALUES = 64;
+
+    private RawAddressBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        // before the implementation is generated
+        System.setProperty("chronicle.values.rawAddress", "true");
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Tick tick = Values.newNativeReference(Tick.class);
+        long size = ((Byteable) tick).maxSize();
+        BytesStore direct = BytesStore.nativeStoreWithFixedCapacity(size * VALUES);
+        try {
+            direct.zeroOut(0, size * VALUES);
+            PointerBytesStore pointer = new PointerBytesStore();
+            pointer.set(direct.addressForRead(0), size * VALUES);
+            BytesStore heap = BytesStore.wrap(new byte[(int) (size * VALUES)]);
+            BytesStore[] stores = {direct, heap, pointer};
+
+            Tick[][] ticks = new Tick[stores.length][VALUES];
+            for (int s = 0; s < stores.length; s++) {
+                for (int v = 0; v < VALUES; v++) {
+                    ticks[s][v] = Values.newNativeReference(Tick.class);
+                    ((Byteable) ticks[s][v]).bytesStore(stores[s], v * size, size);
+                }
+            }
+
+            long sink = 0;
+            for (int round = 0; round < 5; round++) {
+                for (int s = 0; s < stores.length; s++) {
+                    BytesStore bs = stores[s];
+                    String name = bs.getClass().getSimpleName();
+                    long start = System.nanoTime();
+                    for (int i = 0; i < iterations; i++)
+                        sink += accessors(ticks[s], i);
+                    report(name + " accessors", start, iterations);
+
+                    start = System.nanoTime();
+                    for (int i = 0; i < iterations; i++)
+                        sink += bytesStoreCalls(bs, size, i);
+                    report(name + " BytesStore", start, iterations);
+                }
+                System.out.println();
+            }
+            System.out.println("sink " + sink);
+        } finally {
+            direct.releaseLast();
+        }
+    }
+
+    /**
+     * Three writes and three reads per value, via the generated accessors
+     */
+    private static long accessors(Tick[] ticks, int i) {
+        long sum = 0;
+        for (int v = 0; v < VALUES; v++) {
+            Tick tick = ticks[v];
+            tick.setTime(i);
+            tick.setPrice(v);
+            tick.setQuantity(v);
+            sum += tick.getTime() + (long) tick.getPrice() + tick.getQuantity();
+        }
+        return sum;
+    }
+
+    /**
+     * The same accesses, as {@code Tick$$Native} made them before caching the raw address: two
+     * 8-byte fields, then the int field
+     */
+    private static long bytesStoreCalls(BytesStore bs, long size, int i) {
+        long sum = 0;
+        for (int v = 0; v < VALUES; v++) {
+            long offset = v * size;
+            bs.writeLong(offset, i);
+            bs.writeDouble(offset + 8, v);
+            bs.writeInt(offset + 16, v);
+            sum += bs.readLong(offset) + (long) bs.readDouble(offset + 8) +
+                    bs.readInt(offset + 16);
+        }
+        return sum;
+    }
+
+    private static void report(String what, long start, int iterations) {
+        System.out.printf("%-36s %6.2f ns/access%n", what,
+                (System.nanoTime() - start) / (iterations * VALUES * 6.0));
+    }
+
+    public interface Tick {
+        long getTime();
+
+        void setTime(long time);
+
+        double getPrice();
+
+        void setPrice(double price);
+
+        int getQuantity();
+
+        void setQuantity(int quantity);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016-2021 chronicle.software
+ *
+ *       https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.values.benchmarks;
+
+import net.openhft.chronicle.bytes.Byteable;
+import net.openhft.chronicle.bytes.BytesStore;
+import net.openhft.chronicle.values.Array;
+import net.openhft.chronicle.values.Values;
+
+/**
+ * Compares generated {@code sum} and {@code dot} reductions over a native {@code @Array} field of
+ * doubles with loops over the element getter. By default, reductions take the address of direct
+ * memory once per call, with {@code -Dchronicle.values.rawAddress=true} they loop over the cached
+ * raw address:
+ * <pre>
+ * java [-Dchronicle.values.rawAddress=true] -cp ... \
+ *     net.openhft.chronicle.values.benchmarks.ReductionBenchmark [iterations]
+ * </pre>
+ */
+public final class ReductionBenchmark {
+
+    private ReductionBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Exposures a = Values.newNativeReference(Exposures.class);
+        Exposures b = Values.newNativeReference(Exposures.class);
+        BytesStore aStore = bind(a);
+        BytesStore bStore = bind(b);
+        try {
+            for (int i = 0; i < 512; i++) {
+                a.setValuesAt(i, i * 0.5);
+                b.setValuesAt(i, 1.0 / (i + 1));
+            }
+            double sink = 0;
+            for (int round = 0; round < 5; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++)
+                    sink += getterSum(a);
+                report("getValuesAt(i) sum", start, iterations);
+
+                start = System.nanoTime();
+                for (int i = 0; i < iterations; i++)
+                    sink += a.sumValues();
+                report("sumValues()", start, iterations);
+
+                start = System.nanoTime();
+                for (int i = 0; i < iterations; i++)
+                    sink += getterDot(a, b);
+                report("getValuesAt(i) dot", start, iterations);
+
+                start = System.nanoTime();
+                for (int i = 0; i < iterations; i++)
+                    sink += a.dotValues(b);
+                report("dotValues(other)", start, iterations);
+                System.out.println();
+            }
+            System.out.println("sink " + sink);
+        } finally {
+            aStore.releaseLast();
+            bStore.releaseLast();
+        }
+    }
+
+    private static BytesStore bind(Exposures value) {
+        long size = ((Byteable) value).maxSize();
+        BytesStore bs = BytesStore.nativeStoreWithFixedCapacity(size);
+        bs.zeroOut(0, size);
+        ((Byteable) value).bytesStore(bs, 0, size);
+        return bs;
+    }
+
+    private static double getterSum(Exposures value) {
+        double sum = 0;
+        for (int i = 0; i < 512; i++)
+            sum += value.getValuesAt(i);
+        return sum;
+    }
+
+    private static double getterDot(Exposures value, Exposures other) {
+        double dot = 0;
+        for (int i = 0; i < 512; i++)
+            dot += value.getValuesAt(i) * other.getValuesAt(i);
+        return dot;
+    }
+
+    private static void report(String what, long start, int iterations) {
+        System.out.printf("%-24s %8.2f ns/op%n", what,
+                (System.nanoTime() - start) / (double) iterations);
+    }
+
+    public interface Exposures {
+        @Array(length = 512)
+        double getValuesAt(int index);
+
+        void setValuesAt(int index, double value);
+
+        double sumValues();
+
+        double dotValues(Exposures other);
+    }
+}